@@ -0,0 +1,20 @@
+package com.ptit.coffee_shop.common;
+
+import java.util.Collection;
+import java.util.List;
+
+// Phát ra khi dữ liệu catalog (product, product item, category, brand, image) thay đổi.
+// productIds là các sản phẩm bị ảnh hưởng khi biết trước (vd. product_summary, sản phẩm của category/brand vừa sửa),
+// rỗng nếu không rõ
+public record CatalogChangedEvent(String source, Collection<Long> productIds) {
+    public static final String PRODUCT = "product";
+    public static final String PRODUCT_ITEM = "product_item";
+    public static final String PRODUCT_SUMMARY = "product_summary";
+    public static final String CATEGORY = "category";
+    public static final String BRAND = "brand";
+    public static final String TYPE_PRODUCT = "type_product";
+
+    public CatalogChangedEvent(String source) {
+        this(source, List.of());
+    }
+}
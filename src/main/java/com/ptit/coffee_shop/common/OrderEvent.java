@@ -0,0 +1,8 @@
+package com.ptit.coffee_shop.common;
+
+import com.ptit.coffee_shop.common.enums.OrderEventType;
+import com.ptit.coffee_shop.common.enums.OrderStatus;
+
+// Sự kiện vòng đời đơn hàng được OutboxDispatcher phát lại từ bảng outbox_event sau khi transaction đã commit
+public record OrderEvent(long eventId, OrderEventType type, long orderId, OrderStatus previousStatus, OrderStatus status) {
+}
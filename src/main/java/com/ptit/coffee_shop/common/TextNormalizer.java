@@ -0,0 +1,26 @@
+package com.ptit.coffee_shop.common;
+
+import java.text.Normalizer;
+import java.util.Locale;
+import java.util.regex.Pattern;
+
+/**
+ * Chuẩn hóa chuỗi tiếng Việt để tìm kiếm không phân biệt dấu: "Cà phê sữa đá" -> "ca phe sua da".
+ * Dùng chung cho dữ liệu khi index và từ khóa người dùng nhập vào.
+ */
+public final class TextNormalizer {
+    private static final Pattern COMBINING_MARKS = Pattern.compile("\\p{M}+");
+
+    private TextNormalizer() {
+    }
+
+    public static String normalize(String text) {
+        if (text == null || text.isEmpty()) {
+            return "";
+        }
+        // đ/Đ không tách được bằng NFD nên phải thay trực tiếp
+        String replaced = text.replace('đ', 'd').replace('Đ', 'D');
+        String decomposed = Normalizer.normalize(replaced, Normalizer.Form.NFD);
+        return COMBINING_MARKS.matcher(decomposed).replaceAll("").toLowerCase(Locale.ROOT);
+    }
+}
@@ -0,0 +1,36 @@
+package com.ptit.coffee_shop.common.enums;
+
+public enum OrderSort {
+    NEWEST("orderDate", false),
+    OLDEST("orderDate", true),
+    TOTAL_DESC("total", false),
+    TOTAL_ASC("total", true);
+
+    private final String property;
+    private final boolean ascending;
+
+    OrderSort(String property, boolean ascending) {
+        this.property = property;
+        this.ascending = ascending;
+    }
+
+    public String getProperty() {
+        return property;
+    }
+
+    public boolean isAscending() {
+        return ascending;
+    }
+
+    // Nhận cả "total-desc" và "total_desc", trả về null nếu không hợp lệ
+    public static OrderSort fromValue(String value) {
+        if (value == null || value.isBlank()) {
+            return NEWEST;
+        }
+        try {
+            return OrderSort.valueOf(value.trim().toUpperCase().replace('-', '_'));
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+    }
+}
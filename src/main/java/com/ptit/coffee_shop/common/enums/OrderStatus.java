@@ -5,5 +5,15 @@ public enum OrderStatus {
     Processed,
     Shipping,
     Completed,
-    Cancelled
+    Cancelled;
+
+    // Trạng thái kế tiếp trong luồng xử lý đơn, null nếu đơn đã kết thúc
+    public OrderStatus next() {
+        return switch (this) {
+            case Processing -> Processed;
+            case Processed -> Shipping;
+            case Shipping -> Completed;
+            default -> null;
+        };
+    }
 }
@@ -0,0 +1,30 @@
+package com.ptit.coffee_shop.common.enums;
+
+public enum ProductSort {
+    NEWEST(false),
+    PRICE(true),
+    RATING(false),
+    BEST_SELLING(false);
+
+    private final boolean ascending;
+
+    ProductSort(boolean ascending) {
+        this.ascending = ascending;
+    }
+
+    public boolean isAscending() {
+        return ascending;
+    }
+
+    // Nhận cả "best-selling" và "best_selling", trả về null nếu không hợp lệ
+    public static ProductSort fromValue(String value) {
+        if (value == null || value.isBlank()) {
+            return NEWEST;
+        }
+        try {
+            return ProductSort.valueOf(value.trim().toUpperCase().replace('-', '_'));
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+    }
+}
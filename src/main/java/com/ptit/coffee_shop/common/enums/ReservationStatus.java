@@ -0,0 +1,7 @@
+package com.ptit.coffee_shop.common.enums;
+
+public enum ReservationStatus {
+    HELD,
+    CONFIRMED,
+    RELEASED
+}
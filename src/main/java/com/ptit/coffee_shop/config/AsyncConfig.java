@@ -1,9 +1,21 @@
 package com.ptit.coffee_shop.config;
 
+import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.scheduling.annotation.EnableAsync;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
 
 @Configuration
 @EnableAsync
 public class AsyncConfig {
+
+    // Pool dùng chung cho mọi lần dựng lại product_summary, Spring tắt pool khi ứng dụng dừng
+    @Bean
+    public ThreadPoolTaskExecutor productSummaryRebuildExecutor() {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(4);
+        executor.setMaxPoolSize(4);
+        executor.setThreadNamePrefix("summary-rebuild-");
+        return executor;
+    }
 }
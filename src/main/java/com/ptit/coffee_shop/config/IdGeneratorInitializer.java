@@ -0,0 +1,74 @@
+package com.ptit.coffee_shop.config;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.event.ContextRefreshedEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Các entity ghi nhiều (order, order_item, chat_message...) lấy id theo block từ bảng id_generator
+ * thay vì AUTO_INCREMENT để Hibernate gom được INSERT thành JDBC batch.
+ * Optimizer pooled coi next_val là id cuối của block kế tiếp (block = next_val - allocationSize + 1 .. next_val),
+ * nên khi khởi động next_val được đẩy lên ít nhất max(id) + allocationSize để không trùng với dữ liệu cũ.
+ */
+@Component
+@Slf4j
+@RequiredArgsConstructor
+public class IdGeneratorInitializer {
+    public static final String TABLE = "id_generator";
+    // Phải bằng allocationSize của các @TableGenerator
+    public static final int ALLOCATION_SIZE = 50;
+
+    // pkColumnValue của @TableGenerator -> bảng của entity
+    private static final Map<String, String> SEGMENTS = new LinkedHashMap<>();
+
+    static {
+        SEGMENTS.put("order", "order");
+        SEGMENTS.put("order_item", "order_item");
+        SEGMENTS.put("transaction", "transaction");
+        SEGMENTS.put("chat_message", "chat_message");
+        SEGMENTS.put("cart_item", "cart_item");
+        SEGMENTS.put("review", "review");
+        SEGMENTS.put("stock_reservation", "stock_reservation");
+        SEGMENTS.put("outbox_event", "outbox_event");
+    }
+
+    private final JdbcTemplate jdbcTemplate;
+
+    // Chạy trước CommandLineRunner và trước khi nhận request
+    @EventListener(ContextRefreshedEvent.class)
+    @Transactional
+    public void alignWithExistingIds() {
+        String quote = jdbcTemplate.execute((ConnectionCallback<String>) connection ->
+                connection.getMetaData().getIdentifierQuoteString().trim());
+        String generatorTable = quote + TABLE + quote;
+        for (Map.Entry<String, String> segment : SEGMENTS.entrySet()) {
+            Long maxId = jdbcTemplate.queryForObject(
+                    "SELECT COALESCE(MAX(" + quote + "id" + quote + "), 0) FROM " + quote + segment.getValue() + quote,
+                    Long.class);
+            List<Long> nextValues = jdbcTemplate.queryForList(
+                    "SELECT " + quote + "next_val" + quote + " FROM " + generatorTable
+                            + " WHERE " + quote + "sequence_name" + quote + " = ?",
+                    Long.class, segment.getKey());
+            long nextValue = maxId + ALLOCATION_SIZE;
+            if (nextValues.isEmpty()) {
+                jdbcTemplate.update("INSERT INTO " + generatorTable + " (" + quote + "sequence_name" + quote + ", "
+                        + quote + "next_val" + quote + ") VALUES (?, ?)", segment.getKey(), nextValue);
+            } else if (nextValues.get(0) < nextValue) {
+                jdbcTemplate.update("UPDATE " + generatorTable + " SET " + quote + "next_val" + quote + " = ? WHERE "
+                        + quote + "sequence_name" + quote + " = ?", nextValue, segment.getKey());
+            } else {
+                continue;
+            }
+            log.info("Moved id generator {} to {}", segment.getKey(), nextValue);
+        }
+    }
+}
@@ -1,5 +1,6 @@
 package com.ptit.coffee_shop.controller;
 
+import com.ptit.coffee_shop.common.CatalogChangedEvent;
 import com.ptit.coffee_shop.common.Constant;
 import com.ptit.coffee_shop.common.GsonUtil;
 import com.ptit.coffee_shop.config.MessageBuilder;
@@ -8,7 +9,9 @@ import com.ptit.coffee_shop.model.Brand;
 import com.ptit.coffee_shop.payload.response.RespMessage;
 import com.ptit.coffee_shop.service.BrandService;
 import com.ptit.coffee_shop.service.ProductService;
+import com.ptit.coffee_shop.service.ResponseCacheService;
 import lombok.RequiredArgsConstructor;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
@@ -23,6 +26,7 @@ public class BrandController {
     private final ProductService productService;
     private final MessageBuilder messageBuilder;
     private final BrandService brandService;
+    private final ResponseCacheService responseCacheService;
 
     @RequestMapping(value = "", method = RequestMethod.POST, produces = "application/json")
     @PreAuthorize("hasRole('ROLE_ADMIN')")
@@ -43,9 +47,10 @@ public class BrandController {
 
 
     @RequestMapping(value = "/all", method = RequestMethod.GET, produces = "application/json")
-    public ResponseEntity<String> getAllBrand() {
-        RespMessage respMessage = brandService.getAllBrands();
-        return new ResponseEntity<>(GsonUtil.getInstance().toJson(respMessage), HttpStatus.OK);
+    public ResponseEntity<byte[]> getAllBrand(@RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch,
+                                              @RequestHeader(value = HttpHeaders.ACCEPT_ENCODING, required = false) String acceptEncoding) {
+        return responseCacheService.respond("brand-all", CatalogChangedEvent.BRAND, ifNoneMatch, acceptEncoding,
+                brandService::getAllBrands);
     }
 
     @RequestMapping(value = "/{id}", method = RequestMethod.PUT, produces = "application/json")
@@ -4,6 +4,7 @@ import com.ptit.coffee_shop.common.Constant;
 import com.ptit.coffee_shop.common.GsonUtil;
 import com.ptit.coffee_shop.config.MessageBuilder;
 import com.ptit.coffee_shop.exception.CoffeeShopException;
+import com.ptit.coffee_shop.payload.request.CartItemBulkRequest;
 import com.ptit.coffee_shop.payload.request.CartItemRequest;
 import com.ptit.coffee_shop.payload.response.RespMessage;
 import com.ptit.coffee_shop.service.CartService;
@@ -49,6 +50,21 @@ public class CartController {
         }
     }
 
+    @RequestMapping(value = "/items", method = RequestMethod.POST, produces = "application/json")
+    public ResponseEntity<String> addCartItems(@RequestBody CartItemBulkRequest request) {
+        try {
+            RespMessage resp = cartService.addCartItems(request);
+            return new ResponseEntity<>(GsonUtil.getInstance().toJson(resp), HttpStatus.OK);
+        } catch (CoffeeShopException e) {
+            RespMessage resp = messageBuilder.buildFailureMessage(e.getCode(), e.getObjects(), e.getMessage());
+            return new ResponseEntity<>(GsonUtil.getInstance().toJson(resp), HttpStatus.BAD_REQUEST);
+        }
+        catch (Exception e) {
+            RespMessage resp = messageBuilder.buildFailureMessage(Constant.UNDEFINED, null, e.getMessage());
+            return new ResponseEntity<>(GsonUtil.getInstance().toJson(resp), HttpStatus.INTERNAL_SERVER_ERROR);
+        }
+    }
+
     @RequestMapping(value = "/item", method = RequestMethod.PUT, produces = "application/json")
     public ResponseEntity<String> updateCartItem(@RequestBody CartItemRequest request) {
         try {
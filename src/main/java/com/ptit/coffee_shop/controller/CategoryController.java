@@ -1,6 +1,7 @@
 package com.ptit.coffee_shop.controller;
 
 import com.fasterxml.jackson.annotation.JsonProperty;
+import com.ptit.coffee_shop.common.CatalogChangedEvent;
 import com.ptit.coffee_shop.common.Constant;
 import com.ptit.coffee_shop.common.GsonUtil;
 import com.ptit.coffee_shop.config.MessageBuilder;
@@ -9,7 +10,9 @@ import com.ptit.coffee_shop.model.Category;
 import com.ptit.coffee_shop.payload.response.RespMessage;
 import com.ptit.coffee_shop.service.CategoryService;
 import com.ptit.coffee_shop.service.ProductService;
+import com.ptit.coffee_shop.service.ResponseCacheService;
 import lombok.RequiredArgsConstructor;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
@@ -26,6 +29,7 @@ public class CategoryController {
     public final ProductService productService;
     public final MessageBuilder messageBuilder;
     private final CategoryService categoryService;
+    private final ResponseCacheService responseCacheService;
 
     @RequestMapping(value = "", method = RequestMethod.POST, produces = "application/json",
                         consumes = MediaType.MULTIPART_FORM_DATA_VALUE)
@@ -48,9 +52,10 @@ public class CategoryController {
     }
 
     @RequestMapping(value = "/all" , method = RequestMethod.GET , produces = "application/json")
-    public ResponseEntity<String> getAllCategory () {
-        RespMessage respMessage = categoryService.getAllCategories();
-        return new ResponseEntity<>(GsonUtil.getInstance().toJson(respMessage), HttpStatus.OK);
+    public ResponseEntity<byte[]> getAllCategory (@RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch,
+                                                  @RequestHeader(value = HttpHeaders.ACCEPT_ENCODING, required = false) String acceptEncoding) {
+        return responseCacheService.respond("category-all", CatalogChangedEvent.CATEGORY, ifNoneMatch, acceptEncoding,
+                categoryService::getAllCategories);
     }
 
     @RequestMapping(value = "/{id}" , method = RequestMethod.GET , produces = "application/json")
@@ -10,6 +10,7 @@ import com.ptit.coffee_shop.exception.CoffeeShopException;
 import com.ptit.coffee_shop.model.Transaction;
 import com.ptit.coffee_shop.payload.response.PaymentResponse;
 import com.ptit.coffee_shop.payload.response.RespMessage;
+import com.ptit.coffee_shop.service.IdempotencyService;
 import com.ptit.coffee_shop.service.OnlinePaymentService;
 import jakarta.servlet.http.HttpServletRequest;
 import lombok.AllArgsConstructor;
@@ -34,9 +35,16 @@ public class OnlinePaymentController {
 
     private final MessageBuilder messageBuilder;
     private final OnlinePaymentService onlinePaymentService;
+    private final IdempotencyService idempotencyService;
 
     @RequestMapping(value = "",method = RequestMethod.GET, produces = "application/json")
-    public ResponseEntity<String> createOnlinePayment(@RequestParam("amount") int amount, HttpServletRequest request ) {
+    public ResponseEntity<String> createOnlinePayment(@RequestParam("amount") int amount, HttpServletRequest request,
+                                                      @RequestHeader(value = IdempotencyService.HEADER, required = false) String idempotencyKey) {
+        // Cùng key trả lại đúng URL thanh toán đã tạo (cùng vnp_TxnRef) thay vì sinh giao dịch VNPay mới
+        return idempotencyService.execute("payment", idempotencyKey, amount, () -> createPaymentUrl(amount, request));
+    }
+
+    private ResponseEntity<String> createPaymentUrl(int amount, HttpServletRequest request) {
         try {
             RespMessage respMessage = onlinePaymentService.createVNPayPayment(amount,request);
             return new ResponseEntity<>(GsonUtil.getInstance().toJson(respMessage), HttpStatus.OK);
@@ -3,21 +3,32 @@ package com.ptit.coffee_shop.controller;
 
 import com.ptit.coffee_shop.common.Constant;
 import com.ptit.coffee_shop.common.GsonUtil;
+import com.ptit.coffee_shop.common.enums.ExportFormat;
 import com.ptit.coffee_shop.common.enums.OrderStatus;
+import com.ptit.coffee_shop.common.enums.PaymentMethod;
 import com.ptit.coffee_shop.config.MessageBuilder;
 import com.ptit.coffee_shop.exception.CoffeeShopException;
 import com.ptit.coffee_shop.model.Order;
 import com.ptit.coffee_shop.payload.request.OrderRequest;
+import com.ptit.coffee_shop.payload.request.OrderStatusBulkRequest;
 import com.ptit.coffee_shop.payload.response.RespMessage;
 import com.ptit.coffee_shop.repository.OrderRepository;
+import com.ptit.coffee_shop.service.IdempotencyService;
+import com.ptit.coffee_shop.service.OrderExportService;
+import com.ptit.coffee_shop.service.OrderIntakeService;
 import com.ptit.coffee_shop.service.OrderService;
 import lombok.AllArgsConstructor;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import java.time.LocalDate;
 import java.util.List;
 
 @AllArgsConstructor
@@ -28,6 +39,12 @@ public class OrderController {
     private final OrderService orderService;
     @Autowired
     private final MessageBuilder messageBuilder;
+    @Autowired
+    private final OrderIntakeService orderIntakeService;
+    @Autowired
+    private final IdempotencyService idempotencyService;
+    @Autowired
+    private final OrderExportService orderExportService;
 
 
     @GetMapping("/get-all")
@@ -37,6 +54,50 @@ public class OrderController {
         return new ResponseEntity<>(GsonUtil.getInstance().toJson(respMessage), HttpStatus.OK);
     }
 
+    // fromDate/toDate dạng yyyy-MM-dd, sort: newest, oldest, total-desc, total-asc
+    @GetMapping("/page")
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<String> getOrderPage(@RequestParam(value = "status", required = false) OrderStatus status,
+                                               @RequestParam(value = "paymentMethod", required = false) PaymentMethod paymentMethod,
+                                               @RequestParam(value = "fromDate", required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate fromDate,
+                                               @RequestParam(value = "toDate", required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate toDate,
+                                               @RequestParam(value = "userId", required = false) Long userId,
+                                               @RequestParam(value = "page", defaultValue = "0") int page,
+                                               @RequestParam(value = "size", defaultValue = "20") int size,
+                                               @RequestParam(value = "sort", defaultValue = "newest") String sort) {
+        try {
+            RespMessage respMessage = orderService.getOrderPage(status, paymentMethod, fromDate, toDate, userId, page, size, sort);
+            return new ResponseEntity<>(GsonUtil.getInstance().toJson(respMessage), HttpStatus.OK);
+        } catch (CoffeeShopException e) {
+            RespMessage respMessage = messageBuilder.buildFailureMessage(e.getCode(), e.getObjects(), e.getMessage());
+            return new ResponseEntity<>(GsonUtil.getInstance().toJson(respMessage), HttpStatus.BAD_REQUEST);
+        } catch (Exception e) {
+            RespMessage respMessage = messageBuilder.buildFailureMessage(Constant.UNDEFINED, null, e.getMessage());
+            return new ResponseEntity<>(GsonUtil.getInstance().toJson(respMessage), HttpStatus.INTERNAL_SERVER_ERROR);
+        }
+    }
+
+    // Xuất đơn cho kế toán, format: csv hoặc ndjson, fromDate/toDate dạng yyyy-MM-dd.
+    // Dữ liệu được ghi dần ra response thay vì dựng cả danh sách trong bộ nhớ như /get-all
+    @GetMapping("/export")
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<?> exportOrders(@RequestParam(value = "format", defaultValue = "csv") String format,
+                                          @RequestParam(value = "fromDate", required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate fromDate,
+                                          @RequestParam(value = "toDate", required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate toDate) {
+        ExportFormat exportFormat;
+        try {
+            exportFormat = orderExportService.validate(format, fromDate, toDate);
+        } catch (CoffeeShopException e) {
+            RespMessage respMessage = messageBuilder.buildFailureMessage(e.getCode(), e.getObjects(), e.getMessage());
+            return new ResponseEntity<>(GsonUtil.getInstance().toJson(respMessage), HttpStatus.BAD_REQUEST);
+        }
+        StreamingResponseBody body = outputStream -> orderExportService.export(exportFormat, fromDate, toDate, outputStream);
+        return ResponseEntity.ok()
+                .contentType(MediaType.parseMediaType(exportFormat.getContentType()))
+                .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=orders." + exportFormat.getExtension())
+                .body(body);
+    }
+
     @GetMapping("/{orderId}")
     public ResponseEntity<String> getOrderById(@PathVariable long orderId) {
         try {
@@ -50,9 +111,30 @@ public class OrderController {
 
     @PostMapping("")
     @PreAuthorize("hasRole('USER')")
-    public ResponseEntity<String> addOrder(@RequestBody OrderRequest orderRequest) {
+    public ResponseEntity<String> addOrder(@RequestBody OrderRequest orderRequest,
+                                           @RequestHeader(value = IdempotencyService.HEADER, required = false) String idempotencyKey) {
+        // Client gửi lại cùng key (mạng chập chờn) nhận lại response của lần đặt đầu tiên, không tạo đơn trùng
+        return idempotencyService.execute("order", idempotencyKey, orderRequest, () -> placeOrder(orderRequest));
+    }
+
+    private ResponseEntity<String> placeOrder(OrderRequest orderRequest) {
+        try {
+            RespMessage respMessage = orderIntakeService.placeOrder(orderRequest);
+            return new ResponseEntity<>(GsonUtil.getInstance().toJson(respMessage), HttpStatus.OK);
+        } catch (CoffeeShopException e) {
+            RespMessage respMessage = messageBuilder.buildFailureMessage(e.getCode(), e.getObjects(), e.getMessage());
+            return new ResponseEntity<>(GsonUtil.getInstance().toJson(respMessage), HttpStatus.BAD_REQUEST);
+        } catch (RuntimeException e) {
+            RespMessage respMessage = messageBuilder.buildFailureMessage(Constant.UNDEFINED, null, e.getMessage());
+            return new ResponseEntity<>(GsonUtil.getInstance().toJson(respMessage), HttpStatus.INTERNAL_SERVER_ERROR);
+        }
+    }
+
+    @PutMapping("/status")
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<String> updateOrderStatuses(@RequestBody OrderStatusBulkRequest request) {
         try {
-            RespMessage respMessage = orderService.addOrder(orderRequest);
+            RespMessage respMessage = orderService.updateOrderStatuses(request);
             return new ResponseEntity<>(GsonUtil.getInstance().toJson(respMessage), HttpStatus.OK);
         } catch (CoffeeShopException e) {
             RespMessage respMessage = messageBuilder.buildFailureMessage(e.getCode(), e.getObjects(), e.getMessage());
@@ -103,6 +185,39 @@ public class OrderController {
             return new ResponseEntity<>(GsonUtil.getInstance().toJson(respMessage), HttpStatus.NOT_FOUND);
         }
     }
+
+    // Lịch sử đơn phân trang theo cursor: truyền nextCursor của trang trước, bỏ trống để lấy trang đầu
+    @GetMapping("/user/history")
+    @PreAuthorize("hasRole('USER')")
+    public ResponseEntity<String> getOrderHistory(@RequestParam(value = "cursor", required = false) Long cursor,
+                                                  @RequestParam(value = "size", defaultValue = "20") int size) {
+        try {
+            RespMessage respMessage = orderService.getOrderHistory(cursor, size);
+            return new ResponseEntity<>(GsonUtil.getInstance().toJson(respMessage), HttpStatus.OK);
+        } catch (CoffeeShopException e) {
+            RespMessage respMessage = messageBuilder.buildFailureMessage(e.getCode(), e.getObjects(), e.getMessage());
+            return new ResponseEntity<>(GsonUtil.getInstance().toJson(respMessage), HttpStatus.BAD_REQUEST);
+        } catch (Exception e) {
+            RespMessage respMessage = messageBuilder.buildFailureMessage(Constant.UNDEFINED, null, e.getMessage());
+            return new ResponseEntity<>(GsonUtil.getInstance().toJson(respMessage), HttpStatus.INTERNAL_SERVER_ERROR);
+        }
+    }
+
+    @GetMapping("/user/history/{orderId}")
+    @PreAuthorize("hasRole('USER')")
+    public ResponseEntity<String> getOrderHistoryDetail(@PathVariable long orderId) {
+        try {
+            RespMessage respMessage = orderService.getOrderHistoryDetail(orderId);
+            return new ResponseEntity<>(GsonUtil.getInstance().toJson(respMessage), HttpStatus.OK);
+        } catch (CoffeeShopException e) {
+            RespMessage respMessage = messageBuilder.buildFailureMessage(e.getCode(), e.getObjects(), e.getMessage());
+            return new ResponseEntity<>(GsonUtil.getInstance().toJson(respMessage), HttpStatus.NOT_FOUND);
+        } catch (Exception e) {
+            RespMessage respMessage = messageBuilder.buildFailureMessage(Constant.UNDEFINED, null, e.getMessage());
+            return new ResponseEntity<>(GsonUtil.getInstance().toJson(respMessage), HttpStatus.INTERNAL_SERVER_ERROR);
+        }
+    }
+
     @GetMapping("/status/{orderStatus}")
     public ResponseEntity<String> getOrderByStatus(@PathVariable OrderStatus orderStatus) {
         try {
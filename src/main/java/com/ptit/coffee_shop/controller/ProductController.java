@@ -4,10 +4,15 @@ import com.ptit.coffee_shop.common.Constant;
 import com.ptit.coffee_shop.common.GsonUtil;
 import com.ptit.coffee_shop.config.MessageBuilder;
 import com.ptit.coffee_shop.exception.CoffeeShopException;
+import com.ptit.coffee_shop.payload.request.ProductFilterRequest;
 import com.ptit.coffee_shop.payload.request.ProductRequest;
 import com.ptit.coffee_shop.payload.response.RespMessage;
+import com.ptit.coffee_shop.service.CatalogSnapshot;
 import com.ptit.coffee_shop.service.ProductService;
+import com.ptit.coffee_shop.service.ResponseCacheService;
+import com.ptit.coffee_shop.service.ProductSummaryService;
 import lombok.RequiredArgsConstructor;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
@@ -15,17 +20,40 @@ import org.springframework.stereotype.Controller;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.web.multipart.MultipartFile;
 
+import java.util.List;
+
 @Controller
 @RequiredArgsConstructor
 @RequestMapping("/api/product")
 public class ProductController {
     private final ProductService productService;
     private final MessageBuilder messageBuilder;
+    private final ProductSummaryService productSummaryService;
+    private final ResponseCacheService responseCacheService;
 
     @RequestMapping(value = "/all", method = RequestMethod.GET, produces = "application/json")
-    public ResponseEntity<String> getAllProducts() {
-        RespMessage respMessage = productService.getAllProduct();
-        return new ResponseEntity<>(GsonUtil.getInstance().toJson(respMessage), HttpStatus.OK);
+    public ResponseEntity<byte[]> getAllProducts(@RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch,
+                                                 @RequestHeader(value = HttpHeaders.ACCEPT_ENCODING, required = false) String acceptEncoding) {
+        // Cache theo version của snapshot nên body và ETag luôn khớp nhau
+        CatalogSnapshot snapshot = productService.getCatalogSnapshot();
+        return responseCacheService.respond("product-all", snapshot.getVersion(), ifNoneMatch, acceptEncoding,
+                () -> productService.getAllProduct(snapshot));
+    }
+
+    @RequestMapping(value = "/page", method = RequestMethod.GET, produces = "application/json")
+    public ResponseEntity<String> getProductPage(@RequestParam(value = "size", defaultValue = "20") int size,
+                                                 @RequestParam(value = "sort", defaultValue = "newest") String sort,
+                                                 @RequestParam(value = "cursor", required = false) String cursor) {
+        try {
+            RespMessage respMessage = productService.getProductPage(size, sort, cursor);
+            return new ResponseEntity<>(GsonUtil.getInstance().toJson(respMessage), HttpStatus.OK);
+        } catch (CoffeeShopException e) {
+            RespMessage respMessage = messageBuilder.buildFailureMessage(e.getCode(), e.getObjects(), e.getMessage());
+            return new ResponseEntity<>(GsonUtil.getInstance().toJson(respMessage), HttpStatus.BAD_REQUEST);
+        } catch (Exception e) {
+            RespMessage respMessage = messageBuilder.buildFailureMessage(Constant.UNDEFINED, null, e.getMessage());
+            return new ResponseEntity<>(GsonUtil.getInstance().toJson(respMessage), HttpStatus.INTERNAL_SERVER_ERROR);
+        }
     }
 
     @RequestMapping(value = "", method = RequestMethod.POST, produces = "application/json")
@@ -88,6 +116,43 @@ public class ProductController {
             return new ResponseEntity<>(respMessage, HttpStatus.INTERNAL_SERVER_ERROR);
         }
     }
+    @RequestMapping(value = "/suggest", method = RequestMethod.GET, produces = "application/json")
+    public ResponseEntity<String> suggestProducts(@RequestParam("prefix") String prefix,
+                                                  @RequestParam(value = "limit", defaultValue = "10") int limit) {
+        try {
+            RespMessage respMessage = productService.suggestProducts(prefix, limit);
+            return new ResponseEntity<>(GsonUtil.getInstance().toJson(respMessage), HttpStatus.OK);
+        } catch (CoffeeShopException e) {
+            RespMessage respMessage = messageBuilder.buildFailureMessage(e.getCode(), e.getObjects(), e.getMessage());
+            return new ResponseEntity<>(GsonUtil.getInstance().toJson(respMessage), HttpStatus.BAD_REQUEST);
+        } catch (Exception e) {
+            RespMessage respMessage = messageBuilder.buildFailureMessage(Constant.UNDEFINED, null, e.getMessage());
+            return new ResponseEntity<>(GsonUtil.getInstance().toJson(respMessage), HttpStatus.INTERNAL_SERVER_ERROR);
+        }
+    }
+
+    @RequestMapping(value = "/filter", method = RequestMethod.GET, produces = "application/json")
+    public ResponseEntity<String> filterProducts(@RequestParam(value = "categoryId", required = false) List<Long> categoryIds,
+                                                 @RequestParam(value = "brandId", required = false) List<Long> brandIds,
+                                                 @RequestParam(value = "typeId", required = false) List<Long> typeIds,
+                                                 @RequestParam(value = "priceBand", required = false) List<String> priceBands,
+                                                 @RequestParam(value = "inStock", required = false) Boolean inStock,
+                                                 @RequestParam(value = "minRating", required = false) Integer minRating,
+                                                 @RequestParam(value = "page", defaultValue = "0") int page,
+                                                 @RequestParam(value = "size", defaultValue = "20") int size) {
+        try {
+            ProductFilterRequest request = new ProductFilterRequest(categoryIds, brandIds, typeIds, priceBands, inStock, minRating, page, size);
+            RespMessage respMessage = productService.filterProducts(request);
+            return new ResponseEntity<>(GsonUtil.getInstance().toJson(respMessage), HttpStatus.OK);
+        } catch (CoffeeShopException e) {
+            RespMessage respMessage = messageBuilder.buildFailureMessage(e.getCode(), e.getObjects(), e.getMessage());
+            return new ResponseEntity<>(GsonUtil.getInstance().toJson(respMessage), HttpStatus.BAD_REQUEST);
+        } catch (Exception e) {
+            RespMessage respMessage = messageBuilder.buildFailureMessage(Constant.UNDEFINED, null, e.getMessage());
+            return new ResponseEntity<>(GsonUtil.getInstance().toJson(respMessage), HttpStatus.INTERNAL_SERVER_ERROR);
+        }
+    }
+
     // API tìm kiếm sản phẩm theo từ khóa và trả về RespMessage thông qua ResponseEntity
     @GetMapping("/search")
     public ResponseEntity<RespMessage> searchProductsByKeyword(@RequestParam("q") String keyword) {
@@ -150,6 +215,15 @@ public class ProductController {
         }
     }
 
-
-
+    @RequestMapping(value = "/summary/rebuild", method = RequestMethod.POST, produces = "application/json")
+    @PreAuthorize("hasRole('ROLE_ADMIN')")
+    public ResponseEntity<String> rebuildProductSummary() {
+        try {
+            RespMessage respMessage = productSummaryService.rebuild();
+            return new ResponseEntity<>(GsonUtil.getInstance().toJson(respMessage), HttpStatus.OK);
+        } catch (CoffeeShopException e) {
+            RespMessage respMessage = messageBuilder.buildFailureMessage(e.getCode(), e.getObjects(), e.getMessage());
+            return new ResponseEntity<>(GsonUtil.getInstance().toJson(respMessage), HttpStatus.INTERNAL_SERVER_ERROR);
+        }
+    }
 }
@@ -6,6 +6,7 @@ import com.ptit.coffee_shop.exception.CoffeeShopException;
 import com.ptit.coffee_shop.model.Transaction;
 import com.ptit.coffee_shop.payload.request.TransactionRequest;
 import com.ptit.coffee_shop.payload.response.RespMessage;
+import com.ptit.coffee_shop.service.IdempotencyService;
 import com.ptit.coffee_shop.service.TransactionService;
 import jakarta.persistence.Column;
 import lombok.AllArgsConstructor;
@@ -13,6 +14,7 @@ import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.stereotype.Controller;
 import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestMethod;
 import org.springframework.web.bind.annotation.RequestParam;
@@ -23,9 +25,16 @@ import org.springframework.web.bind.annotation.RequestParam;
 public class TransactionController {
     private final TransactionService transactionService;
     private final MessageBuilder messageBuilder;
+    private final IdempotencyService idempotencyService;
 
     @RequestMapping(value = "", method = RequestMethod.POST, produces = "application/json")
-    public ResponseEntity<String> addTransaction(@RequestBody TransactionRequest transactionRequest) {
+    public ResponseEntity<String> addTransaction(@RequestBody TransactionRequest transactionRequest,
+                                                 @RequestHeader(value = IdempotencyService.HEADER, required = false) String idempotencyKey) {
+        return idempotencyService.execute("transaction", idempotencyKey, transactionRequest,
+                () -> saveTransaction(transactionRequest));
+    }
+
+    private ResponseEntity<String> saveTransaction(TransactionRequest transactionRequest) {
         try {
             RespMessage respMessage = transactionService.addTransaction(transactionRequest);
             return new ResponseEntity<>(GsonUtil.getInstance().toJson(respMessage), HttpStatus.OK);
@@ -1,18 +1,23 @@
 package com.ptit.coffee_shop.controller;
 
+import com.ptit.coffee_shop.common.CatalogChangedEvent;
 import com.ptit.coffee_shop.common.GsonUtil;
 import com.ptit.coffee_shop.config.MessageBuilder;
 import com.ptit.coffee_shop.exception.CoffeeShopException;
 import com.ptit.coffee_shop.payload.response.RespMessage;
 import com.ptit.coffee_shop.service.ProductService;
+import com.ptit.coffee_shop.service.ResponseCacheService;
 import lombok.RequiredArgsConstructor;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestMethod;
 import org.springframework.web.bind.annotation.RestController;
 
+import java.nio.charset.StandardCharsets;
 import java.util.Map;
 
 @RestController
@@ -21,6 +26,8 @@ import java.util.Map;
 public class TypeProductController {
     private final ProductService productService;
     private final MessageBuilder messageBuilder;
+    private final ResponseCacheService responseCacheService;
+
     @RequestMapping(value = "", method = RequestMethod.POST, produces = "application/json")
     public ResponseEntity<String> addTypeProduct(@RequestBody Map<String, String> payload) {
         String name = payload.get("name");
@@ -36,13 +43,14 @@ public class TypeProductController {
     }
 
     @RequestMapping(value = "/all", method = RequestMethod.GET, produces = "application/json")
-    public ResponseEntity<String> getAllTypeProduct() {
+    public ResponseEntity<byte[]> getAllTypeProduct(@RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch,
+                                                    @RequestHeader(value = HttpHeaders.ACCEPT_ENCODING, required = false) String acceptEncoding) {
         try {
-            RespMessage respMessage = productService.getAllTypeProduct();
-            return new ResponseEntity<>(GsonUtil.getInstance().toJson(respMessage), HttpStatus.OK);
+            return responseCacheService.respond("type-product-all", CatalogChangedEvent.TYPE_PRODUCT, ifNoneMatch, acceptEncoding,
+                    productService::getAllTypeProduct);
         } catch (CoffeeShopException e) {
             RespMessage respMessage = messageBuilder.buildFailureMessage(e.getCode(), e.getObjects(), e.getMessage());
-            return new ResponseEntity<>(GsonUtil.getInstance().toJson(respMessage), HttpStatus.BAD_REQUEST);
+            return new ResponseEntity<>(GsonUtil.getInstance().toJson(respMessage).getBytes(StandardCharsets.UTF_8), HttpStatus.BAD_REQUEST);
         }
     }
 }
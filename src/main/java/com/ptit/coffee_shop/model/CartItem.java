@@ -14,7 +14,8 @@ import lombok.NoArgsConstructor;
 @Table(name = "cart_item")
 public class CartItem {
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.TABLE, generator = "cart_item_id")
+    @TableGenerator(name = "cart_item_id", table = "id_generator", pkColumnValue = "cart_item", allocationSize = 50)
     private long id;
 
     @Column(name = "quantity")
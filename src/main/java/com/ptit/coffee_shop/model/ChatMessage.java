@@ -8,7 +8,8 @@ import lombok.Data;
 @Data
 public class ChatMessage {
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.TABLE, generator = "chat_message_id")
+    @TableGenerator(name = "chat_message_id", table = "id_generator", pkColumnValue = "chat_message", allocationSize = 50)
     private long id;
 
     @ManyToOne
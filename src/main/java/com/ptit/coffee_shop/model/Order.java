@@ -15,11 +15,15 @@ import java.util.Date;
 @AllArgsConstructor
 @NoArgsConstructor
 
-@Table(name = "`order`")
+@Table(name = "`order`", indexes = {
+        @Index(name = "idx_order_total", columnList = "total"),
+        @Index(name = "idx_order_cold_status", columnList = "cold, status, order_date")
+})
 
 public class Order {
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.TABLE, generator = "order_id")
+    @TableGenerator(name = "order_id", table = "id_generator", pkColumnValue = "order", allocationSize = 50)
     private long id;
 
     @ManyToOne
@@ -36,4 +40,18 @@ public class Order {
     @Column(name = "payment_method")
     @Enumerated(EnumType.STRING)
     private PaymentMethod paymentMethod;
+
+    // Lưu lúc đặt hàng để danh sách đơn không phải cộng lại từ order_item; null với đơn cũ chưa được backfill
+    @Column(name = "subtotal")
+    private Double subtotal;
+
+    @Column(name = "shipping_fee")
+    private Double shippingFee;
+
+    @Column(name = "total")
+    private Double total;
+
+    // Đơn đã kết thúc quá hạn lưu nóng, được ColdOrderMarker đánh dấu; truy vấn vận hành chỉ đọc các đơn chưa cold
+    @Column(name = "cold")
+    private boolean cold;
 }
@@ -14,11 +14,14 @@ import lombok.NoArgsConstructor;
 @Data
 @AllArgsConstructor
 @NoArgsConstructor
-@Table(name = "order_item")
+@Table(name = "order_item", indexes = {
+        @Index(name = "idx_order_item_stock_pending", columnList = "stock_pending")
+})
 
 public class OrderItem {
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.TABLE, generator = "order_item_id")
+    @TableGenerator(name = "order_item_id", table = "id_generator", pkColumnValue = "order_item", allocationSize = 50)
     private long id;
 
     @Column(name = "amount", nullable = false)
@@ -41,6 +44,10 @@ public class OrderItem {
     @Column(name = "is_reviewed")
     private boolean isReviewed;
 
+    // Đơn của sản phẩm hot sale: số lượng chưa được trừ vào product_item.stock
+    @Column(name = "stock_pending")
+    private boolean stockPending;
+
     @PrePersist
     public void prePersist() {
         isReviewed = false;
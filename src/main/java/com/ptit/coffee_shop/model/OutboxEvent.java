@@ -0,0 +1,59 @@
+package com.ptit.coffee_shop.model;
+
+import com.ptit.coffee_shop.common.enums.OrderEventType;
+import com.ptit.coffee_shop.common.enums.OrderStatus;
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.Date;
+
+/**
+ * Sự kiện đơn hàng được ghi cùng transaction với thay đổi của đơn.
+ * Bản ghi có dispatched_at null là chưa được {@link com.ptit.coffee_shop.service.OutboxDispatcher} gửi cho listener.
+ */
+@Entity
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@Table(name = "outbox_event", indexes = {
+        @Index(name = "idx_outbox_event_dispatched", columnList = "dispatched_at, id")
+})
+public class OutboxEvent {
+    @Id
+    @GeneratedValue(strategy = GenerationType.TABLE, generator = "outbox_event_id")
+    @TableGenerator(name = "outbox_event_id", table = "id_generator", pkColumnValue = "outbox_event", allocationSize = 50)
+    private long id;
+
+    @Column(name = "type")
+    @Enumerated(EnumType.STRING)
+    private OrderEventType type;
+
+    @Column(name = "order_id")
+    private long orderId;
+
+    @Column(name = "previous_status")
+    @Enumerated(EnumType.STRING)
+    private OrderStatus previousStatus;
+
+    @Column(name = "status")
+    @Enumerated(EnumType.STRING)
+    private OrderStatus status;
+
+    @Column(name = "created_at")
+    private Date createdAt;
+
+    @Column(name = "attempts")
+    private int attempts;
+
+    @Column(name = "dispatched_at")
+    private Date dispatchedAt;
+
+    @PrePersist
+    public void prePersist() {
+        if (createdAt == null) createdAt = new Date();
+    }
+}
@@ -17,7 +17,7 @@ import java.util.List;
 @Builder
 @NoArgsConstructor
 @AllArgsConstructor
-@Table(name = "product")
+@Table(name = "product", indexes = @Index(name = "idx_product_status", columnList = "status, id"))
 public class Product {
     @Id
     @GeneratedValue(strategy = GenerationType.IDENTITY)
@@ -39,6 +39,10 @@ public class ProductItem {
     @Enumerated(EnumType.STRING)
     private Status status;
 
+    // Bật cho sản phẩm flash sale: tồn kho được trừ trên bộ đếm trong bộ nhớ (HotStockService)
+    @Column(name = "hot_sale")
+    private boolean hotSale;
+
     @PrePersist
     public void prePersist() {
         if (status == null) status = Status.ACTIVE;
@@ -0,0 +1,49 @@
+package com.ptit.coffee_shop.model;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.Date;
+
+@Entity
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@Table(name = "product_summary", indexes = {
+        @Index(name = "idx_product_summary_min_price", columnList = "min_price, product_id"),
+        @Index(name = "idx_product_summary_rating", columnList = "rating, product_id"),
+        @Index(name = "idx_product_summary_total_sold", columnList = "total_sold, product_id")
+})
+public class ProductSummary {
+    @Id
+    @Column(name = "product_id")
+    private long productId;
+
+    @Column(name = "rating")
+    private double rating;
+
+    @Column(name = "total_review")
+    private int totalReview;
+
+    @Column(name = "total_sold")
+    private int totalSold;
+
+    @Column(name = "min_price")
+    private double minPrice;
+
+    @Column(name = "max_price")
+    private double maxPrice;
+
+    @Column(name = "updated_at")
+    private Date updatedAt;
+
+    @PrePersist
+    @PreUpdate
+    public void preSave() {
+        updatedAt = new Date();
+    }
+}
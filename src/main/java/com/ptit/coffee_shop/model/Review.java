@@ -17,7 +17,8 @@ import java.util.Date;
 @Table(name = "review")
 public class Review {
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.TABLE, generator = "review_id")
+    @TableGenerator(name = "review_id", table = "id_generator", pkColumnValue = "review", allocationSize = 50)
     private long id;
 
     @Column(name = "rating")
@@ -0,0 +1,51 @@
+package com.ptit.coffee_shop.model;
+
+import com.ptit.coffee_shop.common.enums.ReservationStatus;
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.Date;
+
+/**
+ * Số lượng hàng đang được giữ cho một đơn VNPay chờ thanh toán.
+ * Bản ghi HELD được nạp lại vào bộ nhớ khi ứng dụng khởi động để sweeper vẫn trả hàng sau khi restart.
+ */
+@Entity
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@Table(name = "stock_reservation", indexes = {
+        @Index(name = "idx_stock_reservation_order", columnList = "order_id"),
+        @Index(name = "idx_stock_reservation_status_expires", columnList = "status, expires_at")
+})
+public class StockReservation {
+    @Id
+    @GeneratedValue(strategy = GenerationType.TABLE, generator = "stock_reservation_id")
+    @TableGenerator(name = "stock_reservation_id", table = "id_generator", pkColumnValue = "stock_reservation", allocationSize = 50)
+    private long id;
+
+    @Column(name = "order_id")
+    private long orderId;
+
+    @Column(name = "product_item_id")
+    private long productItemId;
+
+    @Column(name = "amount")
+    private int amount;
+
+    @Column(name = "expires_at")
+    private Date expiresAt;
+
+    @Column(name = "status")
+    @Enumerated(EnumType.STRING)
+    private ReservationStatus status;
+
+    @PrePersist
+    public void prePersist() {
+        if (status == null) status = ReservationStatus.HELD;
+    }
+}
@@ -16,7 +16,8 @@ import java.util.Date;
 @Table(name = "transaction")
 public class Transaction {
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.TABLE, generator = "transaction_id")
+    @TableGenerator(name = "transaction_id", table = "id_generator", pkColumnValue = "transaction", allocationSize = 50)
     private long id;
 
     @Column(name = "transaction_no")
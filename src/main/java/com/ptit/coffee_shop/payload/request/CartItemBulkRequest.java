@@ -0,0 +1,19 @@
+package com.ptit.coffee_shop.payload.request;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class CartItemBulkRequest {
+    @JsonProperty("UserId")
+    private long userId;
+
+    @JsonProperty("Items")
+    private List<CartItemRequest> items;
+}
@@ -0,0 +1,20 @@
+package com.ptit.coffee_shop.payload.request;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+import com.ptit.coffee_shop.common.enums.OrderStatus;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class OrderStatusBulkRequest {
+    @JsonProperty("OrderIds")
+    private List<Long> orderIds;
+
+    @JsonProperty("Status")
+    private OrderStatus status;
+}
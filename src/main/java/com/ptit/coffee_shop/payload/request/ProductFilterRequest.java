@@ -0,0 +1,23 @@
+package com.ptit.coffee_shop.payload.request;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@AllArgsConstructor
+@NoArgsConstructor
+@Builder
+@Data
+public class ProductFilterRequest {
+    private List<Long> categoryIds;
+    private List<Long> brandIds;
+    private List<Long> typeIds;
+    private List<String> priceBands;
+    private Boolean inStock;
+    private Integer minRating;
+    private int page;
+    private int size;
+}
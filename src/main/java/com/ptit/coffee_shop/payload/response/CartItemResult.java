@@ -0,0 +1,18 @@
+package com.ptit.coffee_shop.payload.response;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@AllArgsConstructor
+@Builder
+@NoArgsConstructor
+public class CartItemResult {
+    private long productItemId;
+    private boolean success;
+    private Long cartItemId;
+    private int quantity;
+    private String message;
+}
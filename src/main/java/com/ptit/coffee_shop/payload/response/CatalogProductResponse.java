@@ -0,0 +1,84 @@
+package com.ptit.coffee_shop.payload.response;
+
+import com.ptit.coffee_shop.common.enums.Status;
+import com.ptit.coffee_shop.model.Brand;
+import com.ptit.coffee_shop.model.Category;
+import com.ptit.coffee_shop.model.Image;
+import com.ptit.coffee_shop.model.ProductSummary;
+import lombok.Builder;
+import lombok.Value;
+
+import java.util.List;
+
+// Bản sao bất biến của ProductResponse dùng trong catalog snapshot, không giữ tham chiếu tới entity JPA
+@Value
+@Builder(toBuilder = true)
+public class CatalogProductResponse {
+    long id;
+    String name;
+    String description;
+    CategoryInfo category;
+    BrandInfo brand;
+    List<ImageInfo> images;
+    double rating;
+    int totalReview;
+    int totalSold;
+    double maxPrice;
+    double minPrice;
+
+    @Value
+    public static class CategoryInfo {
+        long id;
+        String name;
+        Status status;
+        String description;
+        String defaultImageUrl;
+    }
+
+    @Value
+    public static class BrandInfo {
+        long id;
+        String name;
+        Status status;
+    }
+
+    @Value
+    public static class ImageInfo {
+        long id;
+        String url;
+    }
+
+    public static CatalogProductResponse from(ProductResponse product) {
+        Category category = product.getCategory();
+        Brand brand = product.getBrand();
+        List<Image> images = product.getImages() != null ? product.getImages() : List.of();
+        return CatalogProductResponse.builder()
+                .id(product.getId())
+                .name(product.getName())
+                .description(product.getDescription())
+                .category(category == null ? null : new CategoryInfo(category.getId(), category.getName(),
+                        category.getStatus(), category.getDescription(), category.getDefaultImageUrl()))
+                .brand(brand == null ? null : new BrandInfo(brand.getId(), brand.getName(), brand.getStatus()))
+                .images(images.stream().map(image -> new ImageInfo(image.getId(), image.getUrl())).toList())
+                .rating(product.getRating())
+                .totalReview(product.getTotalReview())
+                .totalSold(product.getTotalSold())
+                .maxPrice(product.getMaxPrice())
+                .minPrice(product.getMinPrice())
+                .build();
+    }
+
+    // Sản phẩm chưa có dòng summary được hiển thị như chưa có rating, lượt bán và giá
+    public CatalogProductResponse withSummary(ProductSummary summary) {
+        if (summary == null) {
+            return toBuilder().rating(0).totalReview(0).totalSold(0).maxPrice(0).minPrice(0).build();
+        }
+        return toBuilder()
+                .rating(summary.getRating())
+                .totalReview(summary.getTotalReview())
+                .totalSold(summary.getTotalSold())
+                .maxPrice(summary.getMaxPrice())
+                .minPrice(summary.getMinPrice())
+                .build();
+    }
+}
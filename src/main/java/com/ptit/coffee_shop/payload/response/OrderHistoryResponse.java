@@ -0,0 +1,17 @@
+package com.ptit.coffee_shop.payload.response;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class OrderHistoryResponse {
+    private List<OrderSummaryResponse> orders;
+    private int size;
+    // Truyền lại làm cursor để lấy trang kế tiếp, null khi đã hết đơn
+    private Long nextCursor;
+}
@@ -0,0 +1,19 @@
+package com.ptit.coffee_shop.payload.response;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class OrderPageResponse {
+    private List<OrderResponse> orders;
+    private int page;
+    private int size;
+    private long totalElements;
+    private int totalPages;
+    private String sort;
+}
@@ -0,0 +1,18 @@
+package com.ptit.coffee_shop.payload.response;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@AllArgsConstructor
+@Builder
+@NoArgsConstructor
+public class OrderStatusResult {
+    private long orderId;
+    private boolean success;
+    private String previousStatus;
+    private String status;
+    private String message;
+}
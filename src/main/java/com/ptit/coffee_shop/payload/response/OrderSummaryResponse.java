@@ -0,0 +1,20 @@
+package com.ptit.coffee_shop.payload.response;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.Date;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class OrderSummaryResponse {
+    private long orderId;
+    private Date orderDate;
+    private String orderStatus;
+    private String paymentMethod;
+    private double total;
+    private long itemCount;
+    private String productImage;
+}
@@ -0,0 +1,20 @@
+package com.ptit.coffee_shop.payload.response;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+import java.util.Map;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class ProductFilterResponse {
+    private List<CatalogProductResponse> products;
+    private int total;
+    private int page;
+    private int size;
+    // facet -> (giá trị -> số sản phẩm), vd. "brand" -> {"1": 12, "2": 5}
+    private Map<String, Map<String, Integer>> facets;
+}
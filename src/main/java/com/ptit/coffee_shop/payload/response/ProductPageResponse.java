@@ -0,0 +1,18 @@
+package com.ptit.coffee_shop.payload.response;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class ProductPageResponse {
+    private List<ProductResponse> products;
+    private String nextCursor;
+    private boolean hasNext;
+    private int size;
+    private String sort;
+}
@@ -3,9 +3,11 @@ package com.ptit.coffee_shop.payload.response;
 import lombok.AllArgsConstructor;
 import lombok.Builder;
 import lombok.Data;
+import lombok.NoArgsConstructor;
 
 @Data
 @AllArgsConstructor
+@NoArgsConstructor
 @Builder
 public class RespMessage {
     private String respCode;
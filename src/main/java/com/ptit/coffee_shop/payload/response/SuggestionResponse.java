@@ -0,0 +1,14 @@
+package com.ptit.coffee_shop.payload.response;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class SuggestionResponse {
+    private String text;
+    private String type;
+    private long totalSold;
+}
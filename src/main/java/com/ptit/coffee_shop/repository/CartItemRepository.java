@@ -2,8 +2,13 @@ package com.ptit.coffee_shop.repository;
 
 import com.ptit.coffee_shop.model.CartItem;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
@@ -11,4 +16,16 @@ import java.util.Optional;
 public interface CartItemRepository extends JpaRepository<CartItem, Long> {
     List<CartItem> findByUserId(Long userId);
     Optional<CartItem> findByUserIdAndProductItemId(Long userId, Long productItemId);
+
+    // Cả giỏ cùng user và sản phẩm trong một câu SQL, số câu lệnh không tăng theo số dòng trong giỏ
+    @Query("SELECT c FROM CartItem c JOIN FETCH c.user u LEFT JOIN FETCH u.role LEFT JOIN FETCH u.forgotPassword " +
+            "JOIN FETCH c.productItem pi JOIN FETCH pi.product p LEFT JOIN FETCH pi.type " +
+            "LEFT JOIN FETCH p.category LEFT JOIN FETCH p.brand WHERE u.id = :userId")
+    List<CartItem> findCartByUserId(@Param("userId") long userId);
+
+    // Dòng đã bị xóa không bị tạo lại, chỉ các dòng còn tồn tại được cập nhật
+    @Modifying
+    @Transactional
+    @Query("UPDATE CartItem c SET c.quantity = :quantity WHERE c.id IN :ids")
+    int updateQuantity(@Param("ids") Collection<Long> ids, @Param("quantity") int quantity);
 }
@@ -3,10 +3,22 @@ package com.ptit.coffee_shop.repository;
 import com.ptit.coffee_shop.model.Image;
 import com.ptit.coffee_shop.model.Product;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 
+import java.util.Collection;
 import java.util.List;
 
 public interface ImageRepository extends JpaRepository<Image, Long> {
     List<Image> findByProduct(Product product);
+
+    @Query("SELECT i FROM Image i WHERE i.product.id IN :productIds")
+    List<Image> findByProductIds(@Param("productIds") Collection<Long> productIds);
+
+    // Ảnh đầu tiên (id nhỏ nhất) của mỗi sản phẩm
+    @Query("SELECT i FROM Image i WHERE i.id IN " +
+            "(SELECT MIN(i2.id) FROM Image i2 WHERE i2.product.id IN :productIds GROUP BY i2.product.id)")
+    List<Image> findPrimaryByProductIds(@Param("productIds") Collection<Long> productIds);
+
     void deleteByProduct(Product product);
 }
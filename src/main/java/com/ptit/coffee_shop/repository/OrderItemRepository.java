@@ -3,11 +3,13 @@ package com.ptit.coffee_shop.repository;
 import com.ptit.coffee_shop.model.OrderItem;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 
 import javax.swing.text.html.Option;
 import java.time.LocalDate;
+import java.util.Collection;
 import java.util.Date;
 import java.util.List;
 import java.util.Optional;
@@ -17,6 +19,30 @@ public interface OrderItemRepository extends JpaRepository<OrderItem, Long> {
     @Query("SELECT oi FROM OrderItem oi WHERE oi.order.id = :orderId")
     List<OrderItem> findByOrderId(@Param("orderId") long orderId);
 
+    @Query("SELECT DISTINCT oi.productItem.product.id FROM OrderItem oi WHERE oi.order.id = :orderId")
+    List<Long> findProductIdsByOrderId(@Param("orderId") long orderId);
+
+    // Các dòng của nhiều đơn kèm productItem, product và type trong một truy vấn
+    @Query("SELECT oi FROM OrderItem oi JOIN FETCH oi.productItem pi JOIN FETCH pi.product p LEFT JOIN FETCH pi.type " +
+            "LEFT JOIN FETCH p.category LEFT JOIN FETCH p.brand WHERE oi.order.id IN :orderIds ORDER BY oi.id")
+    List<OrderItem> findWithProductByOrderIds(@Param("orderIds") Collection<Long> orderIds);
+
+    // [orderItemId, productItemId, amount] của các dòng hot sale chưa trừ vào product_item.stock
+    @Query("SELECT oi.id, oi.productItem.id, oi.amount FROM OrderItem oi WHERE oi.stockPending = true")
+    List<Object[]> findPendingStock();
+
+    @Query("SELECT oi.productItem.id, SUM(oi.amount) FROM OrderItem oi WHERE oi.stockPending = true " +
+            "GROUP BY oi.productItem.id")
+    List<Object[]> sumPendingStockByProductItem();
+
+    @Query("SELECT COALESCE(SUM(oi.amount), 0) FROM OrderItem oi " +
+            "WHERE oi.productItem.id = :productItemId AND oi.stockPending = true")
+    long sumPendingStock(@Param("productItemId") long productItemId);
+
+    @Modifying
+    @Query("UPDATE OrderItem oi SET oi.stockPending = false WHERE oi.id IN :ids AND oi.stockPending = true")
+    int markStockApplied(@Param("ids") Collection<Long> ids);
+
     @Query("SELECT oi.productItem.product, SUM(oi.amount) AS totalQuantity, SUM(oi.amount * (oi.price - oi.discount)) AS totalRevenue " +
             "FROM OrderItem oi " +
             "JOIN oi.order o " +
@@ -38,7 +64,7 @@ public interface OrderItemRepository extends JpaRepository<OrderItem, Long> {
     @Query("SELECT oi.order.shippingAddress.user, SUM(oi.amount * (oi.price - oi.discount)) AS total " +
             "FROM OrderItem oi " +
             "JOIN oi.order o " +
-            "WHERE o.status = 'Completed'" +
+            "WHERE o.status = 'Completed' " +
             "GROUP BY oi.order.shippingAddress.user " +
             "ORDER BY total DESC")
     List<Object[]> findTop5BestCustomers();
@@ -56,4 +82,10 @@ public interface OrderItemRepository extends JpaRepository<OrderItem, Long> {
     @Query("SELECT SUM(oi.amount) FROM OrderItem oi WHERE oi.productItem.product.id = :productId")
     Optional<Integer> findTotalSold(long productId);
 
+    @Query("SELECT oi.productItem.product.id, SUM(oi.amount) FROM OrderItem oi " +
+            "JOIN oi.order o " +
+            "WHERE oi.productItem.product.id IN :productIds AND o.status <> 'Cancelled' " +
+            "GROUP BY oi.productItem.product.id")
+    List<Object[]> findTotalSoldByProductIds(@Param("productIds") Collection<Long> productIds);
+
 }
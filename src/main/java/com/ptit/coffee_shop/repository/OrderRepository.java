@@ -1,14 +1,27 @@
 package com.ptit.coffee_shop.repository;
 
 import com.ptit.coffee_shop.common.enums.OrderStatus;
+import com.ptit.coffee_shop.common.enums.PaymentMethod;
 import com.ptit.coffee_shop.model.Order;
+import jakarta.persistence.LockModeType;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.CrudRepository;
 import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
 
+import java.util.Collection;
+import java.util.Date;
 import java.util.List;
 import java.util.Optional;
+import java.util.stream.Stream;
 
 public interface OrderRepository extends JpaRepository<Order, Long> {
     @Query("SELECT od FROM Order od WHERE od.shippingAddress.id = :shippingAddressId")
@@ -17,7 +30,99 @@ public interface OrderRepository extends JpaRepository<Order, Long> {
     @Query("SELECT od FROM Order od WHERE od.shippingAddress.user.id = :userId")
     List<Order> findByUserId(@Param("userId") Long userId);
 
+    // Khóa đơn để xác nhận thanh toán và trả hàng giữ của cùng một đơn chạy lần lượt
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT od FROM Order od WHERE od.id = :id")
+    Optional<Order> findByIdForUpdate(@Param("id") long id);
 
-    @Query("SELECT od FROM Order od WHERE od.status = :orderStatus")
+
+    // Chỉ đọc phần nóng theo index (cold, status, order_date), đơn cold xem qua trang đơn hoặc lịch sử của khách
+    @Query("SELECT od FROM Order od WHERE od.cold = false AND od.status = :orderStatus")
     List<Order> findByStatus(@Param("orderStatus") OrderStatus orderStatus );
+
+    // Trang đơn cho admin, tham số null là không lọc. Địa chỉ và user được lấy cùng câu truy vấn để không phát sinh N+1
+    @Query(value = "SELECT od FROM Order od LEFT JOIN FETCH od.shippingAddress sa LEFT JOIN FETCH sa.user u " +
+            "LEFT JOIN FETCH u.role LEFT JOIN FETCH u.forgotPassword " +
+            "WHERE (:status IS NULL OR od.status = :status) " +
+            "AND (:paymentMethod IS NULL OR od.paymentMethod = :paymentMethod) " +
+            "AND (:fromDate IS NULL OR od.orderDate >= :fromDate) " +
+            "AND (:toDate IS NULL OR od.orderDate < :toDate) " +
+            "AND (:userId IS NULL OR u.id = :userId)",
+            countQuery = "SELECT COUNT(od) FROM Order od LEFT JOIN od.shippingAddress sa LEFT JOIN sa.user u " +
+                    "WHERE (:status IS NULL OR od.status = :status) " +
+                    "AND (:paymentMethod IS NULL OR od.paymentMethod = :paymentMethod) " +
+                    "AND (:fromDate IS NULL OR od.orderDate >= :fromDate) " +
+                    "AND (:toDate IS NULL OR od.orderDate < :toDate) " +
+                    "AND (:userId IS NULL OR u.id = :userId)")
+    Page<Order> findPage(@Param("status") OrderStatus status, @Param("paymentMethod") PaymentMethod paymentMethod,
+                         @Param("fromDate") Date fromDate, @Param("toDate") Date toDate,
+                         @Param("userId") Long userId, Pageable pageable);
+
+    // Lịch sử đơn của khách theo keyset trên id (cursor là id cuối của trang trước), một câu truy vấn cho cả trang:
+    // [orderId, orderDate, status, paymentMethod, total, số dòng, ảnh đầu tiên của sản phẩm ở dòng đầu tiên]
+    @Query("SELECT od.id, od.orderDate, od.status, od.paymentMethod, " +
+            "COALESCE(od.total, (SELECT COALESCE(SUM((oi.price - oi.discount) * oi.amount), 0) FROM OrderItem oi " +
+            "WHERE oi.order.id = od.id) + :shippingFee), " +
+            "(SELECT COUNT(oi.id) FROM OrderItem oi WHERE oi.order.id = od.id), " +
+            "(SELECT img.url FROM Image img WHERE img.id = (SELECT MIN(i.id) FROM Image i, OrderItem fi " +
+            "WHERE i.product.id = fi.productItem.product.id " +
+            "AND fi.id = (SELECT MIN(f.id) FROM OrderItem f WHERE f.order.id = od.id))) " +
+            "FROM Order od WHERE od.shippingAddress.user.email = :email AND (:cursor IS NULL OR od.id < :cursor) " +
+            "ORDER BY od.id DESC")
+    List<Object[]> findHistoryByEmail(@Param("email") String email, @Param("cursor") Long cursor,
+                                      @Param("shippingFee") double shippingFee, Pageable pageable);
+
+    @Query("SELECT od FROM Order od JOIN FETCH od.shippingAddress sa JOIN FETCH sa.user u " +
+            "LEFT JOIN FETCH u.role LEFT JOIN FETCH u.forgotPassword WHERE od.id = :id AND u.email = :email")
+    Optional<Order> findByIdAndUserEmail(@Param("id") long id, @Param("email") String email);
+
+    // Một dòng cho mỗi order_item (đơn không có dòng nào vẫn có một dòng), chỉ lấy giá trị vô hướng nên không nạp entity.
+    // Đọc tuần tự theo con trỏ, mỗi lần lấy fetchSize dòng từ DB:
+    // [orderId, orderDate, status, paymentMethod, subtotal, shippingFee, total, email,
+    //  orderItemId, productItemId, productName, typeName, amount, price, discount]
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "500"))
+    @Query("SELECT od.id, od.orderDate, od.status, od.paymentMethod, od.subtotal, od.shippingFee, od.total, u.email, " +
+            "oi.id, pi.id, p.name, t.name, oi.amount, oi.price, oi.discount " +
+            "FROM Order od LEFT JOIN od.shippingAddress sa LEFT JOIN sa.user u " +
+            "LEFT JOIN OrderItem oi ON oi.order.id = od.id LEFT JOIN oi.productItem pi LEFT JOIN pi.product p " +
+            "LEFT JOIN pi.type t " +
+            "WHERE (:fromDate IS NULL OR od.orderDate >= :fromDate) AND (:toDate IS NULL OR od.orderDate < :toDate) " +
+            "ORDER BY od.id, oi.id")
+    Stream<Object[]> streamExportRows(@Param("fromDate") Date fromDate, @Param("toDate") Date toDate);
+
+    // [orderId, status]
+    @Query("SELECT od.id, od.status FROM Order od WHERE od.id IN :ids")
+    List<Object[]> findStatusesByIds(@Param("ids") Collection<Long> ids);
+
+    @Query("SELECT od.id FROM Order od WHERE od.id IN :ids AND od.status = :status")
+    List<Long> findIdsByIdInAndStatus(@Param("ids") Collection<Long> ids, @Param("status") OrderStatus status);
+
+    // Chuyển trạng thái cho nhiều đơn trong một câu lệnh, đơn đã bị đổi trạng thái ở nơi khác sẽ không khớp điều kiện
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Transactional
+    @Query("UPDATE Order od SET od.status = :to WHERE od.id IN :ids AND od.status = :from")
+    int updateStatus(@Param("ids") Collection<Long> ids, @Param("from") OrderStatus from, @Param("to") OrderStatus to);
+
+    @Query("SELECT od.id FROM Order od WHERE od.cold = false AND od.status IN :statuses AND od.orderDate < :before " +
+            "ORDER BY od.id")
+    List<Long> findIdsToMarkCold(@Param("statuses") Collection<OrderStatus> statuses, @Param("before") Date before,
+                                 Pageable pageable);
+
+    @Modifying
+    @Transactional
+    @Query("UPDATE Order od SET od.cold = true WHERE od.id IN :ids AND od.cold = false AND od.status IN :statuses")
+    int markCold(@Param("ids") Collection<Long> ids, @Param("statuses") Collection<OrderStatus> statuses);
+
+    @Query("SELECT od.id FROM Order od WHERE od.total IS NULL ORDER BY od.id")
+    List<Long> findIdsWithoutTotal(Pageable pageable);
+
+    // Tính tổng tiền cho đơn tạo trước khi có cột subtotal/shipping_fee/total
+    @Modifying
+    @Transactional
+    @Query("UPDATE Order od SET " +
+            "od.subtotal = (SELECT COALESCE(SUM((oi.price - oi.discount) * oi.amount), 0) FROM OrderItem oi WHERE oi.order.id = od.id), " +
+            "od.shippingFee = :shippingFee, " +
+            "od.total = (SELECT COALESCE(SUM((oi.price - oi.discount) * oi.amount), 0) FROM OrderItem oi WHERE oi.order.id = od.id) + :shippingFee " +
+            "WHERE od.id IN :ids AND od.total IS NULL")
+    int backfillTotals(@Param("ids") Collection<Long> ids, @Param("shippingFee") double shippingFee);
 }
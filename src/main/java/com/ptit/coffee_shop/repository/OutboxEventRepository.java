@@ -0,0 +1,37 @@
+package com.ptit.coffee_shop.repository;
+
+import com.ptit.coffee_shop.model.OutboxEvent;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.Collection;
+import java.util.Date;
+import java.util.List;
+
+@Repository
+public interface OutboxEventRepository extends JpaRepository<OutboxEvent, Long> {
+
+    // Sự kiện chưa gửi theo thứ tự ghi, dùng index (dispatched_at, id)
+    @Query("SELECT e FROM OutboxEvent e WHERE e.dispatchedAt IS NULL AND e.attempts < :maxAttempts ORDER BY e.id")
+    List<OutboxEvent> findPending(@Param("maxAttempts") int maxAttempts, Pageable pageable);
+
+    @Modifying
+    @Transactional
+    @Query("UPDATE OutboxEvent e SET e.dispatchedAt = :dispatchedAt WHERE e.id IN :ids AND e.dispatchedAt IS NULL")
+    int markDispatched(@Param("ids") Collection<Long> ids, @Param("dispatchedAt") Date dispatchedAt);
+
+    @Modifying
+    @Transactional
+    @Query("UPDATE OutboxEvent e SET e.attempts = e.attempts + 1 WHERE e.id IN :ids")
+    int incrementAttempts(@Param("ids") Collection<Long> ids);
+
+    @Modifying
+    @Transactional
+    @Query("DELETE FROM OutboxEvent e WHERE e.dispatchedAt < :before")
+    int deleteDispatchedBefore(@Param("before") Date before);
+}
@@ -1,9 +1,16 @@
 package com.ptit.coffee_shop.repository;
 
 import com.ptit.coffee_shop.model.ProductItem;
+import jakarta.persistence.LockModeType;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 
+import java.util.Collection;
 import java.util.List;
 
 
@@ -13,4 +20,33 @@ public interface ProductItemRepository extends JpaRepository<ProductItem, Long>
     boolean existsByProductIdAndTypeId(long productId, long typeId);
 
     List<ProductItem> findByProductId(long productId);
+
+    List<ProductItem> findByHotSaleTrue();
+
+    @Query("SELECT pi FROM ProductItem pi WHERE pi.product.id IN :productIds AND pi.status = 'ACTIVE'")
+    List<ProductItem> findActiveByProductIds(@Param("productIds") Collection<Long> productIds);
+
+    // Nạp kèm product, type, category, brand trong cùng câu SQL thay vì một câu cho mỗi liên kết
+    @Query("SELECT pi FROM ProductItem pi JOIN FETCH pi.product p LEFT JOIN FETCH pi.type " +
+            "LEFT JOIN FETCH p.category LEFT JOIN FETCH p.brand WHERE pi.id IN :ids")
+    List<ProductItem> findAllWithProductByIdIn(@Param("ids") Collection<Long> ids);
+
+    // Khóa các dòng theo thứ tự id tăng dần để các batch đặt hàng song song không deadlock
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT pi FROM ProductItem pi WHERE pi.id IN :ids ORDER BY pi.id")
+    List<ProductItem> findAllByIdForUpdate(@Param("ids") Collection<Long> ids);
+
+    // Trừ kho có điều kiện trong một câu lệnh, trả về 0 nếu không đủ hàng (không bao giờ bán vượt kho).
+    // Không clear persistence context: nơi gọi phải chạy UPDATE trước khi nạp ProductItem đó trong transaction,
+    // nếu không entity đã nạp giữ stock cũ và có thể ghi đè khi được save
+    @Modifying(flushAutomatically = true)
+    @Transactional
+    @Query("UPDATE ProductItem pi SET pi.stock = pi.stock - :amount WHERE pi.id = :id AND pi.stock >= :amount")
+    int decrementStock(@Param("id") long id, @Param("amount") int amount);
+
+    // Cùng quy ước với decrementStock: gọi trước khi nạp ProductItem
+    @Modifying(flushAutomatically = true)
+    @Transactional
+    @Query("UPDATE ProductItem pi SET pi.stock = pi.stock + :amount WHERE pi.id = :id")
+    int incrementStock(@Param("id") long id, @Param("amount") int amount);
 }
\ No newline at end of file
@@ -1,15 +1,22 @@
 package com.ptit.coffee_shop.repository;
 
+import com.ptit.coffee_shop.common.enums.Status;
 import com.ptit.coffee_shop.model.Product;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
 @Repository
 public interface ProductRepository extends JpaRepository<Product, Long> {
+    // Giá trị sort theo giá của sản phẩm chưa có giá, lớn hơn mọi giá thật
+    String NO_PRICE = "1.0E18";
+
     Optional<Product> findByName(String name);
 
     @Query("SELECT p FROM Product p WHERE LOWER(p.name) LIKE LOWER(CONCAT('%', :keyword, '%')) OR LOWER(p.brand.name) LIKE LOWER(CONCAT('%', :keyword, '%'))")
@@ -17,9 +24,49 @@ public interface ProductRepository extends JpaRepository<Product, Long> {
 
     List<Product> findByCategoryId(Long categoryId);
 
+    @Query("SELECT p.id FROM Product p WHERE p.category.id = :categoryId")
+    List<Long> findIdsByCategoryId(@Param("categoryId") long categoryId);
+
+    @Query("SELECT p.id FROM Product p WHERE p.brand.id = :brandId")
+    List<Long> findIdsByBrandId(@Param("brandId") long brandId);
+
+    List<Product> findByStatus(Status status);
+
+    // Keyset pagination: mỗi dòng trả về [Product, giá trị sort] để dựng cursor cho trang kế tiếp.
+    // Sản phẩm chưa có dòng product_summary vẫn được liệt kê với rating, lượt bán bằng 0.
+    // Sản phẩm chưa có giá (không còn item nào ACTIVE còn hàng) được xếp cuối khi sort theo giá.
+    @Query("SELECT p, p.id FROM Product p WHERE p.status = 'ACTIVE' AND p.id < :lastId ORDER BY p.id DESC")
+    List<Object[]> findActivePageByNewest(@Param("lastId") long lastId, Pageable pageable);
+
+    @Query("SELECT p, COALESCE(NULLIF(s.minPrice, 0), " + NO_PRICE + ") FROM Product p LEFT JOIN ProductSummary s ON s.productId = p.id " +
+            "WHERE p.status = 'ACTIVE' AND (COALESCE(NULLIF(s.minPrice, 0), " + NO_PRICE + ") > :lastValue " +
+            "OR (COALESCE(NULLIF(s.minPrice, 0), " + NO_PRICE + ") = :lastValue AND p.id > :lastId)) " +
+            "ORDER BY COALESCE(NULLIF(s.minPrice, 0), " + NO_PRICE + ") ASC, p.id ASC")
+    List<Object[]> findActivePageByPrice(@Param("lastValue") double lastValue, @Param("lastId") long lastId, Pageable pageable);
+
+    @Query("SELECT p, COALESCE(s.rating, 0) FROM Product p LEFT JOIN ProductSummary s ON s.productId = p.id " +
+            "WHERE p.status = 'ACTIVE' AND (COALESCE(s.rating, 0) < :lastValue " +
+            "OR (COALESCE(s.rating, 0) = :lastValue AND p.id < :lastId)) " +
+            "ORDER BY COALESCE(s.rating, 0) DESC, p.id DESC")
+    List<Object[]> findActivePageByRating(@Param("lastValue") double lastValue, @Param("lastId") long lastId, Pageable pageable);
+
+    @Query("SELECT p, COALESCE(s.totalSold, 0) FROM Product p LEFT JOIN ProductSummary s ON s.productId = p.id " +
+            "WHERE p.status = 'ACTIVE' AND (COALESCE(s.totalSold, 0) < :lastValue " +
+            "OR (COALESCE(s.totalSold, 0) = :lastValue AND p.id < :lastId)) " +
+            "ORDER BY COALESCE(s.totalSold, 0) DESC, p.id DESC")
+    List<Object[]> findActivePageByBestSelling(@Param("lastValue") int lastValue, @Param("lastId") long lastId, Pageable pageable);
+
+    @Query("SELECT p.id FROM Product p ORDER BY p.id")
+    List<Long> findAllIds();
+
     @Query("SELECT MAX(pi.price) FROM ProductItem pi WHERE pi.product.id = :productId AND pi.stock > 0 AND pi.status = 'ACTIVE'")
     Optional<Double> maxPrice(long productId);
 
     @Query("SELECT MIN(pi.price) FROM ProductItem pi WHERE pi.product.id = :productId AND pi.stock > 0 AND pi.status = 'ACTIVE'")
     Optional<Double> minPrice(long productId);
+
+    @Query("SELECT pi.product.id, MIN(pi.price), MAX(pi.price) FROM ProductItem pi " +
+            "WHERE pi.product.id IN :productIds AND pi.stock > 0 AND pi.status = 'ACTIVE' " +
+            "GROUP BY pi.product.id")
+    List<Object[]> findPriceRangeByProductIds(@Param("productIds") Collection<Long> productIds);
 }
@@ -0,0 +1,9 @@
+package com.ptit.coffee_shop.repository;
+
+import com.ptit.coffee_shop.model.ProductSummary;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+@Repository
+public interface ProductSummaryRepository extends JpaRepository<ProductSummary, Long>, ProductSummaryUpsert {
+}
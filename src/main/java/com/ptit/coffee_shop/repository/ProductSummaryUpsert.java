@@ -0,0 +1,8 @@
+package com.ptit.coffee_shop.repository;
+
+import java.util.Collection;
+
+public interface ProductSummaryUpsert {
+    // Tính summary của các sản phẩm ngay trong DB và ghi đè dòng cũ (hoặc tạo mới) trong một câu lệnh
+    int upsert(Collection<Long> productIds);
+}
@@ -0,0 +1,42 @@
+package com.ptit.coffee_shop.repository;
+
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.Collection;
+
+/**
+ * HQL chưa cho INSERT ... SELECT đi kèm ON CONFLICT DO UPDATE nên dùng câu native ON DUPLICATE KEY UPDATE của MySQL.
+ */
+public class ProductSummaryUpsertImpl implements ProductSummaryUpsert {
+    private static final String UPSERT =
+            "INSERT INTO product_summary (product_id, rating, total_review, total_sold, min_price, max_price, updated_at) " +
+            "SELECT p.id, " +
+            "COALESCE((SELECT AVG(rv.rating) FROM review rv JOIN order_item oi ON oi.id = rv.order_item_id " +
+            "JOIN product_item item ON item.id = oi.product_item_id WHERE item.product_id = p.id AND rv.status = 'ACTIVE'), 0), " +
+            "(SELECT COUNT(*) FROM review rv JOIN order_item oi ON oi.id = rv.order_item_id " +
+            "JOIN product_item item ON item.id = oi.product_item_id WHERE item.product_id = p.id AND rv.status = 'ACTIVE'), " +
+            "COALESCE((SELECT SUM(oi.amount) FROM order_item oi JOIN product_item item ON item.id = oi.product_item_id " +
+            "JOIN `order` o ON o.id = oi.order_id WHERE item.product_id = p.id AND o.status <> 'Cancelled'), 0), " +
+            "COALESCE((SELECT MIN(item.price) FROM product_item item " +
+            "WHERE item.product_id = p.id AND item.stock > 0 AND item.status = 'ACTIVE'), 0), " +
+            "COALESCE((SELECT MAX(item.price) FROM product_item item " +
+            "WHERE item.product_id = p.id AND item.stock > 0 AND item.status = 'ACTIVE'), 0), " +
+            "CURRENT_TIMESTAMP " +
+            "FROM product p WHERE p.id IN (:productIds) " +
+            "ON DUPLICATE KEY UPDATE rating = VALUES(rating), total_review = VALUES(total_review), " +
+            "total_sold = VALUES(total_sold), min_price = VALUES(min_price), max_price = VALUES(max_price), " +
+            "updated_at = VALUES(updated_at)";
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Override
+    @Transactional
+    public int upsert(Collection<Long> productIds) {
+        return entityManager.createNativeQuery(UPSERT)
+                .setParameter("productIds", productIds)
+                .executeUpdate();
+    }
+}
@@ -5,6 +5,7 @@ import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 
+import java.util.Collection;
 import java.util.List;
 
 public interface ReviewRepository extends JpaRepository<Review, Long> {
@@ -12,6 +13,11 @@ public interface ReviewRepository extends JpaRepository<Review, Long> {
     @Query("SELECT rv FROM Review rv WHERE rv.orderItem.productItem.product.id = :productId AND rv.status = 'ACTIVE'")
     List<Review> findByProductId(@Param("productId") Long productId);
 
+    @Query("SELECT rv.orderItem.productItem.product.id, AVG(rv.rating), COUNT(rv) FROM Review rv " +
+            "WHERE rv.orderItem.productItem.product.id IN :productIds AND rv.status = 'ACTIVE' " +
+            "GROUP BY rv.orderItem.productItem.product.id")
+    List<Object[]> findRatingByProductIds(@Param("productIds") Collection<Long> productIds);
+
     @Query("SELECT rv FROM Review rv WHERE rv.orderItem.order.id = :orderId")
     List<Review> findByOrderId( Long orderId);
 
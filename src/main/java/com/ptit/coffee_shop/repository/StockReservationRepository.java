@@ -0,0 +1,24 @@
+package com.ptit.coffee_shop.repository;
+
+import com.ptit.coffee_shop.common.enums.ReservationStatus;
+import com.ptit.coffee_shop.model.StockReservation;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+
+@Repository
+public interface StockReservationRepository extends JpaRepository<StockReservation, Long> {
+
+    List<StockReservation> findByStatus(ReservationStatus status);
+
+    List<StockReservation> findByOrderIdAndStatus(long orderId, ReservationStatus status);
+
+    // Chuyển trạng thái có điều kiện để sweeper và thao tác hủy/xác nhận đồng thời không xử lý một bản ghi hai lần
+    @Modifying
+    @Query("UPDATE StockReservation r SET r.status = :to WHERE r.id = :id AND r.status = :from")
+    int updateStatus(@Param("id") long id, @Param("from") ReservationStatus from, @Param("to") ReservationStatus to);
+}
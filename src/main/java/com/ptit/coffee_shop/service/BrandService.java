@@ -1,5 +1,6 @@
 package com.ptit.coffee_shop.service;
 
+import com.ptit.coffee_shop.common.CatalogChangedEvent;
 import com.ptit.coffee_shop.common.Constant;
 import com.ptit.coffee_shop.common.enums.Status;
 import com.ptit.coffee_shop.config.MessageBuilder;
@@ -7,7 +8,9 @@ import com.ptit.coffee_shop.exception.CoffeeShopException;
 import com.ptit.coffee_shop.model.Brand;
 import com.ptit.coffee_shop.payload.response.RespMessage;
 import com.ptit.coffee_shop.repository.BrandRepository;
+import com.ptit.coffee_shop.repository.ProductRepository;
 import lombok.RequiredArgsConstructor;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Service;
 
 import java.util.List;
@@ -20,7 +23,9 @@ import static org.springframework.data.jpa.domain.AbstractPersistable_.id;
 public class BrandService {
 
     private final BrandRepository brandRepository;
+    private final ProductRepository productRepository;
     private final MessageBuilder messageBuilder;
+    private final ApplicationEventPublisher eventPublisher;
 
     public RespMessage getAllBrands() {
         List<Brand> brands = brandRepository.getAll()
@@ -41,6 +46,9 @@ public class BrandService {
             brandEntity.setName(currentBrand.getName());
             try {
                 brandRepository.save(brandEntity);
+                // Tên brand nằm trong index tìm kiếm và gợi ý của từng sản phẩm
+                eventPublisher.publishEvent(new CatalogChangedEvent(CatalogChangedEvent.BRAND,
+                        productRepository.findIdsByBrandId(id)));
                 return messageBuilder.buildSuccessMessage(brandEntity);
             } catch (CoffeeShopException e) {
                 throw new CoffeeShopException(Constant.UNDEFINED, null, "Could not update brand");
@@ -57,6 +65,8 @@ public class BrandService {
             brandToDelete.setStatus(Status.INACTIVE);
             try {
                 brandRepository.save(brandToDelete);
+                eventPublisher.publishEvent(new CatalogChangedEvent(CatalogChangedEvent.BRAND,
+                        productRepository.findIdsByBrandId(id)));
                 return messageBuilder.buildSuccessMessage(brandToDelete);
             } catch (CoffeeShopException e) {
                 throw new CoffeeShopException(Constant.UNDEFINED, null, "Could not delete brand");
@@ -4,8 +4,10 @@ import com.ptit.coffee_shop.common.Constant;
 import com.ptit.coffee_shop.config.MessageBuilder;
 import com.ptit.coffee_shop.exception.CoffeeShopException;
 import com.ptit.coffee_shop.model.*;
+import com.ptit.coffee_shop.payload.request.CartItemBulkRequest;
 import com.ptit.coffee_shop.payload.request.CartItemRequest;
 import com.ptit.coffee_shop.payload.response.CartItemResponse;
+import com.ptit.coffee_shop.payload.response.CartItemResult;
 import com.ptit.coffee_shop.payload.response.ProductItemResponse;
 import com.ptit.coffee_shop.payload.response.ProductResponse;
 import com.ptit.coffee_shop.payload.response.RespMessage;
@@ -17,19 +19,21 @@ import jakarta.transaction.Transactional;
 import lombok.RequiredArgsConstructor;
 import org.springframework.stereotype.Service;
 
-import java.util.List;
-import java.util.Optional;
+import java.util.*;
 import java.util.stream.Collectors;
 
 @Service
 @RequiredArgsConstructor
 public class CartService {
+    public static final int MAX_BULK_SIZE = 100;
+
     private final MessageBuilder messageBuilder;
     public final ProductItemRepository productItemRepository;
     public final CartItemRepository cartItemRepository;
     public final UserRepository userRepository;
     private final ImageRepository imageRepository;
     private final ProductService productService;
+    private final CartStore cartStore;
 
     @Transactional
     public RespMessage addCartItem(CartItemRequest request) {
@@ -51,41 +55,126 @@ public class CartService {
         if (userOpt.isEmpty()) {
             throw new CoffeeShopException(Constant.FIELD_NOT_FOUND, new Object[]{"UserId"}, "UserId not found");
         }
+        // Giá, giảm giá và trạng thái trả về lấy từ product_item vừa đọc, không lấy từ bản lưu trong CartStore
+        ProductItemResponse productItemResponse;
         try {
+            productItemResponse = toProductItemResponse(productItemOpt.get());
+        } catch (Exception e) {
+            throw new CoffeeShopException(Constant.SYSTEM_ERROR, new Object[]{"CartItem"}, "Save Cart Item failed");
+        }
 
-            ProductItem productItem = productItemOpt.get();
-            User user = userOpt.get();
+        // Mọi bước có thể lỗi đã xong mới đụng tới giỏ: cộng số lượng trong bộ nhớ không rollback được,
+        // sản phẩm đã có trong giỏ chỉ cộng trong CartStore, CartStore ghi xuống cart_item sau
+        CartStore.CartLine cartLine = cartStore.addQuantity(request.getUserId(), request.getProductItemId(), request.getQuantity());
+        if (cartLine == null) {
+            cartLine = insertCartItem(productItemOpt.get(), userOpt.get(), request.getQuantity());
+        }
+        CartItemResponse cartItemResponse = new CartItemResponse(
+                cartLine.cartItemId(),
+                productItemResponse,
+                cartLine.quantity(),
+                request.getUserId()
+        );
+        return messageBuilder.buildSuccessMessage(cartItemResponse);
+    }
 
+    // Dòng mới được INSERT ngay để có id trả về cho client
+    private CartStore.CartLine insertCartItem(ProductItem productItem, User user, int quantity) {
+        try {
+            CartItem cartItem = CartItem.builder()
+                    .productItem(productItem)
+                    .quantity(quantity)
+                    .user(user)
+                    .build();
+            cartItemRepository.save(cartItem);
+            cartStore.put(cartItem);
+            return new CartStore.CartLine(cartItem.getId(), productItem, cartItem.getQuantity());
+        } catch (Exception e) {
+            throw new CoffeeShopException(Constant.SYSTEM_ERROR, new Object[]{"CartItem"}, "Save Cart Item failed");
+        }
+    }
 
-            Optional<CartItem> cartItemOptional = cartItemRepository.findByUserIdAndProductItemId(request.getUserId(), request.getProductItemId());
-            CartItem cartItem;
-            if (cartItemOptional.isPresent()) {
-                cartItem = cartItemOptional.get();
-                cartItem.setQuantity(cartItem.getQuantity() + request.getQuantity());
-            } else {
+    /**
+     * Thêm nhiều sản phẩm vào giỏ trong một request (mua lại đơn cũ, thêm combo).
+     * Sản phẩm được kiểm tra bằng một câu IN, dòng đã có trong giỏ chỉ cộng số lượng trong CartStore,
+     * dòng mới được INSERT cùng một batch. Kết quả trả về theo từng sản phẩm, dòng lỗi không làm hỏng các dòng khác.
+     */
+    public RespMessage addCartItems(CartItemBulkRequest request) {
+        if (request.getUserId() <= 0) {
+            throw new CoffeeShopException(Constant.FIELD_NOT_VALID, new Object[]{"UserId"}, "UserId invalid");
+        }
+        if (request.getItems() == null || request.getItems().isEmpty()) {
+            throw new CoffeeShopException(Constant.FIELD_NOT_NULL, new Object[]{"Items"}, "Items cannot be empty");
+        }
+        if (request.getItems().size() > MAX_BULK_SIZE) {
+            throw new CoffeeShopException(Constant.FIELD_NOT_VALID, new Object[]{"Items"}, "Cannot add more than " + MAX_BULK_SIZE + " items at once");
+        }
+        User user = userRepository.findById(request.getUserId()).orElseThrow(
+                () -> new CoffeeShopException(Constant.FIELD_NOT_FOUND, new Object[]{"UserId"}, "UserId not found"));
 
-                cartItem = CartItem.builder()
+        // Gộp số lượng theo productItem, giữ thứ tự xuất hiện đầu tiên cho kết quả
+        Map<Long, Integer> amounts = new LinkedHashMap<>();
+        Map<Long, String> failures = new HashMap<>();
+        for (CartItemRequest item : request.getItems()) {
+            amounts.merge(item.getProductItemId(), item.getQuantity(), Integer::sum);
+            if (item.getProductItemId() <= 0) {
+                failures.put(item.getProductItemId(), "ProductItemId invalid");
+            } else if (item.getQuantity() <= 0) {
+                failures.put(item.getProductItemId(), "Quantity must be greater than 0");
+            } else if (item.getUserId() != 0 && item.getUserId() != request.getUserId()) {
+                failures.put(item.getProductItemId(), "UserId does not match");
+            }
+        }
+        List<Long> productItemIds = amounts.keySet().stream().filter(id -> !failures.containsKey(id)).toList();
+        Map<Long, ProductItem> productItems = new HashMap<>();
+        if (!productItemIds.isEmpty()) {
+            productItemRepository.findAllWithProductByIdIn(productItemIds)
+                    .forEach(productItem -> productItems.put(productItem.getId(), productItem));
+        }
+
+        Map<Long, CartStore.CartLine> existing = cartStore.lines(request.getUserId());
+        Map<Long, Integer> increments = new HashMap<>();
+        Map<Long, CartItem> inserts = new LinkedHashMap<>();
+        for (Long productItemId : productItemIds) {
+            ProductItem productItem = productItems.get(productItemId);
+            if (productItem == null) {
+                failures.put(productItemId, "ProductItem not found");
+            } else if (existing.containsKey(productItemId)) {
+                increments.put(productItemId, amounts.get(productItemId));
+            } else {
+                inserts.put(productItemId, CartItem.builder()
                         .productItem(productItem)
-                        .quantity(request.getQuantity())
+                        .quantity(amounts.get(productItemId))
                         .user(user)
-                        .build();
+                        .build());
             }
-            cartItemRepository.save(cartItem);
-
-            ProductItemResponse productItemResponse = toProductItemResponse(productItem);
-
-
-            CartItemResponse cartItemResponse = new CartItemResponse(
-                    cartItem.getId(),
-                    productItemResponse,
-                    cartItem.getQuantity(),
-                    cartItem.getUser().getId()
-            );
-
-            return messageBuilder.buildSuccessMessage(cartItemResponse);
+        }
+        try {
+            // saveAll chạy trong một transaction, id lấy theo block nên các INSERT được gom thành JDBC batch
+            cartItemRepository.saveAll(inserts.values());
         } catch (Exception e) {
-            throw new CoffeeShopException(Constant.SYSTEM_ERROR, new Object[]{"CartItem"}, "Save Cart Item failed");
+            throw new CoffeeShopException(Constant.SYSTEM_ERROR, new Object[]{"CartItem"}, "Save Cart Items failed");
         }
+        inserts.values().forEach(cartStore::put);
+        Map<Long, CartStore.CartLine> updated = cartStore.addQuantities(request.getUserId(), increments);
+
+        List<CartItemResult> results = new ArrayList<>();
+        for (Long productItemId : amounts.keySet()) {
+            CartItemResult.CartItemResultBuilder result = CartItemResult.builder().productItemId(productItemId);
+            CartItem inserted = inserts.get(productItemId);
+            CartStore.CartLine cartLine = updated.get(productItemId);
+            if (inserted != null) {
+                result.success(true).cartItemId(inserted.getId()).quantity(inserted.getQuantity());
+            } else if (cartLine != null) {
+                result.success(true).cartItemId(cartLine.cartItemId()).quantity(cartLine.quantity());
+            } else if (failures.containsKey(productItemId)) {
+                result.message(failures.get(productItemId));
+            } else {
+                result.message("CartItem was removed by another request");
+            }
+            results.add(result.build());
+        }
+        return messageBuilder.buildSuccessMessage(results);
     }
 
     public RespMessage getCartItems(Long userId) {
@@ -95,12 +184,17 @@ public class CartService {
         try {
 
             List<CartItem> cartItems = cartItemRepository.findByUserId(userId);
+            // Số lượng trong CartStore mới hơn cart_item nếu giỏ đang nằm trong bộ nhớ
+            Map<Long, Integer> quantities = cartStore.quantities(userId);
+            Map<Long, ProductResponse> productResponses = getProductResponseMap(cartItems.stream()
+                    .map(cartItem -> cartItem.getProductItem().getProduct()).toList());
             List<CartItemResponse> cartItemResponses = cartItems.stream().map(cartItem -> {
-                ProductItemResponse productItemResponse = toProductItemResponse(cartItem.getProductItem());
+                ProductItemResponse productItemResponse = toProductItemResponse(cartItem.getProductItem(),
+                        productResponses.get(cartItem.getProductItem().getProduct().getId()));
                 return new CartItemResponse(
                         cartItem.getId(),
                         productItemResponse,
-                        cartItem.getQuantity(),
+                        quantities.getOrDefault(cartItem.getId(), cartItem.getQuantity()),
                         cartItem.getUser().getId()
                 );
             }).collect(Collectors.toList());
@@ -111,32 +205,24 @@ public class CartService {
     }
 
     public RespMessage updateCartItem( CartItemRequest cartItemRequest) {
-        ProductItem productItem = productItemRepository.findById(cartItemRequest.getProductItemId())
-                .orElseThrow(() -> new CoffeeShopException(Constant.FIELD_NOT_FOUND, new Object[]{"ProductItem"}, "ProductItem not found"));
-
-        User user = userRepository.findById(cartItemRequest.getUserId()).orElseThrow(
-                () -> new CoffeeShopException(Constant.FIELD_NOT_FOUND, new Object[]{"UserId"}, "UserId not found"));
-
-        CartItem cartItem = cartItemRepository.findByUserIdAndProductItemId(cartItemRequest.getUserId(), cartItemRequest.getProductItemId())
-                .orElseThrow(() -> new CoffeeShopException(Constant.FIELD_NOT_FOUND, new Object[]{"CartItem"}, "CartItem not found"));
-
         if (cartItemRequest.getQuantity() <= 0) {
             throw new CoffeeShopException(Constant.FIELD_NOT_VALID, new Object[]{"Quantity"}, "Quantity must be greater than 0");
         }
+        CartStore.CartLine cartLine = cartStore.find(cartItemRequest.getUserId(), cartItemRequest.getProductItemId());
+        if (cartLine == null) {
+            throw new CoffeeShopException(Constant.FIELD_NOT_FOUND, new Object[]{"CartItem"}, "CartItem not found");
+        }
+        ProductItem productItem = productItemRepository.findById(cartItemRequest.getProductItemId()).orElseThrow(() ->
+                new CoffeeShopException(Constant.FIELD_NOT_FOUND, new Object[]{"ProductItem"}, "ProductItem not found"));
+        // Tồn kho đọc lại từ product_item, bản trong CartStore có từ lúc giỏ được nạp
         if (cartItemRequest.getQuantity() > productItem.getStock()) {
             throw new CoffeeShopException(Constant.FIELD_NOT_VALID, new Object[]{"Quantity"}, "Quantity must be less than or equal to ProductItem quantity");
         }
-
-        cartItem.setQuantity(cartItemRequest.getQuantity());
-
-        try {
-            cartItemRepository.save(cartItem);
-//            return messageBuilder.buildSuccessMessage(cartItem);
-            return messageBuilder.buildSuccessMessage("update cartItem thành công ");
-
-        } catch (Exception e) {
-            throw new CoffeeShopException(Constant.SYSTEM_ERROR, new Object[]{"CartItem"}, "Update Cart Item failed");
+        if (cartStore.setQuantity(cartItemRequest.getUserId(), cartItemRequest.getProductItemId(), cartItemRequest.getQuantity()) == null) {
+            throw new CoffeeShopException(Constant.FIELD_NOT_FOUND, new Object[]{"CartItem"}, "CartItem not found");
         }
+//            return messageBuilder.buildSuccessMessage(cartItem);
+        return messageBuilder.buildSuccessMessage("update cartItem thành công ");
     }
 
     public RespMessage deleteCartItem(Long itemId) {
@@ -144,19 +230,29 @@ public class CartService {
                 .orElseThrow(() -> new CoffeeShopException(Constant.FIELD_NOT_FOUND, new Object[]{"CartItem"},
                         "Cart Item not found with Id: " + itemId));
         cartItemRepository.delete(cartItem);
+        cartStore.remove(cartItem.getUser().getId(), cartItem.getId());
         return messageBuilder.buildSuccessMessage("Delete cart Item successfully");
     }
 
     public ProductItemResponse toProductItemResponse(ProductItem productItem) {
+        return toProductItemResponse(productItem, productService.getProductResponse(productItem.getProduct()));
+    }
+
+    public ProductItemResponse toProductItemResponse(ProductItem productItem, ProductResponse productResponse) {
         return ProductItemResponse.builder()
                 .id(productItem.getId())
                 .price(productItem.getPrice())
                 .stock(productItem.getStock())
                 .discount(productItem.getDiscount())
-                .productResponse(productService.getProductResponse(productItem.getProduct()))
+                .productResponse(productResponse)
                 .status(productItem.getStatus())
                 .type(productItem.getType())
                 .build();
     }
 
+    private Map<Long, ProductResponse> getProductResponseMap(List<Product> products) {
+        return productService.getProductResponses(products).stream()
+                .collect(Collectors.toMap(ProductResponse::getId, productResponse -> productResponse, (first, second) -> first));
+    }
+
 }
@@ -0,0 +1,351 @@
+package com.ptit.coffee_shop.service;
+
+import com.ptit.coffee_shop.common.TransactionHooks;
+import com.ptit.coffee_shop.model.CartItem;
+import com.ptit.coffee_shop.model.ProductItem;
+import com.ptit.coffee_shop.repository.CartItemRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Function;
+
+/**
+ * Giỏ hàng đang dùng được giữ trong bộ nhớ theo user (tối đa max-carts giỏ), mỗi lần bấm +/- chỉ đổi số lượng trong RAM.
+ * Thêm sản phẩm mới và xóa dòng vẫn ghi thẳng cart_item, chỉ quantity được ghi trễ: các dòng đã đổi được gom thành
+ * UPDATE theo từng giá trị quantity bởi {@link CartStoreFlusher}, khi user đặt hàng và trước khi giỏ bị đẩy khỏi bộ nhớ
+ * (giỏ lâu không dùng nhất khi đầy, giỏ không dùng quá idle-minutes).
+ * Khi crash chỉ mất các thay đổi số lượng chưa flush (tối đa một chu kỳ flush): giỏ được nạp lại từ cart_item với số lượng
+ * của lần flush gần nhất, không có dòng nào bị tạo thêm hay sống lại sau khi đã xóa.
+ * Giả định mỗi user chỉ được phục vụ bởi một instance.
+ */
+@Service
+@Slf4j
+@RequiredArgsConstructor
+public class CartStore {
+    private static final int UPDATE_CHUNK_SIZE = 500;
+
+    private final CartItemRepository cartItemRepository;
+    private final PlatformTransactionManager transactionManager;
+
+    @Value("${app.cart-store.max-carts:10000}")
+    private int maxCarts = 10000;
+
+    @Value("${app.cart-store.idle-minutes:30}")
+    private long idleMinutes = 30;
+
+    private final Map<Long, Cart> carts = new ConcurrentHashMap<>();
+    // Ghi xuống DB lần lượt, để giỏ bị đẩy ra chỉ được nạp lại sau khi số lượng của nó đã được ghi xong
+    private final ReentrantLock writeLock = new ReentrantLock();
+
+    public record CartLine(long cartItemId, ProductItem productItem, int quantity) {
+    }
+
+    private static final class Line {
+        private final long cartItemId;
+        private final ProductItem productItem;
+        private int quantity;
+        private boolean dirty;
+
+        private Line(long cartItemId, ProductItem productItem, int quantity) {
+            this.cartItemId = cartItemId;
+            this.productItem = productItem;
+            this.quantity = quantity;
+        }
+
+        private CartLine snapshot() {
+            return new CartLine(cartItemId, productItem, quantity);
+        }
+    }
+
+    // Các dòng theo productItemId, mọi truy cập đều giữ khóa của giỏ
+    private static final class Cart {
+        private final Map<Long, Line> lines = new HashMap<>();
+        private volatile long lastAccess = System.nanoTime();
+        private boolean evicted;
+
+        private boolean isDirty() {
+            return lines.values().stream().anyMatch(line -> line.dirty);
+        }
+    }
+
+    // Dòng của sản phẩm trong giỏ, null nếu giỏ chưa có sản phẩm này
+    public CartLine find(long userId, long productItemId) {
+        return withCart(userId, cart -> {
+            Line line = cart.lines.get(productItemId);
+            return line != null ? line.snapshot() : null;
+        });
+    }
+
+    public CartLine addQuantity(long userId, long productItemId, int amount) {
+        return withCart(userId, cart -> {
+            Line line = cart.lines.get(productItemId);
+            if (line == null) {
+                return null;
+            }
+            line.quantity += amount;
+            line.dirty = true;
+            return line.snapshot();
+        });
+    }
+
+    // Cộng số lượng cho nhiều sản phẩm trong một lần giữ khóa, chỉ trả về các dòng đã có trong giỏ
+    public Map<Long, CartLine> addQuantities(long userId, Map<Long, Integer> amounts) {
+        return withCart(userId, cart -> {
+            Map<Long, CartLine> updated = new HashMap<>();
+            amounts.forEach((productItemId, amount) -> {
+                Line line = cart.lines.get(productItemId);
+                if (line != null) {
+                    line.quantity += amount;
+                    line.dirty = true;
+                    updated.put(productItemId, line.snapshot());
+                }
+            });
+            return updated;
+        });
+    }
+
+    // Các dòng đang có trong giỏ theo productItemId
+    public Map<Long, CartLine> lines(long userId) {
+        return withCart(userId, cart -> {
+            Map<Long, CartLine> lines = new HashMap<>();
+            cart.lines.forEach((productItemId, line) -> lines.put(productItemId, line.snapshot()));
+            return lines;
+        });
+    }
+
+    public CartLine setQuantity(long userId, long productItemId, int quantity) {
+        return withCart(userId, cart -> {
+            Line line = cart.lines.get(productItemId);
+            if (line == null) {
+                return null;
+            }
+            if (line.quantity != quantity) {
+                line.quantity = quantity;
+                line.dirty = true;
+            }
+            return line.snapshot();
+        });
+    }
+
+    // Dòng vừa được INSERT vào cart_item: đưa vào giỏ đang nằm trong bộ nhớ sau khi commit
+    public void put(CartItem cartItem) {
+        TransactionHooks.afterCommit(() -> {
+            Cart cart = carts.get(cartItem.getUser().getId());
+            if (cart == null) {
+                return;
+            }
+            synchronized (cart) {
+                if (!cart.evicted) {
+                    cart.lines.putIfAbsent(cartItem.getProductItem().getId(),
+                            new Line(cartItem.getId(), cartItem.getProductItem(), cartItem.getQuantity()));
+                }
+            }
+        });
+    }
+
+    // Dòng đã bị DELETE khỏi cart_item
+    public void remove(long userId, long cartItemId) {
+        Cart cart = carts.get(userId);
+        if (cart == null) {
+            return;
+        }
+        synchronized (cart) {
+            cart.lines.values().removeIf(line -> line.cartItemId == cartItemId);
+        }
+    }
+
+    // Số lượng theo cartItemId của giỏ đang nằm trong bộ nhớ (mới hơn cart_item), rỗng nếu giỏ chưa được nạp
+    public Map<Long, Integer> quantities(long userId) {
+        Cart cart = carts.get(userId);
+        if (cart == null) {
+            return Map.of();
+        }
+        Map<Long, Integer> quantities = new HashMap<>();
+        synchronized (cart) {
+            cart.lines.values().forEach(line -> quantities.put(line.cartItemId, line.quantity));
+        }
+        return quantities;
+    }
+
+    public int size() {
+        return carts.size();
+    }
+
+    // Ghi số lượng đã đổi của mọi giỏ trong một transaction, trả về số dòng đã ghi
+    public int flush() {
+        writeLock.lock();
+        try {
+            return write(carts.values());
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    /**
+     * Ghi ngay giỏ của các user vừa đặt hàng. Không ném lỗi để không làm hỏng đơn đã commit,
+     * các dòng ghi lỗi vẫn được đánh dấu và sẽ được ghi ở chu kỳ flush sau.
+     */
+    public int flush(Collection<Long> userIds) {
+        List<Cart> targets = userIds.stream().map(carts::get).filter(Objects::nonNull).toList();
+        if (targets.isEmpty()) {
+            return 0;
+        }
+        writeLock.lock();
+        try {
+            return write(targets);
+        } catch (RuntimeException e) {
+            log.warn("Cannot flush carts of users {}", userIds, e);
+            return 0;
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    // Đẩy các giỏ không dùng quá idle-minutes ra khỏi bộ nhớ
+    public int evictIdle() {
+        long idleBefore = System.nanoTime() - TimeUnit.MINUTES.toNanos(idleMinutes);
+        return evict(carts.entrySet().stream()
+                .filter(entry -> entry.getValue().lastAccess - idleBefore < 0)
+                .map(Map.Entry::getKey)
+                .toList());
+    }
+
+    private <T> T withCart(long userId, Function<Cart, T> action) {
+        while (true) {
+            Cart cart = carts.get(userId);
+            boolean loaded = false;
+            if (cart == null) {
+                Cart created = load(userId);
+                cart = carts.putIfAbsent(userId, created);
+                if (cart == null) {
+                    cart = created;
+                    loaded = true;
+                }
+            }
+            T result = null;
+            boolean applied = false;
+            synchronized (cart) {
+                if (!cart.evicted) {
+                    cart.lastAccess = System.nanoTime();
+                    result = action.apply(cart);
+                    applied = true;
+                }
+            }
+            if (applied) {
+                if (loaded) {
+                    evictOverflow();
+                }
+                return result;
+            }
+            // Giỏ vừa bị đẩy ra và đã được ghi xuống DB: nạp lại
+            carts.remove(userId, cart);
+        }
+    }
+
+    private Cart load(long userId) {
+        Cart cart = new Cart();
+        for (CartItem cartItem : cartItemRepository.findCartByUserId(userId)) {
+            cart.lines.put(cartItem.getProductItem().getId(),
+                    new Line(cartItem.getId(), cartItem.getProductItem(), cartItem.getQuantity()));
+        }
+        return cart;
+    }
+
+    private void evictOverflow() {
+        int overflow = carts.size() - maxCarts;
+        if (overflow <= 0) {
+            return;
+        }
+        // Chụp lại lastAccess trước khi sắp xếp vì giá trị có thể đổi trong lúc sort
+        Map<Long, Long> lastAccess = new HashMap<>();
+        carts.forEach((userId, cart) -> lastAccess.put(userId, cart.lastAccess));
+        List<Long> eldest = lastAccess.entrySet().stream()
+                .sorted(Map.Entry.comparingByValue())
+                .limit(overflow)
+                .map(Map.Entry::getKey)
+                .toList();
+        try {
+            evict(eldest);
+        } catch (RuntimeException e) {
+            log.warn("Cannot evict {} carts", eldest.size(), e);
+        }
+    }
+
+    private int evict(Collection<Long> userIds) {
+        if (userIds.isEmpty()) {
+            return 0;
+        }
+        writeLock.lock();
+        try {
+            Map<Long, Cart> targets = new HashMap<>();
+            for (Long userId : userIds) {
+                Cart cart = carts.get(userId);
+                if (cart != null) {
+                    targets.put(userId, cart);
+                }
+            }
+            write(targets.values());
+            int evicted = 0;
+            for (Map.Entry<Long, Cart> target : targets.entrySet()) {
+                Cart cart = target.getValue();
+                synchronized (cart) {
+                    // Giỏ vừa được đổi trong lúc ghi thì giữ lại tới lần flush sau
+                    if (cart.isDirty()) {
+                        continue;
+                    }
+                    cart.evicted = true;
+                }
+                carts.remove(target.getKey(), cart);
+                evicted++;
+            }
+            return evicted;
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    // Gọi khi đang giữ writeLock. Lỗi thì đánh dấu lại các dòng, số lượng mới nhất vẫn nằm trong bộ nhớ
+    private int write(Collection<Cart> targets) {
+        Map<Line, Cart> written = new IdentityHashMap<>();
+        Map<Integer, List<Long>> idsByQuantity = new TreeMap<>();
+        for (Cart cart : targets) {
+            synchronized (cart) {
+                for (Line line : cart.lines.values()) {
+                    if (line.dirty) {
+                        line.dirty = false;
+                        written.put(line, cart);
+                        idsByQuantity.computeIfAbsent(line.quantity, quantity -> new ArrayList<>()).add(line.cartItemId);
+                    }
+                }
+            }
+        }
+        if (written.isEmpty()) {
+            return 0;
+        }
+        try {
+            new TransactionTemplate(transactionManager).executeWithoutResult(status ->
+                    idsByQuantity.forEach((quantity, ids) -> {
+                        for (int from = 0; from < ids.size(); from += UPDATE_CHUNK_SIZE) {
+                            cartItemRepository.updateQuantity(
+                                    ids.subList(from, Math.min(ids.size(), from + UPDATE_CHUNK_SIZE)), quantity);
+                        }
+                    }));
+        } catch (RuntimeException e) {
+            written.forEach((line, cart) -> {
+                synchronized (cart) {
+                    line.dirty = true;
+                }
+            });
+            throw e;
+        }
+        return written.size();
+    }
+}
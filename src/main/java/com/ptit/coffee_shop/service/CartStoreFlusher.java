@@ -0,0 +1,38 @@
+package com.ptit.coffee_shop.service;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.event.ContextClosedEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+/**
+ * Ghi số lượng giỏ hàng trong {@link CartStore} xuống cart_item định kỳ và khi ứng dụng tắt,
+ * sau đó đẩy các giỏ không còn dùng ra khỏi bộ nhớ.
+ */
+@Component
+@Slf4j
+@RequiredArgsConstructor
+public class CartStoreFlusher {
+    private final CartStore cartStore;
+
+    // Tác vụ sẽ chạy flush-millis sau khi lần flush trước kết thúc, đây cũng là khoảng thay đổi tối đa bị mất khi crash
+    @Scheduled(fixedDelayString = "${app.cart-store.flush-millis:5000}")
+    public void flush() {
+        try {
+            int flushed = cartStore.flush();
+            int evicted = cartStore.evictIdle();
+            if (flushed > 0 || evicted > 0) {
+                log.debug("Flushed {} cart items, evicted {} idle carts", flushed, evicted);
+            }
+        } catch (Exception e) {
+            log.error("Cannot flush carts", e);
+        }
+    }
+
+    @EventListener(ContextClosedEvent.class)
+    public void flushOnShutdown() {
+        flush();
+    }
+}
@@ -0,0 +1,66 @@
+package com.ptit.coffee_shop.service;
+
+import com.ptit.coffee_shop.model.ProductSummary;
+import com.ptit.coffee_shop.payload.response.CatalogProductResponse;
+import com.ptit.coffee_shop.payload.response.ProductResponse;
+
+import java.util.*;
+
+/**
+ * Ảnh chụp bất biến của catalog: toàn bộ sản phẩm ACTIVE đã được dựng sẵn (kèm image, rating, giá).
+ * Dữ liệu được chép sang {@link CatalogProductResponse} nên snapshot không chia sẻ đối tượng nào với bên ngoài.
+ * Một snapshot không bao giờ bị sửa sau khi tạo, dữ liệu mới luôn được dựng thành snapshot khác rồi thay thế.
+ */
+public final class CatalogSnapshot {
+    private final long version;
+    private final List<CatalogProductResponse> products;
+    private final Map<Long, CatalogProductResponse> productsById;
+    private final Map<Long, List<CatalogProductResponse>> productsByCategory;
+
+    public static CatalogSnapshot of(long version, List<ProductResponse> products) {
+        return new CatalogSnapshot(version, products.stream().map(CatalogProductResponse::from).toList());
+    }
+
+    private CatalogSnapshot(long version, List<CatalogProductResponse> products) {
+        this.version = version;
+        List<CatalogProductResponse> sorted = new ArrayList<>(products);
+        sorted.sort(Comparator.comparingLong(CatalogProductResponse::getId));
+        Map<Long, CatalogProductResponse> byId = new HashMap<>();
+        Map<Long, List<CatalogProductResponse>> byCategory = new HashMap<>();
+        for (CatalogProductResponse product : sorted) {
+            byId.put(product.getId(), product);
+            if (product.getCategory() != null) {
+                byCategory.computeIfAbsent(product.getCategory().getId(), key -> new ArrayList<>()).add(product);
+            }
+        }
+        byCategory.replaceAll((categoryId, list) -> List.copyOf(list));
+        this.products = List.copyOf(sorted);
+        this.productsById = Map.copyOf(byId);
+        this.productsByCategory = Map.copyOf(byCategory);
+    }
+
+    // Snapshot mới chỉ thay rating, lượt bán và giá của các sản phẩm có trong summaries, các sản phẩm khác dùng lại
+    public CatalogSnapshot withSummaries(long version, Map<Long, ProductSummary> summaries, Collection<Long> productIds) {
+        List<CatalogProductResponse> patched = new ArrayList<>(products.size());
+        for (CatalogProductResponse product : products) {
+            patched.add(productIds.contains(product.getId()) ? product.withSummary(summaries.get(product.getId())) : product);
+        }
+        return new CatalogSnapshot(version, patched);
+    }
+
+    public long getVersion() {
+        return version;
+    }
+
+    public List<CatalogProductResponse> getProducts() {
+        return products;
+    }
+
+    public CatalogProductResponse getProduct(long productId) {
+        return productsById.get(productId);
+    }
+
+    public List<CatalogProductResponse> getProductsByCategory(long categoryId) {
+        return productsByCategory.getOrDefault(categoryId, List.of());
+    }
+}
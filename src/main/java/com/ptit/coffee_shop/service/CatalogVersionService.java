@@ -0,0 +1,53 @@
+package com.ptit.coffee_shop.service;
+
+import com.ptit.coffee_shop.common.CatalogChangedEvent;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Phiên bản catalog dùng làm ETag cho các API đọc danh mục (category, brand, type product).
+ * Mỗi loại dữ liệu ({@link CatalogChangedEvent#source()}) có version riêng, tăng ngay sau khi transaction ghi
+ * loại đó commit, nên review, đơn hàng hay tồn kho (product_summary, product_item) không làm đổi ETag của danh mục.
+ * Thời điểm khởi động được đưa vào ETag để ETag cũ không trùng sau khi restart.
+ */
+@Service
+public class CatalogVersionService {
+    private final String instanceTag = Long.toString(System.currentTimeMillis(), 36);
+    private final Map<String, AtomicLong> versions = new ConcurrentHashMap<>();
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onCatalogChanged(CatalogChangedEvent event) {
+        versions.computeIfAbsent(event.source(), source -> new AtomicLong()).incrementAndGet();
+    }
+
+    // Cần lấy version trước khi đọc dữ liệu để response không bao giờ cũ hơn ETag của nó
+    public long getVersion(String resource) {
+        AtomicLong version = versions.get(resource);
+        return version != null ? version.get() : 0;
+    }
+
+    public String etag(String endpoint, long version) {
+        return "\"" + endpoint + "-" + instanceTag + "-" + version + "\"";
+    }
+
+    // If-None-Match có thể là "*" hoặc danh sách ETag, ETag dạng weak (W/) cũng được so khớp
+    public static boolean matches(String ifNoneMatch, String etag) {
+        if (ifNoneMatch == null || ifNoneMatch.isBlank()) {
+            return false;
+        }
+        for (String candidate : ifNoneMatch.split(",")) {
+            String value = candidate.trim();
+            if (value.startsWith("W/")) {
+                value = value.substring(2);
+            }
+            if (value.equals("*") || value.equals(etag)) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
@@ -1,5 +1,6 @@
 package com.ptit.coffee_shop.service;
 
+import com.ptit.coffee_shop.common.CatalogChangedEvent;
 import com.ptit.coffee_shop.common.Constant;
 import com.ptit.coffee_shop.common.enums.Status;
 import com.ptit.coffee_shop.config.MessageBuilder;
@@ -7,7 +8,9 @@ import com.ptit.coffee_shop.exception.CoffeeShopException;
 import com.ptit.coffee_shop.model.Category;
 import com.ptit.coffee_shop.payload.response.RespMessage;
 import com.ptit.coffee_shop.repository.CategoryRepository;
+import com.ptit.coffee_shop.repository.ProductRepository;
 import lombok.RequiredArgsConstructor;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Service;
 import org.springframework.web.multipart.MultipartFile;
 
@@ -19,8 +22,10 @@ import java.util.Optional;
 @RequiredArgsConstructor
 public class CategoryService {
     final CategoryRepository categoryRepository;
+    final ProductRepository productRepository;
     final MessageBuilder messageBuilder;
     final CloudinaryService cloudinaryService;
+    final ApplicationEventPublisher eventPublisher;
 
     public RespMessage getAllCategories() {
         List<Category> categories = categoryRepository.findAllCategories()
@@ -62,6 +67,7 @@ public class CategoryService {
         }
         try {
             categoryRepository.save(category);
+            eventPublisher.publishEvent(new CatalogChangedEvent(CatalogChangedEvent.CATEGORY));
             return messageBuilder.buildSuccessMessage(category);
         } catch (Exception e) {
             throw new RuntimeException("Category could not be saved");
@@ -103,6 +109,9 @@ public class CategoryService {
         }
         try {
             categoryRepository.save(existingCategory);
+            // Tên category nằm trong index tìm kiếm của từng sản phẩm
+            eventPublisher.publishEvent(new CatalogChangedEvent(CatalogChangedEvent.CATEGORY,
+                    productRepository.findIdsByCategoryId(id)));
             return messageBuilder.buildSuccessMessage(existingCategory);
         } catch (Exception e) {
             throw new RuntimeException("Category could not be saved");
@@ -119,6 +128,8 @@ public class CategoryService {
         category.setStatus(Status.INACTIVE);
         try {
             categoryRepository.save(category);
+            eventPublisher.publishEvent(new CatalogChangedEvent(CatalogChangedEvent.CATEGORY,
+                    productRepository.findIdsByCategoryId(id)));
             return messageBuilder.buildSuccessMessage(category.getId());
         } catch (Exception e) {
             throw new RuntimeException("Category could not be deleted");
@@ -0,0 +1,63 @@
+package com.ptit.coffee_shop.service;
+
+import com.ptit.coffee_shop.common.enums.OrderStatus;
+import com.ptit.coffee_shop.repository.OrderRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.Date;
+import java.util.List;
+
+/**
+ * Tách đơn nóng/lạnh: đơn Completed hoặc Cancelled cũ hơn after-days ngày được đánh dấu cold theo từng chunk,
+ * mỗi chunk một câu UPDATE trong transaction riêng để không khóa bảng order lâu.
+ * Đây chỉ là cờ để truy vấn vận hành (danh sách đơn theo trạng thái) bỏ qua đơn cũ qua index (cold, status, order_date);
+ * lịch sử của khách, trang đơn của admin và thống kê vẫn đọc mọi đơn.
+ * Không phải archive: dòng order/order_item vẫn nằm trong cùng bảng, bảng không nhỏ đi.
+ */
+@Component
+@Slf4j
+@RequiredArgsConstructor
+public class ColdOrderMarker {
+    static final List<OrderStatus> FINISHED = List.of(OrderStatus.Completed, OrderStatus.Cancelled);
+
+    private final OrderRepository orderRepository;
+
+    @Value("${app.order-cold.after-days:90}")
+    private long afterDays = 90;
+
+    @Value("${app.order-cold.chunk-size:500}")
+    private int chunkSize = 500;
+
+    // Tác vụ sẽ chạy 1 giờ sau khi lần đánh dấu trước kết thúc
+    @Scheduled(fixedDelayString = "${app.order-cold.interval-millis:3600000}")
+    public void run() {
+        try {
+            int marked = markCold();
+            if (marked > 0) {
+                log.info("Marked {} finished orders as cold", marked);
+            }
+        } catch (Exception e) {
+            log.error("Cannot mark finished orders as cold", e);
+        }
+    }
+
+    // Trả về số đơn đã đánh dấu cold
+    public int markCold() {
+        Date before = new Date(System.currentTimeMillis() - afterDays * 24 * 3600_000);
+        int marked = 0;
+        List<Long> orderIds;
+        while (!(orderIds = orderRepository.findIdsToMarkCold(FINISHED, before, PageRequest.of(0, chunkSize))).isEmpty()) {
+            int chunk = orderRepository.markCold(orderIds, FINISHED);
+            if (chunk == 0) {
+                break;
+            }
+            marked += chunk;
+        }
+        return marked;
+    }
+}
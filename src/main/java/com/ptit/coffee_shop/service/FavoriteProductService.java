@@ -20,6 +20,7 @@ import org.springframework.stereotype.Service;
 
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 import java.util.stream.Collectors;
 
@@ -39,17 +40,19 @@ public class FavoriteProductService {
             throw new CoffeeShopException(Constant.FIELD_NOT_VALID, new Object[]{"UserId"}, "UserId invalid");
         }
 
-        List<FavoriteProduct> favoriteProducts = favoriteProductRepository.findByUserId(userId);
-        List<FavoriteProductResponse> favoriteProductResponses = favoriteProducts.stream()
+        List<FavoriteProduct> favoriteProducts = favoriteProductRepository.findByUserId(userId).stream()
                 .filter(favoriteProduct -> favoriteProduct.getProduct().getStatus().equals(Status.ACTIVE))
-                .map(favoriteProduct -> {
-                    ProductResponse productResponse =productService.getProductResponse(favoriteProduct.getProduct());
-                    return new FavoriteProductResponse(
-                            favoriteProduct.getId(),
-                            productResponse,
-                            favoriteProduct.getUser().getId()
-                    );
-                }).collect(Collectors.toList());
+                .toList();
+        Map<Long, ProductResponse> productResponses = productService.getProductResponses(favoriteProducts.stream()
+                        .map(FavoriteProduct::getProduct).toList())
+                .stream()
+                .collect(Collectors.toMap(ProductResponse::getId, productResponse -> productResponse, (first, second) -> first));
+        List<FavoriteProductResponse> favoriteProductResponses = favoriteProducts.stream()
+                .map(favoriteProduct -> new FavoriteProductResponse(
+                        favoriteProduct.getId(),
+                        productResponses.get(favoriteProduct.getProduct().getId()),
+                        favoriteProduct.getUser().getId()
+                )).collect(Collectors.toList());
 
         return messageBuilder.buildSuccessMessage(favoriteProductResponses);
     }
@@ -0,0 +1,36 @@
+package com.ptit.coffee_shop.service;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.event.ContextClosedEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+/**
+ * Ghi tồn kho của sản phẩm hot sale xuống product_item.stock định kỳ và khi ứng dụng tắt.
+ */
+@Component
+@Slf4j
+@RequiredArgsConstructor
+public class HotStockFlusher {
+    private final HotStockService hotStockService;
+
+    // Tác vụ sẽ chạy 5 giây sau khi lần flush trước kết thúc
+    @Scheduled(fixedDelay = 5000)
+    public void flush() {
+        try {
+            int flushed = hotStockService.flush();
+            if (flushed > 0) {
+                log.debug("Flushed {} hot sale order items to product stock", flushed);
+            }
+        } catch (Exception e) {
+            log.error("Cannot flush hot sale stock", e);
+        }
+    }
+
+    @EventListener(ContextClosedEvent.class)
+    public void flushOnShutdown() {
+        flush();
+    }
+}
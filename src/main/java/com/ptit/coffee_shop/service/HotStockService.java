@@ -0,0 +1,203 @@
+package com.ptit.coffee_shop.service;
+
+import com.ptit.coffee_shop.common.Constant;
+import com.ptit.coffee_shop.common.TransactionHooks;
+import com.ptit.coffee_shop.exception.CoffeeShopException;
+import com.ptit.coffee_shop.model.ProductItem;
+import com.ptit.coffee_shop.repository.OrderItemRepository;
+import com.ptit.coffee_shop.repository.ProductItemRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+
+/**
+ * Tồn kho trong bộ nhớ cho sản phẩm flash sale (product_item.hot_sale = true).
+ * Đơn hàng trừ kho trên bộ đếm chia stripe bằng CAS thay vì cùng chờ khóa một dòng product_item.
+ * Dòng order_item của các đơn này được đánh dấu stock_pending và {@link HotStockFlusher} định kỳ trừ vào DB,
+ * nên sau khi crash bộ đếm được dựng lại bằng: stock trong DB - tổng số lượng các dòng còn pending.
+ */
+@Service
+@Slf4j
+@RequiredArgsConstructor
+public class HotStockService {
+    private static final int STRIPES = 16;
+
+    private final ProductItemRepository productItemRepository;
+    private final OrderItemRepository orderItemRepository;
+
+    private final Map<Long, StripedCounter> counters = new ConcurrentHashMap<>();
+    // Có dòng order_item pending cần flush (kể cả của sản phẩm vừa tắt hot sale)
+    private final AtomicBoolean dirty = new AtomicBoolean();
+
+    static final class StripedCounter {
+        private final AtomicIntegerArray stripes = new AtomicIntegerArray(STRIPES);
+
+        StripedCounter(int stock) {
+            distribute(stock);
+        }
+
+        int get() {
+            int total = 0;
+            for (int i = 0; i < STRIPES; i++) {
+                total += stripes.get(i);
+            }
+            return total;
+        }
+
+        boolean tryDecrement(int amount) {
+            int start = (int) Thread.currentThread().getId() & (STRIPES - 1);
+            for (int i = 0; i < STRIPES; i++) {
+                int index = (start + i) & (STRIPES - 1);
+                int value = stripes.get(index);
+                while (value >= amount) {
+                    if (stripes.compareAndSet(index, value, value - amount)) {
+                        return true;
+                    }
+                    value = stripes.get(index);
+                }
+            }
+            return rebalanceAndDecrement(amount);
+        }
+
+        void add(int amount) {
+            stripes.addAndGet((int) Thread.currentThread().getId() & (STRIPES - 1), amount);
+        }
+
+        // Không stripe nào đủ hàng: gom toàn bộ rồi chia lại. Mỗi đơn vị hàng chỉ bị lấy bởi CAS hoặc getAndSet
+        private synchronized boolean rebalanceAndDecrement(int amount) {
+            int total = 0;
+            for (int i = 0; i < STRIPES; i++) {
+                total += stripes.getAndSet(i, 0);
+            }
+            boolean enough = total >= amount;
+            distribute(enough ? total - amount : total);
+            return enough;
+        }
+
+        private void distribute(int stock) {
+            for (int i = 0; i < STRIPES; i++) {
+                stripes.addAndGet(i, stock / STRIPES + (i < stock % STRIPES ? 1 : 0));
+            }
+        }
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void load() {
+        Map<Long, Long> pending = new HashMap<>();
+        for (Object[] row : orderItemRepository.sumPendingStockByProductItem()) {
+            pending.put((Long) row[0], ((Number) row[1]).longValue());
+        }
+        counters.clear();
+        for (ProductItem productItem : productItemRepository.findByHotSaleTrue()) {
+            counters.put(productItem.getId(), new StripedCounter(available(productItem.getStock(),
+                    pending.getOrDefault(productItem.getId(), 0L))));
+        }
+        dirty.set(!pending.isEmpty());
+        log.info("Loaded {} hot sale stock counters", counters.size());
+    }
+
+    public boolean isHot(long productItemId) {
+        return counters.containsKey(productItemId);
+    }
+
+    /**
+     * Trừ kho trên bộ đếm, tự cộng lại nếu transaction đặt đơn rollback.
+     * Dòng order_item tương ứng phải được lưu với stockPending = true.
+     */
+    public boolean tryReserve(long productItemId, int amount) {
+        StripedCounter counter = counters.get(productItemId);
+        if (counter == null || !counter.tryDecrement(amount)) {
+            return false;
+        }
+        dirty.set(true);
+        TransactionHooks.afterRollback(() -> counter.add(amount));
+        return true;
+    }
+
+    // Trả hàng về bộ đếm sau khi transaction cộng lại product_item.stock đã commit
+    public void restock(long productItemId, int amount) {
+        TransactionHooks.afterCommit(() -> {
+            StripedCounter counter = counters.get(productItemId);
+            if (counter != null) {
+                counter.add(amount);
+            }
+        });
+    }
+
+    public int getAvailable(long productItemId) {
+        StripedCounter counter = counters.get(productItemId);
+        return counter != null ? counter.get() : -1;
+    }
+
+    // Dựng lại bộ đếm từ DB, dùng khi admin sửa tồn kho của sản phẩm hot sale
+    public void reload(long productItemId) {
+        TransactionHooks.afterCommit(() -> productItemRepository.findById(productItemId)
+                .filter(ProductItem::isHotSale)
+                .ifPresentOrElse(productItem -> counters.put(productItemId, new StripedCounter(available(
+                                productItem.getStock(), orderItemRepository.sumPendingStock(productItemId)))),
+                        () -> counters.remove(productItemId)));
+    }
+
+    @Transactional
+    public ProductItem setHotSale(long productItemId, boolean hotSale) {
+        if (!hotSale) {
+            // Trừ hết phần pending trước khi đơn mới quay lại trừ kho trực tiếp trên DB.
+            // Chạy trước khi nạp product_item để entity đọc được stock đã trừ
+            applyPending();
+        }
+        ProductItem productItem = productItemRepository.findById(productItemId).orElseThrow(() ->
+                new CoffeeShopException(Constant.FIELD_NOT_FOUND, new Object[]{"ProductItem"}, "ProductItem not found"));
+        productItem.setHotSale(hotSale);
+        productItemRepository.save(productItem);
+        reload(productItemId);
+        return productItem;
+    }
+
+    /**
+     * Trừ số lượng của các dòng order_item pending vào product_item.stock trong một transaction.
+     * Nếu có lần flush khác chạy song song và đã xử lý một phần các dòng thì rollback, lần sau flush lại.
+     */
+    @Transactional
+    public int flush() {
+        if (counters.isEmpty() && !dirty.get()) {
+            return 0;
+        }
+        return applyPending();
+    }
+
+    private int applyPending() {
+        dirty.set(false);
+        List<Long> orderItemIds = new ArrayList<>();
+        Map<Long, Integer> soldAmounts = new TreeMap<>();
+        for (Object[] row : orderItemRepository.findPendingStock()) {
+            orderItemIds.add((Long) row[0]);
+            soldAmounts.merge((Long) row[1], (Integer) row[2], Integer::sum);
+        }
+        if (orderItemIds.isEmpty()) {
+            return 0;
+        }
+        try {
+            if (orderItemRepository.markStockApplied(orderItemIds) != orderItemIds.size()) {
+                throw new IllegalStateException("Pending order items were flushed concurrently");
+            }
+            // Bộ đếm đã chặn bán vượt kho nên trừ thẳng, không cần điều kiện stock >= amount
+            soldAmounts.forEach((productItemId, amount) -> productItemRepository.incrementStock(productItemId, -amount));
+        } catch (RuntimeException e) {
+            dirty.set(true);
+            throw e;
+        }
+        return orderItemIds.size();
+    }
+
+    private static int available(int stock, long pending) {
+        return (int) Math.max(0, stock - pending);
+    }
+}
@@ -0,0 +1,179 @@
+package com.ptit.coffee_shop.service;
+
+import com.ptit.coffee_shop.common.Constant;
+import com.ptit.coffee_shop.common.GsonUtil;
+import com.ptit.coffee_shop.config.MessageBuilder;
+import com.ptit.coffee_shop.payload.response.RespMessage;
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.stereotype.Service;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.function.Supplier;
+
+/**
+ * Lưu response của các request ghi (đặt hàng, thanh toán) theo header Idempotency-Key.
+ * Client gửi lại cùng key trong thời gian TTL nhận lại đúng response cũ mà không chạy lại service hay chạm DB,
+ * request trùng key đến khi lần đầu chưa xong sẽ chờ kết quả của lần đầu.
+ * Key được tách theo endpoint và user, bộ nhớ giới hạn bởi max-entries: khi đầy bỏ key cũ nhất đã có kết quả,
+ * nếu mọi key đều đang chạy thì từ chối key mới (503) thay vì bỏ key đang chạy làm request trùng bị chạy lần hai.
+ */
+@Service
+@RequiredArgsConstructor
+public class IdempotencyService {
+    public static final String HEADER = "Idempotency-Key";
+    public static final String REPLAYED_HEADER = "Idempotent-Replayed";
+    private static final int MAX_KEY_LENGTH = 255;
+
+    private final MessageBuilder messageBuilder;
+
+    @Value("${app.idempotency.max-entries:10000}")
+    private int maxEntries;
+
+    @Value("${app.idempotency.ttl-minutes:60}")
+    private long ttlMinutes;
+
+    // Thứ tự chèn cũng là thứ tự hết hạn vì mọi key có cùng TTL
+    private final LinkedHashMap<String, Entry> entries = new LinkedHashMap<>();
+
+    private record Entry(String fingerprint, CompletableFuture<ResponseEntity<String>> response, long expiresAt) {
+    }
+
+    /**
+     * Chạy action một lần cho mỗi key. Không có key thì chạy bình thường.
+     * Response 5xx hoặc exception không được lưu để client có thể thử lại.
+     */
+    public ResponseEntity<String> execute(String endpoint, String key, Object request,
+                                          Supplier<ResponseEntity<String>> action) {
+        if (key == null || key.isBlank()) {
+            return action.get();
+        }
+        if (key.length() > MAX_KEY_LENGTH) {
+            return failure("Idempotency-Key must not be longer than " + MAX_KEY_LENGTH + " characters");
+        }
+        String storeKey = endpoint + ":" + currentUser() + ":" + key;
+        String fingerprint = fingerprint(request);
+        CompletableFuture<ResponseEntity<String>> response = new CompletableFuture<>();
+        Entry existing;
+        synchronized (entries) {
+            evictExpired(System.currentTimeMillis());
+            existing = entries.get(storeKey);
+            if (existing == null) {
+                evictCompleted();
+                if (entries.size() >= maxEntries) {
+                    return busy();
+                }
+                entries.put(storeKey, new Entry(fingerprint, response,
+                        System.currentTimeMillis() + ttlMinutes * 60_000));
+            }
+        }
+        if (existing != null) {
+            return replay(existing, fingerprint);
+        }
+
+        ResponseEntity<String> result;
+        try {
+            result = action.get();
+        } catch (RuntimeException e) {
+            forget(storeKey, response);
+            response.completeExceptionally(e);
+            throw e;
+        }
+        if (result.getStatusCode().is5xxServerError()) {
+            forget(storeKey, response);
+        }
+        response.complete(result);
+        return result;
+    }
+
+    public int size() {
+        synchronized (entries) {
+            return entries.size();
+        }
+    }
+
+    private ResponseEntity<String> replay(Entry existing, String fingerprint) {
+        if (!existing.fingerprint().equals(fingerprint)) {
+            return failure("Idempotency-Key was already used for a different request");
+        }
+        ResponseEntity<String> stored;
+        try {
+            stored = existing.response().join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw e;
+        }
+        return ResponseEntity.status(stored.getStatusCode())
+                .headers(stored.getHeaders())
+                .header(REPLAYED_HEADER, "true")
+                .body(stored.getBody());
+    }
+
+    private void forget(String storeKey, CompletableFuture<ResponseEntity<String>> response) {
+        synchronized (entries) {
+            Entry entry = entries.get(storeKey);
+            if (entry != null && entry.response() == response) {
+                entries.remove(storeKey);
+            }
+        }
+    }
+
+    private void evictExpired(long now) {
+        Iterator<Entry> iterator = entries.values().iterator();
+        while (iterator.hasNext()) {
+            if (iterator.next().expiresAt() > now) {
+                return;
+            }
+            iterator.remove();
+        }
+    }
+
+    // Bỏ các key cũ nhất đã có kết quả cho tới khi còn chỗ cho một key mới
+    private void evictCompleted() {
+        Iterator<Entry> iterator = entries.values().iterator();
+        while (entries.size() >= maxEntries && iterator.hasNext()) {
+            if (iterator.next().response().isDone()) {
+                iterator.remove();
+            }
+        }
+    }
+
+    private ResponseEntity<String> busy() {
+        RespMessage respMessage = messageBuilder.buildFailureMessage(Constant.SYSTEM_ERROR, new Object[]{HEADER},
+                "Too many requests in progress, please retry later");
+        return new ResponseEntity<>(GsonUtil.getInstance().toJson(respMessage), HttpStatus.SERVICE_UNAVAILABLE);
+    }
+
+    private ResponseEntity<String> failure(String message) {
+        RespMessage respMessage = messageBuilder.buildFailureMessage(Constant.FIELD_NOT_VALID, new Object[]{HEADER}, message);
+        return new ResponseEntity<>(GsonUtil.getInstance().toJson(respMessage), HttpStatus.BAD_REQUEST);
+    }
+
+    private static String currentUser() {
+        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+        return authentication != null ? authentication.getName() : "anonymous";
+    }
+
+    // Băm body request để phát hiện key bị dùng lại cho request khác mà không phải giữ cả body trong bộ nhớ
+    private static String fingerprint(Object request) {
+        try {
+            byte[] json = GsonUtil.getInstance().toJson(request).getBytes(StandardCharsets.UTF_8);
+            return HexFormat.of().formatHex(MessageDigest.getInstance("SHA-256").digest(json));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
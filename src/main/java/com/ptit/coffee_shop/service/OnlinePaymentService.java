@@ -40,6 +40,9 @@ public class OnlinePaymentService {
     @Autowired
     private OrderRepository orderRepository;
 
+    @Autowired
+    private OrderOutboxService orderOutboxService;
+
     @Value("${frontend-url}")
     private String frontEndUrl;
 
@@ -228,10 +231,12 @@ public class OnlinePaymentService {
                 Optional<Order> order = orderRepository.findById(orderId);
                 if (order.isPresent()) {
                     Order order1 = order.get();
+                    OrderStatus previousStatus = order1.getStatus();
                     order1.setStatus(OrderStatus.Cancelled);
                     try {
                         orderRepository.save(order1);
                         transactionRepository.save(transaction1);
+                        orderOutboxService.statusChanged(order1, previousStatus);
                         return messageBuilder.buildSuccessMessage(transaction1.toTransactionResponse());
                     } catch (CoffeeShopException e ){
                         throw new CoffeeShopException(Constant.SYSTEM_ERROR,null, "Cannot save transaction");
@@ -0,0 +1,121 @@
+package com.ptit.coffee_shop.service;
+
+import com.ptit.coffee_shop.common.Constant;
+import com.ptit.coffee_shop.common.GsonUtil;
+import com.ptit.coffee_shop.common.enums.ExportFormat;
+import com.ptit.coffee_shop.exception.CoffeeShopException;
+import com.ptit.coffee_shop.repository.OrderRepository;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.io.*;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.util.Date;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.stream.Stream;
+
+/**
+ * Xuất đơn hàng và các dòng order_item cho kế toán dưới dạng CSV hoặc NDJSON, mỗi order_item một dòng.
+ * Dữ liệu được đọc bằng con trỏ chỉ tiến (fetch size giới hạn) và ghi thẳng ra output stream của response,
+ * nên bộ nhớ không tăng theo số dòng và client nhận byte đầu tiên ngay.
+ */
+@Service
+@RequiredArgsConstructor
+public class OrderExportService {
+    private static final String[] COLUMNS = {"order_id", "order_date", "status", "payment_method", "subtotal",
+            "shipping_fee", "total", "customer_email", "order_item_id", "product_item_id", "product_name",
+            "product_type", "amount", "price", "discount"};
+    private static final int FLUSH_EVERY_ROWS = 1000;
+
+    private final OrderRepository orderRepository;
+
+    // Kiểm tra tham số trước khi bắt đầu ghi response, lỗi vẫn trả về được dạng JSON như các API khác
+    public ExportFormat validate(String format, LocalDate fromDate, LocalDate toDate) {
+        ExportFormat exportFormat = ExportFormat.fromValue(format);
+        if (exportFormat == null) {
+            throw new CoffeeShopException(Constant.FIELD_NOT_VALID, new Object[]{"format"}, "Export format must be csv or ndjson");
+        }
+        if (fromDate != null && toDate != null && fromDate.isAfter(toDate)) {
+            throw new CoffeeShopException(Constant.FIELD_NOT_VALID, new Object[]{"fromDate"}, "fromDate must not be after toDate");
+        }
+        return exportFormat;
+    }
+
+    // Trả về số dòng đã ghi
+    @Transactional(readOnly = true)
+    public long export(ExportFormat format, LocalDate fromDate, LocalDate toDate, OutputStream outputStream) throws IOException {
+        Writer writer = new BufferedWriter(new OutputStreamWriter(outputStream, StandardCharsets.UTF_8));
+        if (format == ExportFormat.CSV) {
+            writer.write(String.join(",", COLUMNS));
+            writer.write('\n');
+            writer.flush();
+        }
+        long rows = 0;
+        try (Stream<Object[]> stream = orderRepository.streamExportRows(OrderService.startOfDay(fromDate),
+                toDate != null ? OrderService.startOfDay(toDate.plusDays(1)) : null)) {
+            Iterator<Object[]> iterator = stream.iterator();
+            while (iterator.hasNext()) {
+                Object[] row = iterator.next();
+                if (format == ExportFormat.CSV) {
+                    writeCsv(writer, row);
+                } else {
+                    writeJson(writer, row);
+                }
+                rows++;
+                if (rows == 1 || rows % FLUSH_EVERY_ROWS == 0) {
+                    writer.flush();
+                }
+            }
+        }
+        writer.flush();
+        return rows;
+    }
+
+    private static void writeCsv(Writer writer, Object[] row) throws IOException {
+        for (int i = 0; i < row.length; i++) {
+            if (i > 0) {
+                writer.write(',');
+            }
+            Object value = value(row[i]);
+            if (value != null) {
+                writer.write(escapeCsv(value instanceof BigDecimal number ? number.toPlainString() : value.toString()));
+            }
+        }
+        writer.write('\n');
+    }
+
+    private static void writeJson(Writer writer, Object[] row) throws IOException {
+        Map<String, Object> line = new LinkedHashMap<>();
+        for (int i = 0; i < row.length; i++) {
+            line.put(COLUMNS[i], value(row[i]));
+        }
+        writer.write(GsonUtil.getInstance().toJson(line));
+        writer.write('\n');
+    }
+
+    // Ngày theo ISO-8601 (UTC), số thực bỏ phần .0 thừa để file gọn và dễ đối chiếu
+    private static Object value(Object value) {
+        if (value instanceof Date date) {
+            return date.toInstant().toString();
+        }
+        if (value instanceof Double || value instanceof Float) {
+            return new BigDecimal(BigDecimal.valueOf(((Number) value).doubleValue()).stripTrailingZeros().toPlainString());
+        }
+        if (value instanceof Enum<?> constant) {
+            return constant.name();
+        }
+        return value;
+    }
+
+    static String escapeCsv(String value) {
+        if (value.indexOf(',') < 0 && value.indexOf('"') < 0 && value.indexOf('\n') < 0 && value.indexOf('\r') < 0) {
+            return value;
+        }
+        return '"' + value.replace("\"", "\"\"") + '"';
+    }
+}
@@ -0,0 +1,313 @@
+package com.ptit.coffee_shop.service;
+
+import com.ptit.coffee_shop.common.Constant;
+import com.ptit.coffee_shop.common.TransactionHooks;
+import com.ptit.coffee_shop.common.enums.PaymentMethod;
+import com.ptit.coffee_shop.config.MessageBuilder;
+import com.ptit.coffee_shop.exception.CoffeeShopException;
+import com.ptit.coffee_shop.model.Order;
+import com.ptit.coffee_shop.model.OrderItem;
+import com.ptit.coffee_shop.model.ProductItem;
+import com.ptit.coffee_shop.model.ShippingAddress;
+import com.ptit.coffee_shop.payload.request.OrderItemRequest;
+import com.ptit.coffee_shop.payload.request.OrderRequest;
+import com.ptit.coffee_shop.payload.response.RespMessage;
+import com.ptit.coffee_shop.repository.OrderItemRepository;
+import com.ptit.coffee_shop.repository.OrderRepository;
+import com.ptit.coffee_shop.repository.ProductItemRepository;
+import com.ptit.coffee_shop.repository.ShippingAddressRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.ContextClosedEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.*;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Hàng đợi đặt hàng theo kiểu group commit: request được đưa vào hàng đợi có giới hạn,
+ * một luồng ghi duy nhất lấy ra từng batch nhỏ (tối đa max-batch-size đơn hoặc chờ max-wait-millis)
+ * và ghi cả batch trong một transaction. product_item bị khóa một lần theo thứ tự id, tồn kho được trừ
+ * bằng batch UPDATE và order/order_item được INSERT theo JDBC batch.
+ * Đơn không hợp lệ hoặc hết hàng chỉ làm lỗi future của chính nó, các đơn khác trong batch vẫn được ghi.
+ */
+@Service
+@Slf4j
+@RequiredArgsConstructor
+public class OrderIntakeService {
+    private final OrderService orderService;
+    private final OrderRepository orderRepository;
+    private final OrderItemRepository orderItemRepository;
+    private final ProductItemRepository productItemRepository;
+    private final ShippingAddressRepository shippingAddressRepository;
+    private final StockReservationService stockReservationService;
+    private final HotStockService hotStockService;
+    private final OrderOutboxService orderOutboxService;
+    private final CartStore cartStore;
+    private final MessageBuilder messageBuilder;
+    private final PlatformTransactionManager transactionManager;
+
+    @Value("${app.order-intake.queue-capacity:10000}")
+    private int queueCapacity;
+
+    @Value("${app.order-intake.max-batch-size:100}")
+    private int maxBatchSize;
+
+    @Value("${app.order-intake.max-wait-millis:5}")
+    private long maxWaitMillis;
+
+    private volatile BlockingQueue<PendingOrder> queue;
+    private volatile boolean running;
+    private Thread writer;
+
+    record PendingOrder(OrderRequest request, CompletableFuture<RespMessage> result) {
+        PendingOrder(OrderRequest request) {
+            this(request, new CompletableFuture<>());
+        }
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public synchronized void start() {
+        if (running) {
+            return;
+        }
+        queue = new ArrayBlockingQueue<>(queueCapacity);
+        running = true;
+        writer = new Thread(this::drain, "order-intake");
+        writer.setDaemon(true);
+        writer.start();
+        log.info("Order intake started (batch size {}, wait {} ms)", maxBatchSize, maxWaitMillis);
+    }
+
+    // Ngừng nhận đơn vào hàng đợi, luồng ghi xử lý nốt các đơn đang chờ rồi thoát
+    @EventListener(ContextClosedEvent.class)
+    public synchronized void stop() throws InterruptedException {
+        if (!running) {
+            return;
+        }
+        running = false;
+        writer.join(TimeUnit.SECONDS.toMillis(30));
+        PendingOrder pending;
+        while ((pending = queue.poll()) != null) {
+            pending.result().completeExceptionally(orderNotAdded());
+        }
+    }
+
+    // Chờ kết quả của đơn, lỗi của riêng đơn được ném lại như khi gọi OrderService.addOrder
+    public RespMessage placeOrder(OrderRequest orderRequest) {
+        try {
+            return submit(orderRequest).join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw e;
+        }
+    }
+
+    public CompletableFuture<RespMessage> submit(OrderRequest orderRequest) {
+        PendingOrder pending = new PendingOrder(orderRequest);
+        if (!running) {
+            // Chưa khởi động xong hoặc đang tắt: đặt đơn trực tiếp trong transaction riêng
+            placeAlone(pending);
+        } else if (!queue.offer(pending)) {
+            pending.result().completeExceptionally(new CoffeeShopException(Constant.SYSTEM_ERROR,
+                    new Object[]{"order"}, "Too many orders, please try again later"));
+        } else if (!running && queue.remove(pending)) {
+            // stop() chạy xen giữa lúc kiểm tra và lúc đưa vào hàng đợi
+            placeAlone(pending);
+        }
+        return pending.result();
+    }
+
+    public int getQueueSize() {
+        BlockingQueue<PendingOrder> current = queue;
+        return current != null ? current.size() : 0;
+    }
+
+    private void drain() {
+        while (running || !queue.isEmpty()) {
+            List<PendingOrder> batch = new ArrayList<>(maxBatchSize);
+            try {
+                PendingOrder first = queue.poll(100, TimeUnit.MILLISECONDS);
+                if (first == null) {
+                    continue;
+                }
+                batch.add(first);
+                queue.drainTo(batch, maxBatchSize - batch.size());
+                long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(maxWaitMillis);
+                while (batch.size() < maxBatchSize) {
+                    PendingOrder next = queue.poll(deadline - System.nanoTime(), TimeUnit.NANOSECONDS);
+                    if (next == null) {
+                        break;
+                    }
+                    batch.add(next);
+                    queue.drainTo(batch, maxBatchSize - batch.size());
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                batch.forEach(pending -> pending.result().completeExceptionally(orderNotAdded()));
+                return;
+            }
+            processBatch(batch);
+        }
+    }
+
+    void processBatch(List<PendingOrder> batch) {
+        Map<PendingOrder, RuntimeException> rejected = new LinkedHashMap<>();
+        Map<PendingOrder, Long> placed;
+        try {
+            placed = new TransactionTemplate(transactionManager).execute(status -> writeBatch(batch, rejected));
+        } catch (RuntimeException e) {
+            // Cả transaction lỗi (mất kết nối, deadlock...): đặt lại từng đơn bằng transaction riêng
+            log.warn("Order batch of {} failed, placing orders one by one", batch.size(), e);
+            batch.forEach(this::placeAlone);
+            return;
+        }
+        // Chỉ báo thành công sau khi commit
+        placed.forEach((pending, orderId) -> pending.result().complete(messageBuilder.buildSuccessMessage(orderId)));
+        rejected.forEach((pending, e) -> pending.result().completeExceptionally(e));
+    }
+
+    private Map<PendingOrder, Long> writeBatch(List<PendingOrder> batch, Map<PendingOrder, RuntimeException> rejected) {
+        rejected.clear();
+        Map<Long, ShippingAddress> shippingAddresses = new HashMap<>();
+        for (ShippingAddress shippingAddress : shippingAddressRepository.findAllById(batch.stream()
+                .map(pending -> pending.request().getShippingAddressId()).distinct().toList())) {
+            shippingAddresses.put(shippingAddress.getId(), shippingAddress);
+        }
+        Map<PendingOrder, Map<Long, Integer>> orderedAmounts = new LinkedHashMap<>();
+        for (PendingOrder pending : batch) {
+            try {
+                OrderRequest orderRequest = pending.request();
+                if (orderRequest.getOrderItems() == null || orderRequest.getOrderItems().isEmpty()) {
+                    throw new CoffeeShopException(Constant.FIELD_NOT_NULL, new Object[] {"order_items"}, "OrderItems cannot be empty");
+                }
+                OrderService.requireActive(Optional.ofNullable(shippingAddresses.get(orderRequest.getShippingAddressId())));
+                orderedAmounts.put(pending, OrderService.mergeOrderedAmounts(orderRequest));
+            } catch (CoffeeShopException e) {
+                rejected.put(pending, e);
+            }
+        }
+
+        // Sản phẩm thường bị khóa một lần cho cả batch, sản phẩm hot sale trừ trên bộ đếm nên không cần khóa
+        Set<Long> hotIds = new TreeSet<>();
+        Set<Long> coldIds = new TreeSet<>();
+        orderedAmounts.values().forEach(amounts -> amounts.keySet()
+                .forEach(id -> (hotStockService.isHot(id) ? hotIds : coldIds).add(id)));
+        Map<Long, ProductItem> productItems = new HashMap<>();
+        if (!coldIds.isEmpty()) {
+            productItemRepository.findAllByIdForUpdate(coldIds).forEach(item -> productItems.put(item.getId(), item));
+        }
+        if (!hotIds.isEmpty()) {
+            productItemRepository.findAllById(hotIds).forEach(item -> productItems.put(item.getId(), item));
+        }
+        Map<Long, Integer> remaining = new HashMap<>();
+        for (Long id : coldIds) {
+            if (productItems.containsKey(id)) {
+                remaining.put(id, productItems.get(id).getStock());
+            }
+        }
+
+        // Chia hàng theo thứ tự đơn đến
+        Map<PendingOrder, Order> orders = new LinkedHashMap<>();
+        List<OrderItem> orderItems = new ArrayList<>();
+        for (Map.Entry<PendingOrder, Map<Long, Integer>> entry : orderedAmounts.entrySet()) {
+            PendingOrder pending = entry.getKey();
+            Set<Long> hotLines;
+            try {
+                hotLines = allocate(entry.getValue(), hotIds, productItems, remaining);
+            } catch (CoffeeShopException e) {
+                rejected.put(pending, e);
+                continue;
+            }
+            OrderRequest orderRequest = pending.request();
+            Order order = OrderService.newOrder(shippingAddresses.get(orderRequest.getShippingAddressId()),
+                    orderRequest.getPaymentMethod());
+            List<OrderItem> lines = new ArrayList<>();
+            for (OrderItemRequest orderItemRequest : orderRequest.getOrderItems()) {
+                ProductItem productItem = productItems.get(orderItemRequest.getProductItemId());
+                OrderItem orderItem = OrderService.newOrderItem(orderItemRequest, productItem,
+                        hotLines.contains(productItem.getId()));
+                orderItem.setOrder(order);
+                lines.add(orderItem);
+            }
+            OrderService.applyTotals(order, lines);
+            orderItems.addAll(lines);
+            orders.put(pending, order);
+        }
+        if (orders.isEmpty()) {
+            return new LinkedHashMap<>();
+        }
+
+        // Các dòng product_item đang bị khóa, Hibernate gom các thay đổi stock thành batch UPDATE khi flush
+        remaining.forEach((id, stock) -> productItems.get(id).setStock(stock));
+        orderRepository.saveAll(orders.values());
+        orderItemRepository.saveAll(orderItems);
+        Map<PendingOrder, Long> placed = new LinkedHashMap<>();
+        orders.forEach((pending, order) -> {
+            // Đơn VNPay chỉ giữ hàng trong thời hạn thanh toán, hết hạn sẽ được trả lại kho
+            if (order.getPaymentMethod() == PaymentMethod.VNPay) {
+                stockReservationService.hold(order, orderedAmounts.get(pending));
+            }
+            placed.put(pending, order.getId());
+        });
+        orderOutboxService.orderPlaced(orders.values());
+        // Giỏ hàng của người mua được ghi xuống cart_item ngay khi đặt hàng
+        Set<Long> buyerIds = OrderService.buyerIds(orders.values());
+        TransactionHooks.afterCommit(() -> cartStore.flush(buyerIds));
+        return placed;
+    }
+
+    // Kiểm tra cả đơn trước rồi mới trừ, để đơn bị từ chối không giữ hàng của các đơn phía sau
+    private Set<Long> allocate(Map<Long, Integer> amounts, Set<Long> hotIds,
+                               Map<Long, ProductItem> productItems, Map<Long, Integer> remaining) {
+        for (Map.Entry<Long, Integer> amount : amounts.entrySet()) {
+            if (!productItems.containsKey(amount.getKey())) {
+                throw OrderService.productItemNotFound();
+            }
+            if (!hotIds.contains(amount.getKey()) && remaining.get(amount.getKey()) < amount.getValue()) {
+                throw OrderService.stockNotEnough();
+            }
+        }
+        Set<Long> hotLines = new HashSet<>();
+        for (Map.Entry<Long, Integer> amount : amounts.entrySet()) {
+            if (!hotIds.contains(amount.getKey())) {
+                continue;
+            }
+            if (!hotStockService.tryReserve(amount.getKey(), amount.getValue())) {
+                // Trả lại bộ đếm sau khi batch commit; nếu batch rollback tryReserve đã tự cộng lại
+                hotLines.forEach(id -> hotStockService.restock(id, amounts.get(id)));
+                throw OrderService.stockNotEnough();
+            }
+            hotLines.add(amount.getKey());
+        }
+        for (Map.Entry<Long, Integer> amount : amounts.entrySet()) {
+            if (!hotIds.contains(amount.getKey())) {
+                remaining.merge(amount.getKey(), -amount.getValue(), Integer::sum);
+            }
+        }
+        return hotLines;
+    }
+
+    private void placeAlone(PendingOrder pending) {
+        try {
+            pending.result().complete(orderService.addOrder(pending.request()));
+        } catch (RuntimeException e) {
+            pending.result().completeExceptionally(e);
+        }
+    }
+
+    private static CoffeeShopException orderNotAdded() {
+        return new CoffeeShopException(Constant.SYSTEM_ERROR, new Object[]{"order"}, "Order can not be added");
+    }
+}
@@ -0,0 +1,55 @@
+package com.ptit.coffee_shop.service;
+
+import com.ptit.coffee_shop.common.enums.OrderEventType;
+import com.ptit.coffee_shop.common.enums.OrderStatus;
+import com.ptit.coffee_shop.model.Order;
+import com.ptit.coffee_shop.model.OutboxEvent;
+import com.ptit.coffee_shop.repository.OutboxEventRepository;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Ghi sự kiện đơn hàng vào bảng outbox_event trong chính transaction thay đổi đơn,
+ * nên sự kiện chỉ tồn tại khi thay đổi đã commit và không bị mất nếu ứng dụng dừng trước khi gửi.
+ * Các việc phụ (summary sản phẩm, thống kê...) chạy ở listener của {@link OutboxDispatcher}, ngoài request.
+ */
+@Service
+@RequiredArgsConstructor
+public class OrderOutboxService {
+    private final OutboxEventRepository outboxEventRepository;
+
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void orderPlaced(Collection<Order> orders) {
+        outboxEventRepository.saveAll(orders.stream()
+                .map(order -> event(OrderEventType.OrderPlaced, order.getId(), null, order.getStatus()))
+                .toList());
+    }
+
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void statusChanged(Order order, OrderStatus previousStatus) {
+        statusChanged(List.of(order.getId()), previousStatus, order.getStatus());
+    }
+
+    // Chuyển sang Cancelled được ghi là OrderCancelled, các trạng thái khác là OrderStatusChanged
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void statusChanged(Collection<Long> orderIds, OrderStatus previousStatus, OrderStatus status) {
+        OrderEventType type = status == OrderStatus.Cancelled ? OrderEventType.OrderCancelled : OrderEventType.OrderStatusChanged;
+        outboxEventRepository.saveAll(orderIds.stream()
+                .map(orderId -> event(type, orderId, previousStatus, status))
+                .toList());
+    }
+
+    private static OutboxEvent event(OrderEventType type, long orderId, OrderStatus previousStatus, OrderStatus status) {
+        return OutboxEvent.builder()
+                .type(type)
+                .orderId(orderId)
+                .previousStatus(previousStatus)
+                .status(status)
+                .build();
+    }
+}
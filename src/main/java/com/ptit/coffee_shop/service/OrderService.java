@@ -1,6 +1,8 @@
 package com.ptit.coffee_shop.service;
 
 import com.ptit.coffee_shop.common.Constant;
+import com.ptit.coffee_shop.common.TransactionHooks;
+import com.ptit.coffee_shop.common.enums.OrderSort;
 import com.ptit.coffee_shop.common.enums.OrderStatus;
 import com.ptit.coffee_shop.common.enums.PaymentMethod;
 import com.ptit.coffee_shop.common.enums.Status;
@@ -9,24 +11,34 @@ import com.ptit.coffee_shop.exception.CoffeeShopException;
 import com.ptit.coffee_shop.model.*;
 import com.ptit.coffee_shop.payload.request.OrderItemRequest;
 import com.ptit.coffee_shop.payload.request.OrderRequest;
+import com.ptit.coffee_shop.payload.request.OrderStatusBulkRequest;
+import com.ptit.coffee_shop.payload.response.OrderHistoryResponse;
 import com.ptit.coffee_shop.payload.response.OrderItemResponse;
+import com.ptit.coffee_shop.payload.response.OrderPageResponse;
 import com.ptit.coffee_shop.payload.response.OrderResponse;
+import com.ptit.coffee_shop.payload.response.OrderStatusResult;
+import com.ptit.coffee_shop.payload.response.OrderSummaryResponse;
 import com.ptit.coffee_shop.payload.response.RespMessage;
 import com.ptit.coffee_shop.payload.response.ShippingAddressResponse;
 import com.ptit.coffee_shop.repository.*;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
 import org.springframework.security.core.Authentication;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
-import java.util.ArrayList;
-import java.util.Date;
-import java.util.List;
-import java.util.Optional;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.util.*;
 
 @Service
 public class OrderService {
+    public static final double SHIPPING_FEE = 10000;
+    public static final int MAX_PAGE_SIZE = 100;
+    public static final int MAX_BULK_SIZE = 500;
 
     @Autowired
     private OrderRepository orderRepository;
@@ -47,6 +59,18 @@ public class OrderService {
     @Autowired
     private UserRepository userRepository;
 
+    @Autowired
+    private OrderOutboxService orderOutboxService;
+
+    @Autowired
+    private StockReservationService stockReservationService;
+
+    @Autowired
+    private HotStockService hotStockService;
+
+    @Autowired
+    private CartStore cartStore;
+
     public RespMessage getAllOrders() {
         List<Order> orders = orderRepository.findAll();
         List<OrderResponse> orderResponses = new ArrayList<>();
@@ -59,13 +83,8 @@ public class OrderService {
             orderResponse.setShippingAddress(order.getShippingAddress().toResponse());
             List<OrderItem> orderItems = orderItemRepository.findByOrderId(order.getId());
             List<OrderItemResponse> orderItemResponses = orderItems.stream().map(this::toOrderItemResponse).toList();
-            double totalPrice = 0;
-            for (OrderItem orderItem : orderItems) {
-                totalPrice += (orderItem.getPrice() - orderItem.getDiscount())*orderItem.getAmount();
-            }
-            totalPrice += 10000;
             orderResponse.setOrderItems(orderItemResponses);
-            orderResponse.setTotal(totalPrice);
+            setTotals(orderResponse, order, orderItems);
             orderResponses.add(orderResponse);
         }
         return messageBuilder.buildSuccessMessage(orderResponses);
@@ -80,13 +99,8 @@ public class OrderService {
             orderResponse.setOrderId(order.getId());
             orderResponse.setOrderDate(order.getOrderDate());
             List<OrderItemResponse> orderItemResponses = orderItems.stream().map(this::toOrderItemResponse).toList();
-            double totalPrice = 0;
-            for (OrderItem orderItem : orderItems) {
-                totalPrice += (orderItem.getPrice() - orderItem.getDiscount())*orderItem.getAmount();
-            }
-            totalPrice += 10000;
             orderResponse.setOrderItems(orderItemResponses);
-            orderResponse.setTotal(totalPrice);
+            setTotals(orderResponse, order, orderItems);
             orderResponse.setOrderStatus(order.getStatus().toString());
             orderResponse.setShippingAddress(order.getShippingAddress().toResponse());
             orderResponse.setPaymentMethod(order.getPaymentMethod().toString());
@@ -95,69 +109,215 @@ public class OrderService {
         throw new RuntimeException("Order not found");
     }
 
+    /**
+     * Trang đơn hàng cho admin, các bộ lọc null được bỏ qua, toDate tính cả ngày đó.
+     * Số truy vấn không phụ thuộc kích thước trang: đơn (kèm địa chỉ, user), COUNT, order_item (kèm sản phẩm)
+     * và ảnh đầu tiên của các sản phẩm.
+     */
+    @Transactional(readOnly = true)
+    public RespMessage getOrderPage(OrderStatus status, PaymentMethod paymentMethod, LocalDate fromDate, LocalDate toDate,
+                                    Long userId, int page, int size, String sort) {
+        if (page < 0) {
+            throw new CoffeeShopException(Constant.FIELD_NOT_VALID, new Object[]{"page"}, "Page must not be negative");
+        }
+        if (size <= 0 || size > MAX_PAGE_SIZE) {
+            throw new CoffeeShopException(Constant.FIELD_NOT_VALID, new Object[]{"size"}, "Page size must be between 1 and " + MAX_PAGE_SIZE);
+        }
+        OrderSort orderSort = OrderSort.fromValue(sort);
+        if (orderSort == null) {
+            throw new CoffeeShopException(Constant.FIELD_NOT_VALID, new Object[]{"sort"}, "Sort type invalid");
+        }
+        if (fromDate != null && toDate != null && fromDate.isAfter(toDate)) {
+            throw new CoffeeShopException(Constant.FIELD_NOT_VALID, new Object[]{"fromDate"}, "fromDate must not be after toDate");
+        }
+        Sort.Direction direction = orderSort.isAscending() ? Sort.Direction.ASC : Sort.Direction.DESC;
+        PageRequest pageRequest = PageRequest.of(page, size, Sort.by(direction, orderSort.getProperty(), "id"));
+        Page<Order> orders = orderRepository.findPage(status, paymentMethod, startOfDay(fromDate),
+                toDate != null ? startOfDay(toDate.plusDays(1)) : null, userId, pageRequest);
+        OrderPageResponse response = new OrderPageResponse(toOrderResponses(orders.getContent()), page, size,
+                orders.getTotalElements(), orders.getTotalPages(), orderSort.name().toLowerCase());
+        return messageBuilder.buildSuccessMessage(response);
+    }
+
+    static Date startOfDay(LocalDate date) {
+        return date != null ? Date.from(date.atStartOfDay(ZoneId.systemDefault()).toInstant()) : null;
+    }
+
+    // Dựng response cho nhiều đơn với số truy vấn cố định thay vì truy vấn order_item và ảnh theo từng đơn
+    private List<OrderResponse> toOrderResponses(List<Order> orders) {
+        List<OrderResponse> orderResponses = new ArrayList<>();
+        if (orders.isEmpty()) {
+            return orderResponses;
+        }
+        Map<Long, List<OrderItem>> orderItemsByOrder = new HashMap<>();
+        Set<Long> productIds = new HashSet<>();
+        for (OrderItem orderItem : orderItemRepository.findWithProductByOrderIds(orders.stream().map(Order::getId).toList())) {
+            orderItemsByOrder.computeIfAbsent(orderItem.getOrder().getId(), id -> new ArrayList<>()).add(orderItem);
+            productIds.add(orderItem.getProductItem().getProduct().getId());
+        }
+        Map<Long, String> productImages = new HashMap<>();
+        if (!productIds.isEmpty()) {
+            for (Image image : imageRepository.findPrimaryByProductIds(productIds)) {
+                productImages.put(image.getProduct().getId(), image.getUrl());
+            }
+        }
+        for (Order order : orders) {
+            List<OrderItem> orderItems = orderItemsByOrder.getOrDefault(order.getId(), new ArrayList<>());
+            OrderResponse orderResponse = new OrderResponse();
+            orderResponse.setOrderId(order.getId());
+            orderResponse.setOrderDate(order.getOrderDate());
+            orderResponse.setOrderStatus(order.getStatus().toString());
+            orderResponse.setPaymentMethod(order.getPaymentMethod().toString());
+            orderResponse.setShippingAddress(order.getShippingAddress() != null ? order.getShippingAddress().toResponse() : null);
+            orderResponse.setOrderItems(orderItems.stream().map(orderItem -> toOrderItemResponse(orderItem,
+                    productImages.get(orderItem.getProductItem().getProduct().getId()))).toList());
+            setTotals(orderResponse, order, orderItems);
+            orderResponses.add(orderResponse);
+        }
+        return orderResponses;
+    }
+
     @Transactional
     public RespMessage addOrder(OrderRequest orderRequest){
         if (orderRequest.getOrderItems().isEmpty()) {
             throw new CoffeeShopException(Constant.FIELD_NOT_NULL, new Object[] {"order_items"}, "OrderItems cannot be empty");
         }
-        Optional<ShippingAddress> shippingAddress = shippingAddressRepository.findById(orderRequest.getShippingAddressId());
-        if ( shippingAddress.isEmpty() ){
-            throw new CoffeeShopException(Constant.FIELD_NOT_NULL, new Object[] {"shipping_address"}, "ShippingAddress cannot be null");
-        }
-        Status shippingAddressStatus = shippingAddress.get().getStatus();
-        if ( shippingAddressStatus.equals(Status.INACTIVE)){
-            throw new CoffeeShopException(Constant.NOT_FOUND, new Object[] {"shipping_address"}, "ShippingAddress not found");
+        ShippingAddress shippingAddress = requireActive(shippingAddressRepository.findById(orderRequest.getShippingAddressId()));
+        Order order = newOrder(shippingAddress, orderRequest.getPaymentMethod());
+        // Gộp số lượng theo productItem rồi trừ kho theo thứ tự id tăng dần để các đơn song song không deadlock.
+        // Trừ kho trước khi nạp ProductItem để các entity nạp sau đó đọc được stock mới
+        Map<Long, Integer> orderedAmounts = mergeOrderedAmounts(orderRequest);
+        Set<Long> hotProductItemIds = new HashSet<>();
+        for (Map.Entry<Long, Integer> orderedAmount : orderedAmounts.entrySet()) {
+            if (reserveStock(orderedAmount.getKey(), orderedAmount.getValue())) {
+                hotProductItemIds.add(orderedAmount.getKey());
+            }
         }
-        Order order = new Order();
-        order.setShippingAddress(shippingAddress.get());
-        order.setPaymentMethod(orderRequest.getPaymentMethod());
-        order.setStatus(OrderStatus.Processing);
-        order.setOrderDate(new Date());
         List<OrderItem> orderItems = new ArrayList<>();
         for (OrderItemRequest orderItemRequest : orderRequest.getOrderItems()) {
-            long productItemId = orderItemRequest.getProductItemId();
-            Optional<ProductItem> productItemOptional = productItemRepository.findById(productItemId);
-
+            Optional<ProductItem> productItemOptional = productItemRepository.findById(orderItemRequest.getProductItemId());
             if (productItemOptional.isEmpty()) {
-                throw new CoffeeShopException(Constant.NOT_FOUND,  new Object[] {"product_item"}, "ProductItem not found");
+                throw productItemNotFound();
             }
-
-            int stock = productItemOptional.get().getStock();
-            int orderedAmount = orderItemRequest.getAmount();
-
-            if (orderedAmount > stock) {
-                throw new CoffeeShopException(Constant.FIELD_NOT_VALID, new Object[] {"order_amount"}, "Amount Item cannot be greater than stock");
-            }
-            try {
-                ProductItem productItem = productItemOptional.get();
-                productItem.setStock(productItem.getStock() - orderedAmount);
-                productItemRepository.save(productItem);
-            } catch (Exception e) {
-                throw new CoffeeShopException(Constant.UNDEFINED, new Object[] {"product_item"}, "Product item cannot be update at stock");
-            }
-            OrderItem orderItem = new OrderItem();
-            orderItem.setProductItem(productItemOptional.get());
-            orderItem.setPrice(orderItemRequest.getPrice());
-            orderItem.setDiscount(orderItemRequest.getDiscount());
-            orderItem.setAmount(orderItemRequest.getAmount());
-            orderItems.add(orderItem);
+            orderItems.add(newOrderItem(orderItemRequest, productItemOptional.get(),
+                    hotProductItemIds.contains(orderItemRequest.getProductItemId())));
         }
+        applyTotals(order, orderItems);
         try {
             Order order1 = orderRepository.save(order);
             for (OrderItem orderItem : orderItems) {
                 orderItem.setOrder(order1);
-                orderItemRepository.save(orderItem);
             }
+            orderItemRepository.saveAll(orderItems);
+            // Đơn VNPay chỉ giữ hàng trong thời hạn thanh toán, hết hạn sẽ được trả lại kho
+            if (order1.getPaymentMethod() == PaymentMethod.VNPay) {
+                stockReservationService.hold(order1, orderedAmounts);
+            }
+            orderOutboxService.orderPlaced(List.of(order1));
+            // Giỏ hàng của người mua được ghi xuống cart_item ngay khi đặt hàng
+            Set<Long> buyerIds = buyerIds(List.of(order1));
+            TransactionHooks.afterCommit(() -> cartStore.flush(buyerIds));
             return messageBuilder.buildSuccessMessage(order1.getId());
         } catch (Exception e) {
             throw new CoffeeShopException(Constant.SYSTEM_ERROR, new Object[]{"order"}, "Order can not be added");
         }
     }
 
+    // Các bước kiểm tra và dựng đơn dùng chung với OrderIntakeService
+    static ShippingAddress requireActive(Optional<ShippingAddress> shippingAddress) {
+        if ( shippingAddress.isEmpty() ){
+            throw new CoffeeShopException(Constant.FIELD_NOT_NULL, new Object[] {"shipping_address"}, "ShippingAddress cannot be null");
+        }
+        Status shippingAddressStatus = shippingAddress.get().getStatus();
+        if ( shippingAddressStatus.equals(Status.INACTIVE)){
+            throw new CoffeeShopException(Constant.NOT_FOUND, new Object[] {"shipping_address"}, "ShippingAddress not found");
+        }
+        return shippingAddress.get();
+    }
+
+    static Set<Long> buyerIds(Collection<Order> orders) {
+        Set<Long> userIds = new HashSet<>();
+        for (Order order : orders) {
+            if (order.getShippingAddress() != null && order.getShippingAddress().getUser() != null) {
+                userIds.add(order.getShippingAddress().getUser().getId());
+            }
+        }
+        return userIds;
+    }
+
+    static Map<Long, Integer> mergeOrderedAmounts(OrderRequest orderRequest) {
+        Map<Long, Integer> orderedAmounts = new TreeMap<>();
+        for (OrderItemRequest orderItemRequest : orderRequest.getOrderItems()) {
+            if (orderItemRequest.getAmount() <= 0) {
+                throw new CoffeeShopException(Constant.FIELD_NOT_VALID, new Object[] {"order_amount"}, "Amount Item must be greater than 0");
+            }
+            orderedAmounts.merge(orderItemRequest.getProductItemId(), orderItemRequest.getAmount(), Integer::sum);
+        }
+        return orderedAmounts;
+    }
+
+    static Order newOrder(ShippingAddress shippingAddress, PaymentMethod paymentMethod) {
+        Order order = new Order();
+        order.setShippingAddress(shippingAddress);
+        order.setPaymentMethod(paymentMethod);
+        order.setStatus(OrderStatus.Processing);
+        order.setOrderDate(new Date());
+        return order;
+    }
+
+    static OrderItem newOrderItem(OrderItemRequest orderItemRequest, ProductItem productItem, boolean stockPending) {
+        OrderItem orderItem = new OrderItem();
+        orderItem.setProductItem(productItem);
+        orderItem.setPrice(orderItemRequest.getPrice());
+        orderItem.setDiscount(orderItemRequest.getDiscount());
+        orderItem.setAmount(orderItemRequest.getAmount());
+        orderItem.setStockPending(stockPending);
+        return orderItem;
+    }
+
+    static void applyTotals(Order order, List<OrderItem> orderItems) {
+        double subtotal = subtotalOf(orderItems);
+        order.setSubtotal(subtotal);
+        order.setShippingFee(SHIPPING_FEE);
+        order.setTotal(subtotal + SHIPPING_FEE);
+    }
+
+    // Đơn cũ chưa được OrderTotalBackfill xử lý thì tính lại từ order_item
+    private static void setTotals(OrderResponse orderResponse, Order order, List<OrderItem> orderItems) {
+        if (order.getTotal() != null) {
+            orderResponse.setSubtotal(order.getSubtotal());
+            orderResponse.setShippingFee(order.getShippingFee());
+            orderResponse.setTotal(order.getTotal());
+            return;
+        }
+        double subtotal = subtotalOf(orderItems);
+        orderResponse.setSubtotal(subtotal);
+        orderResponse.setShippingFee(SHIPPING_FEE);
+        orderResponse.setTotal(subtotal + SHIPPING_FEE);
+    }
+
+    private static double subtotalOf(List<OrderItem> orderItems) {
+        double subtotal = 0;
+        for (OrderItem orderItem : orderItems) {
+            subtotal += (orderItem.getPrice() - orderItem.getDiscount())*orderItem.getAmount();
+        }
+        return subtotal;
+    }
+
+    static CoffeeShopException productItemNotFound() {
+        return new CoffeeShopException(Constant.NOT_FOUND,  new Object[] {"product_item"}, "ProductItem not found");
+    }
+
+    static CoffeeShopException stockNotEnough() {
+        return new CoffeeShopException(Constant.FIELD_NOT_VALID, new Object[] {"order_amount"}, "Amount Item cannot be greater than stock");
+    }
+
+    @Transactional
     public RespMessage updateOrderStatus(long orderId) {
         Optional<Order> orderOptional = orderRepository.findById(orderId);
         if (orderOptional.isPresent()) {
             Order order = orderOptional.get();
+            OrderStatus previousStatus = order.getStatus();
             if (order.getStatus().equals(OrderStatus.Processing)){
                 order.setStatus(OrderStatus.Processed);
             } else if (order.getStatus().equals(OrderStatus.Processed)) {
@@ -169,6 +329,7 @@ public class OrderService {
             }
             try {
                 orderRepository.save(order);
+                orderOutboxService.statusChanged(order, previousStatus);
                 return messageBuilder.buildSuccessMessage(order.getStatus());
             } catch (CoffeeShopException e){
                 throw new CoffeeShopException(Constant.SYSTEM_ERROR, new Object[]{order}, "Order can not be updated");
@@ -177,13 +338,71 @@ public class OrderService {
         throw new RuntimeException("Order not found");
     }
 
+    /**
+     * Chuyển nhiều đơn sang trạng thái kế tiếp (Processed, Shipping, Completed) cùng lúc.
+     * Trạng thái hiện tại được đọc bằng một truy vấn và kiểm tra trong bộ nhớ, các đơn hợp lệ được đổi bằng một câu UPDATE
+     * có điều kiện trên trạng thái cũ. Kết quả trả về theo từng đơn, đơn không hợp lệ không làm hỏng cả request.
+     */
+    @Transactional
+    public RespMessage updateOrderStatuses(OrderStatusBulkRequest request) {
+        if (request.getOrderIds() == null || request.getOrderIds().isEmpty()) {
+            throw new CoffeeShopException(Constant.FIELD_NOT_NULL, new Object[]{"order_ids"}, "OrderIds cannot be empty");
+        }
+        if (request.getStatus() == null) {
+            throw new CoffeeShopException(Constant.FIELD_NOT_NULL, new Object[]{"status"}, "Status cannot be null");
+        }
+        List<Long> orderIds = request.getOrderIds().stream().distinct().toList();
+        if (orderIds.size() > MAX_BULK_SIZE) {
+            throw new CoffeeShopException(Constant.FIELD_NOT_VALID, new Object[]{"order_ids"}, "Cannot update more than " + MAX_BULK_SIZE + " orders at once");
+        }
+        OrderStatus target = request.getStatus();
+        OrderStatus source = Arrays.stream(OrderStatus.values()).filter(status -> status.next() == target).findFirst()
+                .orElseThrow(() -> new CoffeeShopException(Constant.FIELD_NOT_VALID, new Object[]{"status"},
+                        "Orders can not be moved to " + target));
+
+        Map<Long, OrderStatus> currentStatuses = new HashMap<>();
+        for (Object[] row : orderRepository.findStatusesByIds(orderIds)) {
+            currentStatuses.put((Long) row[0], (OrderStatus) row[1]);
+        }
+        List<Long> movable = orderIds.stream().filter(id -> currentStatuses.get(id) == source).toList();
+        Set<Long> moved = new HashSet<>();
+        if (!movable.isEmpty()) {
+            int updated = orderRepository.updateStatus(movable, source, target);
+            // Đếm không khớp nghĩa là có đơn vừa bị đổi ở request khác: đọc lại để biết chính xác đơn nào đã chuyển
+            moved.addAll(updated == movable.size() ? movable : orderRepository.findIdsByIdInAndStatus(movable, target));
+            orderOutboxService.statusChanged(movable.stream().filter(moved::contains).toList(), source, target);
+        }
+
+        List<OrderStatusResult> results = new ArrayList<>();
+        for (Long orderId : orderIds) {
+            OrderStatus current = currentStatuses.get(orderId);
+            OrderStatusResult.OrderStatusResultBuilder result = OrderStatusResult.builder()
+                    .orderId(orderId)
+                    .previousStatus(current != null ? current.toString() : null);
+            if (current == null) {
+                result.message("Order not found");
+            } else if (moved.contains(orderId)) {
+                result.success(true).status(target.toString());
+            } else if (current == source) {
+                result.status(current.toString()).message("Order was updated by another request");
+            } else {
+                result.status(current.toString()).message("Order can not be moved from " + current + " to " + target);
+            }
+            results.add(result.build());
+        }
+        return messageBuilder.buildSuccessMessage(results);
+    }
+
     @Transactional
     public RespMessage cancelOrder(long orderId) {
-        Optional<Order> orderOptional = orderRepository.findById(orderId);
+        // Khóa đơn để không chạy xen với xác nhận thanh toán hoặc sweeper trả hàng giữ
+        Optional<Order> orderOptional = orderRepository.findByIdForUpdate(orderId);
         if (orderOptional.isPresent()) {
             Order order = orderOptional.get();
             if (order.getStatus().equals(OrderStatus.Processing)) {
                 order.setStatus(OrderStatus.Cancelled);
+                // Đơn VNPay còn hàng đang giữ thì trả lại kho ngay, sweeper sẽ bỏ qua đơn đã hủy
+                stockReservationService.releaseCancelled(orderId);
             } else {
                 throw new CoffeeShopException(Constant.UNDEFINED, new Object[]{order}, "Order can not be cancelled");
             }
@@ -205,6 +424,7 @@ public class OrderService {
                 try {
                     orderRepository.save(order);
                     transactionRepository.save(transaction1);
+                    orderOutboxService.statusChanged(order, OrderStatus.Processing);
                     return messageBuilder.buildSuccessMessage(order.getStatus());
                 } catch (CoffeeShopException e){
                     throw new CoffeeShopException(Constant.SYSTEM_ERROR, new Object[]{order}, "Order can not be cancelled");
@@ -212,6 +432,7 @@ public class OrderService {
             } else {
                 try {
                     orderRepository.save(order);
+                    orderOutboxService.statusChanged(order, OrderStatus.Processing);
                     return messageBuilder.buildSuccessMessage(order.getStatus());
                 } catch (CoffeeShopException e){
                     throw new CoffeeShopException(Constant.SYSTEM_ERROR, new Object[]{order}, "Order can not be cancelled");
@@ -236,6 +457,7 @@ public class OrderService {
             orderResponse.setOrderId(order.getId());
             orderResponse.setOrderDate(order.getOrderDate());
             orderResponse.setOrderItems(orderItemResponses);
+            setTotals(orderResponse, order, orderItems);
             orderResponse.setOrderStatus(order.getStatus().toString());
             orderResponse.setShippingAddress(order.getShippingAddress().toResponse());
             orderResponse.setPaymentMethod(order.getPaymentMethod().toString());
@@ -245,6 +467,37 @@ public class OrderService {
         return messageBuilder.buildSuccessMessage(orderResponses);
     }
 
+    /**
+     * Lịch sử đơn của khách đang đăng nhập, mới nhất trước, phân trang theo cursor (id đơn cuối của trang trước).
+     * Mỗi trang là một truy vấn trả về dòng tóm tắt, không nạp entity order_item/product/image;
+     * danh sách sản phẩm đầy đủ lấy qua {@link #getOrderHistoryDetail(long)}.
+     */
+    @Transactional(readOnly = true)
+    public RespMessage getOrderHistory(Long cursor, int size) {
+        if (size <= 0 || size > MAX_PAGE_SIZE) {
+            throw new CoffeeShopException(Constant.FIELD_NOT_VALID, new Object[]{"size"}, "Page size must be between 1 and " + MAX_PAGE_SIZE);
+        }
+        String userEmail = SecurityContextHolder.getContext().getAuthentication().getName();
+        // Lấy dư một dòng để biết còn trang sau hay không mà không cần COUNT
+        List<Object[]> rows = orderRepository.findHistoryByEmail(userEmail, cursor, SHIPPING_FEE, PageRequest.of(0, size + 1));
+        List<OrderSummaryResponse> orders = new ArrayList<>();
+        for (Object[] row : rows.subList(0, Math.min(size, rows.size()))) {
+            orders.add(new OrderSummaryResponse((Long) row[0], (Date) row[1], row[2].toString(), row[3].toString(),
+                    ((Number) row[4]).doubleValue(), ((Number) row[5]).longValue(), (String) row[6]));
+        }
+        Long nextCursor = rows.size() > size ? orders.get(orders.size() - 1).getOrderId() : null;
+        return messageBuilder.buildSuccessMessage(new OrderHistoryResponse(orders, size, nextCursor));
+    }
+
+    // Chi tiết một đơn của khách đang đăng nhập, đơn của người khác được coi như không tồn tại
+    @Transactional(readOnly = true)
+    public RespMessage getOrderHistoryDetail(long orderId) {
+        String userEmail = SecurityContextHolder.getContext().getAuthentication().getName();
+        Order order = orderRepository.findByIdAndUserEmail(orderId, userEmail)
+                .orElseThrow(() -> new CoffeeShopException(Constant.NOT_FOUND, new Object[]{"order"}, "Order not found"));
+        return messageBuilder.buildSuccessMessage(toOrderResponses(List.of(order)).get(0));
+    }
+
     public RespMessage getOrderByStatus(OrderStatus status) {
         try {
             List<Order> orders = orderRepository.findByStatus(status);
@@ -258,13 +511,8 @@ public class OrderService {
                 orderResponse.setShippingAddress(order.getShippingAddress().toResponse());
                 List<OrderItem> orderItems = orderItemRepository.findByOrderId(order.getId());
                 List<OrderItemResponse> orderItemResponses = orderItems.stream().map(this::toOrderItemResponse).toList();
-                double totalPrice = 0;
-                for (OrderItem orderItem : orderItems) {
-                    totalPrice += (orderItem.getPrice() - orderItem.getDiscount())*orderItem.getAmount();
-                }
-                totalPrice += 10000;
                 orderResponse.setOrderItems(orderItemResponses);
-                orderResponse.setTotal(totalPrice);
+                setTotals(orderResponse, order, orderItems);
                 orderResponses.add(orderResponse);
             }
             return messageBuilder.buildSuccessMessage(orderResponses);
@@ -273,8 +521,30 @@ public class OrderService {
         }
     }
 
+    // Trừ kho bằng một câu UPDATE có điều kiện; không đủ hàng thì ném exception để rollback cả đơn.
+    // Sản phẩm hot sale trừ trên bộ đếm trong bộ nhớ, trả về true để dòng order_item được đánh dấu pending
+    private boolean reserveStock(long productItemId, int amount) {
+        if (hotStockService.isHot(productItemId)) {
+            if (hotStockService.tryReserve(productItemId, amount)) {
+                return true;
+            }
+            throw stockNotEnough();
+        }
+        if (productItemRepository.decrementStock(productItemId, amount) > 0) {
+            return false;
+        }
+        if (!productItemRepository.existsById(productItemId)) {
+            throw productItemNotFound();
+        }
+        throw stockNotEnough();
+    }
+
     public OrderItemResponse toOrderItemResponse(OrderItem orderItem) {
         List<Image> productImages = imageRepository.findByProduct(orderItem.getProductItem().getProduct());
+        return toOrderItemResponse(orderItem, productImages.get(0).getUrl());
+    }
+
+    private OrderItemResponse toOrderItemResponse(OrderItem orderItem, String productImage) {
         return OrderItemResponse.builder()
                 .orderItemId(orderItem.getId())
                 .productItemId(orderItem.getProductItem().getId())
@@ -285,7 +555,7 @@ public class OrderService {
                 .price(orderItem.getPrice())
                 .discount(orderItem.getDiscount())
                 .isReviewed(orderItem.isReviewed())
-                .productImage(productImages.get(0).getUrl())
+                .productImage(productImage)
                 .build();
     }
 }
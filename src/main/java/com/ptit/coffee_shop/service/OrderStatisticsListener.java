@@ -0,0 +1,27 @@
+package com.ptit.coffee_shop.service;
+
+import com.ptit.coffee_shop.common.OrderEvent;
+import com.ptit.coffee_shop.common.enums.OrderEventType;
+import com.ptit.coffee_shop.repository.OrderItemRepository;
+import lombok.RequiredArgsConstructor;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+/**
+ * Cập nhật product_summary (số lượng đã bán) khi đơn được đặt hoặc bị hủy.
+ * Chạy lại nhiều lần cho cùng sự kiện vẫn cho cùng kết quả vì summary được tính lại từ dữ liệu gốc.
+ */
+@Component
+@RequiredArgsConstructor
+public class OrderStatisticsListener {
+    private final OrderItemRepository orderItemRepository;
+    private final ProductSummaryService productSummaryService;
+
+    @EventListener
+    public void onOrderEvent(OrderEvent event) {
+        if (event.type() == OrderEventType.OrderStatusChanged) {
+            return;
+        }
+        productSummaryService.refresh(orderItemRepository.findProductIdsByOrderId(event.orderId()));
+    }
+}
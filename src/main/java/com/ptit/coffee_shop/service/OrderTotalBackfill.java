@@ -0,0 +1,42 @@
+package com.ptit.coffee_shop.service;
+
+import com.ptit.coffee_shop.repository.OrderRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Async;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+
+/**
+ * Ghi subtotal/shipping_fee/total cho các đơn tạo trước khi có các cột này, mỗi lần một chunk id.
+ * Khi đã backfill xong, lần khởi động sau chỉ tốn một truy vấn trên index của cột total.
+ */
+@Component
+@Slf4j
+@RequiredArgsConstructor
+public class OrderTotalBackfill {
+    private static final int CHUNK_SIZE = 500;
+
+    private final OrderRepository orderRepository;
+
+    @Async
+    @EventListener(ApplicationReadyEvent.class)
+    public void backfill() {
+        int updated = 0;
+        List<Long> orderIds;
+        while (!(orderIds = orderRepository.findIdsWithoutTotal(PageRequest.of(0, CHUNK_SIZE))).isEmpty()) {
+            int chunk = orderRepository.backfillTotals(orderIds, OrderService.SHIPPING_FEE);
+            if (chunk == 0) {
+                break;
+            }
+            updated += chunk;
+        }
+        if (updated > 0) {
+            log.info("Backfilled totals of {} orders", updated);
+        }
+    }
+}
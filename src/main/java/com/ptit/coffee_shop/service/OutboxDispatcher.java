@@ -0,0 +1,102 @@
+package com.ptit.coffee_shop.service;
+
+import com.ptit.coffee_shop.common.OrderEvent;
+import com.ptit.coffee_shop.model.OutboxEvent;
+import com.ptit.coffee_shop.repository.OutboxEventRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.*;
+
+/**
+ * Đọc outbox_event theo từng batch và phát {@link OrderEvent} cho các @EventListener trong ứng dụng.
+ * Sự kiện chỉ được đánh dấu đã gửi sau khi mọi listener chạy xong (at-least-once), listener phải chịu được việc nhận lại.
+ * Các sự kiện của một đơn được gửi theo thứ tự ghi: sự kiện lỗi chặn các sự kiện sau của cùng đơn tới lần poll kế tiếp.
+ * Sự kiện lỗi quá max-attempts lần được bỏ qua và giữ lại trong bảng để kiểm tra.
+ */
+@Component
+@Slf4j
+@RequiredArgsConstructor
+public class OutboxDispatcher {
+    private final OutboxEventRepository outboxEventRepository;
+    private final ApplicationEventPublisher eventPublisher;
+
+    @Value("${app.outbox.batch-size:100}")
+    private int batchSize = 100;
+
+    @Value("${app.outbox.max-attempts:10}")
+    private int maxAttempts = 10;
+
+    @Value("${app.outbox.retention-hours:24}")
+    private long retentionHours = 24;
+
+    // Tác vụ sẽ chạy 1 giây sau khi lần gửi trước kết thúc
+    @Scheduled(fixedDelayString = "${app.outbox.poll-millis:1000}")
+    public void poll() {
+        try {
+            int dispatched = dispatch();
+            if (dispatched > 0) {
+                log.debug("Dispatched {} order events", dispatched);
+            }
+        } catch (Exception e) {
+            log.error("Cannot dispatch order events", e);
+        }
+    }
+
+    // Gửi tới khi hết sự kiện chờ hoặc có sự kiện lỗi, trả về số sự kiện đã gửi
+    public int dispatch() {
+        int dispatched = 0;
+        while (true) {
+            List<OutboxEvent> events = outboxEventRepository.findPending(maxAttempts, PageRequest.of(0, batchSize));
+            if (events.isEmpty()) {
+                return dispatched;
+            }
+            List<Long> delivered = new ArrayList<>();
+            List<Long> failed = new ArrayList<>();
+            Set<Long> blockedOrders = new HashSet<>();
+            for (OutboxEvent event : events) {
+                if (blockedOrders.contains(event.getOrderId())) {
+                    continue;
+                }
+                try {
+                    eventPublisher.publishEvent(new OrderEvent(event.getId(), event.getType(), event.getOrderId(),
+                            event.getPreviousStatus(), event.getStatus()));
+                    delivered.add(event.getId());
+                } catch (Exception e) {
+                    failed.add(event.getId());
+                    blockedOrders.add(event.getOrderId());
+                    if (event.getAttempts() + 1 >= maxAttempts) {
+                        log.error("Giving up {} event {} of order {}", event.getType(), event.getId(), event.getOrderId(), e);
+                    } else {
+                        log.warn("Cannot dispatch {} event {} of order {}", event.getType(), event.getId(), event.getOrderId(), e);
+                    }
+                }
+            }
+            if (!delivered.isEmpty()) {
+                outboxEventRepository.markDispatched(delivered, new Date());
+            }
+            if (!failed.isEmpty()) {
+                outboxEventRepository.incrementAttempts(failed);
+            }
+            dispatched += delivered.size();
+            if (events.size() < batchSize || !failed.isEmpty()) {
+                return dispatched;
+            }
+        }
+    }
+
+    // Tác vụ sẽ chạy mỗi giờ
+    @Scheduled(fixedRate = 3600000)
+    public void purge() {
+        int deleted = outboxEventRepository.deleteDispatchedBefore(
+                new Date(System.currentTimeMillis() - retentionHours * 3600_000));
+        if (deleted > 0) {
+            log.info("Deleted {} dispatched order events", deleted);
+        }
+    }
+}
@@ -0,0 +1,312 @@
+package com.ptit.coffee_shop.service;
+
+import com.ptit.coffee_shop.common.Constant;
+import com.ptit.coffee_shop.common.enums.Status;
+import com.ptit.coffee_shop.exception.CoffeeShopException;
+import com.ptit.coffee_shop.model.Product;
+import com.ptit.coffee_shop.model.ProductItem;
+import com.ptit.coffee_shop.model.ProductSummary;
+import com.ptit.coffee_shop.payload.request.ProductFilterRequest;
+import com.ptit.coffee_shop.repository.ProductItemRepository;
+import com.ptit.coffee_shop.repository.ProductRepository;
+import com.ptit.coffee_shop.repository.ProductSummaryRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+
+import java.util.*;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Index lọc sản phẩm theo facet: mỗi giá trị facet (category, brand, loại, khoảng giá, còn hàng, rating tối thiểu)
+ * giữ một BitSet đánh dấu theo id sản phẩm. Lọc là phép AND/OR giữa các BitSet, số lượng mỗi facet là cardinality.
+ * Index được cập nhật qua {@link #refresh(Collection)}, được gọi khi ProductService ghi và khi product_summary
+ * được tính lại (sau mỗi thay đổi product item, order và review).
+ */
+@Service
+@Slf4j
+@RequiredArgsConstructor
+public class ProductFacetService {
+    public static final String FACET_CATEGORY = "category";
+    public static final String FACET_BRAND = "brand";
+    public static final String FACET_TYPE = "type";
+    public static final String FACET_PRICE = "price";
+    public static final String FACET_IN_STOCK = "inStock";
+    public static final String FACET_RATING = "rating";
+    public static final int MAX_RATING = 5;
+    // Cận dưới của các khoảng giá, khoảng cuối cùng không có cận trên
+    private static final long[] PRICE_BAND_BOUNDS = {0, 30000, 50000, 100000};
+
+    private final ProductRepository productRepository;
+    private final ProductItemRepository productItemRepository;
+    private final ProductSummaryRepository productSummaryRepository;
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private final BitSet active = new BitSet();
+    private final Map<Long, BitSet> byCategory = new HashMap<>();
+    private final Map<Long, BitSet> byBrand = new HashMap<>();
+    private final Map<Long, BitSet> byType = new HashMap<>();
+    private final Map<String, BitSet> byPriceBand = newPriceBandIndex();
+    private final BitSet inStock = new BitSet();
+    // ratingAtLeast[k] gồm các sản phẩm có rating >= k
+    private final BitSet[] ratingAtLeast = newRatingIndex();
+    private final Map<Long, ProductFacets> facetsByProduct = new HashMap<>();
+
+    public record FacetResult(List<Long> productIds, Map<String, Map<String, Integer>> facets) {
+    }
+
+    private record ProductFacets(Long categoryId, Long brandId, Set<Long> typeIds, Set<String> priceBands,
+                                 boolean inStock, double rating) {
+    }
+
+    public static List<String> priceBands() {
+        List<String> bands = new ArrayList<>();
+        for (int i = 0; i < PRICE_BAND_BOUNDS.length; i++) {
+            bands.add(i + 1 < PRICE_BAND_BOUNDS.length
+                    ? PRICE_BAND_BOUNDS[i] + "-" + PRICE_BAND_BOUNDS[i + 1]
+                    : PRICE_BAND_BOUNDS[i] + "+");
+        }
+        return bands;
+    }
+
+    private static Map<String, BitSet> newPriceBandIndex() {
+        Map<String, BitSet> index = new LinkedHashMap<>();
+        for (String band : priceBands()) {
+            index.put(band, new BitSet());
+        }
+        return index;
+    }
+
+    private static BitSet[] newRatingIndex() {
+        BitSet[] index = new BitSet[MAX_RATING + 1];
+        for (int k = 1; k <= MAX_RATING; k++) {
+            index[k] = new BitSet();
+        }
+        return index;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void rebuild() {
+        List<Product> products = productRepository.findByStatus(Status.ACTIVE);
+        Map<Long, ProductFacets> facets = loadFacets(products);
+        lock.writeLock().lock();
+        try {
+            for (Long productId : new ArrayList<>(facetsByProduct.keySet())) {
+                removeBits(productId);
+            }
+            facets.forEach(this::addBits);
+        } finally {
+            lock.writeLock().unlock();
+        }
+        log.info("Built product facet index for {} products", facets.size());
+    }
+
+    // Đọc lại dữ liệu của các sản phẩm từ DB và cập nhật bit tương ứng
+    public void refresh(Collection<Long> productIds) {
+        List<Long> ids = productIds.stream().distinct().toList();
+        if (ids.isEmpty()) {
+            return;
+        }
+        List<Product> products = productRepository.findAllById(ids).stream()
+                .filter(product -> product.getStatus() == Status.ACTIVE).toList();
+        Map<Long, ProductFacets> facets = loadFacets(products);
+        lock.writeLock().lock();
+        try {
+            for (Long productId : ids) {
+                removeBits(productId);
+            }
+            facets.forEach(this::addBits);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Các giá trị trong cùng một facet được OR, giữa các facet được AND.
+     * Số lượng của một facet được đếm trên kết quả lọc bởi các facet còn lại để người dùng biết chọn thêm sẽ ra bao nhiêu.
+     */
+    public FacetResult filter(ProductFilterRequest request) {
+        if (request.getMinRating() != null && (request.getMinRating() < 1 || request.getMinRating() > MAX_RATING)) {
+            throw new CoffeeShopException(Constant.FIELD_NOT_VALID, new Object[]{"minRating"}, "Min rating must be between 1 and " + MAX_RATING);
+        }
+        if (request.getPriceBands() != null) {
+            for (String band : request.getPriceBands()) {
+                if (!byPriceBand.containsKey(band)) {
+                    throw new CoffeeShopException(Constant.FIELD_NOT_VALID, new Object[]{"priceBand"}, "Price band invalid");
+                }
+            }
+        }
+        lock.readLock().lock();
+        try {
+            Map<String, BitSet> masks = new LinkedHashMap<>();
+            masks.put(FACET_CATEGORY, isEmpty(request.getCategoryIds()) ? null : union(byCategory, request.getCategoryIds()));
+            masks.put(FACET_BRAND, isEmpty(request.getBrandIds()) ? null : union(byBrand, request.getBrandIds()));
+            masks.put(FACET_TYPE, isEmpty(request.getTypeIds()) ? null : union(byType, request.getTypeIds()));
+            masks.put(FACET_PRICE, isEmpty(request.getPriceBands()) ? null : union(byPriceBand, request.getPriceBands()));
+            masks.put(FACET_IN_STOCK, Boolean.TRUE.equals(request.getInStock()) ? inStock : null);
+            masks.put(FACET_RATING, request.getMinRating() == null ? null : ratingAtLeast[request.getMinRating()]);
+
+            BitSet result = intersect(masks, null);
+            List<Long> productIds = new ArrayList<>(result.cardinality());
+            for (int id = result.nextSetBit(0); id >= 0; id = result.nextSetBit(id + 1)) {
+                productIds.add((long) id);
+            }
+
+            Map<String, Map<String, Integer>> facets = new LinkedHashMap<>();
+            facets.put(FACET_CATEGORY, count(byCategory, intersect(masks, FACET_CATEGORY)));
+            facets.put(FACET_BRAND, count(byBrand, intersect(masks, FACET_BRAND)));
+            facets.put(FACET_TYPE, count(byType, intersect(masks, FACET_TYPE)));
+            facets.put(FACET_PRICE, count(byPriceBand, intersect(masks, FACET_PRICE)));
+            facets.put(FACET_IN_STOCK, count(Map.of("true", inStock), intersect(masks, FACET_IN_STOCK)));
+            Map<String, BitSet> ratings = new LinkedHashMap<>();
+            for (int k = 1; k <= MAX_RATING; k++) {
+                ratings.put(String.valueOf(k), ratingAtLeast[k]);
+            }
+            facets.put(FACET_RATING, count(ratings, intersect(masks, FACET_RATING)));
+            return new FacetResult(productIds, facets);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private Map<Long, ProductFacets> loadFacets(List<Product> products) {
+        Map<Long, ProductFacets> facets = new HashMap<>();
+        if (products.isEmpty()) {
+            return facets;
+        }
+        List<Long> ids = products.stream().map(Product::getId).toList();
+        Map<Long, List<ProductItem>> itemsByProduct = new HashMap<>();
+        for (ProductItem item : productItemRepository.findActiveByProductIds(ids)) {
+            itemsByProduct.computeIfAbsent(item.getProduct().getId(), key -> new ArrayList<>()).add(item);
+        }
+        Map<Long, Double> ratings = new HashMap<>();
+        for (ProductSummary summary : productSummaryRepository.findAllById(ids)) {
+            ratings.put(summary.getProductId(), summary.getRating());
+        }
+        for (Product product : products) {
+            Set<Long> typeIds = new HashSet<>();
+            Set<String> bands = new HashSet<>();
+            boolean hasStock = false;
+            for (ProductItem item : itemsByProduct.getOrDefault(product.getId(), List.of())) {
+                if (item.getType() != null) {
+                    typeIds.add(item.getType().getId());
+                }
+                if (item.getStock() > 0) {
+                    hasStock = true;
+                    bands.add(priceBand(item.getPrice()));
+                }
+            }
+            facets.put(product.getId(), new ProductFacets(
+                    product.getCategory() != null ? product.getCategory().getId() : null,
+                    product.getBrand() != null ? product.getBrand().getId() : null,
+                    typeIds, bands, hasStock, ratings.getOrDefault(product.getId(), 0.0)));
+        }
+        return facets;
+    }
+
+    private static String priceBand(double price) {
+        int index = 0;
+        while (index + 1 < PRICE_BAND_BOUNDS.length && price >= PRICE_BAND_BOUNDS[index + 1]) {
+            index++;
+        }
+        return priceBands().get(index);
+    }
+
+    private void addBits(long productId, ProductFacets facets) {
+        int bit = Math.toIntExact(productId);
+        active.set(bit);
+        if (facets.categoryId() != null) {
+            byCategory.computeIfAbsent(facets.categoryId(), key -> new BitSet()).set(bit);
+        }
+        if (facets.brandId() != null) {
+            byBrand.computeIfAbsent(facets.brandId(), key -> new BitSet()).set(bit);
+        }
+        for (Long typeId : facets.typeIds()) {
+            byType.computeIfAbsent(typeId, key -> new BitSet()).set(bit);
+        }
+        for (String band : facets.priceBands()) {
+            byPriceBand.get(band).set(bit);
+        }
+        inStock.set(bit, facets.inStock());
+        for (int k = 1; k <= MAX_RATING; k++) {
+            ratingAtLeast[k].set(bit, facets.rating() >= k);
+        }
+        facetsByProduct.put(productId, facets);
+    }
+
+    private void removeBits(long productId) {
+        ProductFacets facets = facetsByProduct.remove(productId);
+        if (facets == null) {
+            return;
+        }
+        int bit = Math.toIntExact(productId);
+        active.clear(bit);
+        clearBit(byCategory, facets.categoryId(), bit);
+        clearBit(byBrand, facets.brandId(), bit);
+        for (Long typeId : facets.typeIds()) {
+            clearBit(byType, typeId, bit);
+        }
+        for (String band : facets.priceBands()) {
+            byPriceBand.get(band).clear(bit);
+        }
+        inStock.clear(bit);
+        for (int k = 1; k <= MAX_RATING; k++) {
+            ratingAtLeast[k].clear(bit);
+        }
+    }
+
+    private static void clearBit(Map<Long, BitSet> index, Long key, int bit) {
+        if (key == null) {
+            return;
+        }
+        BitSet bits = index.get(key);
+        if (bits != null) {
+            bits.clear(bit);
+            if (bits.isEmpty()) {
+                index.remove(key);
+            }
+        }
+    }
+
+    private static <K> BitSet union(Map<K, BitSet> index, Collection<K> keys) {
+        BitSet result = new BitSet();
+        for (K key : keys) {
+            BitSet bits = index.get(key);
+            if (bits != null) {
+                result.or(bits);
+            }
+        }
+        return result;
+    }
+
+    // Giao của tất cả các mask, bỏ qua facet excluded (null nếu không bỏ facet nào)
+    private BitSet intersect(Map<String, BitSet> masks, String excluded) {
+        BitSet result = (BitSet) active.clone();
+        for (Map.Entry<String, BitSet> mask : masks.entrySet()) {
+            if (mask.getValue() != null && !mask.getKey().equals(excluded)) {
+                result.and(mask.getValue());
+            }
+        }
+        return result;
+    }
+
+    private static <K> Map<String, Integer> count(Map<K, BitSet> index, BitSet base) {
+        Map<String, Integer> counts = new LinkedHashMap<>();
+        for (Map.Entry<K, BitSet> entry : index.entrySet()) {
+            BitSet bits = (BitSet) entry.getValue().clone();
+            bits.and(base);
+            int count = bits.cardinality();
+            if (count > 0) {
+                counts.put(String.valueOf(entry.getKey()), count);
+            }
+        }
+        return counts;
+    }
+
+    private static boolean isEmpty(Collection<?> values) {
+        return values == null || values.isEmpty();
+    }
+}
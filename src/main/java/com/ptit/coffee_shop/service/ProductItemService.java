@@ -1,5 +1,6 @@
 package com.ptit.coffee_shop.service;
 
+import com.ptit.coffee_shop.common.CatalogChangedEvent;
 import com.ptit.coffee_shop.common.Constant;
 import com.ptit.coffee_shop.common.enums.Status;
 import com.ptit.coffee_shop.config.MessageBuilder;
@@ -15,6 +16,7 @@ import com.ptit.coffee_shop.repository.ProductRepository;
 import com.ptit.coffee_shop.repository.TypeProductRepository;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Service;
 
 import java.util.List;
@@ -29,6 +31,9 @@ public class ProductItemService {
     public final TypeProductRepository typeProductRepository;
     public final MessageBuilder messageBuilder;
     private  final  CartService cartService;
+    private final ProductSummaryService productSummaryService;
+    private final ApplicationEventPublisher eventPublisher;
+    private final HotStockService hotStockService;
 
     public RespMessage addProductItem(ProductItemRequest request) {
         if (request.getPrice() < 0) {
@@ -63,6 +68,8 @@ public class ProductItemService {
         productItem.setType(typeProductOptional.get());
         try {
             productItemRepository.save(productItem);
+            productSummaryService.refresh(List.of(productItem.getProduct().getId()));
+            eventPublisher.publishEvent(new CatalogChangedEvent(CatalogChangedEvent.PRODUCT_ITEM));
         } catch (Exception e) {
             log.error("ProductItem can not be added", e);
             throw new CoffeeShopException(Constant.SYSTEM_ERROR, new Object[]{e}, "ProductItem can not be added");
@@ -110,6 +117,7 @@ public class ProductItemService {
             throw new CoffeeShopException(Constant.FIELD_NOT_FOUND, new Object[]{"ProductItem"}, "ProductItem not found");
         }
         ProductItem productItem = productItemOptional.get();
+        long oldProductId = productItem.getProduct() != null ? productItem.getProduct().getId() : request.getProductId();
         productItem.setPrice(request.getPrice());
         productItem.setStock(request.getStock());
         productItem.setDiscount(request.getDiscount());
@@ -117,6 +125,11 @@ public class ProductItemService {
         productItem.setType(typeProductOptional.get());
         try {
             productItemRepository.save(productItem);
+            productSummaryService.refresh(List.of(oldProductId, request.getProductId()));
+            if (productItem.isHotSale()) {
+                hotStockService.reload(id);
+            }
+            eventPublisher.publishEvent(new CatalogChangedEvent(CatalogChangedEvent.PRODUCT_ITEM));
         } catch (Exception e) {
             log.error("ProductItem can not be updated", e);
             throw new CoffeeShopException(Constant.SYSTEM_ERROR, new Object[]{e}, "ProductItem can not be updated");
@@ -124,6 +137,11 @@ public class ProductItemService {
         return messageBuilder.buildSuccessMessage(productItem);
     }
 
+    public RespMessage setHotSale(long id, boolean hotSale) {
+        ProductItem productItem = hotStockService.setHotSale(id, hotSale);
+        return messageBuilder.buildSuccessMessage(productItem);
+    }
+
     public RespMessage deleteProductItem(long id) {
         Optional<ProductItem> productItemOptional = productItemRepository.findById(id);
         if (productItemOptional.isEmpty()) {
@@ -133,6 +151,8 @@ public class ProductItemService {
             ProductItem productItem = productItemOptional.get();
             productItem.setStatus(Status.INACTIVE);
             productItemRepository.save(productItem);
+            productSummaryService.refresh(List.of(productItem.getProduct().getId()));
+            eventPublisher.publishEvent(new CatalogChangedEvent(CatalogChangedEvent.PRODUCT_ITEM));
         } catch (Exception e) {
             log.error("ProductItem can not be deleted", e);
             throw new CoffeeShopException(Constant.SYSTEM_ERROR, new Object[]{e}, "ProductItem can not be deleted");
@@ -0,0 +1,223 @@
+package com.ptit.coffee_shop.service;
+
+import com.ptit.coffee_shop.common.CatalogChangedEvent;
+import com.ptit.coffee_shop.common.TextNormalizer;
+import com.ptit.coffee_shop.common.enums.Status;
+import com.ptit.coffee_shop.model.Product;
+import com.ptit.coffee_shop.repository.ProductRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.util.*;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Inverted index trong bộ nhớ cho tìm kiếm sản phẩm theo tên, brand, category và mô tả.
+ * Index được dựng khi ứng dụng khởi động và cập nhật bởi ProductService khi thêm/sửa/xóa sản phẩm,
+ * hoặc khi category/brand của sản phẩm bị đổi tên.
+ * Kết quả được xếp hạng theo BM25, token cuối của câu truy vấn được so khớp theo tiền tố.
+ * Term được lưu ở dạng đã bỏ dấu (xem {@link TextNormalizer}) nên "ca phe" khớp với "Cà phê".
+ */
+@Service
+@Slf4j
+@RequiredArgsConstructor
+public class ProductSearchService {
+    private static final double K1 = 1.2;
+    private static final double B = 0.75;
+    private static final int NAME_WEIGHT = 3;
+    private static final int BRAND_WEIGHT = 2;
+    private static final int CATEGORY_WEIGHT = 1;
+    private static final int DESCRIPTION_WEIGHT = 1;
+    // Term chỉ khớp theo tiền tố được tính điểm thấp hơn term khớp chính xác
+    private static final double PREFIX_MATCH_BOOST = 0.5;
+
+    private final ProductRepository productRepository;
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    // term -> (productId -> term frequency đã nhân trọng số field)
+    private final NavigableMap<String, Map<Long, Integer>> postings = new TreeMap<>();
+    // productId -> (term -> term frequency), dùng để gỡ sản phẩm khỏi postings khi cập nhật
+    private final Map<Long, Map<String, Integer>> documentTerms = new HashMap<>();
+    private final Map<Long, Integer> documentLengths = new HashMap<>();
+    private final Map<Long, Product> documents = new HashMap<>();
+    private long totalLength;
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void rebuild() {
+        List<Product> products = productRepository.findByStatus(Status.ACTIVE);
+        lock.writeLock().lock();
+        try {
+            postings.clear();
+            documentTerms.clear();
+            documentLengths.clear();
+            documents.clear();
+            totalLength = 0;
+            for (Product product : products) {
+                addDocument(product);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+        log.info("Built product search index for {} products", products.size());
+    }
+
+    // Thêm mới hoặc thay thế sản phẩm trong index, sản phẩm không ACTIVE sẽ bị gỡ ra
+    public void index(Product product) {
+        lock.writeLock().lock();
+        try {
+            removeDocument(product.getId());
+            if (product.getStatus() == null || product.getStatus() == Status.ACTIVE) {
+                addDocument(product);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    // Tên category/brand được index cùng sản phẩm: index lại các sản phẩm bị ảnh hưởng sau khi commit
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onCatalogChanged(CatalogChangedEvent event) {
+        if ((CatalogChangedEvent.CATEGORY.equals(event.source()) || CatalogChangedEvent.BRAND.equals(event.source()))
+                && !event.productIds().isEmpty()) {
+            productRepository.findAllById(event.productIds()).forEach(this::index);
+        }
+    }
+
+    public void remove(long productId) {
+        lock.writeLock().lock();
+        try {
+            removeDocument(productId);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Trả về các sản phẩm chứa tất cả token của câu truy vấn, sắp xếp theo điểm BM25 giảm dần.
+     */
+    public List<Product> search(String keyword) {
+        List<String> queryTokens = tokenize(keyword);
+        if (queryTokens.isEmpty()) {
+            return new ArrayList<>();
+        }
+        lock.readLock().lock();
+        try {
+            int documentCount = documents.size();
+            if (documentCount == 0) {
+                return new ArrayList<>();
+            }
+            double averageLength = (double) totalLength / documentCount;
+            Map<Long, Double> scores = null;
+            for (int i = 0; i < queryTokens.size(); i++) {
+                String token = queryTokens.get(i);
+                boolean prefix = i == queryTokens.size() - 1;
+                Map<Long, Double> tokenScores = scoreToken(token, prefix, documentCount, averageLength);
+                if (scores == null) {
+                    scores = tokenScores;
+                } else {
+                    // Mọi token đều phải khớp: giữ lại giao của các tập kết quả
+                    scores.keySet().retainAll(tokenScores.keySet());
+                    for (Map.Entry<Long, Double> entry : scores.entrySet()) {
+                        entry.setValue(entry.getValue() + tokenScores.get(entry.getKey()));
+                    }
+                }
+                if (scores.isEmpty()) {
+                    return new ArrayList<>();
+                }
+            }
+            return scores.entrySet().stream()
+                    .sorted(Map.Entry.<Long, Double>comparingByValue().reversed().thenComparing(Map.Entry.comparingByKey()))
+                    .map(entry -> documents.get(entry.getKey()))
+                    .toList();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return documents.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public static List<String> tokenize(String text) {
+        List<String> tokens = new ArrayList<>();
+        if (text == null || text.isBlank()) {
+            return tokens;
+        }
+        for (String token : TextNormalizer.normalize(text).split("[^\\p{L}\\p{N}]+")) {
+            if (!token.isEmpty()) {
+                tokens.add(token);
+            }
+        }
+        return tokens;
+    }
+
+    private Map<Long, Double> scoreToken(String token, boolean prefix, int documentCount, double averageLength) {
+        Map<Long, Double> scores = new HashMap<>();
+        Map<String, Map<Long, Integer>> matchedTerms = prefix
+                ? postings.subMap(token, true, token + Character.MAX_VALUE, false)
+                : postings.containsKey(token) ? Map.of(token, postings.get(token)) : Map.of();
+        for (Map.Entry<String, Map<Long, Integer>> term : matchedTerms.entrySet()) {
+            Map<Long, Integer> postingList = term.getValue();
+            double idf = Math.log(1 + (documentCount - postingList.size() + 0.5) / (postingList.size() + 0.5));
+            double boost = term.getKey().equals(token) ? 1 : PREFIX_MATCH_BOOST;
+            for (Map.Entry<Long, Integer> posting : postingList.entrySet()) {
+                int frequency = posting.getValue();
+                double lengthNorm = 1 - B + B * documentLengths.get(posting.getKey()) / averageLength;
+                double score = boost * idf * frequency * (K1 + 1) / (frequency + K1 * lengthNorm);
+                // Một document có thể khớp nhiều term cùng tiền tố, chỉ lấy term khớp tốt nhất
+                scores.merge(posting.getKey(), score, Math::max);
+            }
+        }
+        return scores;
+    }
+
+    private void addDocument(Product product) {
+        Map<String, Integer> terms = new HashMap<>();
+        addField(terms, product.getName(), NAME_WEIGHT);
+        addField(terms, product.getBrand() != null ? product.getBrand().getName() : null, BRAND_WEIGHT);
+        addField(terms, product.getCategory() != null ? product.getCategory().getName() : null, CATEGORY_WEIGHT);
+        addField(terms, product.getDescription(), DESCRIPTION_WEIGHT);
+
+        int length = 0;
+        for (Map.Entry<String, Integer> term : terms.entrySet()) {
+            postings.computeIfAbsent(term.getKey(), key -> new HashMap<>()).put(product.getId(), term.getValue());
+            length += term.getValue();
+        }
+        documentTerms.put(product.getId(), terms);
+        documentLengths.put(product.getId(), length);
+        documents.put(product.getId(), product);
+        totalLength += length;
+    }
+
+    private void addField(Map<String, Integer> terms, String text, int weight) {
+        for (String token : tokenize(text)) {
+            terms.merge(token, weight, Integer::sum);
+        }
+    }
+
+    private void removeDocument(long productId) {
+        Map<String, Integer> terms = documentTerms.remove(productId);
+        if (terms == null) {
+            return;
+        }
+        for (String term : terms.keySet()) {
+            Map<Long, Integer> postingList = postings.get(term);
+            postingList.remove(productId);
+            if (postingList.isEmpty()) {
+                postings.remove(term);
+            }
+        }
+        totalLength -= documentLengths.remove(productId);
+        documents.remove(productId);
+    }
+}
@@ -1,48 +1,190 @@
 package com.ptit.coffee_shop.service;
 
+import com.ptit.coffee_shop.common.CatalogChangedEvent;
 import com.ptit.coffee_shop.common.Constant;
+import com.ptit.coffee_shop.common.enums.ProductSort;
 import com.ptit.coffee_shop.common.enums.Status;
 import com.ptit.coffee_shop.config.MessageBuilder;
 import com.ptit.coffee_shop.exception.CoffeeShopException;
 import com.ptit.coffee_shop.model.*;
+import com.ptit.coffee_shop.payload.request.ProductFilterRequest;
 import com.ptit.coffee_shop.payload.request.ProductRequest;
+import com.ptit.coffee_shop.payload.response.CatalogProductResponse;
+import com.ptit.coffee_shop.payload.response.ProductFilterResponse;
+import com.ptit.coffee_shop.payload.response.ProductPageResponse;
 import com.ptit.coffee_shop.payload.response.ProductResponse;
 import com.ptit.coffee_shop.payload.response.RespMessage;
 import com.ptit.coffee_shop.payload.response.ReviewResponse;
 import com.ptit.coffee_shop.repository.*;
 import jakarta.transaction.Transactional;
 import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Async;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
 import org.springframework.web.multipart.MultipartFile;
 
+import java.nio.charset.StandardCharsets;
 import java.util.*;
+import java.util.concurrent.atomic.AtomicLong;
 
 @Service
+@Slf4j
 @RequiredArgsConstructor
 public class ProductService {
+    public static final int MAX_PAGE_SIZE = 100;
+
     private final ProductRepository productRepository;
     private final CategoryRepository categoryRepository;
     private final BrandRepository brandRepository;
     private final TypeProductRepository typeProductRepository;
-    private final ReviewRepository reviewRepository;
     private final MessageBuilder messageBuilder;
     private final CloudinaryService cloudinaryService;
     private final ImageRepository imageRepository;
-    private final OrderItemRepository orderItemRepository;
+    private final ProductSummaryService productSummaryService;
+    private final ProductSearchService productSearchService;
+    private final ProductSuggestService productSuggestService;
+    private final ProductFacetService productFacetService;
+    private final ApplicationEventPublisher eventPublisher;
+
+    private final Object catalogLock = new Object();
+    // Mỗi CatalogChangedEvent nhận được tăng bộ đếm, snapshot ghi lại giá trị bộ đếm lúc bắt đầu dựng
+    private final AtomicLong catalogChanges = new AtomicLong();
+    private volatile CatalogSnapshot catalogSnapshot;
+
     public RespMessage getAllProduct() {
-        List<Product> products = productRepository.findAll();
-        List<Product> activeProducts = products.stream().filter(product -> product.getStatus() == Status.ACTIVE).toList();
-        List<ProductResponse> productResponseList = new ArrayList<>();
-        for (Product product : activeProducts) {
-            List<Image> images = imageRepository.findByProduct(product);
-            ProductResponse productResponse = getProductResponse(product);
-            productResponse.setImages(images);
-            productResponseList.add(productResponse);
+        return getAllProduct(getCatalogSnapshot());
+    }
+
+    public RespMessage getAllProduct(CatalogSnapshot snapshot) {
+        return messageBuilder.buildSuccessMessage(snapshot.getProducts());
+    }
+
+    // Đọc snapshot hiện tại không cần khóa, chỉ dựng đồng bộ ở lần đọc đầu tiên nếu chưa có
+    public CatalogSnapshot getCatalogSnapshot() {
+        CatalogSnapshot snapshot = catalogSnapshot;
+        return snapshot != null ? snapshot : rebuildCatalogSnapshot();
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public CatalogSnapshot rebuildCatalogSnapshot() {
+        synchronized (catalogLock) {
+            long version = catalogChanges.get();
+            List<ProductResponse> productResponses = getProductResponses(productRepository.findByStatus(Status.ACTIVE));
+            CatalogSnapshot snapshot = CatalogSnapshot.of(version, productResponses);
+            catalogSnapshot = snapshot;
+            log.info("Rebuilt catalog snapshot version {} with {} products", version, productResponses.size());
+            return snapshot;
+        }
+    }
+
+    /**
+     * Dựng lại snapshot sau khi transaction ghi catalog đã commit. Nhiều thay đổi liên tiếp được gộp lại:
+     * nếu snapshot hiện tại đã được dựng sau thay đổi này thì bỏ qua.
+     * Thay đổi chỉ ở product_summary (review, đơn hàng, tồn kho) được vá vào snapshot hiện tại cho các sản phẩm
+     * bị ảnh hưởng, nhưng chỉ khi snapshot đã chứa mọi thay đổi trước đó; nếu không thì dựng lại toàn bộ.
+     */
+    @Async
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onCatalogChanged(CatalogChangedEvent event) {
+        long change = catalogChanges.incrementAndGet();
+        synchronized (catalogLock) {
+            CatalogSnapshot snapshot = catalogSnapshot;
+            if (snapshot != null && snapshot.getVersion() >= change) {
+                return;
+            }
+            if (snapshot != null && snapshot.getVersion() == change - 1
+                    && CatalogChangedEvent.PRODUCT_SUMMARY.equals(event.source()) && !event.productIds().isEmpty()) {
+                Map<Long, ProductSummary> summaries = productSummaryService.getSummaries(event.productIds());
+                catalogSnapshot = snapshot.withSummaries(change, summaries, event.productIds());
+                return;
+            }
+            rebuildCatalogSnapshot();
+        }
+    }
+
+    private void publishCatalogChanged() {
+        publishCatalogChanged(CatalogChangedEvent.PRODUCT);
+    }
+
+    private void publishCatalogChanged(String source) {
+        eventPublisher.publishEvent(new CatalogChangedEvent(source));
+    }
+
+    /**
+     * Lấy một trang sản phẩm ACTIVE theo keyset (giá trị sort + id của phần tử cuối trang trước),
+     * nên chi phí mỗi trang không phụ thuộc vào vị trí trang hay số lượng sản phẩm.
+     * Cursor là chuỗi Base64 mở, client chỉ cần gửi lại nguyên giá trị nextCursor.
+     */
+    public RespMessage getProductPage(int size, String sort, String cursor) {
+        if (size <= 0 || size > MAX_PAGE_SIZE) {
+            throw new CoffeeShopException(Constant.FIELD_NOT_VALID, new Object[]{"size"}, "Page size must be between 1 and " + MAX_PAGE_SIZE);
+        }
+        ProductSort productSort = ProductSort.fromValue(sort);
+        if (productSort == null) {
+            throw new CoffeeShopException(Constant.FIELD_NOT_VALID, new Object[]{"sort"}, "Sort type invalid");
+        }
+        double lastValue = productSort.isAscending() ? -1 : Double.MAX_VALUE;
+        long lastId = productSort.isAscending() ? 0 : Long.MAX_VALUE;
+        if (cursor != null && !cursor.isBlank()) {
+            String[] parts = decodeCursor(cursor, productSort);
+            lastValue = Double.parseDouble(parts[1]);
+            lastId = Long.parseLong(parts[2]);
+        }
+
+        // Lấy dư 1 phần tử để biết còn trang sau hay không
+        PageRequest pageRequest = PageRequest.of(0, size + 1);
+        List<Object[]> rows = switch (productSort) {
+            case NEWEST -> productRepository.findActivePageByNewest(lastId, pageRequest);
+            case PRICE -> productRepository.findActivePageByPrice(lastValue, lastId, pageRequest);
+            case RATING -> productRepository.findActivePageByRating(lastValue, lastId, pageRequest);
+            case BEST_SELLING -> productRepository.findActivePageByBestSelling(
+                    (int) Math.min(lastValue, Integer.MAX_VALUE), lastId, pageRequest);
+        };
+        boolean hasNext = rows.size() > size;
+        List<Object[]> pageRows = hasNext ? rows.subList(0, size) : rows;
+        List<Product> products = pageRows.stream().map(row -> (Product) row[0]).toList();
+
+        String nextCursor = null;
+        if (hasNext) {
+            Object[] lastRow = pageRows.get(pageRows.size() - 1);
+            nextCursor = encodeCursor(productSort, ((Number) lastRow[1]).doubleValue(), ((Product) lastRow[0]).getId());
+        }
+        ProductPageResponse response = new ProductPageResponse(getProductResponses(products), nextCursor, hasNext,
+                size, productSort.name().toLowerCase());
+        return messageBuilder.buildSuccessMessage(response);
+    }
+
+    private String encodeCursor(ProductSort sort, double lastValue, long lastId) {
+        String raw = sort.name() + ":" + lastValue + ":" + lastId;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private String[] decodeCursor(String cursor, ProductSort sort) {
+        try {
+            String raw = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+            String[] parts = raw.split(":");
+            if (parts.length != 3 || !parts[0].equals(sort.name())) {
+                throw new IllegalArgumentException("Cursor does not match sort " + sort);
+            }
+            Double.parseDouble(parts[1]);
+            Long.parseLong(parts[2]);
+            return parts;
+        } catch (IllegalArgumentException e) {
+            throw new CoffeeShopException(Constant.FIELD_NOT_VALID, new Object[]{"cursor"}, "Cursor invalid");
         }
-        return messageBuilder.buildSuccessMessage(productResponseList);
     }
 
     public RespMessage getProductById(Long id) {
+        CatalogProductResponse cached = getCatalogSnapshot().getProduct(id);
+        if (cached != null) {
+            return messageBuilder.buildSuccessMessage(cached);
+        }
+        // Không có trong snapshot: sản phẩm không tồn tại, không ACTIVE hoặc snapshot chưa kịp dựng lại
         Optional<Product> productOp = productRepository.findById(id);
 
         if (productOp.isPresent()) {
@@ -53,20 +195,14 @@ public class ProductService {
             ProductResponse productResponse = getProductResponse(product);
             List<Image> images = imageRepository.findByProduct(product);
             productResponse.setImages(images);
-            return messageBuilder.buildSuccessMessage(productResponse);
+            return messageBuilder.buildSuccessMessage(CatalogProductResponse.from(productResponse));
         } else {
             throw new CoffeeShopException(Constant.FIELD_NOT_FOUND, new Object[]{"product"}, "Product not found");
         }
     }
     public RespMessage getProductsByCategoryId(Long categoryId) {
         try {
-            List<Product> tempProducts = productRepository.findByCategoryId(categoryId);
-            List<Product> products = tempProducts.stream().filter(product -> product.getStatus() == Status.ACTIVE).toList();
-            List<ProductResponse> productResponseList = new ArrayList<>();
-            for (Product product : products) {
-                ProductResponse productResponse = getProductResponse(product);
-                productResponseList.add(productResponse);
-            }
+            List<CatalogProductResponse> productResponseList = getCatalogSnapshot().getProductsByCategory(categoryId);
             return messageBuilder.buildSuccessMessage(productResponseList);
         } catch (Exception e) {
             throw new CoffeeShopException(Constant.SYSTEM_ERROR, null , null);
@@ -77,17 +213,12 @@ public class ProductService {
     // Tìm kiếm sản phẩm theo từ khóa và trả về RespMessage
     public RespMessage searchProductsByKeyword(String keyword) {
         try {
-            List<Product> products = productRepository
-                    .searchByKeyword(keyword)
-                    .stream().filter(product -> product.getStatus() == Status.ACTIVE).toList();
+            // Index chỉ chứa sản phẩm ACTIVE, kết quả đã được xếp hạng theo độ liên quan
+            List<Product> products = productSearchService.search(keyword);
             if (products.isEmpty()) {
                 return messageBuilder.buildFailureMessage(Constant.FIELD_NOT_FOUND, null, null);
             }
-            List<ProductResponse> productResponseList = new ArrayList<>();
-            for (Product product : products) {
-                ProductResponse productResponse = getProductResponse(product);
-                productResponseList.add(productResponse);
-            }
+            List<ProductResponse> productResponseList = getProductResponses(products);
             return messageBuilder.buildSuccessMessage(productResponseList);
         } catch (Exception e) {
             // Xây dựng phản hồi thất bại khi có lỗi
@@ -96,6 +227,38 @@ public class ProductService {
     }
 
 
+    public RespMessage suggestProducts(String prefix, int limit) {
+        if (limit <= 0 || limit > ProductSuggestService.MAX_SUGGESTIONS) {
+            throw new CoffeeShopException(Constant.FIELD_NOT_VALID, new Object[]{"limit"},
+                    "Limit must be between 1 and " + ProductSuggestService.MAX_SUGGESTIONS);
+        }
+        return messageBuilder.buildSuccessMessage(productSuggestService.suggest(prefix, limit));
+    }
+
+    /**
+     * Lọc theo facet trong bộ nhớ rồi lấy sản phẩm của trang yêu cầu từ catalog snapshot, không truy vấn DB.
+     * Sản phẩm vừa tạo mà snapshot chưa kịp dựng lại sẽ tạm thời không có trong trang, total vẫn đếm theo index facet.
+     */
+    public RespMessage filterProducts(ProductFilterRequest request) {
+        if (request.getSize() <= 0 || request.getSize() > MAX_PAGE_SIZE) {
+            throw new CoffeeShopException(Constant.FIELD_NOT_VALID, new Object[]{"size"}, "Page size must be between 1 and " + MAX_PAGE_SIZE);
+        }
+        if (request.getPage() < 0) {
+            throw new CoffeeShopException(Constant.FIELD_NOT_VALID, new Object[]{"page"}, "Page must not be negative");
+        }
+        ProductFacetService.FacetResult result = productFacetService.filter(request);
+        CatalogSnapshot snapshot = getCatalogSnapshot();
+        List<CatalogProductResponse> products = result.productIds().stream()
+                .skip((long) request.getPage() * request.getSize())
+                .limit(request.getSize())
+                .map(snapshot::getProduct)
+                .filter(Objects::nonNull)
+                .toList();
+        ProductFilterResponse response = new ProductFilterResponse(products, result.productIds().size(),
+                request.getPage(), request.getSize(), result.facets());
+        return messageBuilder.buildSuccessMessage(response);
+    }
+
     public RespMessage addProduct(ProductRequest productRequest) {
         if (productRequest.getName() == null || productRequest.getName().isEmpty()) {
             throw new CoffeeShopException(Constant.FIELD_NOT_NULL, new Object[]{"name"}, "Product name must be not null");
@@ -125,6 +288,11 @@ public class ProductService {
         } catch (Exception e) {
             throw new CoffeeShopException(Constant.SYSTEM_ERROR, new Object[]{e.getMessage()}, "Error when add product");
         }
+        productSummaryService.create(product.getId());
+        productSearchService.index(product);
+        productSuggestService.index(product);
+        productFacetService.refresh(List.of(product.getId()));
+        publishCatalogChanged();
         return messageBuilder.buildSuccessMessage(getProductResponse(product));
     }
 
@@ -143,6 +311,7 @@ public class ProductService {
         } catch (Exception e) {
             throw new CoffeeShopException(Constant.SYSTEM_ERROR, new Object[]{e.getMessage()}, "Error when add brand");
         }
+        publishCatalogChanged(CatalogChangedEvent.BRAND);
         return messageBuilder.buildSuccessMessage(brand);
     }
 
@@ -161,6 +330,7 @@ public class ProductService {
         } catch (Exception e) {
             throw new CoffeeShopException(Constant.SYSTEM_ERROR, new Object[]{e.getMessage()}, "Error when add type product");
         }
+        publishCatalogChanged(CatalogChangedEvent.TYPE_PRODUCT);
         return messageBuilder.buildSuccessMessage(typeProduct);
     }
 
@@ -172,6 +342,10 @@ public class ProductService {
         Product product = productOptional.get();
         product.setStatus(Status.INACTIVE);
         productRepository.save(product);
+        productSearchService.remove(product.getId());
+        productSuggestService.remove(product.getId());
+        productFacetService.refresh(List.of(product.getId()));
+        publishCatalogChanged();
         return messageBuilder.buildSuccessMessage(getProductResponse(product));
     }
 
@@ -202,6 +376,10 @@ public class ProductService {
             product.setBrand(brandOptional.get());
         }
         productRepository.save(product);
+        productSearchService.index(product);
+        productSuggestService.index(product);
+        productFacetService.refresh(List.of(product.getId()));
+        publishCatalogChanged();
         return messageBuilder.buildSuccessMessage(getProductResponse(product));
     }
 
@@ -224,6 +402,7 @@ public class ProductService {
             image.setUrl(url);
             image.setProduct(product);
             imageRepository.save(image);
+            publishCatalogChanged();
             return messageBuilder.buildSuccessMessage(getProductResponse(product));
         } catch (Exception e) {
             throw new CoffeeShopException(Constant.SYSTEM_ERROR, new Object[]{e.getMessage()}, "Error when upload image");
@@ -243,36 +422,61 @@ public class ProductService {
             List<Image> images = imageRepository.findByProduct(product);
             productResponse.setImages(images);
 
-            List<Review> reviews = reviewRepository.findByProductId(product.getId());
-            double rating = 0;
-            int totalReview = 0;
+            setSummary(productResponse, productSummaryService.getSummary(product.getId()));
 
-            if (!reviews.isEmpty()) {
-                rating = reviews.stream().mapToDouble(Review::getRating).average().getAsDouble();
-                totalReview = reviews.size();
-            }
-            productResponse.setRating(rating);
-            productResponse.setTotalReview(totalReview);
+            return productResponse;
+        }
+        catch (Exception e) {
+            throw new CoffeeShopException(Constant.SYSTEM_ERROR, new Object[]{e.getMessage()}, "Error when get product response");
+        }
+    }
+
+    // Dựng ProductResponse cho cả danh sách: 1 câu truy vấn ảnh + 1 lần tra bảng product_summary
+    public List<ProductResponse> getProductResponses(List<Product> products) {
+        if (products.isEmpty()) {
+            return new ArrayList<>();
+        }
+        try {
+            List<Long> productIds = products.stream().map(Product::getId).distinct().toList();
 
-            Integer totalSold = orderItemRepository.findTotalSold(product.getId())
-                    .orElse(0);
-            productResponse.setTotalSold(totalSold);
+            Map<Long, List<Image>> imagesByProduct = new HashMap<>();
+            for (Image image : imageRepository.findByProductIds(productIds)) {
+                imagesByProduct.computeIfAbsent(image.getProduct().getId(), k -> new ArrayList<>()).add(image);
+            }
 
-            Double maxPrice = productRepository.maxPrice(product.getId())
-                    .orElse(0.0);
-            productResponse.setMaxPrice(maxPrice);
+            Map<Long, ProductSummary> summaries = productSummaryService.getSummaries(productIds);
 
-            Double minPrice = productRepository.minPrice(product.getId())
-                    .orElse(0.0);
-            productResponse.setMinPrice(minPrice);
+            List<ProductResponse> productResponses = new ArrayList<>();
+            for (Product product : products) {
+                ProductResponse productResponse = new ProductResponse();
+                productResponse.setId(product.getId());
+                productResponse.setName(product.getName());
+                productResponse.setDescription(product.getDescription());
+                productResponse.setCategory(product.getCategory());
+                productResponse.setBrand(product.getBrand());
+                productResponse.setImages(imagesByProduct.getOrDefault(product.getId(), new ArrayList<>()));
 
-            return productResponse;
+                setSummary(productResponse, summaries.get(product.getId()));
+                productResponses.add(productResponse);
+            }
+            return productResponses;
         }
         catch (Exception e) {
             throw new CoffeeShopException(Constant.SYSTEM_ERROR, new Object[]{e.getMessage()}, "Error when get product response");
         }
     }
 
+    private void setSummary(ProductResponse productResponse, ProductSummary summary) {
+        if (summary == null) {
+            return;
+        }
+        productResponse.setRating(summary.getRating());
+        productResponse.setTotalReview(summary.getTotalReview());
+        productResponse.setTotalSold(summary.getTotalSold());
+        productResponse.setMaxPrice(summary.getMaxPrice());
+        productResponse.setMinPrice(summary.getMinPrice());
+    }
+
     public RespMessage deleteImage(Long id) {
         Optional<Image> imageOptional = imageRepository.findById(id);
         if (imageOptional.isEmpty()) {
@@ -281,6 +485,7 @@ public class ProductService {
         Image image = imageOptional.get();
         imageRepository.delete(image);
         cloudinaryService.delete(image.getUrl());
+        publishCatalogChanged();
         ProductResponse productResponse = getProductResponse(image.getProduct());
 
         return messageBuilder.buildSuccessMessage(productResponse);
@@ -0,0 +1,352 @@
+package com.ptit.coffee_shop.service;
+
+import com.ptit.coffee_shop.common.CatalogChangedEvent;
+import com.ptit.coffee_shop.common.enums.Status;
+import com.ptit.coffee_shop.model.Product;
+import com.ptit.coffee_shop.model.ProductSummary;
+import com.ptit.coffee_shop.payload.response.SuggestionResponse;
+import com.ptit.coffee_shop.repository.ProductRepository;
+import com.ptit.coffee_shop.repository.ProductSummaryRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.util.*;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Gợi ý tên sản phẩm và brand theo tiền tố, phục vụ hoàn toàn từ trie trong bộ nhớ.
+ * Mỗi node lưu sẵn top gợi ý (theo số lượng đã bán) của cả nhánh con nên truy vấn chỉ cần đi theo tiền tố.
+ * Tên được chuẩn hóa bỏ dấu và được index theo từng vị trí bắt đầu của từ, nên "sua" cũng gợi ý "Cà phê sữa đá".
+ */
+@Service
+@Slf4j
+@RequiredArgsConstructor
+public class ProductSuggestService {
+    public static final int MAX_SUGGESTIONS = 10;
+    public static final String TYPE_PRODUCT = "product";
+    public static final String TYPE_BRAND = "brand";
+
+    private final ProductRepository productRepository;
+    private final ProductSummaryRepository productSummaryRepository;
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private Node root = new Node();
+    private final Map<Long, Product> products = new HashMap<>();
+    private final Map<Long, Integer> totalSold = new HashMap<>();
+    // Lưu tên brand lúc index vì entity có thể đã bị sửa trước khi được index lại
+    private final Map<Long, String> productBrands = new HashMap<>();
+    private final Map<Long, Suggestion> productSuggestions = new HashMap<>();
+    private final Map<String, Suggestion> brandSuggestions = new HashMap<>();
+
+    // id là productId với gợi ý sản phẩm, 0 với gợi ý brand (brand được phân biệt theo tên)
+    private record Suggestion(long id, String text, String type, long weight) {
+    }
+
+    // Trie gọn: con được lưu trong mảng ký tự đã sắp xếp thay vì một Map cho mỗi node
+    private static final class Node {
+        private char[] keys = new char[0];
+        private Node[] children = new Node[0];
+        private Set<Suggestion> terminals;
+        private List<Suggestion> top = List.of();
+
+        private Node child(char c) {
+            int index = Arrays.binarySearch(keys, c);
+            return index >= 0 ? children[index] : null;
+        }
+
+        private Node getOrCreateChild(char c) {
+            int index = Arrays.binarySearch(keys, c);
+            if (index >= 0) {
+                return children[index];
+            }
+            int insertAt = -index - 1;
+            char[] newKeys = new char[keys.length + 1];
+            Node[] newChildren = new Node[children.length + 1];
+            System.arraycopy(keys, 0, newKeys, 0, insertAt);
+            System.arraycopy(children, 0, newChildren, 0, insertAt);
+            newKeys[insertAt] = c;
+            newChildren[insertAt] = new Node();
+            System.arraycopy(keys, insertAt, newKeys, insertAt + 1, keys.length - insertAt);
+            System.arraycopy(children, insertAt, newChildren, insertAt + 1, children.length - insertAt);
+            keys = newKeys;
+            children = newChildren;
+            return newChildren[insertAt];
+        }
+
+        private void removeChild(char c) {
+            int index = Arrays.binarySearch(keys, c);
+            if (index < 0) {
+                return;
+            }
+            char[] newKeys = new char[keys.length - 1];
+            Node[] newChildren = new Node[children.length - 1];
+            System.arraycopy(keys, 0, newKeys, 0, index);
+            System.arraycopy(children, 0, newChildren, 0, index);
+            System.arraycopy(keys, index + 1, newKeys, index, keys.length - index - 1);
+            System.arraycopy(children, index + 1, newChildren, index, children.length - index - 1);
+            keys = newKeys;
+            children = newChildren;
+        }
+
+        private boolean isEmpty() {
+            return keys.length == 0 && (terminals == null || terminals.isEmpty());
+        }
+
+        private void recomputeTop() {
+            List<Suggestion> candidates = new ArrayList<>();
+            if (terminals != null) {
+                candidates.addAll(terminals);
+            }
+            for (Node child : children) {
+                candidates.addAll(child.top);
+            }
+            top = candidates.stream()
+                    .distinct()
+                    .sorted(Comparator.comparingLong(Suggestion::weight).reversed()
+                            .thenComparing(Suggestion::text)
+                            .thenComparing(Suggestion::type)
+                            .thenComparingLong(Suggestion::id))
+                    .limit(MAX_SUGGESTIONS)
+                    .toList();
+        }
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void rebuild() {
+        List<Product> activeProducts = productRepository.findByStatus(Status.ACTIVE);
+        List<Long> productIds = activeProducts.stream().map(Product::getId).toList();
+        Map<Long, Integer> sold = new HashMap<>();
+        if (!productIds.isEmpty()) {
+            for (ProductSummary summary : productSummaryRepository.findAllById(productIds)) {
+                sold.put(summary.getProductId(), summary.getTotalSold());
+            }
+        }
+        lock.writeLock().lock();
+        try {
+            root = new Node();
+            products.clear();
+            totalSold.clear();
+            productBrands.clear();
+            productSuggestions.clear();
+            brandSuggestions.clear();
+            for (Product product : activeProducts) {
+                products.put(product.getId(), product);
+                totalSold.put(product.getId(), sold.getOrDefault(product.getId(), 0));
+                putBrand(product);
+            }
+            for (Product product : activeProducts) {
+                refreshProduct(product.getId());
+            }
+            for (String brandName : new HashSet<>(productBrands.values())) {
+                refreshBrand(brandName);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+        log.info("Built product suggestion trie for {} products", activeProducts.size());
+    }
+
+    // Thêm/cập nhật một sản phẩm, chỉ các nhánh trie của sản phẩm và brand liên quan bị tính lại
+    public void index(Product product) {
+        lock.writeLock().lock();
+        try {
+            products.remove(product.getId());
+            String oldBrandName = productBrands.remove(product.getId());
+            if (product.getStatus() == null || product.getStatus() == Status.ACTIVE) {
+                products.put(product.getId(), product);
+                totalSold.putIfAbsent(product.getId(), 0);
+                putBrand(product);
+            } else {
+                totalSold.remove(product.getId());
+            }
+            refreshProduct(product.getId());
+            refreshBrand(oldBrandName);
+            refreshBrand(productBrands.get(product.getId()));
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    // Đổi tên brand: gợi ý brand cũ được gỡ và tên mới được tính lại từ các sản phẩm của brand
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onCatalogChanged(CatalogChangedEvent event) {
+        if (CatalogChangedEvent.BRAND.equals(event.source()) && !event.productIds().isEmpty()) {
+            productRepository.findAllById(event.productIds()).forEach(this::index);
+        }
+    }
+
+    public void remove(long productId) {
+        lock.writeLock().lock();
+        try {
+            products.remove(productId);
+            totalSold.remove(productId);
+            String oldBrandName = productBrands.remove(productId);
+            refreshProduct(productId);
+            refreshBrand(oldBrandName);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    // Cập nhật trọng số khi số lượng đã bán thay đổi (gọi sau khi product_summary được tính lại)
+    public void updateTotalSold(Collection<ProductSummary> summaries) {
+        lock.writeLock().lock();
+        try {
+            Set<String> changedBrands = new HashSet<>();
+            for (ProductSummary summary : summaries) {
+                if (!products.containsKey(summary.getProductId())) {
+                    continue;
+                }
+                Integer previous = totalSold.put(summary.getProductId(), summary.getTotalSold());
+                if (previous == null || previous != summary.getTotalSold()) {
+                    refreshProduct(summary.getProductId());
+                    String brandName = productBrands.get(summary.getProductId());
+                    if (brandName != null) {
+                        changedBrands.add(brandName);
+                    }
+                }
+            }
+            for (String brandName : changedBrands) {
+                refreshBrand(brandName);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public List<SuggestionResponse> suggest(String prefix, int limit) {
+        String key = normalizeKey(prefix);
+        if (key.isEmpty() || limit <= 0) {
+            return new ArrayList<>();
+        }
+        lock.readLock().lock();
+        try {
+            Node node = root;
+            for (int i = 0; i < key.length() && node != null; i++) {
+                node = node.child(key.charAt(i));
+            }
+            if (node == null) {
+                return new ArrayList<>();
+            }
+            return node.top.stream()
+                    .limit(Math.min(limit, MAX_SUGGESTIONS))
+                    .map(suggestion -> new SuggestionResponse(suggestion.text(), suggestion.type(), suggestion.weight()))
+                    .toList();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private void refreshProduct(long productId) {
+        Suggestion oldSuggestion = productSuggestions.remove(productId);
+        if (oldSuggestion != null) {
+            removeSuggestion(oldSuggestion);
+        }
+        Product product = products.get(productId);
+        if (product == null || product.getName() == null || product.getName().isBlank()) {
+            return;
+        }
+        Suggestion suggestion = new Suggestion(productId, product.getName(), TYPE_PRODUCT, totalSold.getOrDefault(productId, 0));
+        productSuggestions.put(productId, suggestion);
+        addSuggestion(suggestion);
+    }
+
+    // Trọng số của brand là tổng số lượng đã bán của các sản phẩm ACTIVE thuộc brand đó
+    private void refreshBrand(String brandName) {
+        if (brandName == null) {
+            return;
+        }
+        Suggestion oldSuggestion = brandSuggestions.remove(brandName);
+        if (oldSuggestion != null) {
+            removeSuggestion(oldSuggestion);
+        }
+        long weight = 0;
+        boolean hasProduct = false;
+        for (Map.Entry<Long, String> entry : productBrands.entrySet()) {
+            if (brandName.equals(entry.getValue())) {
+                hasProduct = true;
+                weight += totalSold.getOrDefault(entry.getKey(), 0);
+            }
+        }
+        if (!hasProduct || brandName.isBlank()) {
+            return;
+        }
+        Suggestion suggestion = new Suggestion(0, brandName, TYPE_BRAND, weight);
+        brandSuggestions.put(brandName, suggestion);
+        addSuggestion(suggestion);
+    }
+
+    private void addSuggestion(Suggestion suggestion) {
+        for (String key : keys(suggestion.text())) {
+            List<Node> path = new ArrayList<>();
+            Node node = root;
+            path.add(node);
+            for (int i = 0; i < key.length(); i++) {
+                node = node.getOrCreateChild(key.charAt(i));
+                path.add(node);
+            }
+            if (node.terminals == null) {
+                node.terminals = new HashSet<>();
+            }
+            node.terminals.add(suggestion);
+            for (int i = path.size() - 1; i >= 0; i--) {
+                path.get(i).recomputeTop();
+            }
+        }
+    }
+
+    private void removeSuggestion(Suggestion suggestion) {
+        for (String key : keys(suggestion.text())) {
+            List<Node> path = new ArrayList<>();
+            Node node = root;
+            path.add(node);
+            for (int i = 0; i < key.length() && node != null; i++) {
+                node = node.child(key.charAt(i));
+                path.add(node);
+            }
+            if (node == null || node.terminals == null) {
+                continue;
+            }
+            node.terminals.remove(suggestion);
+            for (int i = path.size() - 1; i >= 0; i--) {
+                Node current = path.get(i);
+                if (i > 0 && current.isEmpty()) {
+                    path.get(i - 1).removeChild(key.charAt(i - 1));
+                } else {
+                    current.recomputeTop();
+                }
+            }
+        }
+    }
+
+    // Mỗi vị trí bắt đầu của từ là một khóa: "ca phe sua da", "phe sua da", "sua da", "da"
+    private static Set<String> keys(String text) {
+        String normalized = normalizeKey(text);
+        Set<String> keys = new LinkedHashSet<>();
+        if (normalized.isEmpty()) {
+            return keys;
+        }
+        keys.add(normalized);
+        for (int i = 0; i < normalized.length(); i++) {
+            if (normalized.charAt(i) == ' ') {
+                keys.add(normalized.substring(i + 1));
+            }
+        }
+        return keys;
+    }
+
+    private static String normalizeKey(String text) {
+        return String.join(" ", ProductSearchService.tokenize(text));
+    }
+
+    private void putBrand(Product product) {
+        if (product.getBrand() != null && product.getBrand().getName() != null) {
+            productBrands.put(product.getId(), product.getBrand().getName());
+        }
+    }
+}
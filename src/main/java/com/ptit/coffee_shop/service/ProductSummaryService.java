@@ -0,0 +1,102 @@
+package com.ptit.coffee_shop.service;
+
+import com.ptit.coffee_shop.common.CatalogChangedEvent;
+import com.ptit.coffee_shop.common.Constant;
+import com.ptit.coffee_shop.config.MessageBuilder;
+import com.ptit.coffee_shop.exception.CoffeeShopException;
+import com.ptit.coffee_shop.model.ProductSummary;
+import com.ptit.coffee_shop.payload.response.RespMessage;
+import com.ptit.coffee_shop.repository.ProductRepository;
+import com.ptit.coffee_shop.repository.ProductSummaryRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.core.task.TaskExecutor;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Bảng product_summary lưu sẵn rating, số review, số lượng đã bán và khoảng giá của từng sản phẩm.
+ * Mỗi khi review, order hoặc product item thay đổi, service tương ứng gọi {@link #refresh(Collection)}
+ * cho các sản phẩm bị ảnh hưởng, nên khi đọc catalog chỉ cần tra theo khóa chính.
+ * Dòng summary được tạo cùng lúc với sản phẩm ({@link #create(long)}), đường đọc không bao giờ ghi.
+ */
+@Service
+@Slf4j
+@RequiredArgsConstructor
+public class ProductSummaryService {
+    private static final int REBUILD_CHUNK_SIZE = 500;
+
+    private final ProductSummaryRepository productSummaryRepository;
+    private final ProductRepository productRepository;
+    private final MessageBuilder messageBuilder;
+    private final ProductSuggestService productSuggestService;
+    private final ProductFacetService productFacetService;
+    private final ApplicationEventPublisher eventPublisher;
+    private final PlatformTransactionManager transactionManager;
+    // Pool khai báo trong AsyncConfig, chọn theo tên bean vì websocket cũng đăng ký các TaskExecutor khác
+    private final TaskExecutor productSummaryRebuildExecutor;
+
+    public ProductSummary getSummary(long productId) {
+        return getSummaries(List.of(productId)).get(productId);
+    }
+
+    // Chỉ đọc: sản phẩm chưa có dòng summary (dữ liệu cũ chưa rebuild) được trả về như chưa có rating, lượt bán và giá
+    public Map<Long, ProductSummary> getSummaries(Collection<Long> productIds) {
+        Map<Long, ProductSummary> summaries = new HashMap<>();
+        if (productIds.isEmpty()) {
+            return summaries;
+        }
+        for (ProductSummary summary : productSummaryRepository.findAllById(productIds)) {
+            summaries.put(summary.getProductId(), summary);
+        }
+        return summaries;
+    }
+
+    // Sản phẩm mới tạo chưa có review, order item hay product item nên dòng summary bằng 0
+    public void create(long productId) {
+        productSummaryRepository.save(ProductSummary.builder().productId(productId).build());
+    }
+
+    // Tính lại summary của các sản phẩm từ dữ liệu gốc (review, order item, product item) bằng một câu upsert
+    @Transactional
+    public List<ProductSummary> refresh(Collection<Long> productIds) {
+        List<Long> ids = productIds.stream().distinct().toList();
+        if (ids.isEmpty()) {
+            return new ArrayList<>();
+        }
+        productSummaryRepository.upsert(ids);
+        List<ProductSummary> saved = productSummaryRepository.findAllById(ids);
+        productSuggestService.updateTotalSold(saved);
+        productFacetService.refresh(ids);
+        // Rating, số lượng đã bán và khoảng giá nằm trong catalog snapshot
+        eventPublisher.publishEvent(new CatalogChangedEvent(CatalogChangedEvent.PRODUCT_SUMMARY, ids));
+        return saved;
+    }
+
+    // Dựng lại toàn bộ bảng summary, chia id sản phẩm thành từng chunk và chạy song song, mỗi chunk một transaction
+    public RespMessage rebuild() {
+        List<Long> productIds = productRepository.findAllIds();
+        // Lời gọi refresh trong cùng class không đi qua proxy nên tự mở transaction cho từng chunk
+        TransactionTemplate transactionTemplate = new TransactionTemplate(transactionManager);
+        try {
+            List<CompletableFuture<Void>> futures = new ArrayList<>();
+            for (int i = 0; i < productIds.size(); i += REBUILD_CHUNK_SIZE) {
+                List<Long> chunk = productIds.subList(i, Math.min(i + REBUILD_CHUNK_SIZE, productIds.size()));
+                futures.add(CompletableFuture.runAsync(
+                        () -> transactionTemplate.executeWithoutResult(status -> refresh(chunk)), productSummaryRebuildExecutor));
+            }
+            CompletableFuture.allOf(futures.toArray(new CompletableFuture[0])).join();
+        } catch (Exception e) {
+            log.error("Product summary can not be rebuilt", e);
+            throw new CoffeeShopException(Constant.SYSTEM_ERROR, new Object[]{e.getMessage()}, "Product summary can not be rebuilt");
+        }
+        log.info("Rebuilt product summary for {} products", productIds.size());
+        return messageBuilder.buildSuccessMessage(productIds.size());
+    }
+}
@@ -0,0 +1,119 @@
+package com.ptit.coffee_shop.service;
+
+import com.ptit.coffee_shop.common.GsonUtil;
+import com.ptit.coffee_shop.payload.response.RespMessage;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.stereotype.Service;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Cache byte UTF-8 (và bản gzip) đã serialize sẵn của các API đọc catalog, theo endpoint và version của dữ liệu endpoint đó
+ * (version resource trong {@link CatalogVersionService}, hoặc version snapshot với danh sách sản phẩm).
+ * Khi version không đổi, request chỉ cần ghi lại mảng byte có sẵn ra response, không chạy Gson hay encode lại.
+ */
+@Service
+@RequiredArgsConstructor
+public class ResponseCacheService {
+    // Payload nhỏ hơn ngưỡng này nén gzip không có lợi
+    private static final int GZIP_MIN_SIZE = 1024;
+    private static final String GZIP = "gzip";
+
+    private final CatalogVersionService catalogVersionService;
+
+    private final Map<String, CachedResponse> cache = new ConcurrentHashMap<>();
+
+    public record CachedResponse(long version, String etag, String gzipEtag, byte[] body, byte[] gzipBody) {
+    }
+
+    // API danh mục: entry của endpoint chỉ cũ đi khi chính resource của nó (category, brand, ...) thay đổi
+    public ResponseEntity<byte[]> respond(String endpoint, String resource, String ifNoneMatch, String acceptEncoding,
+                                          Supplier<RespMessage> loader) {
+        return respond(endpoint, catalogVersionService.getVersion(resource), ifNoneMatch, acceptEncoding, loader);
+    }
+
+    /**
+     * Trả 304 nếu If-None-Match khớp (không đọc dữ liệu), ngược lại trả byte đã cache cho version hiện tại,
+     * chỉ gọi loader khi cache chưa có hoặc đã cũ hơn version.
+     */
+    public ResponseEntity<byte[]> respond(String endpoint, long version, String ifNoneMatch, String acceptEncoding,
+                                          Supplier<RespMessage> loader) {
+        String etag = catalogVersionService.etag(endpoint, version);
+        String gzipEtag = gzipEtag(etag);
+        if (CatalogVersionService.matches(ifNoneMatch, etag) || CatalogVersionService.matches(ifNoneMatch, gzipEtag)) {
+            return ResponseEntity.status(HttpStatus.NOT_MODIFIED)
+                    .eTag(acceptsGzip(acceptEncoding) ? gzipEtag : etag)
+                    .cacheControl(CacheControl.noCache())
+                    .build();
+        }
+        CachedResponse cached = get(endpoint, version, loader);
+        boolean gzip = cached.gzipBody() != null && acceptsGzip(acceptEncoding);
+        ResponseEntity.BodyBuilder builder = ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_JSON)
+                .cacheControl(CacheControl.noCache())
+                .header(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING);
+        if (gzip) {
+            return builder.eTag(cached.gzipEtag()).header(HttpHeaders.CONTENT_ENCODING, GZIP)
+                    .contentLength(cached.gzipBody().length).body(cached.gzipBody());
+        }
+        return builder.eTag(cached.etag()).contentLength(cached.body().length).body(cached.body());
+    }
+
+    public CachedResponse get(String endpoint, long version, Supplier<RespMessage> loader) {
+        CachedResponse cached = cache.get(endpoint);
+        if (cached != null && cached.version() == version) {
+            return cached;
+        }
+        CachedResponse fresh = serialize(endpoint, version, loader.get());
+        // Không ghi đè bản của version mới hơn do một request khác vừa dựng
+        cache.merge(endpoint, fresh, (current, created) -> current.version() > created.version() ? current : created);
+        return fresh;
+    }
+
+    private CachedResponse serialize(String endpoint, long version, RespMessage respMessage) {
+        byte[] body = GsonUtil.getInstance().toJson(respMessage).getBytes(StandardCharsets.UTF_8);
+        byte[] gzipBody = body.length >= GZIP_MIN_SIZE ? gzip(body) : null;
+        String etag = catalogVersionService.etag(endpoint, version);
+        return new CachedResponse(version, etag, gzipEtag(etag), body, gzipBody);
+    }
+
+    private static byte[] gzip(byte[] body) {
+        ByteArrayOutputStream output = new ByteArrayOutputStream(body.length / 4);
+        try (GZIPOutputStream gzip = new GZIPOutputStream(output)) {
+            gzip.write(body);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return output.toByteArray();
+    }
+
+    // Bản gzip là một representation khác nên cần ETag mạnh khác
+    private static String gzipEtag(String etag) {
+        return etag.substring(0, etag.length() - 1) + "-" + GZIP + "\"";
+    }
+
+    private static boolean acceptsGzip(String acceptEncoding) {
+        if (acceptEncoding == null) {
+            return false;
+        }
+        for (String encoding : acceptEncoding.split(",")) {
+            String[] parts = encoding.trim().split(";");
+            if (parts[0].trim().equalsIgnoreCase(GZIP)) {
+                return parts.length == 1 || !parts[1].replace(" ", "").equals("q=0");
+            }
+        }
+        return false;
+    }
+}
@@ -28,6 +28,7 @@ public class ReviewService {
     private final OrderItemRepository orderItemRepository;
     private final ProductRepository productRepository;
     private final ProductItemRepository productItemRepository;
+    private final ProductSummaryService productSummaryService;
 
     public RespMessage addReview(ReviewRequet reviewRequet) {
         Optional<OrderItem> orderItemOptional = orderItemRepository.findById(reviewRequet.getOrderItemId());
@@ -41,6 +42,7 @@ public class ReviewService {
             try {
                 orderItemRepository.save(orderItem);
                 reviewRepository.save(review);
+                productSummaryService.refresh(List.of(orderItem.getProductItem().getProduct().getId()));
                 return messageBuilder.buildSuccessMessage(review.toResponse());
             } catch (CoffeeShopException e) {
                 throw new CoffeeShopException(Constant.UNDEFINED, null, "Review could not be saved");
@@ -63,6 +65,7 @@ public class ReviewService {
             review.setStatus(Status.INACTIVE);
             try {
                 reviewRepository.save(review);
+                productSummaryService.refresh(List.of(review.getOrderItem().getProductItem().getProduct().getId()));
                 return messageBuilder.buildSuccessMessage(review.toResponse());
             } catch (CoffeeShopException e) {
                 throw new CoffeeShopException(Constant.UNDEFINED, null, "Review could not be saved");
@@ -0,0 +1,165 @@
+package com.ptit.coffee_shop.service;
+
+import com.ptit.coffee_shop.common.TransactionHooks;
+import com.ptit.coffee_shop.common.enums.OrderStatus;
+import com.ptit.coffee_shop.common.enums.ReservationStatus;
+import com.ptit.coffee_shop.model.Order;
+import com.ptit.coffee_shop.model.StockReservation;
+import com.ptit.coffee_shop.repository.OrderRepository;
+import com.ptit.coffee_shop.repository.ProductItemRepository;
+import com.ptit.coffee_shop.repository.StockReservationRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Sổ giữ hàng cho đơn VNPay đang chờ thanh toán.
+ * Kho đã bị trừ khi đặt đơn; nếu khách bỏ trang thanh toán, {@link StockReservationSweeper} trả lại hàng khi hết hạn
+ * thay vì để sản phẩm báo hết hàng mãi. Các lượt giữ đang hiệu lực nằm trong bộ nhớ, bảng stock_reservation dùng để
+ * khôi phục khi khởi động lại.
+ */
+@Service
+@Slf4j
+@RequiredArgsConstructor
+public class StockReservationService {
+    private final StockReservationRepository stockReservationRepository;
+    private final ProductItemRepository productItemRepository;
+    private final OrderRepository orderRepository;
+    private final ProductSummaryService productSummaryService;
+    private final HotStockService hotStockService;
+    private final OrderOutboxService orderOutboxService;
+
+    // Link VNPay hết hạn sau 15 phút, giữ thêm ít phút để callback thanh toán đến trễ vẫn được xác nhận
+    @Value("${app.stock-reservation-ttl-minutes:20}")
+    private long ttlMinutes = 20;
+
+    // orderId -> thời điểm hết hạn của lượt giữ hàng
+    private final Map<Long, Long> holds = new ConcurrentHashMap<>();
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void loadHolds() {
+        holds.clear();
+        for (StockReservation reservation : stockReservationRepository.findByStatus(ReservationStatus.HELD)) {
+            holds.merge(reservation.getOrderId(), reservation.getExpiresAt().getTime(), Math::min);
+        }
+        log.info("Loaded {} pending stock reservations", holds.size());
+    }
+
+    /**
+     * Ghi nhận số lượng đã trừ kho cho đơn, gọi trong transaction tạo đơn.
+     * Bộ nhớ chỉ được cập nhật sau khi transaction commit.
+     */
+    @Transactional
+    public void hold(Order order, Map<Long, Integer> amounts) {
+        Date expiresAt = new Date(System.currentTimeMillis() + ttlMinutes * 60_000);
+        List<StockReservation> reservations = new ArrayList<>();
+        for (Map.Entry<Long, Integer> amount : amounts.entrySet()) {
+            reservations.add(StockReservation.builder()
+                    .orderId(order.getId())
+                    .productItemId(amount.getKey())
+                    .amount(amount.getValue())
+                    .expiresAt(expiresAt)
+                    .status(ReservationStatus.HELD)
+                    .build());
+        }
+        stockReservationRepository.saveAll(reservations);
+        TransactionHooks.afterCommit(() -> holds.putIfAbsent(order.getId(), expiresAt.getTime()));
+    }
+
+    /**
+     * Thanh toán VNPay thành công: hàng đã giữ trở thành hàng đã bán.
+     * Trả về false nếu đơn không còn hoặc đã bị hủy (hàng đã được trả lại kho), khi đó khoản thanh toán phải được hoàn.
+     */
+    @Transactional
+    public boolean confirm(long orderId) {
+        Optional<Order> order = orderRepository.findByIdForUpdate(orderId);
+        TransactionHooks.afterCommit(() -> forget(orderId));
+        if (order.isEmpty() || order.get().getStatus() == OrderStatus.Cancelled) {
+            return false;
+        }
+        for (StockReservation reservation : stockReservationRepository.findByOrderIdAndStatus(orderId, ReservationStatus.HELD)) {
+            stockReservationRepository.updateStatus(reservation.getId(), ReservationStatus.HELD, ReservationStatus.CONFIRMED);
+        }
+        return true;
+    }
+
+    /**
+     * Trả lại kho cho các lượt giữ chưa được xác nhận của đơn và hủy đơn, chỉ khi đơn vẫn đang chờ xử lý.
+     * Đơn được khóa trước nên không chạy xen với {@link #confirm(long)}; gọi lại nhiều lần vẫn an toàn
+     * vì mỗi bản ghi chỉ chuyển HELD -> RELEASED một lần.
+     */
+    @Transactional
+    public boolean release(long orderId) {
+        Optional<Order> orderOptional = orderRepository.findByIdForUpdate(orderId);
+        TransactionHooks.afterCommit(() -> forget(orderId));
+        // Đơn đã được xử lý tiếp hoặc đã bị hủy ở nơi khác thì hàng không còn là hàng giữ chờ thanh toán
+        if (orderOptional.isEmpty() || orderOptional.get().getStatus() != OrderStatus.Processing) {
+            return false;
+        }
+        Order order = orderOptional.get();
+        Set<Long> productIds = new HashSet<>();
+        boolean released = releaseHeld(orderId, productIds);
+        if (released) {
+            order.setStatus(OrderStatus.Cancelled);
+            orderRepository.save(order);
+            orderOutboxService.statusChanged(order, OrderStatus.Processing);
+            // Cập nhật số lượng đã bán và tình trạng còn hàng trong catalog
+            productSummaryService.refresh(productIds);
+        }
+        return released;
+    }
+
+    /**
+     * Đơn bị hủy khi hàng vẫn đang giữ: trả lại kho trong transaction hủy đơn, người gọi đã khóa đơn và đổi trạng thái.
+     * Sau đó sweeper bỏ qua đơn vì đơn đã bị hủy và không còn bản ghi HELD.
+     */
+    @Transactional
+    public void releaseCancelled(long orderId) {
+        TransactionHooks.afterCommit(() -> forget(orderId));
+        Set<Long> productIds = new HashSet<>();
+        if (releaseHeld(orderId, productIds)) {
+            productSummaryService.refresh(productIds);
+        }
+    }
+
+    // Chuyển các lượt giữ HELD -> RELEASED và cộng lại kho, trả về true nếu có lượt giữ được trả
+    private boolean releaseHeld(long orderId, Set<Long> productIds) {
+        boolean released = false;
+        for (StockReservation reservation : stockReservationRepository.findByOrderIdAndStatus(orderId, ReservationStatus.HELD)) {
+            if (stockReservationRepository.updateStatus(reservation.getId(),
+                    ReservationStatus.HELD, ReservationStatus.RELEASED) == 0) {
+                continue;
+            }
+            productItemRepository.incrementStock(reservation.getProductItemId(), reservation.getAmount());
+            hotStockService.restock(reservation.getProductItemId(), reservation.getAmount());
+            // Nạp sau khi cộng kho, mỗi productItem chỉ có một lượt giữ trong đơn
+            productItemRepository.findById(reservation.getProductItemId())
+                    .ifPresent(productItem -> productIds.add(productItem.getProduct().getId()));
+            released = true;
+        }
+        return released;
+    }
+
+    public List<Long> findExpiredOrderIds(long now) {
+        return holds.entrySet().stream()
+                .filter(hold -> hold.getValue() <= now)
+                .map(Map.Entry::getKey)
+                .sorted()
+                .toList();
+    }
+
+    public int size() {
+        return holds.size();
+    }
+
+    private void forget(long orderId) {
+        holds.remove(orderId);
+    }
+}
@@ -0,0 +1,31 @@
+package com.ptit.coffee_shop.service;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+/**
+ * Trả lại kho cho các đơn VNPay quá hạn thanh toán.
+ * Tách khỏi {@link StockReservationService} để mỗi lần release chạy qua proxy, trong transaction riêng.
+ */
+@Component
+@Slf4j
+@RequiredArgsConstructor
+public class StockReservationSweeper {
+    private final StockReservationService stockReservationService;
+
+    // Tác vụ sẽ chạy mỗi phút
+    @Scheduled(fixedRate = 60000)
+    public void releaseExpired() {
+        for (long orderId : stockReservationService.findExpiredOrderIds(System.currentTimeMillis())) {
+            try {
+                if (stockReservationService.release(orderId)) {
+                    log.info("Released expired stock reservation of order {}", orderId);
+                }
+            } catch (Exception e) {
+                log.error("Cannot release stock reservation of order {}", orderId, e);
+            }
+        }
+    }
+}
@@ -15,6 +15,7 @@ import lombok.AllArgsConstructor;
 import lombok.RequiredArgsConstructor;
 import org.springframework.stereotype.Service;
 
+import java.util.Date;
 import java.util.Optional;
 
 @Service
@@ -24,6 +25,7 @@ public class TransactionService {
     private final UserRepository userRepository;
     private final OrderRepository orderRepository;
     private final MessageBuilder messageBuilder;
+    private final StockReservationService stockReservationService;
 
     public RespMessage addTransaction(TransactionRequest transactionRequest) {
         Optional<Order> orderOptional = orderRepository.findById(transactionRequest.getOrderId());
@@ -35,12 +37,27 @@ public class TransactionService {
             transaction.setCommand("pay");
             transaction.setPayDate(transactionRequest.getPayDate());
             transaction.setTxnRef(transactionRequest.getTxnRef());
+            boolean confirmed;
             try {
                 transactionRepository.save(transaction);
-                return messageBuilder.buildSuccessMessage(transaction.toTransactionResponse());
+                // Thanh toán VNPay thành công, hàng đang giữ cho đơn không bị sweeper trả lại nữa
+                confirmed = stockReservationService.confirm(orderOptional.get().getId());
             } catch (CoffeeShopException e) {
                 throw new CoffeeShopException(Constant.UNDEFINED, null, "Transaction could not be saved");
             }
+            if (!confirmed) {
+                // Callback đến sau khi đơn đã bị hủy và trả kho: ghi nhận hoàn tiền thay vì giao đơn
+                Transaction refund = new Transaction();
+                refund.setOrder(transaction.getOrder());
+                refund.setAmount(transaction.getAmount());
+                refund.setTransactionNo(transaction.getTransactionNo());
+                refund.setCommand("refund");
+                refund.setPayDate(new Date());
+                refund.setTxnRef(transaction.getTxnRef());
+                transactionRepository.save(refund);
+                throw new CoffeeShopException(Constant.FIELD_EXPIRED, new Object[]{"order"}, "Order was cancelled, payment will be refunded");
+            }
+            return messageBuilder.buildSuccessMessage(transaction.toTransactionResponse());
         } else {
             throw new CoffeeShopException(Constant.NOT_FOUND, null, "Order not found");
         }
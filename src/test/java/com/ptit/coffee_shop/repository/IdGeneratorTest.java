@@ -0,0 +1,86 @@
+package com.ptit.coffee_shop.repository;
+
+import com.ptit.coffee_shop.config.IdGeneratorInitializer;
+import com.ptit.coffee_shop.model.CartItem;
+import com.ptit.coffee_shop.model.ChatMessage;
+import jakarta.persistence.EntityManager;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+// Chạy trên H2 nhúng để kiểm tra id được cấp theo block từ bảng id_generator
+@DataJpaTest
+@Import(IdGeneratorInitializer.class)
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+public class IdGeneratorTest {
+
+    @Autowired
+    private EntityManager entityManager;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private IdGeneratorInitializer idGeneratorInitializer;
+
+    @Autowired
+    private CartItemRepository cartItemRepository;
+
+    private ChatMessage message(String content) {
+        ChatMessage chatMessage = new ChatMessage();
+        chatMessage.setContent(content);
+        return chatMessage;
+    }
+
+    @Test
+    public void persist_ShouldAssignIdsWithoutInsertingUntilFlush() {
+        new TransactionTemplate(transactionManager).executeWithoutResult(status -> {
+            long before = countMessages();
+            List<ChatMessage> messages = new ArrayList<>();
+            for (int i = 0; i < 120; i++) {
+                ChatMessage chatMessage = message("burst " + i);
+                entityManager.persist(chatMessage);
+                messages.add(chatMessage);
+            }
+
+            // Id đã có mà chưa chạy INSERT nào: Hibernate gom được INSERT thành batch khi flush
+            assertTrue(messages.stream().allMatch(chatMessage -> chatMessage.getId() > 0));
+            assertEquals(120, messages.stream().map(ChatMessage::getId).distinct().count());
+            assertEquals(before, countMessages());
+
+            entityManager.flush();
+            assertEquals(before + 120, countMessages());
+        });
+    }
+
+    @Test
+    public void alignWithExistingIds_ShouldMoveGeneratorAboveExistingRows() {
+        // Dòng cũ được tạo bằng AUTO_INCREMENT trước khi chuyển sang id_generator, segment cart_item chưa cấp block nào
+        jdbcTemplate.update("INSERT INTO \"cart_item\" (\"id\", \"quantity\") VALUES (?, ?)", 100000L, 1);
+
+        idGeneratorInitializer.alignWithExistingIds();
+        CartItem cartItem = new CartItem();
+        cartItem.setQuantity(2);
+        CartItem saved = cartItemRepository.save(cartItem);
+
+        assertTrue(saved.getId() > 100000L);
+    }
+
+    private long countMessages() {
+        return jdbcTemplate.queryForObject("SELECT COUNT(*) FROM \"chat_message\"", Long.class);
+    }
+}
@@ -0,0 +1,94 @@
+package com.ptit.coffee_shop.repository;
+
+import com.ptit.coffee_shop.common.enums.Status;
+import com.ptit.coffee_shop.model.*;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+// Chạy trên H2 nhúng, mỗi lần trừ kho commit trong transaction riêng như các đơn hàng thật
+@DataJpaTest
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+public class ProductItemStockConcurrencyTest {
+    private static final int BUYERS = 200;
+    private static final int STOCK = 50;
+
+    @Autowired
+    private ProductItemRepository productItemRepository;
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    @Autowired
+    private TypeProductRepository typeProductRepository;
+
+    @Autowired
+    private CategoryRepository categoryRepository;
+
+    @Autowired
+    private BrandRepository brandRepository;
+
+    private ProductItem productItem;
+
+    @BeforeEach
+    public void setUp() {
+        Category category = categoryRepository.save(new Category(0, "Category A", Status.ACTIVE, "no des", "no_image"));
+        Brand brand = brandRepository.save(new Brand(0, "Brand A", Status.ACTIVE));
+        Product product = productRepository.save(new Product(0, "Product A", "This is a product description",
+                category, brand, Status.ACTIVE));
+        TypeProduct typeProduct = typeProductRepository.save(new TypeProduct(0, "Type A", Status.ACTIVE));
+
+        productItem = new ProductItem();
+        productItem.setProduct(product);
+        productItem.setType(typeProduct);
+        productItem.setPrice(30000);
+        productItem.setStock(STOCK);
+        productItem = productItemRepository.save(productItem);
+    }
+
+    @Test
+    public void decrementStock_WithParallelBuyers_ShouldNeverOversell() throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(BUYERS);
+        CountDownLatch start = new CountDownLatch(1);
+        AtomicInteger sold = new AtomicInteger();
+        List<Future<?>> buyers = new ArrayList<>();
+        try {
+            for (int i = 0; i < BUYERS; i++) {
+                buyers.add(executor.submit(() -> {
+                    start.await();
+                    if (productItemRepository.decrementStock(productItem.getId(), 1) == 1) {
+                        sold.incrementAndGet();
+                    }
+                    return null;
+                }));
+            }
+            start.countDown();
+            for (Future<?> buyer : buyers) {
+                buyer.get(30, TimeUnit.SECONDS);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+
+        assertEquals(STOCK, sold.get());
+        assertEquals(0, productItemRepository.findById(productItem.getId()).orElseThrow().getStock());
+    }
+
+    @Test
+    public void decrementStock_WhenAmountGreaterThanStock_ShouldNotUpdate() {
+        assertEquals(0, productItemRepository.decrementStock(productItem.getId(), STOCK + 1));
+        assertEquals(1, productItemRepository.decrementStock(productItem.getId(), STOCK));
+        assertEquals(0, productItemRepository.decrementStock(productItem.getId(), 1));
+        assertEquals(0, productItemRepository.findById(productItem.getId()).orElseThrow().getStock());
+    }
+}
@@ -0,0 +1,70 @@
+package com.ptit.coffee_shop.repository;
+
+import com.ptit.coffee_shop.common.enums.Status;
+import com.ptit.coffee_shop.model.Product;
+import com.ptit.coffee_shop.model.ProductSummary;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+// Chạy trên H2 nhúng: sản phẩm thiếu dòng summary vẫn có trong catalog, sản phẩm chưa có giá nằm cuối khi sort theo giá
+@DataJpaTest
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+public class ProductPageQueryTest {
+
+    @Autowired private ProductRepository productRepository;
+    @Autowired private ProductSummaryRepository productSummaryRepository;
+
+    private Product cheap;
+    private Product expensive;
+    private Product soldOut;
+    private Product withoutSummary;
+
+    @BeforeEach
+    public void setUp() {
+        expensive = product("Expensive", 45000, 4.5, 3);
+        soldOut = product("Sold out", 0, 5.0, 9);
+        withoutSummary = productRepository.save(new Product(0, "Without summary", "description", null, null, Status.ACTIVE));
+        cheap = product("Cheap", 20000, 3.0, 1);
+    }
+
+    private Product product(String name, double minPrice, double rating, int totalSold) {
+        Product product = productRepository.save(new Product(0, name, "description", null, null, Status.ACTIVE));
+        productSummaryRepository.save(ProductSummary.builder().productId(product.getId())
+                .minPrice(minPrice).maxPrice(minPrice).rating(rating).totalSold(totalSold).build());
+        return product;
+    }
+
+    // H2 dùng chung giữa các test class, chỉ xét các sản phẩm do test này tạo
+    private List<Long> ids(List<Object[]> rows) {
+        List<Long> created = List.of(cheap.getId(), expensive.getId(), soldOut.getId(), withoutSummary.getId());
+        return rows.stream().map(row -> ((Product) row[0]).getId()).filter(created::contains).toList();
+    }
+
+    @Test
+    public void findActivePageByPrice_ShouldPutProductsWithoutPriceLast() {
+        List<Object[]> rows = productRepository.findActivePageByPrice(-1, 0, PageRequest.of(0, 1000));
+        assertEquals(List.of(cheap.getId(), expensive.getId(), soldOut.getId(), withoutSummary.getId()), ids(rows));
+
+        // Cursor nằm giữa các sản phẩm chưa có giá vẫn đi tiếp theo id
+        List<Object[]> next = productRepository.findActivePageByPrice(Double.parseDouble(ProductRepository.NO_PRICE),
+                soldOut.getId(), PageRequest.of(0, 1000));
+        assertEquals(List.of(withoutSummary.getId()), ids(next));
+    }
+
+    @Test
+    public void findActivePageByRatingAndBestSelling_ShouldIncludeProductsWithoutSummary() {
+        assertEquals(List.of(soldOut.getId(), expensive.getId(), cheap.getId(), withoutSummary.getId()),
+                ids(productRepository.findActivePageByRating(Double.MAX_VALUE, Long.MAX_VALUE, PageRequest.of(0, 1000))));
+        assertEquals(List.of(soldOut.getId(), expensive.getId(), cheap.getId(), withoutSummary.getId()),
+                ids(productRepository.findActivePageByBestSelling(Integer.MAX_VALUE, Long.MAX_VALUE, PageRequest.of(0, 1000))));
+    }
+}
@@ -0,0 +1,81 @@
+package com.ptit.coffee_shop.repository;
+
+import com.ptit.coffee_shop.common.enums.OrderStatus;
+import com.ptit.coffee_shop.common.enums.PaymentMethod;
+import com.ptit.coffee_shop.common.enums.Status;
+import com.ptit.coffee_shop.model.*;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.Date;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+// Chạy trên H2 ở chế độ MySQL để dùng đúng câu ON DUPLICATE KEY UPDATE của production:
+// upsert tạo dòng summary còn thiếu và ghi đè dòng đã có
+@DataJpaTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:product_summary;MODE=MySQL;DATABASE_TO_LOWER=TRUE;DB_CLOSE_DELAY=-1",
+        "spring.datasource.driver-class-name=org.h2.Driver"
+})
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+public class ProductSummaryRepositoryTest {
+
+    @Autowired private ProductSummaryRepository productSummaryRepository;
+    @Autowired private ProductRepository productRepository;
+    @Autowired private ProductItemRepository productItemRepository;
+    @Autowired private OrderRepository orderRepository;
+    @Autowired private OrderItemRepository orderItemRepository;
+
+    private ProductItem productItem(Product product, double price, int stock) {
+        ProductItem productItem = new ProductItem();
+        productItem.setProduct(product);
+        productItem.setPrice(price);
+        productItem.setStock(stock);
+        return productItemRepository.save(productItem);
+    }
+
+    private void saveItem(ProductItem productItem, OrderStatus status, int amount) {
+        Order order = new Order();
+        order.setStatus(status);
+        order.setPaymentMethod(PaymentMethod.COD);
+        order.setOrderDate(new Date());
+        orderRepository.save(order);
+        OrderItem orderItem = new OrderItem();
+        orderItem.setOrder(order);
+        orderItem.setProductItem(productItem);
+        orderItem.setPrice(productItem.getPrice());
+        orderItem.setAmount(amount);
+        orderItemRepository.save(orderItem);
+    }
+
+    @Test
+    public void upsert_ShouldComputeSummaryInDatabase() {
+        Product latte = productRepository.save(new Product(0, "Latte", "description", null, null, Status.ACTIVE));
+        Product empty = productRepository.save(new Product(0, "Empty", "description", null, null, Status.ACTIVE));
+        ProductItem small = productItem(latte, 30000, 10);
+        productItem(latte, 45000, 5);
+        productItem(latte, 99000, 0);
+        productSummaryRepository.save(ProductSummary.builder().productId(latte.getId()).totalSold(99).build());
+        saveItem(small, OrderStatus.Completed, 2);
+        saveItem(small, OrderStatus.Cancelled, 7);
+
+        // ON DUPLICATE KEY UPDATE đếm 2 cho dòng được ghi đè và 1 cho dòng mới
+        assertEquals(3, productSummaryRepository.upsert(List.of(latte.getId(), empty.getId())));
+
+        ProductSummary summary = productSummaryRepository.findById(latte.getId()).orElseThrow();
+        assertEquals(2, summary.getTotalSold());
+        assertEquals(30000, summary.getMinPrice());
+        assertEquals(45000, summary.getMaxPrice());
+        assertEquals(0, summary.getTotalReview());
+        assertNotNull(summary.getUpdatedAt());
+        ProductSummary created = productSummaryRepository.findById(empty.getId()).orElseThrow();
+        assertEquals(0, created.getTotalSold());
+        assertEquals(0, created.getMinPrice());
+    }
+}
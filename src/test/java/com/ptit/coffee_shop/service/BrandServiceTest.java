@@ -1,5 +1,6 @@
 package com.ptit.coffee_shop.service;
 
+import com.ptit.coffee_shop.common.CatalogChangedEvent;
 import com.ptit.coffee_shop.common.Constant;
 import com.ptit.coffee_shop.common.enums.Status;
 import com.ptit.coffee_shop.config.MessageBuilder;
@@ -7,11 +8,13 @@ import com.ptit.coffee_shop.exception.CoffeeShopException;
 import com.ptit.coffee_shop.model.Brand;
 import com.ptit.coffee_shop.payload.response.RespMessage;
 import com.ptit.coffee_shop.repository.BrandRepository;
+import com.ptit.coffee_shop.repository.ProductRepository;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.context.ApplicationEventPublisher;
 
 import java.util.Collections;
 import java.util.List;
@@ -27,9 +30,15 @@ class BrandServiceTest {
     @Mock
     private BrandRepository brandRepository;
 
+    @Mock
+    private ProductRepository productRepository;
+
     @Mock
     private MessageBuilder messageBuilder;
 
+    @Mock
+    private ApplicationEventPublisher eventPublisher;
+
     @InjectMocks
     private BrandService brandService;
 
@@ -124,6 +133,7 @@ class BrandServiceTest {
         when(brandRepository.findById(1L)).thenReturn(Optional.of(existingBrand));
         when(brandRepository.findByName("New Name")).thenReturn(Optional.empty());
         when(brandRepository.save(existingBrand)).thenReturn(updatedBrandSaved);
+        when(productRepository.findIdsByBrandId(1L)).thenReturn(List.of(5L, 6L));
         when(messageBuilder.buildSuccessMessage(updatedBrandSaved)).thenReturn(
                 createRespMessage(Constant.SUCCESS, "Success", updatedBrandSaved));
 
@@ -138,6 +148,8 @@ class BrandServiceTest {
         verify(brandRepository).findById(1L);
         verify(brandRepository).findByName("New Name");
         verify(brandRepository).save(existingBrand);
+        // Các sản phẩm của brand được gửi kèm để index tìm kiếm và gợi ý cập nhật tên mới
+        verify(eventPublisher).publishEvent(new CatalogChangedEvent(CatalogChangedEvent.BRAND, List.of(5L, 6L)));
         verify(messageBuilder).buildSuccessMessage(updatedBrandSaved);
     }
 
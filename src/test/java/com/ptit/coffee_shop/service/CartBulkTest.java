@@ -0,0 +1,140 @@
+package com.ptit.coffee_shop.service;
+
+import com.ptit.coffee_shop.common.enums.Status;
+import com.ptit.coffee_shop.config.MessageBuilder;
+import com.ptit.coffee_shop.model.*;
+import com.ptit.coffee_shop.payload.request.CartItemBulkRequest;
+import com.ptit.coffee_shop.payload.request.CartItemRequest;
+import com.ptit.coffee_shop.payload.response.CartItemResult;
+import com.ptit.coffee_shop.payload.response.RespMessage;
+import com.ptit.coffee_shop.repository.BrandRepository;
+import com.ptit.coffee_shop.repository.CartItemRepository;
+import com.ptit.coffee_shop.repository.CategoryRepository;
+import com.ptit.coffee_shop.repository.ProductItemRepository;
+import com.ptit.coffee_shop.repository.ProductRepository;
+import com.ptit.coffee_shop.repository.TypeProductRepository;
+import com.ptit.coffee_shop.repository.UserRepository;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.context.annotation.Import;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.when;
+
+// Chạy trên H2 nhúng: thêm nhiều sản phẩm vào giỏ tốn số câu SQL cố định dù request có bao nhiêu dòng
+@DataJpaTest(properties = "spring.jpa.properties.hibernate.generate_statistics=true")
+@Import({CartService.class, CartStore.class})
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+public class CartBulkTest {
+
+    @MockBean private MessageBuilder messageBuilder;
+    @MockBean private ProductService productService;
+
+    @Autowired private CartService cartService;
+    @Autowired private CartStore cartStore;
+    @Autowired private EntityManagerFactory entityManagerFactory;
+    @Autowired private CartItemRepository cartItemRepository;
+    @Autowired private UserRepository userRepository;
+    @Autowired private ProductItemRepository productItemRepository;
+    @Autowired private ProductRepository productRepository;
+    @Autowired private TypeProductRepository typeProductRepository;
+    @Autowired private CategoryRepository categoryRepository;
+    @Autowired private BrandRepository brandRepository;
+
+    private User user;
+    private final List<ProductItem> productItems = new ArrayList<>();
+    private CartItem existingLine;
+
+    @BeforeEach
+    public void setUp() {
+        when(messageBuilder.buildSuccessMessage(any())).thenAnswer(invocation ->
+                RespMessage.builder().respCode("000").data(invocation.getArgument(0)).build());
+        Category category = categoryRepository.save(new Category(0, "Category B", Status.ACTIVE, "no des", "no_image"));
+        Brand brand = brandRepository.save(new Brand(0, "Brand B", Status.ACTIVE));
+        TypeProduct typeProduct = typeProductRepository.save(new TypeProduct(0, "Type B", Status.ACTIVE));
+        productItems.clear();
+        for (int i = 0; i < 8; i++) {
+            Product product = productRepository.save(new Product(0, "Combo " + i, "description", category, brand, Status.ACTIVE));
+            ProductItem productItem = new ProductItem();
+            productItem.setProduct(product);
+            productItem.setType(typeProduct);
+            productItem.setPrice(30000);
+            productItem.setStock(100);
+            productItems.add(productItemRepository.save(productItem));
+        }
+        user = new User();
+        user.setEmail("bulk-cart-" + System.nanoTime() + "@example.com");
+        user.setPassword("password");
+        userRepository.save(user);
+        existingLine = cartItemRepository.save(CartItem.builder().user(user).productItem(productItems.get(0)).quantity(1).build());
+    }
+
+    private CartItemRequest item(long productItemId, int quantity) {
+        return new CartItemRequest(quantity, productItemId, 0);
+    }
+
+    @SuppressWarnings("unchecked")
+    private List<CartItemResult> addAll(List<CartItemRequest> items) {
+        return (List<CartItemResult>) cartService.addCartItems(new CartItemBulkRequest(user.getId(), items)).getData();
+    }
+
+    @Test
+    public void addCartItems_ShouldUpsertAllLinesWithPerLineResults() {
+        List<CartItemResult> results = addAll(List.of(
+                item(productItems.get(0).getId(), 2),
+                item(productItems.get(1).getId(), 1),
+                item(productItems.get(2).getId(), 1),
+                item(productItems.get(1).getId(), 1),
+                item(Long.MAX_VALUE, 1),
+                item(productItems.get(3).getId(), 0)));
+
+        assertEquals(5, results.size());
+        CartItemResult existing = results.get(0);
+        assertTrue(existing.isSuccess());
+        assertEquals(existingLine.getId(), existing.getCartItemId());
+        assertEquals(3, existing.getQuantity());
+        assertTrue(results.get(1).isSuccess());
+        assertEquals(2, results.get(1).getQuantity());
+        assertTrue(results.get(2).isSuccess());
+        assertEquals("ProductItem not found", results.get(3).getMessage());
+        assertFalse(results.get(4).isSuccess());
+        assertEquals("Quantity must be greater than 0", results.get(4).getMessage());
+
+        // Dòng mới có ngay trong cart_item, số lượng của dòng cũ được CartStore ghi trễ
+        cartStore.flush();
+        List<CartItem> stored = cartItemRepository.findByUserId(user.getId());
+        assertEquals(3, stored.size());
+        assertEquals(6, stored.stream().mapToInt(CartItem::getQuantity).sum());
+        assertEquals(3, cartStore.find(user.getId(), productItems.get(0).getId()).quantity());
+    }
+
+    @Test
+    public void addCartItems_ShouldUseOneQueryForProductsAndOneForCart() {
+        List<CartItemRequest> items = new ArrayList<>();
+        for (int i = 1; i < productItems.size(); i++) {
+            items.add(item(productItems.get(i).getId(), 1));
+        }
+        Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+
+        List<CartItemResult> results = addAll(items);
+
+        assertTrue(results.stream().allMatch(CartItemResult::isSuccess));
+        // Không có câu SELECT phụ cho từng sản phẩm, user hay dòng giỏ hàng
+        assertEquals(2, statistics.getQueryExecutionCount());
+        assertEquals(0, statistics.getEntityFetchCount());
+        assertEquals(items.size(), statistics.getEntityInsertCount());
+    }
+}
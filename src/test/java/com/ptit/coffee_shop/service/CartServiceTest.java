@@ -4,6 +4,7 @@ import com.ptit.coffee_shop.common.Constant;
 import com.ptit.coffee_shop.config.MessageBuilder;
 import com.ptit.coffee_shop.exception.CoffeeShopException;
 import com.ptit.coffee_shop.model.*;
+import com.ptit.coffee_shop.payload.request.CartItemBulkRequest;
 import com.ptit.coffee_shop.payload.request.CartItemRequest;
 import com.ptit.coffee_shop.payload.response.CartItemResponse;
 import com.ptit.coffee_shop.payload.response.ProductItemResponse;
@@ -30,6 +31,7 @@ import java.util.Optional;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
 import static org.mockito.Mockito.*;
 
 @ExtendWith(MockitoExtension.class)
@@ -54,6 +56,9 @@ class CartServiceTest {
     @Mock
     private ProductService productService;
 
+    @Mock
+    private CartStore cartStore;
+
     @InjectMocks
     private CartService cartService;
 
@@ -121,7 +126,7 @@ class CartServiceTest {
             // Arrange
             when(productItemRepository.findById(1L)).thenReturn(Optional.of(testProductItem));
             when(userRepository.findById(1L)).thenReturn(Optional.of(testUser));
-            when(cartItemRepository.findByUserIdAndProductItemId(1L, 1L)).thenReturn(Optional.empty());
+            when(cartStore.addQuantity(1L, 1L, 1)).thenReturn(null);
             when(cartItemRepository.save(any(CartItem.class))).thenReturn(testCartItem);
             when(messageBuilder.buildSuccessMessage(any())).thenReturn(successResponse);
             when(productService.getProductResponse(any())).thenReturn(new ProductResponse());
@@ -133,20 +138,25 @@ class CartServiceTest {
             assertNotNull(result);
             assertEquals(Constant.SUCCESS, result.getRespCode());
             verify(cartItemRepository).save(any(CartItem.class));
-            verify(cartItemRepository, times(1)).findByUserIdAndProductItemId(1L, 1L);
+            verify(cartStore).put(any(CartItem.class));
         }
 
         @Test
         @DisplayName("TC2 - Cập nhật số lượng sản phẩm đã có trong giỏ hàng")
         void addCartItem_Success_ExistingItem() {
             // Input: CartItemRequest với sản phẩm đã có trong giỏ
-            // Expected: Cập nhật số lượng thành công và trả về RespMessage với code 000
+            // Expected: Cộng số lượng trong CartStore, không ghi cart_item, giá trả về lấy từ product_item mới đọc
 
             // Arrange
-            when(productItemRepository.findById(1L)).thenReturn(Optional.of(testProductItem));
+            ProductItem repriced = ProductItem.builder()
+                    .id(1L)
+                    .price(12.0)
+                    .stock(100)
+                    .product(testProduct)
+                    .build();
+            when(productItemRepository.findById(1L)).thenReturn(Optional.of(repriced));
             when(userRepository.findById(1L)).thenReturn(Optional.of(testUser));
-            when(cartItemRepository.findByUserIdAndProductItemId(1L, 1L)).thenReturn(Optional.of(testCartItem));
-            when(cartItemRepository.save(any(CartItem.class))).thenReturn(testCartItem);
+            when(cartStore.addQuantity(1L, 1L, 1)).thenReturn(new CartStore.CartLine(1L, testProductItem, 2));
             when(messageBuilder.buildSuccessMessage(any())).thenReturn(successResponse);
             when(productService.getProductResponse(any())).thenReturn(new ProductResponse());
 
@@ -156,8 +166,10 @@ class CartServiceTest {
             // Assert
             assertNotNull(result);
             assertEquals(Constant.SUCCESS, result.getRespCode());
-            verify(cartItemRepository).save(any(CartItem.class));
-            assertEquals(2, testCartItem.getQuantity()); // Quantity should be incremented
+            verify(cartItemRepository, never()).save(any(CartItem.class));
+            verify(messageBuilder).buildSuccessMessage(argThat(data -> data instanceof CartItemResponse response
+                    && response.getProductItemResponse().getPrice() == 12.0
+                    && response.getQuantity() == 2));
         }
 
         @Test
@@ -227,6 +239,7 @@ class CartServiceTest {
             CoffeeShopException exception = assertThrows(CoffeeShopException.class,
                     () -> cartService.addCartItem(validCartItemRequest));
             assertEquals(Constant.FIELD_NOT_FOUND, exception.getCode());
+            verifyNoInteractions(cartStore);
         }
 
         @Test
@@ -243,6 +256,8 @@ class CartServiceTest {
             CoffeeShopException exception = assertThrows(CoffeeShopException.class,
                     () -> cartService.addCartItem(validCartItemRequest));
             assertEquals(Constant.FIELD_NOT_FOUND, exception.getCode());
+            // Số lượng trong bộ nhớ không được cộng khi request bị từ chối
+            verifyNoInteractions(cartStore);
         }
     }
 
@@ -259,7 +274,7 @@ class CartServiceTest {
             List<CartItem> cartItems = Collections.singletonList(testCartItem);
             when(cartItemRepository.findByUserId(1L)).thenReturn(cartItems);
             when(messageBuilder.buildSuccessMessage(any())).thenReturn(successResponse);
-            when(productService.getProductResponse(any())).thenReturn(new ProductResponse());
+            when(productService.getProductResponses(anyList())).thenReturn(List.of(new ProductResponse()));
 
             // Act
             RespMessage result = cartService.getCartItems(1L);
@@ -268,6 +283,8 @@ class CartServiceTest {
             assertNotNull(result);
             assertEquals(Constant.SUCCESS, result.getRespCode());
             verify(cartItemRepository).findByUserId(1L);
+            verify(productService).getProductResponses(List.of(testProduct));
+            verify(productService, never()).getProductResponse(any());
         }
 
         @Test
@@ -312,10 +329,10 @@ class CartServiceTest {
             // Expected: Cập nhật thành công và trả về RespMessage với code 000
 
             // Arrange
+            CartStore.CartLine cartLine = new CartStore.CartLine(1L, testProductItem, 3);
+            when(cartStore.find(1L, 1L)).thenReturn(cartLine);
             when(productItemRepository.findById(1L)).thenReturn(Optional.of(testProductItem));
-            when(userRepository.findById(1L)).thenReturn(Optional.of(testUser));
-            when(cartItemRepository.findByUserIdAndProductItemId(1L, 1L)).thenReturn(Optional.of(testCartItem));
-            when(cartItemRepository.save(any(CartItem.class))).thenReturn(testCartItem);
+            when(cartStore.setQuantity(1L, 1L, 1)).thenReturn(cartLine);
             when(messageBuilder.buildSuccessMessage(any(String.class))).thenReturn(successResponse);
 
             // Act
@@ -324,7 +341,8 @@ class CartServiceTest {
             // Assert
             assertNotNull(result);
             assertEquals(Constant.SUCCESS, result.getRespCode());
-            verify(cartItemRepository).save(any(CartItem.class));
+            verify(cartStore).setQuantity(1L, 1L, 1);
+            verify(cartItemRepository, never()).save(any(CartItem.class));
         }
 
         @Test
@@ -339,9 +357,8 @@ class CartServiceTest {
             invalidRequest.setProductItemId(1L);
             invalidRequest.setQuantity(101); // Stock is 100
 
+            when(cartStore.find(1L, 1L)).thenReturn(new CartStore.CartLine(1L, testProductItem, 1));
             when(productItemRepository.findById(1L)).thenReturn(Optional.of(testProductItem));
-            when(userRepository.findById(1L)).thenReturn(Optional.of(testUser));
-            when(cartItemRepository.findByUserIdAndProductItemId(1L, 1L)).thenReturn(Optional.of(testCartItem));
 
             // Act & Assert
             CoffeeShopException exception = assertThrows(CoffeeShopException.class,
@@ -349,6 +366,34 @@ class CartServiceTest {
             assertEquals(Constant.FIELD_NOT_VALID, exception.getCode());
         }
 
+        @Test
+        @DisplayName("TC12b - Cập nhật số lượng vượt tồn kho hiện tại dù tồn kho trong giỏ còn đủ")
+        void updateCartItem_ShouldCheckCurrentStock() {
+            // Input: Dòng giỏ nạp lúc stock = 100, product_item hiện chỉ còn 50, request quantity = 60
+            // Expected: Ném ra CoffeeShopException với code 101, không đổi số lượng
+
+            // Arrange
+            CartItemRequest request = new CartItemRequest();
+            request.setUserId(1L);
+            request.setProductItemId(1L);
+            request.setQuantity(60);
+            ProductItem current = ProductItem.builder()
+                    .id(1L)
+                    .price(10.0)
+                    .stock(50)
+                    .product(testProduct)
+                    .build();
+
+            when(cartStore.find(1L, 1L)).thenReturn(new CartStore.CartLine(1L, testProductItem, 1));
+            when(productItemRepository.findById(1L)).thenReturn(Optional.of(current));
+
+            // Act & Assert
+            CoffeeShopException exception = assertThrows(CoffeeShopException.class,
+                    () -> cartService.updateCartItem(request));
+            assertEquals(Constant.FIELD_NOT_VALID, exception.getCode());
+            verify(cartStore, never()).setQuantity(anyLong(), anyLong(), anyInt());
+        }
+
         @Test
         @DisplayName("TC13 - Cập nhật sản phẩm không tồn tại trong giỏ")
         void updateCartItem_ItemNotFound() {
@@ -356,9 +401,7 @@ class CartServiceTest {
             // Expected: Ném ra CoffeeShopException với code 103
 
             // Arrange
-            when(productItemRepository.findById(1L)).thenReturn(Optional.of(testProductItem));
-            when(userRepository.findById(1L)).thenReturn(Optional.of(testUser));
-            when(cartItemRepository.findByUserIdAndProductItemId(1L, 1L)).thenReturn(Optional.empty());
+            when(cartStore.find(1L, 1L)).thenReturn(null);
 
             // Act & Assert
             CoffeeShopException exception = assertThrows(CoffeeShopException.class,
@@ -378,10 +421,6 @@ class CartServiceTest {
             invalidRequest.setProductItemId(1L);
             invalidRequest.setQuantity(0);
 
-            when(productItemRepository.findById(1L)).thenReturn(Optional.of(testProductItem));
-            when(userRepository.findById(1L)).thenReturn(Optional.of(testUser));
-            when(cartItemRepository.findByUserIdAndProductItemId(1L, 1L)).thenReturn(Optional.of(testCartItem));
-
             // Act & Assert
             CoffeeShopException exception = assertThrows(CoffeeShopException.class,
                     () -> cartService.updateCartItem(invalidRequest));
@@ -409,6 +448,7 @@ class CartServiceTest {
             assertNotNull(result);
             assertEquals(Constant.SUCCESS, result.getRespCode());
             verify(cartItemRepository).delete(testCartItem);
+            verify(cartStore).remove(1L, 1L);
         }
 
         @Test
@@ -456,4 +496,36 @@ class CartServiceTest {
             assertEquals(productResponse.getId(), result.getProductResponse().getId());
         }
     }
-}
\ No newline at end of file
+
+    @Nested
+    @DisplayName("TC18-19: Test addCartItems")
+    class AddCartItemsTest {
+        @Test
+        @DisplayName("TC18 - Thêm nhiều sản phẩm với danh sách rỗng")
+        void addCartItems_EmptyItems() {
+            // Input: CartItemBulkRequest không có dòng nào
+            // Expected: Ném ra CoffeeShopException với code 100, không truy vấn DB
+
+            // Act & Assert
+            CoffeeShopException exception = assertThrows(CoffeeShopException.class,
+                    () -> cartService.addCartItems(new CartItemBulkRequest(1L, List.of())));
+            assertEquals(Constant.FIELD_NOT_NULL, exception.getCode());
+            verifyNoInteractions(userRepository, productItemRepository, cartStore);
+        }
+
+        @Test
+        @DisplayName("TC19 - Thêm nhiều sản phẩm vượt giới hạn một request")
+        void addCartItems_TooManyItems() {
+            // Input: CartItemBulkRequest có nhiều hơn MAX_BULK_SIZE dòng
+            // Expected: Ném ra CoffeeShopException với code 101
+
+            // Arrange
+            List<CartItemRequest> items = Collections.nCopies(CartService.MAX_BULK_SIZE + 1, validCartItemRequest);
+
+            // Act & Assert
+            CoffeeShopException exception = assertThrows(CoffeeShopException.class,
+                    () -> cartService.addCartItems(new CartItemBulkRequest(1L, items)));
+            assertEquals(Constant.FIELD_NOT_VALID, exception.getCode());
+        }
+    }
+}
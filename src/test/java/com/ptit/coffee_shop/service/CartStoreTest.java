@@ -0,0 +1,159 @@
+package com.ptit.coffee_shop.service;
+
+import com.ptit.coffee_shop.common.enums.Status;
+import com.ptit.coffee_shop.model.*;
+import com.ptit.coffee_shop.repository.BrandRepository;
+import com.ptit.coffee_shop.repository.CartItemRepository;
+import com.ptit.coffee_shop.repository.CategoryRepository;
+import com.ptit.coffee_shop.repository.ProductItemRepository;
+import com.ptit.coffee_shop.repository.ProductRepository;
+import com.ptit.coffee_shop.repository.TypeProductRepository;
+import com.ptit.coffee_shop.repository.UserRepository;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+// Chạy trên H2 nhúng: số lượng giỏ hàng được ghi trễ theo batch và chỉ mất phần chưa flush khi crash
+@DataJpaTest(properties = "spring.jpa.properties.hibernate.generate_statistics=true")
+@Import(CartStore.class)
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+public class CartStoreTest {
+
+    @Autowired private CartStore cartStore;
+    @Autowired private PlatformTransactionManager transactionManager;
+    @Autowired private EntityManagerFactory entityManagerFactory;
+    @Autowired private CartItemRepository cartItemRepository;
+    @Autowired private UserRepository userRepository;
+    @Autowired private ProductItemRepository productItemRepository;
+    @Autowired private ProductRepository productRepository;
+    @Autowired private TypeProductRepository typeProductRepository;
+    @Autowired private CategoryRepository categoryRepository;
+    @Autowired private BrandRepository brandRepository;
+
+    private User user;
+    private User otherUser;
+    private ProductItem latte;
+    private ProductItem mocha;
+    private CartItem latteLine;
+    private CartItem mochaLine;
+
+    @BeforeEach
+    public void setUp() {
+        // CartStore dùng chung giữa các test, trả lại giới hạn mặc định
+        ReflectionTestUtils.setField(cartStore, "maxCarts", 10000);
+        Category category = categoryRepository.save(new Category(0, "Category C", Status.ACTIVE, "no des", "no_image"));
+        Brand brand = brandRepository.save(new Brand(0, "Brand C", Status.ACTIVE));
+        TypeProduct typeProduct = typeProductRepository.save(new TypeProduct(0, "Type C", Status.ACTIVE));
+        latte = productItem(productRepository.save(new Product(0, "Latte", "description", category, brand, Status.ACTIVE)), typeProduct);
+        mocha = productItem(productRepository.save(new Product(0, "Mocha", "description", category, brand, Status.ACTIVE)), typeProduct);
+        user = user("cart-");
+        otherUser = user("other-cart-");
+        latteLine = cartItemRepository.save(CartItem.builder().user(user).productItem(latte).quantity(1).build());
+        mochaLine = cartItemRepository.save(CartItem.builder().user(user).productItem(mocha).quantity(1).build());
+        cartItemRepository.save(CartItem.builder().user(otherUser).productItem(latte).quantity(1).build());
+    }
+
+    private ProductItem productItem(Product product, TypeProduct typeProduct) {
+        ProductItem productItem = new ProductItem();
+        productItem.setProduct(product);
+        productItem.setType(typeProduct);
+        productItem.setPrice(30000);
+        productItem.setStock(100);
+        return productItemRepository.save(productItem);
+    }
+
+    private User user(String prefix) {
+        User user = new User();
+        user.setEmail(prefix + System.nanoTime() + "@example.com");
+        user.setPassword("password");
+        return userRepository.save(user);
+    }
+
+    private int storedQuantity(CartItem cartItem) {
+        return cartItemRepository.findById(cartItem.getId()).orElseThrow().getQuantity();
+    }
+
+    @Test
+    public void addQuantity_ShouldAbsorbTapsInMemoryAndFlushThemAsOneBatch() {
+        Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        assertEquals(1, cartStore.find(user.getId(), latte.getId()).quantity());
+
+        statistics.clear();
+        for (int i = 0; i < 10; i++) {
+            cartStore.addQuantity(user.getId(), latte.getId(), 1);
+            cartStore.addQuantity(user.getId(), mocha.getId(), 1);
+        }
+        cartStore.setQuantity(user.getId(), mocha.getId(), 4);
+        assertEquals(0, statistics.getPrepareStatementCount());
+        assertEquals(1, storedQuantity(latteLine));
+        assertEquals(11, cartStore.quantities(user.getId()).get(latteLine.getId()));
+
+        statistics.clear();
+        // Mỗi dòng chỉ ghi số lượng cuối cùng, một UPDATE cho mỗi giá trị quantity
+        assertEquals(2, cartStore.flush());
+        assertEquals(2, statistics.getPrepareStatementCount());
+        assertEquals(11, storedQuantity(latteLine));
+        assertEquals(4, storedQuantity(mochaLine));
+        assertEquals(0, cartStore.flush());
+    }
+
+    @Test
+    public void crash_ShouldOnlyLoseQuantitiesChangedSinceLastFlush() {
+        cartStore.addQuantity(user.getId(), latte.getId(), 2);
+        cartStore.flush();
+        cartStore.addQuantity(user.getId(), latte.getId(), 5);
+        // Dòng đã xóa không được flush tạo lại
+        cartStore.addQuantity(user.getId(), mocha.getId(), 1);
+        cartItemRepository.delete(mochaLine);
+        cartStore.remove(user.getId(), mochaLine.getId());
+        cartStore.addQuantity(user.getId(), latte.getId(), 1);
+
+        // Crash: bộ nhớ mất, instance mới nạp lại giỏ từ cart_item
+        CartStore restarted = new CartStore(cartItemRepository, transactionManager);
+        assertEquals(3, restarted.find(user.getId(), latte.getId()).quantity());
+        assertNull(restarted.find(user.getId(), mocha.getId()));
+
+        cartStore.flush();
+        assertEquals(9, storedQuantity(latteLine));
+        assertTrue(cartItemRepository.findById(mochaLine.getId()).isEmpty());
+    }
+
+    @Test
+    public void evict_WhenStoreIsFull_ShouldWriteBackEldestCartFirst() {
+        ReflectionTestUtils.setField(cartStore, "maxCarts", 1);
+        cartStore.addQuantity(user.getId(), latte.getId(), 3);
+
+        cartStore.find(otherUser.getId(), latte.getId());
+
+        assertEquals(1, cartStore.size());
+        assertEquals(4, storedQuantity(latteLine));
+        assertTrue(cartStore.quantities(user.getId()).isEmpty());
+        assertEquals(4, cartStore.find(user.getId(), latte.getId()).quantity());
+    }
+
+    @Test
+    public void flush_OnCheckout_ShouldOnlyWriteBuyerCart() {
+        cartStore.addQuantity(user.getId(), latte.getId(), 1);
+        cartStore.addQuantity(otherUser.getId(), latte.getId(), 1);
+
+        assertEquals(1, cartStore.flush(List.of(user.getId())));
+
+        assertEquals(2, storedQuantity(latteLine));
+        assertEquals(List.of(1), cartItemRepository.findByUserId(otherUser.getId()).stream()
+                .map(CartItem::getQuantity).toList());
+        assertEquals(1, cartStore.flush());
+    }
+}
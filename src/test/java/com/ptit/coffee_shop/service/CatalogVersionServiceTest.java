@@ -0,0 +1,48 @@
+package com.ptit.coffee_shop.service;
+
+import com.ptit.coffee_shop.common.CatalogChangedEvent;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CatalogVersionServiceTest {
+
+    private final CatalogVersionService catalogVersionService = new CatalogVersionService();
+
+    @Test
+    void etag_ShouldChangeAfterCatalogChanged() {
+        String before = catalogVersionService.etag("brand-all", catalogVersionService.getVersion(CatalogChangedEvent.BRAND));
+
+        catalogVersionService.onCatalogChanged(new CatalogChangedEvent(CatalogChangedEvent.BRAND));
+
+        String after = catalogVersionService.etag("brand-all", catalogVersionService.getVersion(CatalogChangedEvent.BRAND));
+        assertNotEquals(before, after);
+        assertEquals(1, catalogVersionService.getVersion(CatalogChangedEvent.BRAND));
+        assertTrue(after.startsWith("\"brand-all-") && after.endsWith("-1\""));
+        assertNotEquals(after, catalogVersionService.etag("category-all", 1));
+    }
+
+    @Test
+    void getVersion_ShouldOnlyChangeForTheChangedResource() {
+        catalogVersionService.onCatalogChanged(new CatalogChangedEvent(CatalogChangedEvent.PRODUCT_SUMMARY, List.of(1L)));
+        catalogVersionService.onCatalogChanged(new CatalogChangedEvent(CatalogChangedEvent.PRODUCT_ITEM));
+        catalogVersionService.onCatalogChanged(new CatalogChangedEvent(CatalogChangedEvent.CATEGORY));
+
+        assertEquals(1, catalogVersionService.getVersion(CatalogChangedEvent.CATEGORY));
+        assertEquals(0, catalogVersionService.getVersion(CatalogChangedEvent.BRAND));
+        assertEquals(0, catalogVersionService.getVersion(CatalogChangedEvent.TYPE_PRODUCT));
+    }
+
+    @Test
+    void matches_ShouldHandleListsWeakTagsAndWildcard() {
+        String etag = catalogVersionService.etag("category-all", 0);
+
+        assertTrue(CatalogVersionService.matches(etag, etag));
+        assertTrue(CatalogVersionService.matches("\"other\", W/" + etag, etag));
+        assertTrue(CatalogVersionService.matches("*", etag));
+        assertFalse(CatalogVersionService.matches("\"other\"", etag));
+        assertFalse(CatalogVersionService.matches(null, etag));
+    }
+}
@@ -0,0 +1,123 @@
+package com.ptit.coffee_shop.service;
+
+import com.ptit.coffee_shop.common.enums.OrderStatus;
+import com.ptit.coffee_shop.common.enums.PaymentMethod;
+import com.ptit.coffee_shop.model.Order;
+import com.ptit.coffee_shop.model.OrderItem;
+import com.ptit.coffee_shop.model.Product;
+import com.ptit.coffee_shop.model.ProductItem;
+import com.ptit.coffee_shop.repository.OrderItemRepository;
+import com.ptit.coffee_shop.repository.OrderRepository;
+import com.ptit.coffee_shop.repository.ProductItemRepository;
+import com.ptit.coffee_shop.repository.ProductRepository;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.Date;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+// Chạy trên H2 nhúng: chỉ đơn đã kết thúc và đủ cũ được chuyển sang phần lạnh
+@DataJpaTest
+@Import(ColdOrderMarker.class)
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+public class ColdOrderMarkerTest {
+
+    @Autowired
+    private OrderRepository orderRepository;
+
+    @Autowired
+    private OrderItemRepository orderItemRepository;
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    @Autowired
+    private ProductItemRepository productItemRepository;
+
+    @Autowired
+    private ColdOrderMarker coldOrderMarker;
+
+    private long saveOrder(OrderStatus status, int daysAgo) {
+        Order order = new Order();
+        order.setStatus(status);
+        order.setPaymentMethod(PaymentMethod.COD);
+        order.setOrderDate(new Date(System.currentTimeMillis() - daysAgo * 24L * 3600_000));
+        return orderRepository.save(order).getId();
+    }
+
+    private long saveSale(String productName, int amount, int daysAgo) {
+        Product product = new Product();
+        product.setName(productName);
+        productRepository.save(product);
+        ProductItem productItem = new ProductItem();
+        productItem.setProduct(product);
+        productItemRepository.save(productItem);
+        OrderItem orderItem = new OrderItem();
+        orderItem.setOrder(orderRepository.findById(saveOrder(OrderStatus.Completed, daysAgo)).orElseThrow());
+        orderItem.setProductItem(productItem);
+        orderItem.setAmount(amount);
+        orderItem.setPrice(30000);
+        orderItemRepository.save(orderItem);
+        return product.getId();
+    }
+
+    private boolean isCold(long orderId) {
+        return orderRepository.findById(orderId).orElseThrow().isCold();
+    }
+
+    @Test
+    public void markCold_ShouldMoveOldFinishedOrdersOutOfHotQueries() {
+        ReflectionTestUtils.setField(coldOrderMarker, "afterDays", 30L);
+        ReflectionTestUtils.setField(coldOrderMarker, "chunkSize", 1);
+        long oldCompleted = saveOrder(OrderStatus.Completed, 60);
+        long oldCancelled = saveOrder(OrderStatus.Cancelled, 45);
+        long oldShipping = saveOrder(OrderStatus.Shipping, 60);
+        long recentCompleted = saveOrder(OrderStatus.Completed, 1);
+
+        assertEquals(2, coldOrderMarker.markCold());
+        assertEquals(0, coldOrderMarker.markCold());
+
+        assertTrue(isCold(oldCompleted));
+        assertTrue(isCold(oldCancelled));
+        assertFalse(isCold(oldShipping));
+        assertFalse(isCold(recentCompleted));
+        assertTrue(orderRepository.findByStatus(OrderStatus.Completed).stream()
+                .noneMatch(order -> order.getId() == oldCompleted));
+        assertTrue(orderRepository.findByStatus(OrderStatus.Completed).stream()
+                .anyMatch(order -> order.getId() == recentCompleted));
+        assertTrue(orderRepository.findByStatus(OrderStatus.Shipping).stream()
+                .anyMatch(order -> order.getId() == oldShipping));
+    }
+
+    @Test
+    public void markCold_ShouldKeepColdOrdersInStatistics() {
+        ReflectionTestUtils.setField(coldOrderMarker, "afterDays", 30L);
+        ReflectionTestUtils.setField(coldOrderMarker, "chunkSize", 500);
+        // Số lượng lớn để sản phẩm nằm trong top 5 dù H2 dùng chung với các test khác
+        long oldProduct = saveSale("Cold Mocha", 1_000_000, 60);
+        long recentProduct = saveSale("Hot Mocha", 900_000, 1);
+
+        coldOrderMarker.markCold();
+
+        List<Long> top = orderItemRepository.findTop5BestSellingProducts(PageRequest.of(0, 5)).stream()
+                .map(row -> ((Product) row[0]).getId())
+                .toList();
+        assertTrue(top.contains(oldProduct));
+        assertTrue(top.contains(recentProduct));
+        // Thống kê theo tháng của tháng đã qua vẫn thấy đơn cold
+        Date from = new Date(System.currentTimeMillis() - 61 * 24L * 3600_000);
+        Date to = new Date(System.currentTimeMillis() - 59 * 24L * 3600_000);
+        List<Long> monthly = orderItemRepository.findTop5MonthlySellingProducts(from, to, PageRequest.of(0, 5)).stream()
+                .map(row -> ((Product) row[0]).getId())
+                .toList();
+        assertTrue(monthly.contains(oldProduct));
+    }
+}
@@ -0,0 +1,138 @@
+package com.ptit.coffee_shop.service;
+
+import com.ptit.coffee_shop.model.ProductItem;
+import com.ptit.coffee_shop.repository.OrderItemRepository;
+import com.ptit.coffee_shop.repository.ProductItemRepository;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InOrder;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class HotStockServiceTest {
+
+    @Mock private ProductItemRepository productItemRepository;
+    @Mock private OrderItemRepository orderItemRepository;
+
+    @InjectMocks private HotStockService hotStockService;
+
+    private ProductItem hotItem(long id, int stock) {
+        return ProductItem.builder().id(id).stock(stock).hotSale(true).build();
+    }
+
+    private void loadHotItem(long id, int stock, long pending) {
+        List<Object[]> pendingRows = new ArrayList<>();
+        if (pending > 0) {
+            pendingRows.add(new Object[]{id, pending});
+        }
+        when(orderItemRepository.sumPendingStockByProductItem()).thenReturn(pendingRows);
+        when(productItemRepository.findByHotSaleTrue()).thenReturn(List.of(hotItem(id, stock)));
+        hotStockService.load();
+    }
+
+    @Test
+    void load_ShouldSubtractUnflushedOrderItemsFromDatabaseStock() {
+        loadHotItem(1L, 100, 30);
+
+        assertTrue(hotStockService.isHot(1L));
+        assertFalse(hotStockService.isHot(2L));
+        assertEquals(70, hotStockService.getAvailable(1L));
+    }
+
+    @Test
+    void tryReserve_WithParallelBuyers_ShouldNeverOversell() throws Exception {
+        loadHotItem(1L, 50, 0);
+        ExecutorService executor = Executors.newFixedThreadPool(32);
+        CountDownLatch start = new CountDownLatch(1);
+        AtomicInteger sold = new AtomicInteger();
+        List<Future<?>> buyers = new ArrayList<>();
+        try {
+            for (int i = 0; i < 200; i++) {
+                buyers.add(executor.submit(() -> {
+                    start.await();
+                    if (hotStockService.tryReserve(1L, 1)) {
+                        sold.incrementAndGet();
+                    }
+                    return null;
+                }));
+            }
+            start.countDown();
+            for (Future<?> buyer : buyers) {
+                buyer.get(30, TimeUnit.SECONDS);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+
+        assertEquals(50, sold.get());
+        assertEquals(0, hotStockService.getAvailable(1L));
+    }
+
+    @Test
+    void tryReserve_WhenStockSpreadAcrossStripes_ShouldRebalance() {
+        loadHotItem(1L, 20, 0);
+
+        // 20 chia cho 16 stripe, không stripe nào đủ 15 nên phải gom lại
+        assertTrue(hotStockService.tryReserve(1L, 15));
+        assertFalse(hotStockService.tryReserve(1L, 6));
+        assertEquals(5, hotStockService.getAvailable(1L));
+
+        hotStockService.restock(1L, 3);
+        assertEquals(8, hotStockService.getAvailable(1L));
+    }
+
+    @Test
+    void flush_ShouldApplyPendingOrderItemsToProductStock() {
+        loadHotItem(1L, 100, 0);
+        when(orderItemRepository.findPendingStock()).thenReturn(List.of(
+                new Object[]{10L, 1L, 2}, new Object[]{11L, 1L, 3}, new Object[]{12L, 2L, 1}));
+        when(orderItemRepository.markStockApplied(List.of(10L, 11L, 12L))).thenReturn(3);
+
+        assertEquals(3, hotStockService.flush());
+
+        verify(productItemRepository).incrementStock(1L, -5);
+        verify(productItemRepository).incrementStock(2L, -1);
+    }
+
+    @Test
+    void flush_WhenRowsAlreadyFlushedConcurrently_ShouldFailWithoutTouchingStock() {
+        loadHotItem(1L, 100, 0);
+        when(orderItemRepository.findPendingStock()).thenReturn(List.<Object[]>of(new Object[]{10L, 1L, 2}));
+        when(orderItemRepository.markStockApplied(List.of(10L))).thenReturn(0);
+
+        assertThrows(IllegalStateException.class, () -> hotStockService.flush());
+
+        verify(productItemRepository, never()).incrementStock(anyLong(), anyInt());
+    }
+
+    @Test
+    void setHotSale_WhenDisabled_ShouldFlushPendingAndDropCounter() {
+        loadHotItem(1L, 100, 0);
+        ProductItem productItem = hotItem(1L, 100);
+        when(productItemRepository.findById(1L)).thenReturn(Optional.of(productItem));
+        when(orderItemRepository.findPendingStock()).thenReturn(List.<Object[]>of(new Object[]{10L, 1L, 2}));
+        when(orderItemRepository.markStockApplied(List.of(10L))).thenReturn(1);
+
+        hotStockService.setHotSale(1L, false);
+
+        // Kho được trừ trước khi product_item được nạp, lần nạp thứ hai là của reload sau commit
+        InOrder inOrder = inOrder(productItemRepository);
+        inOrder.verify(productItemRepository).incrementStock(1L, -2);
+        inOrder.verify(productItemRepository).findById(1L);
+        verify(productItemRepository, times(2)).findById(1L);
+        verify(productItemRepository).save(productItem);
+        assertFalse(productItem.isHotSale());
+        assertFalse(hotStockService.isHot(1L));
+    }
+}
@@ -0,0 +1,171 @@
+package com.ptit.coffee_shop.service;
+
+import com.ptit.coffee_shop.config.MessageBuilder;
+import com.ptit.coffee_shop.payload.response.RespMessage;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.Map;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class IdempotencyServiceTest {
+
+    @Mock private MessageBuilder messageBuilder;
+
+    @InjectMocks private IdempotencyService idempotencyService;
+
+    private final AtomicInteger calls = new AtomicInteger();
+
+    @BeforeEach
+    void setUp() {
+        ReflectionTestUtils.setField(idempotencyService, "maxEntries", 3);
+        ReflectionTestUtils.setField(idempotencyService, "ttlMinutes", 60L);
+    }
+
+    private Supplier<ResponseEntity<String>> action(HttpStatus status) {
+        return () -> new ResponseEntity<>("{\"data\":" + calls.incrementAndGet() + "}", status);
+    }
+
+    @Test
+    void execute_WithSameKey_ShouldReplayStoredResponseWithoutRunningAgain() {
+        Map<String, Object> request = Map.of("ShippingAddressId", 1);
+        ResponseEntity<String> first = idempotencyService.execute("order", "key-1", request, action(HttpStatus.OK));
+        ResponseEntity<String> retry = idempotencyService.execute("order", "key-1", request, action(HttpStatus.OK));
+
+        assertEquals(1, calls.get());
+        assertEquals(first.getBody(), retry.getBody());
+        assertEquals("true", retry.getHeaders().getFirst(IdempotencyService.REPLAYED_HEADER));
+        assertNull(first.getHeaders().getFirst(IdempotencyService.REPLAYED_HEADER));
+
+        // Key được tách theo endpoint, không có key thì luôn chạy
+        idempotencyService.execute("transaction", "key-1", request, action(HttpStatus.OK));
+        idempotencyService.execute("order", null, request, action(HttpStatus.OK));
+        assertEquals(3, calls.get());
+    }
+
+    @Test
+    void execute_WithSameKeyForDifferentRequest_ShouldRejectRetry() {
+        when(messageBuilder.buildFailureMessage(anyString(), any(), any()))
+                .thenReturn(RespMessage.builder().respCode("101").build());
+        idempotencyService.execute("order", "key-1", Map.of("Amount", 1), action(HttpStatus.OK));
+
+        ResponseEntity<String> reused = idempotencyService.execute("order", "key-1", Map.of("Amount", 2), action(HttpStatus.OK));
+
+        assertEquals(HttpStatus.BAD_REQUEST, reused.getStatusCode());
+        assertEquals(1, calls.get());
+    }
+
+    @Test
+    void execute_WhenServerError_ShouldNotStoreResponse() {
+        idempotencyService.execute("order", "key-1", "body", action(HttpStatus.INTERNAL_SERVER_ERROR));
+        ResponseEntity<String> retry = idempotencyService.execute("order", "key-1", "body", action(HttpStatus.OK));
+
+        assertEquals(2, calls.get());
+        assertEquals(HttpStatus.OK, retry.getStatusCode());
+        assertEquals(1, idempotencyService.size());
+    }
+
+    @Test
+    void execute_WhenFull_ShouldEvictOldestKeys() {
+        for (int i = 0; i < 5; i++) {
+            idempotencyService.execute("order", "key-" + i, "body", action(HttpStatus.OK));
+        }
+        assertEquals(3, idempotencyService.size());
+
+        idempotencyService.execute("order", "key-0", "body", action(HttpStatus.OK));
+        idempotencyService.execute("order", "key-4", "body", action(HttpStatus.OK));
+        assertEquals(6, calls.get());
+    }
+
+    @Test
+    void execute_WhenFullOfRunningKeys_ShouldRejectNewKeyAndKeepRunningOnes() throws Exception {
+        ReflectionTestUtils.setField(idempotencyService, "maxEntries", 1);
+        when(messageBuilder.buildFailureMessage(anyString(), any(), any()))
+                .thenReturn(RespMessage.builder().respCode("500").build());
+        CountDownLatch running = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        Supplier<ResponseEntity<String>> slowAction = () -> {
+            running.countDown();
+            try {
+                release.await(10, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            return action(HttpStatus.OK).get();
+        };
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            Future<ResponseEntity<String>> first = executor.submit(() ->
+                    idempotencyService.execute("order", "key-1", "body", slowAction));
+            running.await(10, TimeUnit.SECONDS);
+
+            // Key đang chạy không bị bỏ, key mới bị từ chối để client thử lại sau
+            ResponseEntity<String> rejected = idempotencyService.execute("order", "key-2", "body", action(HttpStatus.OK));
+            assertEquals(HttpStatus.SERVICE_UNAVAILABLE, rejected.getStatusCode());
+            assertEquals(0, calls.get());
+
+            release.countDown();
+            first.get(10, TimeUnit.SECONDS);
+            assertEquals(HttpStatus.OK, idempotencyService.execute("order", "key-2", "body", action(HttpStatus.OK)).getStatusCode());
+            assertEquals(2, calls.get());
+            assertEquals(1, idempotencyService.size());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    void execute_AfterTtl_ShouldRunAgain() {
+        ReflectionTestUtils.setField(idempotencyService, "ttlMinutes", -1L);
+
+        idempotencyService.execute("order", "key-1", "body", action(HttpStatus.OK));
+        idempotencyService.execute("order", "key-1", "body", action(HttpStatus.OK));
+
+        assertEquals(2, calls.get());
+        assertEquals(1, idempotencyService.size());
+    }
+
+    @Test
+    void execute_WithConcurrentRetries_ShouldRunActionOnce() throws Exception {
+        CountDownLatch running = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        Supplier<ResponseEntity<String>> slowAction = () -> {
+            running.countDown();
+            try {
+                release.await(10, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            return action(HttpStatus.OK).get();
+        };
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        try {
+            Future<ResponseEntity<String>> first = executor.submit(() ->
+                    idempotencyService.execute("order", "key-1", "body", slowAction));
+            running.await(10, TimeUnit.SECONDS);
+            Future<ResponseEntity<String>> retry = executor.submit(() ->
+                    idempotencyService.execute("order", "key-1", "body", slowAction));
+            release.countDown();
+
+            assertEquals(first.get(10, TimeUnit.SECONDS).getBody(), retry.get(10, TimeUnit.SECONDS).getBody());
+            assertEquals(1, calls.get());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+}
@@ -46,6 +46,9 @@ class OnlinePaymentServiceTest {
     @Mock
     private OrderRepository orderRepository;
 
+    @Mock
+    private OrderOutboxService orderOutboxService;
+
     @Mock
     private HttpServletRequest request;
 
@@ -222,6 +225,7 @@ class OnlinePaymentServiceTest {
                 assertEquals(OrderStatus.Cancelled, order.getStatus());
                 verify(orderRepository).save(any(Order.class));
                 verify(transactionRepository).save(any(Transaction.class));
+                verify(orderOutboxService).statusChanged(eq(order), any());
                 verify(messageBuilder).buildSuccessMessage(any());
             }
         }
@@ -0,0 +1,140 @@
+package com.ptit.coffee_shop.service;
+
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+import com.ptit.coffee_shop.common.enums.ExportFormat;
+import com.ptit.coffee_shop.common.enums.OrderStatus;
+import com.ptit.coffee_shop.common.enums.PaymentMethod;
+import com.ptit.coffee_shop.common.enums.Status;
+import com.ptit.coffee_shop.model.*;
+import com.ptit.coffee_shop.repository.BrandRepository;
+import com.ptit.coffee_shop.repository.CategoryRepository;
+import com.ptit.coffee_shop.repository.OrderItemRepository;
+import com.ptit.coffee_shop.repository.OrderRepository;
+import com.ptit.coffee_shop.repository.ProductItemRepository;
+import com.ptit.coffee_shop.repository.ProductRepository;
+import com.ptit.coffee_shop.repository.TypeProductRepository;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.util.Date;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+// Chạy trên H2 nhúng: file xuất có một dòng cho mỗi order_item và không nạp entity nào vào persistence context
+@DataJpaTest(properties = "spring.jpa.properties.hibernate.generate_statistics=true")
+@Import(OrderExportService.class)
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+public class OrderExportTest {
+
+    @Autowired private OrderExportService orderExportService;
+    @Autowired private EntityManagerFactory entityManagerFactory;
+    @Autowired private OrderRepository orderRepository;
+    @Autowired private OrderItemRepository orderItemRepository;
+    @Autowired private ProductItemRepository productItemRepository;
+    @Autowired private ProductRepository productRepository;
+    @Autowired private TypeProductRepository typeProductRepository;
+    @Autowired private CategoryRepository categoryRepository;
+    @Autowired private BrandRepository brandRepository;
+
+    private long pairedOrderId;
+    private long emptyOrderId;
+    // Đơn đặt ngoài ngày này không được xuất
+    private final LocalDate exportDay = LocalDate.now().plusYears(5);
+
+    @BeforeEach
+    public void setUp() {
+        orderItemRepository.deleteAll();
+        orderRepository.deleteAll();
+        Category category = categoryRepository.save(new Category(0, "Category E", Status.ACTIVE, "no des", "no_image"));
+        Brand brand = brandRepository.save(new Brand(0, "Brand E", Status.ACTIVE));
+        TypeProduct typeProduct = typeProductRepository.save(new TypeProduct(0, "Large", Status.ACTIVE));
+        Product product = productRepository.save(new Product(0, "Latte, \"iced\"", "description",
+                category, brand, Status.ACTIVE));
+        ProductItem productItem = new ProductItem();
+        productItem.setProduct(product);
+        productItem.setType(typeProduct);
+        productItem.setPrice(30000);
+        productItem.setStock(100);
+        productItemRepository.save(productItem);
+
+        Date orderDate = Date.from(exportDay.atTime(10, 0).atZone(ZoneId.systemDefault()).toInstant());
+        Order paired = saveOrder(orderDate, 80000.0);
+        saveItem(paired, productItem, 30000, 5000, 2);
+        saveItem(paired, productItem, 20000, 0, 1);
+        pairedOrderId = paired.getId();
+        emptyOrderId = saveOrder(orderDate, null).getId();
+        saveOrder(new Date(), 10000.0);
+    }
+
+    private Order saveOrder(Date orderDate, Double total) {
+        Order order = new Order();
+        order.setStatus(OrderStatus.Completed);
+        order.setPaymentMethod(PaymentMethod.COD);
+        order.setOrderDate(orderDate);
+        order.setTotal(total);
+        return orderRepository.save(order);
+    }
+
+    private void saveItem(Order order, ProductItem productItem, double price, double discount, int amount) {
+        OrderItem orderItem = new OrderItem();
+        orderItem.setOrder(order);
+        orderItem.setProductItem(productItem);
+        orderItem.setPrice(price);
+        orderItem.setDiscount(discount);
+        orderItem.setAmount(amount);
+        orderItemRepository.save(orderItem);
+    }
+
+    private List<String> export(ExportFormat format) throws Exception {
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        orderExportService.export(format, exportDay, exportDay, outputStream);
+        return outputStream.toString(StandardCharsets.UTF_8).lines().toList();
+    }
+
+    @Test
+    public void export_Csv_ShouldWriteOneEscapedLinePerOrderItem() throws Exception {
+        Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+
+        List<String> lines = export(ExportFormat.CSV);
+
+        assertEquals(0, statistics.getEntityLoadCount());
+        assertEquals(4, lines.size());
+        assertTrue(lines.get(0).startsWith("order_id,order_date,status,payment_method,subtotal"));
+        assertTrue(lines.get(1).startsWith(pairedOrderId + ","));
+        assertTrue(lines.get(1).contains(",80000,"));
+        assertTrue(lines.get(1).endsWith(",\"Latte, \"\"iced\"\"\",Large,2,30000,5000"));
+        assertTrue(lines.get(2).endsWith(",1,20000,0"));
+        assertTrue(lines.get(3).startsWith(emptyOrderId + ","));
+        assertTrue(lines.get(3).endsWith(",,,,,,,"));
+    }
+
+    @Test
+    public void export_Ndjson_ShouldWriteOneJsonObjectPerLine() throws Exception {
+        List<String> lines = export(ExportFormat.NDJSON);
+
+        assertEquals(3, lines.size());
+        JsonObject first = JsonParser.parseString(lines.get(0)).getAsJsonObject();
+        assertEquals(pairedOrderId, first.get("order_id").getAsLong());
+        assertEquals("Completed", first.get("status").getAsString());
+        assertEquals("Latte, \"iced\"", first.get("product_name").getAsString());
+        assertEquals(25000, first.get("price").getAsInt() - first.get("discount").getAsInt());
+        JsonObject empty = JsonParser.parseString(lines.get(2)).getAsJsonObject();
+        assertTrue(empty.get("order_item_id").isJsonNull());
+        assertTrue(empty.get("total").isJsonNull());
+    }
+}
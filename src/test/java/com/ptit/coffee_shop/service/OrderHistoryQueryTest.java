@@ -0,0 +1,211 @@
+package com.ptit.coffee_shop.service;
+
+import com.ptit.coffee_shop.common.enums.OrderStatus;
+import com.ptit.coffee_shop.common.enums.PaymentMethod;
+import com.ptit.coffee_shop.common.enums.Status;
+import com.ptit.coffee_shop.config.MessageBuilder;
+import com.ptit.coffee_shop.exception.CoffeeShopException;
+import com.ptit.coffee_shop.model.*;
+import com.ptit.coffee_shop.payload.response.OrderHistoryResponse;
+import com.ptit.coffee_shop.payload.response.OrderResponse;
+import com.ptit.coffee_shop.payload.response.OrderSummaryResponse;
+import com.ptit.coffee_shop.payload.response.RespMessage;
+import com.ptit.coffee_shop.repository.BrandRepository;
+import com.ptit.coffee_shop.repository.CategoryRepository;
+import com.ptit.coffee_shop.repository.ImageRepository;
+import com.ptit.coffee_shop.repository.OrderItemRepository;
+import com.ptit.coffee_shop.repository.OrderRepository;
+import com.ptit.coffee_shop.repository.ProductItemRepository;
+import com.ptit.coffee_shop.repository.ProductRepository;
+import com.ptit.coffee_shop.repository.ShippingAddressRepository;
+import com.ptit.coffee_shop.repository.TypeProductRepository;
+import com.ptit.coffee_shop.repository.UserRepository;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.context.annotation.Import;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.security.core.context.SecurityContextImpl;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.when;
+
+// Chạy trên H2 nhúng: mỗi trang lịch sử đơn chỉ tốn một câu SQL dù khách có bao nhiêu đơn
+@DataJpaTest(properties = "spring.jpa.properties.hibernate.generate_statistics=true")
+@Import({OrderService.class, OrderOutboxService.class})
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+public class OrderHistoryQueryTest {
+
+    @MockBean private MessageBuilder messageBuilder;
+    @MockBean private StockReservationService stockReservationService;
+    @MockBean private HotStockService hotStockService;
+    @MockBean private CartStore cartStore;
+
+    @Autowired private OrderService orderService;
+    @Autowired private EntityManagerFactory entityManagerFactory;
+    @Autowired private OrderRepository orderRepository;
+    @Autowired private OrderItemRepository orderItemRepository;
+    @Autowired private ProductItemRepository productItemRepository;
+    @Autowired private ProductRepository productRepository;
+    @Autowired private ImageRepository imageRepository;
+    @Autowired private TypeProductRepository typeProductRepository;
+    @Autowired private CategoryRepository categoryRepository;
+    @Autowired private BrandRepository brandRepository;
+    @Autowired private UserRepository userRepository;
+    @Autowired private ShippingAddressRepository shippingAddressRepository;
+
+    private String buyer;
+    private String otherBuyer;
+    private final List<Long> buyerOrderIds = new ArrayList<>();
+    private long otherOrderId;
+    private long oldOrderId;
+
+    @BeforeEach
+    public void setUp() {
+        when(messageBuilder.buildSuccessMessage(any())).thenAnswer(invocation ->
+                RespMessage.builder().respCode("000").data(invocation.getArgument(0)).build());
+
+        Category category = categoryRepository.save(new Category(0, "Category H", Status.ACTIVE, "no des", "no_image"));
+        Brand brand = brandRepository.save(new Brand(0, "Brand H", Status.ACTIVE));
+        TypeProduct typeProduct = typeProductRepository.save(new TypeProduct(0, "Type H", Status.ACTIVE));
+        List<ProductItem> productItems = new ArrayList<>();
+        for (int i = 0; i < 2; i++) {
+            Product product = productRepository.save(new Product(0, "History " + i, "description",
+                    category, brand, Status.ACTIVE));
+            imageRepository.save(new Image(0, "first-" + i, product));
+            imageRepository.save(new Image(0, "second-" + i, product));
+            ProductItem productItem = new ProductItem();
+            productItem.setProduct(product);
+            productItem.setType(typeProduct);
+            productItem.setPrice(30000);
+            productItem.setStock(100);
+            productItems.add(productItemRepository.save(productItem));
+        }
+        buyer = "history-" + System.nanoTime() + "@example.com";
+        otherBuyer = "other-" + System.nanoTime() + "@example.com";
+        ShippingAddress address = address(buyer);
+        ShippingAddress otherAddress = address(otherBuyer);
+
+        for (int i = 0; i < 7; i++) {
+            Order order = saveOrder(address, 30000.0 * (i + 1) + OrderService.SHIPPING_FEE);
+            saveItem(order, productItems.get(i % 2), 30000, i + 1);
+            if (i % 3 == 0) {
+                saveItem(order, productItems.get((i + 1) % 2), 20000, 1);
+            }
+            buyerOrderIds.add(order.getId());
+        }
+        // Đơn cũ chưa được backfill total thì tính từ order_item
+        Order oldOrder = saveOrder(address, null);
+        saveItem(oldOrder, productItems.get(1), 25000, 2);
+        oldOrderId = oldOrder.getId();
+        buyerOrderIds.add(oldOrderId);
+        otherOrderId = saveOrder(otherAddress, 40000.0).getId();
+    }
+
+    @AfterEach
+    public void tearDown() {
+        SecurityContextHolder.clearContext();
+    }
+
+    private ShippingAddress address(String email) {
+        User user = new User();
+        user.setEmail(email);
+        user.setPassword("password");
+        userRepository.save(user);
+        ShippingAddress shippingAddress = new ShippingAddress();
+        shippingAddress.setReceiverName("Receiver");
+        shippingAddress.setStatus(Status.ACTIVE);
+        shippingAddress.setUser(user);
+        return shippingAddressRepository.save(shippingAddress);
+    }
+
+    private Order saveOrder(ShippingAddress shippingAddress, Double total) {
+        Order order = new Order();
+        order.setShippingAddress(shippingAddress);
+        order.setStatus(OrderStatus.Processing);
+        order.setPaymentMethod(PaymentMethod.COD);
+        order.setOrderDate(new Date());
+        if (total != null) {
+            order.setSubtotal(total - OrderService.SHIPPING_FEE);
+            order.setShippingFee(OrderService.SHIPPING_FEE);
+            order.setTotal(total);
+        }
+        return orderRepository.save(order);
+    }
+
+    private void saveItem(Order order, ProductItem productItem, double price, int amount) {
+        OrderItem orderItem = new OrderItem();
+        orderItem.setOrder(order);
+        orderItem.setProductItem(productItem);
+        orderItem.setPrice(price);
+        orderItem.setAmount(amount);
+        orderItemRepository.save(orderItem);
+    }
+
+    // Đặt SecurityContext mới, test khác trong cùng JVM có thể để lại context đã mock
+    private void login(String email) {
+        SecurityContextHolder.setContext(new SecurityContextImpl(new UsernamePasswordAuthenticationToken(email, null)));
+    }
+
+    private OrderHistoryResponse history(Long cursor, int size) {
+        return (OrderHistoryResponse) orderService.getOrderHistory(cursor, size).getData();
+    }
+
+    @Test
+    public void getOrderHistory_ShouldWalkAllOrdersWithOneQueryPerPage() {
+        login(buyer);
+        Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        List<OrderSummaryResponse> walked = new ArrayList<>();
+        Long cursor = null;
+        int pages = 0;
+        do {
+            statistics.clear();
+            OrderHistoryResponse page = history(cursor, 3);
+            assertEquals(1, statistics.getPrepareStatementCount());
+            walked.addAll(page.getOrders());
+            cursor = page.getNextCursor();
+            pages++;
+        } while (cursor != null);
+
+        assertEquals(3, pages);
+        List<Long> newestFirst = new ArrayList<>(buyerOrderIds);
+        Collections.reverse(newestFirst);
+        assertEquals(newestFirst, walked.stream().map(OrderSummaryResponse::getOrderId).toList());
+        OrderSummaryResponse old = walked.get(0);
+        assertEquals(oldOrderId, old.getOrderId());
+        assertEquals(60000.0, old.getTotal());
+        assertEquals(1, old.getItemCount());
+        assertEquals("first-1", old.getProductImage());
+        OrderSummaryResponse first = walked.get(walked.size() - 1);
+        assertEquals(40000.0, first.getTotal());
+        assertEquals(2, first.getItemCount());
+        assertEquals("first-0", first.getProductImage());
+        assertEquals("Processing", first.getOrderStatus());
+    }
+
+    @Test
+    public void getOrderHistoryDetail_ShouldOnlyReturnOwnOrders() {
+        login(buyer);
+
+        OrderResponse detail = (OrderResponse) orderService.getOrderHistoryDetail(buyerOrderIds.get(0)).getData();
+        assertEquals(2, detail.getOrderItems().size());
+        assertEquals("first-0", detail.getOrderItems().get(0).getProductImage());
+        assertThrows(CoffeeShopException.class, () -> orderService.getOrderHistoryDetail(otherOrderId));
+        assertThrows(CoffeeShopException.class, () -> orderService.getOrderHistory(null, 0));
+    }
+}
@@ -0,0 +1,206 @@
+package com.ptit.coffee_shop.service;
+
+import com.ptit.coffee_shop.common.enums.PaymentMethod;
+import com.ptit.coffee_shop.common.enums.Status;
+import com.ptit.coffee_shop.config.MessageBuilder;
+import com.ptit.coffee_shop.exception.CoffeeShopException;
+import com.ptit.coffee_shop.model.Order;
+import com.ptit.coffee_shop.model.OrderItem;
+import com.ptit.coffee_shop.model.Product;
+import com.ptit.coffee_shop.model.ProductItem;
+import com.ptit.coffee_shop.model.ShippingAddress;
+import com.ptit.coffee_shop.model.User;
+import com.ptit.coffee_shop.payload.request.OrderItemRequest;
+import com.ptit.coffee_shop.payload.request.OrderRequest;
+import com.ptit.coffee_shop.payload.response.RespMessage;
+import com.ptit.coffee_shop.repository.OrderItemRepository;
+import com.ptit.coffee_shop.repository.OrderRepository;
+import com.ptit.coffee_shop.repository.ProductItemRepository;
+import com.ptit.coffee_shop.repository.ShippingAddressRepository;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class OrderIntakeServiceTest {
+
+    @Mock private OrderService orderService;
+    @Mock private OrderRepository orderRepository;
+    @Mock private OrderItemRepository orderItemRepository;
+    @Mock private ProductItemRepository productItemRepository;
+    @Mock private ShippingAddressRepository shippingAddressRepository;
+    @Mock private StockReservationService stockReservationService;
+    @Mock private HotStockService hotStockService;
+    @Mock private CartStore cartStore;
+    @Mock private OrderOutboxService orderOutboxService;
+    @Mock private MessageBuilder messageBuilder;
+    @Mock private PlatformTransactionManager transactionManager;
+
+    @InjectMocks private OrderIntakeService orderIntakeService;
+
+    private final AtomicLong nextOrderId = new AtomicLong(1);
+
+    private OrderIntakeService.PendingOrder pending(long shippingAddressId, long productItemId, int amount) {
+        OrderRequest orderRequest = new OrderRequest(
+                List.of(new OrderItemRequest(productItemId, amount, 20000, 0)), shippingAddressId, PaymentMethod.COD);
+        return new OrderIntakeService.PendingOrder(orderRequest);
+    }
+
+    private ShippingAddress shippingAddress(long id) {
+        ShippingAddress shippingAddress = new ShippingAddress();
+        shippingAddress.setId(id);
+        shippingAddress.setStatus(Status.ACTIVE);
+        shippingAddress.setUser(User.builder().id(9L).build());
+        return shippingAddress;
+    }
+
+    private ProductItem productItem(long id, int stock) {
+        Product product = new Product();
+        product.setId(100 + id);
+        return ProductItem.builder().id(id).stock(stock).product(product).build();
+    }
+
+    private void assignOrderIds() {
+        when(orderRepository.saveAll(anyCollection())).thenAnswer(invocation -> {
+            List<Order> orders = new ArrayList<>(invocation.getArgument(0));
+            orders.forEach(order -> order.setId(nextOrderId.getAndIncrement()));
+            return orders;
+        });
+        when(messageBuilder.buildSuccessMessage(any())).thenAnswer(invocation ->
+                RespMessage.builder().respCode("000").data(invocation.getArgument(0)).build());
+    }
+
+    private static <T> List<T> toList(Iterable<T> iterable) {
+        List<T> list = new ArrayList<>();
+        iterable.forEach(list::add);
+        return list;
+    }
+
+    private Throwable failureOf(CompletableFuture<RespMessage> result) {
+        ExecutionException e = assertThrows(ExecutionException.class, () -> result.get(1, TimeUnit.SECONDS));
+        return e.getCause();
+    }
+
+    @Test
+    void processBatch_ShouldPlaceValidOrdersAndRejectOnlyFailingOnes() throws Exception {
+        ProductItem productItem = productItem(1L, 3);
+        when(shippingAddressRepository.findAllById(anyList())).thenReturn(List.of(shippingAddress(5L)));
+        when(productItemRepository.findAllByIdForUpdate(anyCollection())).thenReturn(List.of(productItem));
+        assignOrderIds();
+        OrderIntakeService.PendingOrder first = pending(5L, 1L, 2);
+        OrderIntakeService.PendingOrder outOfStock = pending(5L, 1L, 2);
+        OrderIntakeService.PendingOrder badAddress = pending(6L, 1L, 1);
+        OrderIntakeService.PendingOrder last = pending(5L, 1L, 1);
+
+        orderIntakeService.processBatch(List.of(first, outOfStock, badAddress, last));
+
+        assertEquals(1L, first.result().get(1, TimeUnit.SECONDS).getData());
+        assertEquals(2L, last.result().get(1, TimeUnit.SECONDS).getData());
+        assertEquals("Amount Item cannot be greater than stock", failureOf(outOfStock.result()).getMessage());
+        assertEquals("ShippingAddress cannot be null", failureOf(badAddress.result()).getMessage());
+        // Cả batch dùng chung một transaction, một lần khóa và một lần INSERT
+        assertEquals(0, productItem.getStock());
+        verify(transactionManager).getTransaction(any());
+        verify(productItemRepository).findAllByIdForUpdate(anyCollection());
+        verify(orderRepository).saveAll(argThat(orders -> {
+            List<Order> saved = toList(orders);
+            return saved.size() == 2 && saved.get(0).getTotal() == 50000 && saved.get(1).getTotal() == 30000;
+        }));
+        verify(orderItemRepository).saveAll(anyList());
+        verify(orderOutboxService).orderPlaced(argThat(orders -> orders.size() == 2));
+        // Giỏ hàng của người mua được ghi xuống ngay khi đặt hàng
+        verify(cartStore).flush(Set.of(9L));
+        verifyNoInteractions(orderService);
+    }
+
+    @Test
+    void processBatch_WhenHotSaleCounterRunsOut_ShouldRejectOrderWithoutLockingRow() throws Exception {
+        when(shippingAddressRepository.findAllById(anyList())).thenReturn(List.of(shippingAddress(5L)));
+        when(hotStockService.isHot(1L)).thenReturn(true);
+        when(productItemRepository.findAllById(anyIterable())).thenReturn(List.of(productItem(1L, 0)));
+        when(hotStockService.tryReserve(1L, 1)).thenReturn(true, false);
+        assignOrderIds();
+        OrderIntakeService.PendingOrder first = pending(5L, 1L, 1);
+        OrderIntakeService.PendingOrder second = pending(5L, 1L, 1);
+
+        orderIntakeService.processBatch(List.of(first, second));
+
+        assertEquals(1L, first.result().get(1, TimeUnit.SECONDS).getData());
+        assertInstanceOf(CoffeeShopException.class, failureOf(second.result()));
+        verify(productItemRepository, never()).findAllByIdForUpdate(anyCollection());
+        verify(orderItemRepository).saveAll(argThat(orderItems -> {
+            List<OrderItem> items = toList(orderItems);
+            return items.size() == 1 && items.get(0).isStockPending();
+        }));
+    }
+
+    @Test
+    void processBatch_WhenBatchTransactionFails_ShouldPlaceOrdersOneByOne() throws Exception {
+        when(shippingAddressRepository.findAllById(anyList())).thenReturn(List.of(shippingAddress(5L)));
+        when(productItemRepository.findAllByIdForUpdate(anyCollection())).thenReturn(List.of(productItem(1L, 10)));
+        when(orderRepository.saveAll(anyCollection())).thenThrow(new RuntimeException("Deadlock found"));
+        RespMessage placed = RespMessage.builder().respCode("000").data(9L).build();
+        when(orderService.addOrder(any())).thenReturn(placed);
+        OrderIntakeService.PendingOrder first = pending(5L, 1L, 1);
+        OrderIntakeService.PendingOrder second = pending(5L, 1L, 1);
+
+        orderIntakeService.processBatch(List.of(first, second));
+
+        assertSame(placed, first.result().get(1, TimeUnit.SECONDS));
+        assertSame(placed, second.result().get(1, TimeUnit.SECONDS));
+        verify(transactionManager).rollback(any());
+        verify(orderService, times(2)).addOrder(any());
+    }
+
+    @Test
+    void submit_WhenStarted_ShouldGroupConcurrentOrdersIntoFewTransactions() throws Exception {
+        ReflectionTestUtils.setField(orderIntakeService, "queueCapacity", 1000);
+        ReflectionTestUtils.setField(orderIntakeService, "maxBatchSize", 100);
+        ReflectionTestUtils.setField(orderIntakeService, "maxWaitMillis", 200L);
+        when(shippingAddressRepository.findAllById(anyList())).thenReturn(List.of(shippingAddress(5L)));
+        when(productItemRepository.findAllByIdForUpdate(anyCollection())).thenAnswer(invocation -> List.of(productItem(1L, 1000)));
+        assignOrderIds();
+
+        orderIntakeService.start();
+        List<CompletableFuture<RespMessage>> results = new ArrayList<>();
+        try {
+            for (int i = 0; i < 50; i++) {
+                results.add(orderIntakeService.submit(pending(5L, 1L, 1).request()));
+            }
+            for (CompletableFuture<RespMessage> result : results) {
+                assertNotNull(result.get(10, TimeUnit.SECONDS).getData());
+            }
+        } finally {
+            orderIntakeService.stop();
+        }
+
+        verify(transactionManager, atMost(5)).getTransaction(any());
+        verifyNoInteractions(orderService);
+    }
+
+    @Test
+    void placeOrder_WhenNotStarted_ShouldPlaceOrderDirectly() {
+        OrderRequest orderRequest = pending(5L, 1L, 1).request();
+        RespMessage placed = RespMessage.builder().respCode("000").data(1L).build();
+        when(orderService.addOrder(orderRequest)).thenReturn(placed);
+
+        assertSame(placed, orderIntakeService.placeOrder(orderRequest));
+        verifyNoInteractions(transactionManager);
+    }
+}
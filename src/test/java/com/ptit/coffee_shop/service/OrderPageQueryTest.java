@@ -0,0 +1,167 @@
+package com.ptit.coffee_shop.service;
+
+import com.ptit.coffee_shop.common.enums.OrderStatus;
+import com.ptit.coffee_shop.common.enums.PaymentMethod;
+import com.ptit.coffee_shop.common.enums.Status;
+import com.ptit.coffee_shop.config.MessageBuilder;
+import com.ptit.coffee_shop.model.*;
+import com.ptit.coffee_shop.payload.response.OrderPageResponse;
+import com.ptit.coffee_shop.payload.response.OrderResponse;
+import com.ptit.coffee_shop.payload.response.RespMessage;
+import com.ptit.coffee_shop.repository.BrandRepository;
+import com.ptit.coffee_shop.repository.CategoryRepository;
+import com.ptit.coffee_shop.repository.ImageRepository;
+import com.ptit.coffee_shop.repository.OrderItemRepository;
+import com.ptit.coffee_shop.repository.OrderRepository;
+import com.ptit.coffee_shop.repository.ProductItemRepository;
+import com.ptit.coffee_shop.repository.ProductRepository;
+import com.ptit.coffee_shop.repository.ShippingAddressRepository;
+import com.ptit.coffee_shop.repository.TypeProductRepository;
+import com.ptit.coffee_shop.repository.UserRepository;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.context.annotation.Import;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.when;
+
+// Chạy trên H2 nhúng, đếm số câu SQL để chắc chắn trang đơn hàng không bị N+1
+@DataJpaTest(properties = "spring.jpa.properties.hibernate.generate_statistics=true")
+@Import({OrderService.class, OrderOutboxService.class})
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+public class OrderPageQueryTest {
+
+    @MockBean private MessageBuilder messageBuilder;
+    @MockBean private StockReservationService stockReservationService;
+    @MockBean private HotStockService hotStockService;
+    @MockBean private CartStore cartStore;
+
+    @Autowired private OrderService orderService;
+    @Autowired private EntityManagerFactory entityManagerFactory;
+    @Autowired private OrderRepository orderRepository;
+    @Autowired private OrderItemRepository orderItemRepository;
+    @Autowired private ProductItemRepository productItemRepository;
+    @Autowired private ProductRepository productRepository;
+    @Autowired private ImageRepository imageRepository;
+    @Autowired private TypeProductRepository typeProductRepository;
+    @Autowired private CategoryRepository categoryRepository;
+    @Autowired private BrandRepository brandRepository;
+    @Autowired private UserRepository userRepository;
+    @Autowired private ShippingAddressRepository shippingAddressRepository;
+
+    private final List<User> users = new ArrayList<>();
+
+    @BeforeEach
+    public void setUp() {
+        orderItemRepository.deleteAll();
+        orderRepository.deleteAll();
+        when(messageBuilder.buildSuccessMessage(any())).thenAnswer(invocation ->
+                RespMessage.builder().respCode("000").data(invocation.getArgument(0)).build());
+
+        Category category = categoryRepository.save(new Category(0, "Category A", Status.ACTIVE, "no des", "no_image"));
+        Brand brand = brandRepository.save(new Brand(0, "Brand A", Status.ACTIVE));
+        TypeProduct typeProduct = typeProductRepository.save(new TypeProduct(0, "Type A", Status.ACTIVE));
+        List<ProductItem> productItems = new ArrayList<>();
+        for (int i = 0; i < 4; i++) {
+            Product product = productRepository.save(new Product(0, "Product " + i, "description",
+                    category, brand, Status.ACTIVE));
+            imageRepository.save(new Image(0, "primary-" + i, product));
+            imageRepository.save(new Image(0, "secondary-" + i, product));
+            ProductItem productItem = new ProductItem();
+            productItem.setProduct(product);
+            productItem.setType(typeProduct);
+            productItem.setPrice(30000);
+            productItem.setStock(100);
+            productItems.add(productItemRepository.save(productItem));
+        }
+        for (int u = 0; u < 2; u++) {
+            User user = new User();
+            user.setEmail("buyer" + u + "-" + System.nanoTime() + "@example.com");
+            user.setPassword("password");
+            users.add(userRepository.save(user));
+        }
+
+        for (int i = 0; i < 12; i++) {
+            User user = users.get(i % 2);
+            ShippingAddress shippingAddress = new ShippingAddress();
+            shippingAddress.setReceiverName("Receiver " + i);
+            shippingAddress.setStatus(Status.ACTIVE);
+            shippingAddress.setUser(user);
+            shippingAddressRepository.save(shippingAddress);
+
+            Order order = new Order();
+            order.setShippingAddress(shippingAddress);
+            order.setStatus(i % 3 == 0 ? OrderStatus.Completed : OrderStatus.Processing);
+            order.setPaymentMethod(i % 2 == 0 ? PaymentMethod.COD : PaymentMethod.VNPay);
+            order.setOrderDate(new Date(System.currentTimeMillis() - i * 60_000L));
+            order.setSubtotal(30000.0 * (i + 1));
+            order.setShippingFee(OrderService.SHIPPING_FEE);
+            order.setTotal(30000.0 * (i + 1) + OrderService.SHIPPING_FEE);
+            orderRepository.save(order);
+            for (int j = 0; j < 2; j++) {
+                OrderItem orderItem = new OrderItem();
+                orderItem.setOrder(order);
+                orderItem.setProductItem(productItems.get((i + j) % productItems.size()));
+                orderItem.setPrice(30000);
+                orderItem.setAmount(1);
+                orderItemRepository.save(orderItem);
+            }
+        }
+    }
+
+    private OrderPageResponse page(OrderStatus status, PaymentMethod paymentMethod, Long userId, int size, String sort) {
+        RespMessage respMessage = orderService.getOrderPage(status, paymentMethod, null, null, userId, 0, size, sort);
+        return (OrderPageResponse) respMessage.getData();
+    }
+
+    private long countStatements(Runnable action) {
+        Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+        action.run();
+        return statistics.getPrepareStatementCount();
+    }
+
+    @Test
+    public void getOrderPage_ShouldUseSameNumberOfQueriesForAnyPageSize() {
+        long small = countStatements(() -> assertEquals(3, page(null, null, null, 3, "newest").getOrders().size()));
+        long large = countStatements(() -> assertEquals(12, page(null, null, null, 12, "newest").getOrders().size()));
+
+        assertEquals(small, large);
+        // Trang đơn, COUNT, order_item và ảnh
+        assertTrue(large <= 4, "Expected at most 4 statements but was " + large);
+    }
+
+    @Test
+    public void getOrderPage_ShouldFilterAndSortInDatabase() {
+        OrderPageResponse completed = page(OrderStatus.Completed, null, null, 10, "total-desc");
+        assertEquals(4, completed.getTotalElements());
+        List<Double> totals = completed.getOrders().stream().map(OrderResponse::getTotal).toList();
+        assertEquals(List.of(310000.0, 220000.0, 130000.0, 40000.0), totals);
+
+        OrderPageResponse byUser = page(null, PaymentMethod.COD, users.get(0).getId(), 4, "oldest");
+        assertEquals(6, byUser.getTotalElements());
+        assertEquals(2, byUser.getTotalPages());
+        OrderResponse oldest = byUser.getOrders().get(0);
+        assertEquals(340000.0, oldest.getTotal());
+        assertEquals(2, oldest.getOrderItems().size());
+        assertTrue(oldest.getOrderItems().get(0).getProductImage().startsWith("primary-"));
+
+        OrderPageResponse future = (OrderPageResponse) orderService.getOrderPage(null, null,
+                LocalDate.now().plusDays(1), null, null, 0, 10, "newest").getData();
+        assertEquals(0, future.getTotalElements());
+    }
+}
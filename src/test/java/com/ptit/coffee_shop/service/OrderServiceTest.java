@@ -48,6 +48,14 @@ public class OrderServiceTest {
     @Mock
     private UserRepository userRepository;
     @Mock
+    private HotStockService hotStockService;
+    @Mock
+    private StockReservationService stockReservationService;
+    @Mock
+    private CartStore cartStore;
+    @Mock
+    private OrderOutboxService orderOutboxService;
+    @Mock
     private MessageBuilder messageBuilder;
     @Mock
     private Authentication authentication;
@@ -196,6 +204,7 @@ public class OrderServiceTest {
         orderRequest.setOrderItems(Arrays.asList(orderItemRequest));
 
         when(shippingAddressRepository.findById(1L)).thenReturn(Optional.of(testShippingAddress));
+        when(productItemRepository.decrementStock(1L, 2)).thenReturn(1);
         when(productItemRepository.findById(1L)).thenReturn(Optional.of(testProductItem));
         when(orderRepository.save(any())).thenReturn(testOrder);
 
@@ -205,7 +214,39 @@ public class OrderServiceTest {
         // Assert
         assertThat(result).isNotNull();
         verify(orderRepository).save(any());
-        verify(orderItemRepository).save(any());
+        verify(orderItemRepository).saveAll(anyList());
+        verify(productItemRepository, never()).save(any());
+    }
+
+    @Test
+    public void whenAddOrder_withInsufficientStock_thenThrowAndSaveNothing() {
+        // Arrange
+        OrderItemRequest first = new OrderItemRequest();
+        first.setProductItemId(1L);
+        first.setAmount(2);
+        OrderItemRequest second = new OrderItemRequest();
+        second.setProductItemId(2L);
+        second.setAmount(50);
+
+        OrderRequest orderRequest = new OrderRequest();
+        orderRequest.setShippingAddressId(1L);
+        orderRequest.setPaymentMethod(PaymentMethod.COD);
+        orderRequest.setOrderItems(Arrays.asList(second, first));
+
+        when(shippingAddressRepository.findById(1L)).thenReturn(Optional.of(testShippingAddress));
+        when(productItemRepository.decrementStock(1L, 2)).thenReturn(1);
+        when(productItemRepository.decrementStock(2L, 50)).thenReturn(0);
+        when(productItemRepository.existsById(2L)).thenReturn(true);
+
+        // Act & Assert
+        CoffeeShopException exception = assertThrows(CoffeeShopException.class, () -> orderService.addOrder(orderRequest));
+        assertThat(exception.getCode()).isEqualTo(Constant.FIELD_NOT_VALID);
+        // Các dòng được trừ kho theo thứ tự id tăng dần
+        var inOrder = inOrder(productItemRepository);
+        inOrder.verify(productItemRepository).decrementStock(1L, 2);
+        inOrder.verify(productItemRepository).decrementStock(2L, 50);
+        verify(orderRepository, never()).save(any());
+        verify(orderItemRepository, never()).saveAll(anyList());
     }
 
     @Test
@@ -220,12 +261,13 @@ public class OrderServiceTest {
         // Assert
         assertThat(result).isNotNull();
         assertThat(testOrder.getStatus()).isEqualTo(OrderStatus.Processed);
+        verify(orderOutboxService).statusChanged(testOrder, OrderStatus.Processing);
     }
 
     @Test
     public void whenCancelOrder_withProcessingOrder_thenReturnSuccess() {
         // Arrange
-        when(orderRepository.findById(1L)).thenReturn(Optional.of(testOrder));
+        when(orderRepository.findByIdForUpdate(1L)).thenReturn(Optional.of(testOrder));
         when(orderRepository.save(any())).thenReturn(testOrder);
 
         // Act
@@ -234,6 +276,8 @@ public class OrderServiceTest {
         // Assert
         assertThat(result).isNotNull();
         assertThat(testOrder.getStatus()).isEqualTo(OrderStatus.Cancelled);
+        verify(stockReservationService).releaseCancelled(1L);
+        verify(orderOutboxService).statusChanged(testOrder, OrderStatus.Processing);
     }
 
     @Test
@@ -0,0 +1,115 @@
+package com.ptit.coffee_shop.service;
+
+import com.ptit.coffee_shop.common.enums.OrderEventType;
+import com.ptit.coffee_shop.common.enums.OrderStatus;
+import com.ptit.coffee_shop.common.enums.PaymentMethod;
+import com.ptit.coffee_shop.config.MessageBuilder;
+import com.ptit.coffee_shop.exception.CoffeeShopException;
+import com.ptit.coffee_shop.model.Order;
+import com.ptit.coffee_shop.model.OutboxEvent;
+import com.ptit.coffee_shop.payload.request.OrderStatusBulkRequest;
+import com.ptit.coffee_shop.payload.response.OrderStatusResult;
+import com.ptit.coffee_shop.payload.response.RespMessage;
+import com.ptit.coffee_shop.repository.OrderRepository;
+import com.ptit.coffee_shop.repository.OutboxEventRepository;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.context.annotation.Import;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.Date;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.when;
+
+// Chạy trên H2 nhúng: chuyển trạng thái hàng loạt bằng một câu SELECT và một câu UPDATE
+@DataJpaTest(properties = "spring.jpa.properties.hibernate.generate_statistics=true")
+@Import({OrderService.class, OrderOutboxService.class})
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+public class OrderStatusBulkTest {
+
+    @MockBean private MessageBuilder messageBuilder;
+    @MockBean private StockReservationService stockReservationService;
+    @MockBean private HotStockService hotStockService;
+    @MockBean private CartStore cartStore;
+
+    @Autowired private OrderService orderService;
+    @Autowired private OrderRepository orderRepository;
+    @Autowired private OutboxEventRepository outboxEventRepository;
+    @Autowired private EntityManagerFactory entityManagerFactory;
+
+    @BeforeEach
+    public void setUp() {
+        when(messageBuilder.buildSuccessMessage(any())).thenAnswer(invocation ->
+                RespMessage.builder().respCode("000").data(invocation.getArgument(0)).build());
+    }
+
+    private long saveOrder(OrderStatus status) {
+        Order order = new Order();
+        order.setStatus(status);
+        order.setPaymentMethod(PaymentMethod.COD);
+        order.setOrderDate(new Date());
+        return orderRepository.save(order).getId();
+    }
+
+    @SuppressWarnings("unchecked")
+    private List<OrderStatusResult> update(List<Long> orderIds, OrderStatus status) {
+        return (List<OrderStatusResult>) orderService.updateOrderStatuses(new OrderStatusBulkRequest(orderIds, status)).getData();
+    }
+
+    @Test
+    public void updateOrderStatuses_ShouldMoveValidOrdersAndReportEachOrder() {
+        long first = saveOrder(OrderStatus.Processed);
+        long second = saveOrder(OrderStatus.Processed);
+        long notReady = saveOrder(OrderStatus.Processing);
+        long missing = second + 100_000;
+
+        Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+        List<OrderStatusResult> results = update(List.of(first, notReady, second, missing, first), OrderStatus.Shipping);
+
+        // Một SELECT trạng thái, một UPDATE cho cả danh sách và một batch INSERT outbox_event (kèm lấy block id)
+        long statements = statistics.getPrepareStatementCount();
+        assertTrue(statements <= 5, "Expected at most 5 statements but was " + statements);
+        assertEquals(List.of(first, notReady, second, missing), results.stream().map(OrderStatusResult::getOrderId).toList());
+        assertTrue(results.get(0).isSuccess());
+        assertEquals("Processed", results.get(0).getPreviousStatus());
+        assertEquals("Shipping", results.get(0).getStatus());
+        assertFalse(results.get(1).isSuccess());
+        assertEquals("Order can not be moved from Processing to Shipping", results.get(1).getMessage());
+        assertTrue(results.get(2).isSuccess());
+        assertEquals("Order not found", results.get(3).getMessage());
+
+        assertEquals(OrderStatus.Shipping, orderRepository.findById(first).orElseThrow().getStatus());
+        assertEquals(OrderStatus.Shipping, orderRepository.findById(second).orElseThrow().getStatus());
+        assertEquals(OrderStatus.Processing, orderRepository.findById(notReady).orElseThrow().getStatus());
+
+        // Sự kiện chỉ được ghi cho các đơn đã chuyển, theo thứ tự trong request
+        List<OutboxEvent> events = outboxEventRepository.findAll().stream()
+                .filter(event -> List.of(first, second, notReady).contains(event.getOrderId()))
+                .toList();
+        assertEquals(List.of(first, second), events.stream().map(OutboxEvent::getOrderId).toList());
+        assertEquals(OrderEventType.OrderStatusChanged, events.get(0).getType());
+        assertEquals(OrderStatus.Processed, events.get(0).getPreviousStatus());
+        assertEquals(OrderStatus.Shipping, events.get(0).getStatus());
+    }
+
+    @Test
+    public void updateOrderStatuses_WithStatusOutsideWorkflow_ShouldThrow() {
+        long orderId = saveOrder(OrderStatus.Processing);
+
+        assertThrows(CoffeeShopException.class, () -> update(List.of(orderId), OrderStatus.Processing));
+        assertThrows(CoffeeShopException.class, () -> update(List.of(orderId), OrderStatus.Cancelled));
+        assertEquals(OrderStatus.Processing, orderRepository.findById(orderId).orElseThrow().getStatus());
+        assertTrue(outboxEventRepository.findAll().stream().noneMatch(event -> event.getOrderId() == orderId));
+    }
+}
@@ -0,0 +1,72 @@
+package com.ptit.coffee_shop.service;
+
+import com.ptit.coffee_shop.common.enums.OrderStatus;
+import com.ptit.coffee_shop.common.enums.PaymentMethod;
+import com.ptit.coffee_shop.model.Order;
+import com.ptit.coffee_shop.model.OrderItem;
+import com.ptit.coffee_shop.repository.OrderItemRepository;
+import com.ptit.coffee_shop.repository.OrderRepository;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.Date;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+// Chạy trên H2 nhúng: đơn cũ chưa có total được tính lại từ order_item
+@DataJpaTest
+@Import(OrderTotalBackfill.class)
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+public class OrderTotalBackfillTest {
+
+    @Autowired
+    private OrderRepository orderRepository;
+
+    @Autowired
+    private OrderItemRepository orderItemRepository;
+
+    @Autowired
+    private OrderTotalBackfill orderTotalBackfill;
+
+    private Order saveOrder(Double total) {
+        Order order = new Order();
+        order.setStatus(OrderStatus.Processing);
+        order.setPaymentMethod(PaymentMethod.COD);
+        order.setOrderDate(new Date());
+        order.setTotal(total);
+        return orderRepository.save(order);
+    }
+
+    private void saveItem(Order order, double price, double discount, int amount) {
+        OrderItem orderItem = new OrderItem();
+        orderItem.setOrder(order);
+        orderItem.setPrice(price);
+        orderItem.setDiscount(discount);
+        orderItem.setAmount(amount);
+        orderItemRepository.save(orderItem);
+    }
+
+    @Test
+    public void backfill_ShouldStoreTotalsOfOldOrdersOnly() {
+        Order oldOrder = saveOrder(null);
+        saveItem(oldOrder, 30000, 5000, 2);
+        saveItem(oldOrder, 20000, 0, 1);
+        Order emptyOrder = saveOrder(null);
+        Order newOrder = saveOrder(99.0);
+
+        orderTotalBackfill.backfill();
+
+        Order backfilled = orderRepository.findById(oldOrder.getId()).orElseThrow();
+        assertEquals(70000, backfilled.getSubtotal());
+        assertEquals(10000, backfilled.getShippingFee());
+        assertEquals(80000, backfilled.getTotal());
+        assertEquals(10000, orderRepository.findById(emptyOrder.getId()).orElseThrow().getTotal());
+        assertEquals(99.0, orderRepository.findById(newOrder.getId()).orElseThrow().getTotal());
+        assertTrue(orderRepository.findIdsWithoutTotal(PageRequest.of(0, 10)).isEmpty());
+    }
+}
@@ -0,0 +1,93 @@
+package com.ptit.coffee_shop.service;
+
+import com.ptit.coffee_shop.common.OrderEvent;
+import com.ptit.coffee_shop.common.enums.OrderEventType;
+import com.ptit.coffee_shop.common.enums.OrderStatus;
+import com.ptit.coffee_shop.model.OutboxEvent;
+import com.ptit.coffee_shop.repository.OutboxEventRepository;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class OutboxDispatcherTest {
+
+    @Mock private OutboxEventRepository outboxEventRepository;
+    @Mock private ApplicationEventPublisher eventPublisher;
+
+    @InjectMocks private OutboxDispatcher outboxDispatcher;
+
+    private OutboxEvent event(long id, long orderId, OrderEventType type) {
+        return OutboxEvent.builder()
+                .id(id)
+                .orderId(orderId)
+                .type(type)
+                .status(type == OrderEventType.OrderCancelled ? OrderStatus.Cancelled : OrderStatus.Processing)
+                .build();
+    }
+
+    @Test
+    void dispatch_ShouldPublishPendingEventsInOrderAndMarkThemDispatched() {
+        when(outboxEventRepository.findPending(anyInt(), any())).thenReturn(List.of(
+                event(1L, 7L, OrderEventType.OrderPlaced),
+                event(2L, 8L, OrderEventType.OrderPlaced),
+                event(3L, 7L, OrderEventType.OrderCancelled)));
+        List<OrderEvent> published = new ArrayList<>();
+        doAnswer(invocation -> published.add(invocation.getArgument(0))).when(eventPublisher).publishEvent(any(Object.class));
+
+        assertEquals(3, outboxDispatcher.dispatch());
+
+        assertEquals(List.of(1L, 2L, 3L), published.stream().map(OrderEvent::eventId).toList());
+        assertEquals(OrderEventType.OrderCancelled, published.get(2).type());
+        verify(outboxEventRepository).markDispatched(eq(List.of(1L, 2L, 3L)), any());
+        verify(outboxEventRepository, never()).incrementAttempts(anyCollection());
+    }
+
+    @Test
+    void dispatch_WhenListenerFails_ShouldHoldLaterEventsOfSameOrderOnly() {
+        when(outboxEventRepository.findPending(anyInt(), any())).thenReturn(List.of(
+                event(1L, 7L, OrderEventType.OrderPlaced),
+                event(2L, 8L, OrderEventType.OrderPlaced),
+                event(3L, 7L, OrderEventType.OrderCancelled)));
+        List<Long> published = new ArrayList<>();
+        doAnswer(invocation -> {
+            OrderEvent event = invocation.getArgument(0);
+            if (event.eventId() == 1L) {
+                throw new IllegalStateException("listener failed");
+            }
+            published.add(event.eventId());
+            return null;
+        }).when(eventPublisher).publishEvent(any(Object.class));
+
+        assertEquals(1, outboxDispatcher.dispatch());
+
+        // Sự kiện hủy của đơn 7 phải chờ sự kiện đặt đơn được gửi lại thành công
+        assertEquals(List.of(2L), published);
+        verify(outboxEventRepository).markDispatched(eq(List.of(2L)), any());
+        verify(outboxEventRepository).incrementAttempts(List.of(1L));
+    }
+
+    @Test
+    void dispatch_WhenBatchIsFull_ShouldKeepPollingUntilDrained() {
+        ReflectionTestUtils.setField(outboxDispatcher, "batchSize", 2);
+        when(outboxEventRepository.findPending(anyInt(), any())).thenReturn(
+                List.of(event(1L, 7L, OrderEventType.OrderPlaced), event(2L, 8L, OrderEventType.OrderPlaced)),
+                List.of(event(3L, 9L, OrderEventType.OrderPlaced)));
+
+        assertEquals(3, outboxDispatcher.dispatch());
+
+        verify(outboxEventRepository, times(2)).findPending(anyInt(), any());
+        verify(outboxEventRepository).markDispatched(eq(List.of(3L)), any());
+    }
+}
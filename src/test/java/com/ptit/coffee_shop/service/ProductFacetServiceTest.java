@@ -0,0 +1,139 @@
+package com.ptit.coffee_shop.service;
+
+import com.ptit.coffee_shop.common.Constant;
+import com.ptit.coffee_shop.common.enums.Status;
+import com.ptit.coffee_shop.exception.CoffeeShopException;
+import com.ptit.coffee_shop.model.*;
+import com.ptit.coffee_shop.payload.request.ProductFilterRequest;
+import com.ptit.coffee_shop.repository.ProductItemRepository;
+import com.ptit.coffee_shop.repository.ProductRepository;
+import com.ptit.coffee_shop.repository.ProductSummaryRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class ProductFacetServiceTest {
+
+    @Mock private ProductRepository productRepository;
+    @Mock private ProductItemRepository productItemRepository;
+    @Mock private ProductSummaryRepository productSummaryRepository;
+
+    @InjectMocks private ProductFacetService productFacetService;
+
+    private Product latte;
+    private Product espresso;
+    private Product tea;
+
+    private Product createProduct(long id, long categoryId, long brandId) {
+        Category category = new Category();
+        category.setId(categoryId);
+        Brand brand = new Brand();
+        brand.setId(brandId);
+        Product product = new Product();
+        product.setId(id);
+        product.setCategory(category);
+        product.setBrand(brand);
+        product.setStatus(Status.ACTIVE);
+        return product;
+    }
+
+    private ProductItem createItem(Product product, long typeId, double price, int stock) {
+        TypeProduct type = new TypeProduct();
+        type.setId(typeId);
+        return ProductItem.builder().product(product).type(type).price(price).stock(stock).status(Status.ACTIVE).build();
+    }
+
+    @BeforeEach
+    void setUp() {
+        latte = createProduct(1L, 10L, 100L);
+        espresso = createProduct(2L, 10L, 200L);
+        tea = createProduct(3L, 20L, 100L);
+        when(productRepository.findByStatus(Status.ACTIVE)).thenReturn(List.of(latte, espresso, tea));
+        when(productItemRepository.findActiveByProductIds(anyCollection())).thenReturn(List.of(
+                createItem(latte, 1L, 45000, 10),
+                createItem(latte, 2L, 55000, 0),
+                createItem(espresso, 1L, 25000, 5),
+                createItem(tea, 2L, 35000, 0)));
+        when(productSummaryRepository.findAllById(anyCollection())).thenReturn(List.of(
+                ProductSummary.builder().productId(1L).rating(4.5).build(),
+                ProductSummary.builder().productId(2L).rating(3.0).build()));
+        productFacetService.rebuild();
+    }
+
+    @Test
+    void filter_WithoutCriteria_ShouldReturnAllWithCounts() {
+        ProductFacetService.FacetResult result = productFacetService.filter(new ProductFilterRequest());
+
+        assertEquals(List.of(1L, 2L, 3L), result.productIds());
+        assertEquals(Map.of("10", 2, "20", 1), result.facets().get(ProductFacetService.FACET_CATEGORY));
+        assertEquals(Map.of("1", 2, "2", 2), result.facets().get(ProductFacetService.FACET_TYPE));
+        assertEquals(Map.of("0-30000", 1, "30000-50000", 1), result.facets().get(ProductFacetService.FACET_PRICE));
+        assertEquals(Map.of("true", 2), result.facets().get(ProductFacetService.FACET_IN_STOCK));
+        assertEquals(Map.of("1", 2, "2", 2, "3", 2, "4", 1), result.facets().get(ProductFacetService.FACET_RATING));
+    }
+
+    @Test
+    void filter_ShouldOrWithinFacetAndAndAcrossFacets() {
+        ProductFilterRequest request = ProductFilterRequest.builder()
+                .brandIds(List.of(100L, 200L))
+                .categoryIds(List.of(10L))
+                .minRating(4)
+                .build();
+
+        ProductFacetService.FacetResult result = productFacetService.filter(request);
+
+        assertEquals(List.of(1L), result.productIds());
+        // Số lượng brand được đếm khi bỏ qua bộ lọc brand nhưng vẫn áp dụng category và rating
+        assertEquals(Map.of("100", 1), result.facets().get(ProductFacetService.FACET_BRAND));
+        assertEquals(Map.of("10", 1), result.facets().get(ProductFacetService.FACET_CATEGORY));
+        assertEquals(Map.of("1", 2, "2", 2, "3", 2, "4", 1), result.facets().get(ProductFacetService.FACET_RATING));
+    }
+
+    @Test
+    void filter_ByPriceBandAndStock_ShouldUseInStockItemsOnly() {
+        ProductFilterRequest request = ProductFilterRequest.builder()
+                .priceBands(List.of("30000-50000", "50000-100000"))
+                .inStock(true)
+                .build();
+
+        assertEquals(List.of(1L), productFacetService.filter(request).productIds());
+    }
+
+    @Test
+    void refresh_ShouldMoveProductBetweenFacetsAndDropInactive() {
+        latte.getCategory().setId(20L);
+        espresso.setStatus(Status.INACTIVE);
+        when(productRepository.findAllById(List.of(1L, 2L))).thenReturn(List.of(latte, espresso));
+        when(productItemRepository.findActiveByProductIds(List.of(1L))).thenReturn(List.of(createItem(latte, 1L, 45000, 0)));
+        when(productSummaryRepository.findAllById(List.of(1L))).thenReturn(List.of());
+
+        productFacetService.refresh(List.of(1L, 2L));
+
+        ProductFacetService.FacetResult result = productFacetService.filter(
+                ProductFilterRequest.builder().categoryIds(List.of(20L)).build());
+        assertEquals(List.of(1L, 3L), result.productIds());
+        assertEquals(Map.of("20", 2), result.facets().get(ProductFacetService.FACET_CATEGORY));
+        assertTrue(result.facets().get(ProductFacetService.FACET_IN_STOCK).isEmpty());
+        assertTrue(result.facets().get(ProductFacetService.FACET_RATING).isEmpty());
+    }
+
+    @Test
+    void filter_WithInvalidCriteria_ShouldThrowException() {
+        CoffeeShopException ratingException = assertThrows(CoffeeShopException.class,
+                () -> productFacetService.filter(ProductFilterRequest.builder().minRating(6).build()));
+        assertEquals(Constant.FIELD_NOT_VALID, ratingException.getCode());
+        assertThrows(CoffeeShopException.class,
+                () -> productFacetService.filter(ProductFilterRequest.builder().priceBands(List.of("cheap")).build()));
+    }
+}
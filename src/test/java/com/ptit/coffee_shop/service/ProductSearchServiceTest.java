@@ -0,0 +1,125 @@
+package com.ptit.coffee_shop.service;
+
+import com.ptit.coffee_shop.common.CatalogChangedEvent;
+import com.ptit.coffee_shop.common.enums.Status;
+import com.ptit.coffee_shop.model.Brand;
+import com.ptit.coffee_shop.model.Category;
+import com.ptit.coffee_shop.model.Product;
+import com.ptit.coffee_shop.repository.ProductRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class ProductSearchServiceTest {
+
+    @Mock private ProductRepository productRepository;
+
+    @InjectMocks private ProductSearchService productSearchService;
+
+    private Product latte;
+    private Product espresso;
+    private Product greenTea;
+
+    private Product createProduct(long id, String name, String brandName, String categoryName, String description) {
+        Brand brand = new Brand();
+        brand.setName(brandName);
+        Category category = new Category();
+        category.setName(categoryName);
+        Product product = new Product();
+        product.setId(id);
+        product.setName(name);
+        product.setBrand(brand);
+        product.setCategory(category);
+        product.setDescription(description);
+        product.setStatus(Status.ACTIVE);
+        return product;
+    }
+
+    @BeforeEach
+    void setUp() {
+        latte = createProduct(1L, "Caramel Latte", "Highlands", "Coffee", "Espresso with steamed milk");
+        espresso = createProduct(2L, "Espresso", "Trung Nguyen", "Coffee", "Strong black coffee");
+        greenTea = createProduct(3L, "Green Tea Latte", "Phuc Long", "Tea", "Matcha with milk");
+        when(productRepository.findByStatus(Status.ACTIVE)).thenReturn(List.of(latte, espresso, greenTea));
+        productSearchService.rebuild();
+    }
+
+    @Test
+    void search_ShouldRankNameMatchesAboveDescriptionMatches() {
+        List<Product> result = productSearchService.search("espresso");
+
+        assertEquals(List.of(espresso, latte), result);
+    }
+
+    @Test
+    void search_ShouldRequireAllTokensAndMatchLastTokenByPrefix() {
+        assertEquals(List.of(greenTea), productSearchService.search("latte tea"));
+        assertEquals(List.of(latte, greenTea), productSearchService.search("lat"));
+        assertTrue(productSearchService.search("latte espresso tea").isEmpty());
+    }
+
+    @Test
+    void search_ShouldMatchBrandAndCategoryNames() {
+        assertEquals(List.of(greenTea), productSearchService.search("Phuc Long"));
+        assertEquals(2, productSearchService.search("coffee").size());
+    }
+
+    @Test
+    void index_WhenProductUpdated_ShouldReplaceOldTerms() {
+        latte.setName("Caramel Macchiato");
+
+        productSearchService.index(latte);
+
+        assertEquals(List.of(greenTea), productSearchService.search("latte"));
+        assertEquals(List.of(latte), productSearchService.search("macchiato"));
+        assertEquals(3, productSearchService.size());
+    }
+
+    @Test
+    void index_WhenProductInactive_ShouldRemoveFromIndex() {
+        espresso.setStatus(Status.INACTIVE);
+
+        productSearchService.index(espresso);
+        productSearchService.remove(greenTea.getId());
+
+        assertEquals(List.of(latte), productSearchService.search("espresso"));
+        assertEquals(1, productSearchService.size());
+    }
+
+    @Test
+    void onCatalogChanged_WhenCategoryRenamed_ShouldReindexItsProducts() {
+        latte.getCategory().setName("Signature");
+        when(productRepository.findAllById(List.of(latte.getId()))).thenReturn(List.of(latte));
+
+        productSearchService.onCatalogChanged(new CatalogChangedEvent(CatalogChangedEvent.CATEGORY, List.of(latte.getId())));
+
+        assertEquals(List.of(espresso), productSearchService.search("coffee"));
+        assertEquals(List.of(latte), productSearchService.search("signature"));
+    }
+
+    @Test
+    void search_ShouldIgnoreVietnameseDiacritics() {
+        Product caPhe = createProduct(4L, "Cà phê sữa đá", "Trung Nguyên", "Cà phê", "Đậm đà");
+        productSearchService.index(caPhe);
+
+        assertEquals(List.of(caPhe), productSearchService.search("ca phe sua da"));
+        assertEquals(List.of(caPhe), productSearchService.search("CÀ PHÊ SỮA"));
+        assertEquals(List.of(caPhe), productSearchService.search("dam d"));
+        assertEquals(List.of("ca", "phe", "sua", "da"), ProductSearchService.tokenize("Cà phê, sữa  đá!"));
+    }
+
+    @Test
+    void search_WithBlankKeyword_ShouldReturnEmpty() {
+        assertTrue(productSearchService.search("  ").isEmpty());
+        assertTrue(productSearchService.search(null).isEmpty());
+    }
+}
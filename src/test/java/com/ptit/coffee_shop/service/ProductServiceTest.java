@@ -1,19 +1,26 @@
 package com.ptit.coffee_shop.service;
 
+import com.ptit.coffee_shop.common.CatalogChangedEvent;
 import com.ptit.coffee_shop.common.Constant;
 import com.ptit.coffee_shop.common.enums.Status;
 import com.ptit.coffee_shop.config.MessageBuilder;
 import com.ptit.coffee_shop.exception.CoffeeShopException;
 import com.ptit.coffee_shop.model.*;
+import com.ptit.coffee_shop.payload.request.ProductFilterRequest;
 import com.ptit.coffee_shop.payload.request.ProductRequest;
+import com.ptit.coffee_shop.payload.response.CatalogProductResponse;
+import com.ptit.coffee_shop.payload.response.ProductFilterResponse;
+import com.ptit.coffee_shop.payload.response.ProductPageResponse;
 import com.ptit.coffee_shop.payload.response.ProductResponse;
 import com.ptit.coffee_shop.payload.response.RespMessage;
+import com.ptit.coffee_shop.payload.response.SuggestionResponse;
 import com.ptit.coffee_shop.repository.*;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.mock.web.MockMultipartFile;
 import org.springframework.web.multipart.MultipartFile;
 
@@ -35,6 +42,11 @@ class ProductServiceTest {
     @Mock private OrderItemRepository orderItemRepository;
     @Mock private CloudinaryService cloudinaryService;
     @Mock private MessageBuilder messageBuilder;
+    @Mock private ProductSummaryService productSummaryService;
+    @Mock private ProductSearchService productSearchService;
+    @Mock private ProductSuggestService productSuggestService;
+    @Mock private ProductFacetService productFacetService;
+    @Mock private ApplicationEventPublisher eventPublisher;
 
     @InjectMocks private ProductService productService;
 
@@ -63,39 +75,70 @@ class ProductServiceTest {
     void getAllProduct_WhenActiveAndInactiveExist_ShouldReturnOnlyActive() {
         // Arrange
         Product activeProduct = createProduct(1L, "Active Product", Status.ACTIVE);
-        Product inactiveProduct = createProduct(2L, "Inactive Product", Status.INACTIVE);
-        List<Product> products = List.of(activeProduct, inactiveProduct);
-        ProductResponse response = new ProductResponse();
-        response.setName("Active Product");
-        List<Image> images = List.of(new Image());
-
-        // Mock repository calls
-        when(productRepository.findAll()).thenReturn(products);
-        when(imageRepository.findByProduct(activeProduct)).thenReturn(images);
+        Image image = new Image();
+        image.setProduct(activeProduct);
 
-        // Mock getProductResponse to return response directly, avoiding extra calls to findByProduct
-        ProductService productServiceSpy = spy(productService);
-        doReturn(response).when(productServiceSpy).getProductResponse(activeProduct);
+        // Mock repository calls: trạng thái ACTIVE được lọc ngay trong SQL
+        when(productRepository.findByStatus(Status.ACTIVE)).thenReturn(List.of(activeProduct));
+        when(imageRepository.findByProductIds(List.of(1L))).thenReturn(List.of(image));
 
         // Mock messageBuilder
-        when(messageBuilder.buildSuccessMessage(anyList())).thenReturn(
-                createRespMessage(Constant.SUCCESS, "Success", List.of(response)));
+        when(messageBuilder.buildSuccessMessage(anyList())).thenAnswer(invocation ->
+                createRespMessage(Constant.SUCCESS, "Success", invocation.getArgument(0)));
 
         // Act
-        RespMessage result = productServiceSpy.getAllProduct();
+        RespMessage result = productService.getAllProduct();
 
         // Assert
         assertEquals(Constant.SUCCESS, result.getRespCode());
-        assertEquals(1, ((List<?>) result.getData()).size());
-        verify(productRepository).findAll();
-        verify(imageRepository, times(1)).findByProduct(activeProduct); // Ensure exactly 1 call
+        List<?> data = (List<?>) result.getData();
+        assertEquals(1, data.size());
+        assertEquals("Active Product", ((CatalogProductResponse) data.get(0)).getName());
+        assertEquals(1, ((CatalogProductResponse) data.get(0)).getImages().size());
+        verify(productRepository).findByStatus(Status.ACTIVE);
+        verify(productRepository, never()).findAll();
+        verify(imageRepository, times(1)).findByProductIds(List.of(1L)); // Ensure exactly 1 call
+        verify(imageRepository, never()).findByProduct(any());
         verify(messageBuilder).buildSuccessMessage(anyList());
     }
 
+    @Test
+    void getAllProduct_WithManyProducts_ShouldUseFixedNumberOfQueries() {
+        // Arrange
+        List<Product> products = new ArrayList<>();
+        for (long id = 1; id <= 50; id++) {
+            products.add(createProduct(id, "Product " + id, Status.ACTIVE));
+        }
+        when(productRepository.findByStatus(Status.ACTIVE)).thenReturn(products);
+        when(productSummaryService.getSummaries(anyCollection())).thenReturn(Map.of(2L, ProductSummary.builder()
+                .productId(2L).rating(4.5).totalReview(2).totalSold(7).minPrice(30000.0).maxPrice(45000.0).build()));
+        when(messageBuilder.buildSuccessMessage(anyList())).thenAnswer(invocation ->
+                createRespMessage(Constant.SUCCESS, "Success", invocation.getArgument(0)));
+
+        // Act
+        RespMessage result = productService.getAllProduct();
+
+        // Assert
+        List<?> data = (List<?>) result.getData();
+        assertEquals(50, data.size());
+        CatalogProductResponse second = (CatalogProductResponse) data.get(1);
+        assertEquals(4.5, second.getRating());
+        assertEquals(2, second.getTotalReview());
+        assertEquals(7, second.getTotalSold());
+        assertEquals(30000.0, second.getMinPrice());
+        assertEquals(45000.0, second.getMaxPrice());
+        CatalogProductResponse first = (CatalogProductResponse) data.get(0);
+        assertEquals(0.0, first.getRating());
+        assertEquals(0, first.getTotalSold());
+        verify(imageRepository, times(1)).findByProductIds(anyCollection());
+        verify(productSummaryService, times(1)).getSummaries(anyCollection());
+        verify(productSummaryService, never()).getSummary(anyLong());
+    }
+
         @Test
         void getAllProduct_WhenEmpty_ShouldReturnEmptyList() {
             // Arrange
-            when(productRepository.findAll()).thenReturn(Collections.emptyList());
+            when(productRepository.findByStatus(Status.ACTIVE)).thenReturn(Collections.emptyList());
             when(messageBuilder.buildSuccessMessage(anyList())).thenReturn(
                     createRespMessage(Constant.SUCCESS, "Success", Collections.emptyList()));
 
@@ -105,12 +148,90 @@ class ProductServiceTest {
             // Assert
             assertEquals(Constant.SUCCESS, result.getRespCode());
             assertTrue(((List<?>) result.getData()).isEmpty());
-            verify(productRepository).findAll();
-            verify(imageRepository, never()).findByProduct(any());
+            verify(productRepository).findByStatus(Status.ACTIVE);
+            verify(imageRepository, never()).findByProductIds(any());
             verify(messageBuilder).buildSuccessMessage(Collections.emptyList());
         }
     // endregion
 
+    // region getProductPage
+    @Test
+    void getProductPage_WhenMoreRowsThanSize_ShouldReturnNextCursor() {
+        // Arrange
+        List<Object[]> rows = new ArrayList<>();
+        for (long id = 5; id >= 3; id--) {
+            rows.add(new Object[]{createProduct(id, "Product " + id, Status.ACTIVE), id});
+        }
+        when(productRepository.findActivePageByNewest(eq(Long.MAX_VALUE), any())).thenReturn(rows);
+        when(messageBuilder.buildSuccessMessage(any())).thenAnswer(invocation ->
+                createRespMessage(Constant.SUCCESS, "Success", invocation.getArgument(0)));
+
+        // Act
+        RespMessage result = productService.getProductPage(2, "newest", null);
+
+        // Assert
+        ProductPageResponse page = (ProductPageResponse) result.getData();
+        assertEquals(2, page.getProducts().size());
+        assertEquals(5L, page.getProducts().get(0).getId());
+        assertEquals(4L, page.getProducts().get(1).getId());
+        assertTrue(page.isHasNext());
+        assertNotNull(page.getNextCursor());
+        verify(imageRepository, times(1)).findByProductIds(List.of(5L, 4L));
+    }
+
+    @Test
+    void getProductPage_WithCursor_ShouldContinueAfterLastRow() {
+        // Arrange
+        List<Object[]> firstRows = new ArrayList<>();
+        firstRows.add(new Object[]{createProduct(7L, "Cheap", Status.ACTIVE), 20000.0});
+        firstRows.add(new Object[]{createProduct(3L, "Middle", Status.ACTIVE), 25000.0});
+        when(productRepository.findActivePageByPrice(eq(-1.0), eq(0L), any())).thenReturn(firstRows);
+        List<Object[]> secondRows = new ArrayList<>();
+        secondRows.add(new Object[]{createProduct(9L, "Expensive", Status.ACTIVE), 30000.0});
+        when(productRepository.findActivePageByPrice(eq(20000.0), eq(7L), any())).thenReturn(secondRows);
+        when(messageBuilder.buildSuccessMessage(any())).thenAnswer(invocation ->
+                createRespMessage(Constant.SUCCESS, "Success", invocation.getArgument(0)));
+
+        // Act
+        ProductPageResponse firstPage = (ProductPageResponse) productService.getProductPage(1, "price", null).getData();
+        ProductPageResponse secondPage = (ProductPageResponse) productService
+                .getProductPage(1, "price", firstPage.getNextCursor()).getData();
+
+        // Assert
+        assertEquals(7L, firstPage.getProducts().get(0).getId());
+        assertEquals(9L, secondPage.getProducts().get(0).getId());
+        assertFalse(secondPage.isHasNext());
+        assertNull(secondPage.getNextCursor());
+    }
+
+    @Test
+    void getProductPage_WhenCursorBelongsToOtherSort_ShouldThrowException() {
+        // Arrange
+        List<Object[]> rows = new ArrayList<>();
+        rows.add(new Object[]{createProduct(2L, "A", Status.ACTIVE), 10});
+        rows.add(new Object[]{createProduct(1L, "B", Status.ACTIVE), 5});
+        when(productRepository.findActivePageByBestSelling(eq(Integer.MAX_VALUE), eq(Long.MAX_VALUE), any())).thenReturn(rows);
+        when(messageBuilder.buildSuccessMessage(any())).thenAnswer(invocation ->
+                createRespMessage(Constant.SUCCESS, "Success", invocation.getArgument(0)));
+        String cursor = ((ProductPageResponse) productService.getProductPage(1, "best-selling", null).getData()).getNextCursor();
+
+        // Act & Assert
+        CoffeeShopException exception = assertThrows(CoffeeShopException.class,
+                () -> productService.getProductPage(1, "rating", cursor));
+        assertEquals(Constant.FIELD_NOT_VALID, exception.getCode());
+        verify(productRepository, never()).findActivePageByRating(anyDouble(), anyLong(), any());
+    }
+
+    @Test
+    void getProductPage_WhenSizeOrSortInvalid_ShouldThrowException() {
+        assertThrows(CoffeeShopException.class, () -> productService.getProductPage(0, "newest", null));
+        assertThrows(CoffeeShopException.class, () -> productService.getProductPage(ProductService.MAX_PAGE_SIZE + 1, "newest", null));
+        assertThrows(CoffeeShopException.class, () -> productService.getProductPage(10, "cheapest", null));
+        assertThrows(CoffeeShopException.class, () -> productService.getProductPage(10, "newest", "not-a-cursor"));
+        verifyNoInteractions(productRepository);
+    }
+    // endregion
+
     // region getProductById
     @Test
     void getProductById_WhenActiveExists_ShouldReturnProduct() {
@@ -175,17 +296,82 @@ class ProductServiceTest {
     }
     // endregion
 
+    // region catalogSnapshot
+    @Test
+    void getProductById_WhenInSnapshot_ShouldNotQueryRepository() {
+        // Arrange
+        when(productRepository.findByStatus(Status.ACTIVE)).thenReturn(List.of(createProduct(1L, "Cached", Status.ACTIVE)));
+        when(messageBuilder.buildSuccessMessage(any())).thenAnswer(invocation ->
+                createRespMessage(Constant.SUCCESS, "Success", invocation.getArgument(0)));
+        productService.rebuildCatalogSnapshot();
+
+        // Act
+        RespMessage first = productService.getProductById(1L);
+        RespMessage second = productService.getAllProduct();
+
+        // Assert
+        assertEquals("Cached", ((CatalogProductResponse) first.getData()).getName());
+        assertEquals(1, ((List<?>) second.getData()).size());
+        verify(productRepository, times(1)).findByStatus(Status.ACTIVE);
+        verify(productRepository, never()).findById(anyLong());
+    }
+
+    @Test
+    void onCatalogChanged_ShouldSwapInNewSnapshot() {
+        // Arrange
+        when(productRepository.findByStatus(Status.ACTIVE))
+                .thenReturn(List.of(createProduct(1L, "Old", Status.ACTIVE)))
+                .thenReturn(List.of(createProduct(1L, "New", Status.ACTIVE), createProduct(2L, "Added", Status.ACTIVE)));
+        CatalogSnapshot before = productService.getCatalogSnapshot();
+
+        // Act
+        productService.onCatalogChanged(new CatalogChangedEvent(CatalogChangedEvent.PRODUCT));
+        CatalogSnapshot after = productService.getCatalogSnapshot();
+
+        // Assert
+        assertEquals("Old", before.getProduct(1L).getName());
+        assertEquals(1, before.getProducts().size());
+        assertEquals("New", after.getProduct(1L).getName());
+        assertEquals(2, after.getProducts().size());
+        assertTrue(after.getVersion() > before.getVersion());
+        assertThrows(UnsupportedOperationException.class, () -> after.getProducts().clear());
+    }
+
+    @Test
+    void onCatalogChanged_WhenOnlySummaryChanged_ShouldPatchSnapshotWithoutRebuild() {
+        // Arrange
+        when(productRepository.findByStatus(Status.ACTIVE))
+                .thenReturn(List.of(createProduct(1L, "Latte", Status.ACTIVE), createProduct(2L, "Mocha", Status.ACTIVE)));
+        CatalogSnapshot before = productService.getCatalogSnapshot();
+        when(productSummaryService.getSummaries(List.of(2L))).thenReturn(Map.of(2L,
+                ProductSummary.builder().productId(2L).rating(4.0).totalSold(3).minPrice(25000.0).build()));
+
+        // Act
+        productService.onCatalogChanged(new CatalogChangedEvent(CatalogChangedEvent.PRODUCT_SUMMARY, List.of(2L)));
+        CatalogSnapshot after = productService.getCatalogSnapshot();
+
+        // Assert
+        assertEquals(3, after.getProduct(2L).getTotalSold());
+        assertEquals(25000.0, after.getProduct(2L).getMinPrice());
+        assertEquals(0, before.getProduct(2L).getTotalSold());
+        assertSame(before.getProduct(1L), after.getProduct(1L));
+        assertTrue(after.getVersion() > before.getVersion());
+        verify(productRepository, times(1)).findByStatus(Status.ACTIVE);
+    }
+    // endregion
+
     // region getProductsByCategoryId
     @Test
     void getProductsByCategoryId_WhenActiveProductsExist_ShouldReturnProducts() {
         // Arrange
         Product product = createProduct(1L, "Test Product", Status.ACTIVE);
-        ProductResponse response = new ProductResponse();
-        response.setName("Test Product");
+        product.getCategory().setId(1L);
+        Product otherCategoryProduct = createProduct(2L, "Other Product", Status.ACTIVE);
+        otherCategoryProduct.getCategory().setId(2L);
 
-        when(productRepository.findByCategoryId(1L)).thenReturn(List.of(product));
-        when(messageBuilder.buildSuccessMessage(anyList())).thenReturn(
-                createRespMessage(Constant.SUCCESS, "Success", List.of(response)));
+        when(productRepository.findByStatus(Status.ACTIVE)).thenReturn(List.of(product, otherCategoryProduct));
+        when(messageBuilder.buildSuccessMessage(anyList())).thenAnswer(invocation ->
+                createRespMessage(Constant.SUCCESS, "Success", invocation.getArgument(0)));
 
         // Act
         RespMessage result = productService.getProductsByCategoryId(1L);
@@ -193,15 +379,16 @@ class ProductServiceTest {
         // Assert
         assertEquals(Constant.SUCCESS, result.getRespCode());
         assertEquals(1, ((List<?>) result.getData()).size());
-        verify(productRepository).findByCategoryId(1L);
+        assertEquals("Test Product", ((CatalogProductResponse) ((List<?>) result.getData()).get(0)).getName());
+        verify(productRepository, never()).findByCategoryId(anyLong());
         verify(messageBuilder).buildSuccessMessage(anyList());
     }
 
     @Test
     void getProductsByCategoryId_WhenNoActiveProducts_ShouldReturnEmptyList() {
         // Arrange
-        Product inactiveProduct = createProduct(1L, "Test Product", Status.INACTIVE);
-        when(productRepository.findByCategoryId(1L)).thenReturn(List.of(inactiveProduct));
+        // Snapshot chỉ chứa sản phẩm ACTIVE
+        when(productRepository.findByStatus(Status.ACTIVE)).thenReturn(Collections.emptyList());
         when(messageBuilder.buildSuccessMessage(anyList())).thenReturn(
                 createRespMessage(Constant.SUCCESS, "Success", Collections.emptyList()));
 
@@ -211,20 +398,20 @@ class ProductServiceTest {
         // Assert
         assertEquals(Constant.SUCCESS, result.getRespCode());
         assertTrue(((List<?>) result.getData()).isEmpty());
-        verify(productRepository).findByCategoryId(1L);
+        verify(productRepository).findByStatus(Status.ACTIVE);
         verify(messageBuilder).buildSuccessMessage(Collections.emptyList());
     }
 
     @Test
     void getProductsByCategoryId_WhenError_ShouldThrowException() {
         // Arrange
-        when(productRepository.findByCategoryId(1L)).thenThrow(new RuntimeException("DB Error"));
+        when(productRepository.findByStatus(Status.ACTIVE)).thenThrow(new RuntimeException("DB Error"));
 
         // Act & Assert
         CoffeeShopException exception = assertThrows(CoffeeShopException.class,
                 () -> productService.getProductsByCategoryId(1L));
         assertEquals(Constant.SYSTEM_ERROR, exception.getCode());
-        verify(productRepository).findByCategoryId(1L);
+        verify(productRepository).findByStatus(Status.ACTIVE);
         verify(messageBuilder, never()).buildSuccessMessage(any());
     }
     // endregion
@@ -237,7 +424,7 @@ class ProductServiceTest {
         ProductResponse response = new ProductResponse();
         response.setName("Test Product");
 
-        when(productRepository.searchByKeyword("test")).thenReturn(List.of(product));
+        when(productSearchService.search("test")).thenReturn(List.of(product));
         when(messageBuilder.buildSuccessMessage(anyList())).thenReturn(
                 createRespMessage(Constant.SUCCESS, "Success", List.of(response)));
 
@@ -247,14 +434,14 @@ class ProductServiceTest {
         // Assert
         assertEquals(Constant.SUCCESS, result.getRespCode());
         assertEquals(1, ((List<?>) result.getData()).size());
-        verify(productRepository).searchByKeyword("test");
+        verify(productSearchService).search("test");
         verify(messageBuilder).buildSuccessMessage(anyList());
     }
 
     @Test
     void searchProductsByKeyword_WhenNoMatches_ShouldReturnFailure() {
         // Arrange
-        when(productRepository.searchByKeyword("invalid")).thenReturn(Collections.emptyList());
+        when(productSearchService.search("invalid")).thenReturn(Collections.emptyList());
         when(messageBuilder.buildFailureMessage(eq(Constant.FIELD_NOT_FOUND), isNull(), isNull())).thenReturn(
                 createRespMessage(Constant.FIELD_NOT_FOUND, "Not found", null));
 
@@ -263,14 +450,14 @@ class ProductServiceTest {
 
         // Assert
         assertEquals(Constant.FIELD_NOT_FOUND, result.getRespCode());
-        verify(productRepository).searchByKeyword("invalid");
+        verify(productSearchService).search("invalid");
         verify(messageBuilder).buildFailureMessage(eq(Constant.FIELD_NOT_FOUND), isNull(), isNull());
     }
 
     @Test
     void searchProductsByKeyword_WhenError_ShouldReturnFailure() {
         // Arrange
-        when(productRepository.searchByKeyword("test")).thenThrow(new RuntimeException("DB Error"));
+        when(productSearchService.search("test")).thenThrow(new RuntimeException("Index Error"));
         when(messageBuilder.buildFailureMessage(eq(Constant.SYSTEM_ERROR), isNull(), isNull())).thenReturn(
                 createRespMessage(Constant.SYSTEM_ERROR, "System error", null));
 
@@ -279,11 +466,75 @@ class ProductServiceTest {
 
         // Assert
         assertEquals(Constant.SYSTEM_ERROR, result.getRespCode());
-        verify(productRepository).searchByKeyword("test");
+        verify(productSearchService).search("test");
         verify(messageBuilder).buildFailureMessage(eq(Constant.SYSTEM_ERROR), isNull(), isNull());
     }
     // endregion
 
+    // region suggestProducts
+    @Test
+    void suggestProducts_ShouldReturnSuggestionsFromTrie() {
+        // Arrange
+        List<SuggestionResponse> suggestions = List.of(new SuggestionResponse("Cà phê sữa đá", ProductSuggestService.TYPE_PRODUCT, 10));
+        when(productSuggestService.suggest("ca", 5)).thenReturn(suggestions);
+        when(messageBuilder.buildSuccessMessage(suggestions)).thenReturn(
+                createRespMessage(Constant.SUCCESS, "Success", suggestions));
+
+        // Act
+        RespMessage result = productService.suggestProducts("ca", 5);
+
+        // Assert
+        assertEquals(suggestions, result.getData());
+        verifyNoInteractions(productRepository);
+    }
+
+    @Test
+    void suggestProducts_WithInvalidLimit_ShouldThrowException() {
+        assertThrows(CoffeeShopException.class, () -> productService.suggestProducts("ca", 0));
+        assertThrows(CoffeeShopException.class,
+                () -> productService.suggestProducts("ca", ProductSuggestService.MAX_SUGGESTIONS + 1));
+        verifyNoInteractions(productSuggestService);
+    }
+    // endregion
+
+    // region filterProducts
+    @Test
+    void filterProducts_ShouldServeRequestedPageFromSnapshot() {
+        // Arrange
+        ProductFilterRequest request = ProductFilterRequest.builder().brandIds(List.of(1L)).page(0).size(2).build();
+        Map<String, Map<String, Integer>> facets = Map.of(ProductFacetService.FACET_BRAND, Map.of("1", 3));
+        when(productFacetService.filter(request)).thenReturn(new ProductFacetService.FacetResult(List.of(1L, 2L, 3L), facets));
+        when(productRepository.findByStatus(Status.ACTIVE)).thenReturn(List.of(createProduct(2L, "B", Status.ACTIVE),
+                createProduct(1L, "A", Status.ACTIVE), createProduct(3L, "C", Status.ACTIVE)));
+        when(messageBuilder.buildSuccessMessage(any())).thenAnswer(invocation ->
+                createRespMessage(Constant.SUCCESS, "Success", invocation.getArgument(0)));
+        productService.rebuildCatalogSnapshot();
+
+        // Act
+        ProductFilterResponse first = (ProductFilterResponse) productService.filterProducts(request).getData();
+        request.setPage(1);
+        ProductFilterResponse second = (ProductFilterResponse) productService.filterProducts(request).getData();
+
+        // Assert
+        assertEquals(3, first.getTotal());
+        assertEquals(List.of("A", "B"), first.getProducts().stream().map(CatalogProductResponse::getName).toList());
+        assertEquals(facets, first.getFacets());
+        assertEquals(List.of("C"), second.getProducts().stream().map(CatalogProductResponse::getName).toList());
+        verify(productRepository, never()).findAllById(any());
+        verify(imageRepository, times(1)).findByProductIds(anyCollection());
+    }
+
+    @Test
+    void filterProducts_WhenSizeTooLarge_ShouldThrowException() {
+        ProductFilterRequest request = ProductFilterRequest.builder().size(ProductService.MAX_PAGE_SIZE + 1).build();
+
+        CoffeeShopException exception = assertThrows(CoffeeShopException.class, () -> productService.filterProducts(request));
+
+        assertEquals(Constant.FIELD_NOT_VALID, exception.getCode());
+        verifyNoInteractions(productFacetService);
+    }
+    // endregion
+
     // region addProduct
     @Test
     void addProduct_WithValidRequest_ShouldCreateProduct() {
@@ -307,6 +558,9 @@ class ProductServiceTest {
         verify(categoryRepository).findById(1L);
         verify(brandRepository).findById(1L);
         verify(productRepository).save(any(Product.class));
+        verify(productSummaryService).create(anyLong());
+        verify(productSearchService).index(any(Product.class));
+        verify(eventPublisher).publishEvent(any(CatalogChangedEvent.class));
         verify(messageBuilder).buildSuccessMessage(any());
     }
 
@@ -377,6 +631,7 @@ class ProductServiceTest {
         assertEquals(Constant.SUCCESS, result.getRespCode());
         verify(brandRepository).findByName(name);
         verify(brandRepository).save(any(Brand.class));
+        verify(eventPublisher).publishEvent(new CatalogChangedEvent(CatalogChangedEvent.BRAND));
         verify(messageBuilder).buildSuccessMessage(any());
     }
 
@@ -513,6 +768,7 @@ class ProductServiceTest {
         assertEquals(Status.INACTIVE, product.getStatus());
         verify(productRepository).findById(1L);
         verify(productRepository).save(product);
+        verify(productSearchService).remove(1L);
         verify(messageBuilder).buildSuccessMessage(any());
     }
 
@@ -750,14 +1006,11 @@ class ProductServiceTest {
         // Arrange
         Product product = createProduct(1L, "Test Product", Status.ACTIVE);
         Image image = new Image();
-        Review review = new Review();
-        review.setRating(4.0);
+        ProductSummary summary = ProductSummary.builder()
+                .productId(1L).rating(4.0).totalReview(1).totalSold(100).minPrice(30.0).maxPrice(50.0).build();
 
         when(imageRepository.findByProduct(product)).thenReturn(List.of(image));
-        when(reviewRepository.findByProductId(1L)).thenReturn(List.of(review));
-        when(orderItemRepository.findTotalSold(1L)).thenReturn(Optional.of(100));
-        when(productRepository.maxPrice(1L)).thenReturn(Optional.of(50.0));
-        when(productRepository.minPrice(1L)).thenReturn(Optional.of(30.0));
+        when(productSummaryService.getSummary(1L)).thenReturn(summary);
 
         // Act
         ProductResponse response = productService.getProductResponse(product);
@@ -771,10 +1024,9 @@ class ProductServiceTest {
         assertEquals(50.0, response.getMaxPrice());
         assertEquals(30.0, response.getMinPrice());
         verify(imageRepository).findByProduct(product);
-        verify(reviewRepository).findByProductId(1L);
-        verify(orderItemRepository).findTotalSold(1L);
-        verify(productRepository).maxPrice(1L);
-        verify(productRepository).minPrice(1L);
+        verify(productSummaryService).getSummary(1L);
+        verify(reviewRepository, never()).findByProductId(anyLong());
+        verify(orderItemRepository, never()).findTotalSold(anyLong());
     }
 
     @Test
@@ -783,10 +1035,7 @@ class ProductServiceTest {
         Product product = createProduct(1L, "Test Product", Status.ACTIVE);
 
         when(imageRepository.findByProduct(product)).thenReturn(Collections.emptyList());
-        when(reviewRepository.findByProductId(1L)).thenReturn(Collections.emptyList());
-        when(orderItemRepository.findTotalSold(1L)).thenReturn(Optional.empty());
-        when(productRepository.maxPrice(1L)).thenReturn(Optional.empty());
-        when(productRepository.minPrice(1L)).thenReturn(Optional.empty());
+        when(productSummaryService.getSummary(1L)).thenReturn(ProductSummary.builder().productId(1L).build());
 
         // Act
         ProductResponse response = productService.getProductResponse(product);
@@ -815,4 +1064,4 @@ class ProductServiceTest {
         verify(imageRepository).findByProduct(product);
     }
     // endregion
-}
\ No newline at end of file
+}
@@ -0,0 +1,123 @@
+package com.ptit.coffee_shop.service;
+
+import com.ptit.coffee_shop.common.CatalogChangedEvent;
+import com.ptit.coffee_shop.common.enums.Status;
+import com.ptit.coffee_shop.model.Brand;
+import com.ptit.coffee_shop.model.Product;
+import com.ptit.coffee_shop.model.ProductSummary;
+import com.ptit.coffee_shop.payload.response.SuggestionResponse;
+import com.ptit.coffee_shop.repository.ProductRepository;
+import com.ptit.coffee_shop.repository.ProductSummaryRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class ProductSuggestServiceTest {
+
+    @Mock private ProductRepository productRepository;
+    @Mock private ProductSummaryRepository productSummaryRepository;
+
+    @InjectMocks private ProductSuggestService productSuggestService;
+
+    private Product createProduct(long id, String name, String brandName) {
+        Brand brand = new Brand();
+        brand.setName(brandName);
+        Product product = new Product();
+        product.setId(id);
+        product.setName(name);
+        product.setBrand(brand);
+        product.setStatus(Status.ACTIVE);
+        return product;
+    }
+
+    private ProductSummary summary(long productId, int totalSold) {
+        return ProductSummary.builder().productId(productId).totalSold(totalSold).build();
+    }
+
+    private List<String> texts(List<SuggestionResponse> suggestions) {
+        return suggestions.stream().map(SuggestionResponse::getText).toList();
+    }
+
+    @BeforeEach
+    void setUp() {
+        List<Product> products = List.of(
+                createProduct(1L, "Cà phê sữa đá", "Highlands"),
+                createProduct(2L, "Cà phê đen", "Highlands"),
+                createProduct(3L, "Cappuccino", "Phúc Long"));
+        when(productRepository.findByStatus(Status.ACTIVE)).thenReturn(products);
+        when(productSummaryRepository.findAllById(anyCollection()))
+                .thenReturn(List.of(summary(1L, 50), summary(2L, 20), summary(3L, 80)));
+        productSuggestService.rebuild();
+    }
+
+    @Test
+    void suggest_ShouldOrderByTotalSold() {
+        List<SuggestionResponse> result = productSuggestService.suggest("ca", 10);
+
+        assertEquals(List.of("Cappuccino", "Cà phê sữa đá", "Cà phê đen"), texts(result));
+        assertEquals(80, result.get(0).getTotalSold());
+    }
+
+    @Test
+    void suggest_ShouldMatchBrandAndInnerWords() {
+        List<SuggestionResponse> brands = productSuggestService.suggest("high", 10);
+        assertEquals(List.of("Highlands"), texts(brands));
+        assertEquals(ProductSuggestService.TYPE_BRAND, brands.get(0).getType());
+        assertEquals(70, brands.get(0).getTotalSold());
+
+        assertEquals(List.of("Cà phê sữa đá"), texts(productSuggestService.suggest("sua", 10)));
+        assertEquals(List.of("Phúc Long", "Cà phê sữa đá", "Cà phê đen"), texts(productSuggestService.suggest("ph", 10)));
+    }
+
+    @Test
+    void suggest_ShouldRespectLimit() {
+        assertEquals(1, productSuggestService.suggest("c", 1).size());
+        assertTrue(productSuggestService.suggest("tra", 10).isEmpty());
+        assertTrue(productSuggestService.suggest(" ", 10).isEmpty());
+    }
+
+    @Test
+    void index_WhenProductRenamedOrRemoved_ShouldUpdateTrie() {
+        Product product = createProduct(2L, "Bạc xỉu", "Phúc Long");
+
+        productSuggestService.index(product);
+        productSuggestService.remove(3L);
+
+        assertEquals(List.of("Cà phê sữa đá"), texts(productSuggestService.suggest("ca phe", 10)));
+        assertEquals(List.of("Bạc xỉu"), texts(productSuggestService.suggest("bac", 10)));
+        List<SuggestionResponse> brand = productSuggestService.suggest("phuc", 10);
+        assertEquals(List.of("Phúc Long"), texts(brand));
+        assertEquals(20, brand.get(0).getTotalSold());
+        assertEquals(50, productSuggestService.suggest("highlands", 10).get(0).getTotalSold());
+    }
+
+    @Test
+    void onCatalogChanged_WhenBrandRenamed_ShouldReplaceBrandSuggestion() {
+        Product cappuccino = createProduct(3L, "Cappuccino", "Phúc Long Coffee & Tea");
+        when(productRepository.findAllById(List.of(3L))).thenReturn(List.of(cappuccino));
+
+        productSuggestService.onCatalogChanged(new CatalogChangedEvent(CatalogChangedEvent.BRAND, List.of(3L)));
+
+        List<SuggestionResponse> brand = productSuggestService.suggest("phuc", 10);
+        assertEquals(List.of("Phúc Long Coffee & Tea"), texts(brand));
+        assertEquals(80, brand.get(0).getTotalSold());
+    }
+
+    @Test
+    void updateTotalSold_ShouldReorderSuggestions() {
+        productSuggestService.updateTotalSold(List.of(summary(2L, 100)));
+
+        assertEquals(List.of("Cà phê đen", "Cappuccino", "Cà phê sữa đá"), texts(productSuggestService.suggest("ca", 10)));
+        assertEquals(150, productSuggestService.suggest("highlands", 10).get(0).getTotalSold());
+    }
+}
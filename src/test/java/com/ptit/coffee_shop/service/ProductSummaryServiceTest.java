@@ -0,0 +1,125 @@
+package com.ptit.coffee_shop.service;
+
+import com.ptit.coffee_shop.common.CatalogChangedEvent;
+import com.ptit.coffee_shop.common.Constant;
+import com.ptit.coffee_shop.config.MessageBuilder;
+import com.ptit.coffee_shop.model.ProductSummary;
+import com.ptit.coffee_shop.payload.response.RespMessage;
+import com.ptit.coffee_shop.repository.ProductRepository;
+import com.ptit.coffee_shop.repository.ProductSummaryRepository;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.Spy;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.core.task.SyncTaskExecutor;
+import org.springframework.core.task.TaskExecutor;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.util.*;
+import java.util.stream.LongStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class ProductSummaryServiceTest {
+
+    @Mock private ProductSummaryRepository productSummaryRepository;
+    @Mock private ProductRepository productRepository;
+    @Mock private MessageBuilder messageBuilder;
+    @Mock private ProductSuggestService productSuggestService;
+    @Mock private ProductFacetService productFacetService;
+    @Mock private ApplicationEventPublisher eventPublisher;
+    @Mock private PlatformTransactionManager transactionManager;
+    @Spy private TaskExecutor productSummaryRebuildExecutor = new SyncTaskExecutor();
+
+    @InjectMocks private ProductSummaryService productSummaryService;
+
+    @Test
+    void refresh_ShouldUpsertInDatabaseAndPublishChange() {
+        // Arrange
+        List<ProductSummary> stored = List.of(ProductSummary.builder().productId(1L).totalSold(10).build(),
+                ProductSummary.builder().productId(2L).build());
+        when(productSummaryRepository.findAllById(List.of(1L, 2L))).thenReturn(stored);
+
+        // Act
+        List<ProductSummary> result = productSummaryService.refresh(List.of(1L, 2L, 1L));
+
+        // Assert
+        assertEquals(stored, result);
+        verify(productSummaryRepository).upsert(List.of(1L, 2L));
+        verify(productSummaryRepository, never()).saveAll(any());
+        verify(productSuggestService).updateTotalSold(stored);
+        verify(productFacetService).refresh(List.of(1L, 2L));
+        verify(eventPublisher).publishEvent(any(CatalogChangedEvent.class));
+    }
+
+    @Test
+    void refresh_WithEmptyIds_ShouldNotQuery() {
+        assertTrue(productSummaryService.refresh(Collections.emptyList()).isEmpty());
+        verifyNoInteractions(productRepository, productSummaryRepository, eventPublisher);
+    }
+
+    @Test
+    void getSummaries_WhenAllStored_ShouldOnlyLookupByKey() {
+        // Arrange
+        ProductSummary summary = ProductSummary.builder().productId(1L).totalSold(5).build();
+        when(productSummaryRepository.findAllById(List.of(1L))).thenReturn(List.of(summary));
+
+        // Act
+        Map<Long, ProductSummary> result = productSummaryService.getSummaries(List.of(1L));
+
+        // Assert
+        assertSame(summary, result.get(1L));
+        verify(productSummaryRepository, never()).saveAll(any());
+        verifyNoInteractions(productRepository);
+    }
+
+    @Test
+    void getSummaries_WhenMissing_ShouldNotWrite() {
+        // Arrange
+        ProductSummary stored = ProductSummary.builder().productId(1L).build();
+        when(productSummaryRepository.findAllById(List.of(1L, 2L))).thenReturn(List.of(stored));
+
+        // Act
+        Map<Long, ProductSummary> result = productSummaryService.getSummaries(List.of(1L, 2L));
+
+        // Assert
+        assertEquals(1, result.size());
+        assertNull(result.get(2L));
+        verify(productSummaryRepository, never()).upsert(any());
+        verify(productSummaryRepository, never()).save(any());
+        verifyNoInteractions(eventPublisher);
+    }
+
+    @Test
+    void create_ShouldStoreEmptySummary() {
+        productSummaryService.create(3L);
+
+        verify(productSummaryRepository).save(argThat(summary -> summary.getProductId() == 3L
+                && summary.getTotalSold() == 0 && summary.getMinPrice() == 0));
+    }
+
+    @Test
+    void rebuild_ShouldRefreshAllProductsInChunks() {
+        // Arrange
+        List<Long> ids = LongStream.rangeClosed(1, 1200).boxed().toList();
+        when(productRepository.findAllIds()).thenReturn(ids);
+        when(messageBuilder.buildSuccessMessage(1200)).thenReturn(new RespMessage(Constant.SUCCESS, "Success", 1200));
+
+        // Act
+        RespMessage result = productSummaryService.rebuild();
+
+        // Assert
+        assertEquals(Constant.SUCCESS, result.getRespCode());
+        verify(productSummaryRepository, times(3)).upsert(anyCollection());
+        // Mỗi chunk chạy trên executor được quản lý, trong transaction riêng
+        verify(productSummaryRebuildExecutor, times(3)).execute(any(Runnable.class));
+        verify(transactionManager, times(3)).getTransaction(any());
+        verify(transactionManager, times(3)).commit(any());
+    }
+}
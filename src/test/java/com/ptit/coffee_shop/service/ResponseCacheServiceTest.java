@@ -0,0 +1,99 @@
+package com.ptit.coffee_shop.service;
+
+import com.ptit.coffee_shop.common.CatalogChangedEvent;
+import com.ptit.coffee_shop.payload.response.RespMessage;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+import java.util.zip.GZIPInputStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ResponseCacheServiceTest {
+
+    private final CatalogVersionService catalogVersionService = new CatalogVersionService();
+    private final ResponseCacheService responseCacheService = new ResponseCacheService(catalogVersionService);
+
+    private final AtomicInteger loads = new AtomicInteger();
+
+    private Supplier<RespMessage> loader(String data) {
+        return () -> {
+            loads.incrementAndGet();
+            return RespMessage.builder().respCode("0").respDesc("Success").data(data).build();
+        };
+    }
+
+    @Test
+    void respond_ShouldReuseBytesUntilVersionChanges() {
+        ResponseEntity<byte[]> first = responseCacheService.respond("brand-all", 0, null, null, loader("a"));
+        ResponseEntity<byte[]> second = responseCacheService.respond("brand-all", 0, null, null, loader("b"));
+
+        assertEquals(1, loads.get());
+        assertSame(first.getBody(), second.getBody());
+        assertTrue(new String(first.getBody(), StandardCharsets.UTF_8).contains("\"a\""));
+        assertEquals(HttpHeaders.ACCEPT_ENCODING, first.getHeaders().getFirst(HttpHeaders.VARY));
+
+        ResponseEntity<byte[]> third = responseCacheService.respond("brand-all", 1, null, null, loader("b"));
+
+        assertEquals(2, loads.get());
+        assertTrue(new String(third.getBody(), StandardCharsets.UTF_8).contains("\"b\""));
+        assertNotEquals(first.getHeaders().getETag(), third.getHeaders().getETag());
+    }
+
+    @Test
+    void respond_ForResource_ShouldOnlyReloadWhenThatResourceChanges() {
+        ResponseEntity<byte[]> first = responseCacheService.respond("brand-all", CatalogChangedEvent.BRAND, null, null, loader("a"));
+        catalogVersionService.onCatalogChanged(new CatalogChangedEvent(CatalogChangedEvent.PRODUCT_SUMMARY, List.of(1L)));
+        catalogVersionService.onCatalogChanged(new CatalogChangedEvent(CatalogChangedEvent.CATEGORY));
+        ResponseEntity<byte[]> second = responseCacheService.respond("brand-all", CatalogChangedEvent.BRAND, null, null, loader("b"));
+
+        assertEquals(1, loads.get());
+        assertSame(first.getBody(), second.getBody());
+
+        catalogVersionService.onCatalogChanged(new CatalogChangedEvent(CatalogChangedEvent.BRAND));
+        ResponseEntity<byte[]> third = responseCacheService.respond("brand-all", CatalogChangedEvent.BRAND, null, null, loader("b"));
+
+        assertEquals(2, loads.get());
+        assertNotEquals(first.getHeaders().getETag(), third.getHeaders().getETag());
+    }
+
+    @Test
+    void respond_WhenEtagMatches_ShouldReturnNotModifiedWithoutLoading() {
+        String etag = catalogVersionService.etag("category-all", 3);
+
+        ResponseEntity<byte[]> response = responseCacheService.respond("category-all", 3, etag, null, loader("a"));
+
+        assertEquals(HttpStatus.NOT_MODIFIED, response.getStatusCode());
+        assertNull(response.getBody());
+        assertEquals(0, loads.get());
+    }
+
+    @Test
+    void respond_WhenClientAcceptsGzip_ShouldReturnCompressedBytes() throws IOException {
+        String data = "Cà phê sữa đá ".repeat(200);
+
+        ResponseEntity<byte[]> plain = responseCacheService.respond("product-all", 0, null, "identity", loader(data));
+        ResponseEntity<byte[]> gzip = responseCacheService.respond("product-all", 0, null, "gzip, deflate, br", loader(data));
+
+        assertEquals(1, loads.get());
+        assertNull(plain.getHeaders().getFirst(HttpHeaders.CONTENT_ENCODING));
+        assertEquals("gzip", gzip.getHeaders().getFirst(HttpHeaders.CONTENT_ENCODING));
+        assertNotEquals(plain.getHeaders().getETag(), gzip.getHeaders().getETag());
+        assertTrue(gzip.getBody().length < plain.getBody().length);
+        try (GZIPInputStream input = new GZIPInputStream(new ByteArrayInputStream(gzip.getBody()))) {
+            assertArrayEquals(plain.getBody(), input.readAllBytes());
+        }
+
+        ResponseEntity<byte[]> notModified = responseCacheService.respond("product-all", 0,
+                gzip.getHeaders().getETag(), "gzip", loader(data));
+        assertEquals(HttpStatus.NOT_MODIFIED, notModified.getStatusCode());
+    }
+}
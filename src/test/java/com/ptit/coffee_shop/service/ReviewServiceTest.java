@@ -47,6 +47,9 @@ public class ReviewServiceTest {
     @Mock
     private ProductItemRepository productItemRepository;
 
+    @Mock
+    private ProductSummaryService productSummaryService;
+
     @InjectMocks
     private ReviewService reviewService;
 
@@ -150,6 +153,7 @@ public class ReviewServiceTest {
         verify(orderItemRepository).findById(1L);
         verify(orderItemRepository).save(any(OrderItem.class));
         verify(reviewRepository).save(any(Review.class));
+        verify(productSummaryService).refresh(List.of(1L));
         assertThat(testOrderItem.isReviewed()).isTrue();
     }
 
@@ -220,6 +224,7 @@ public class ReviewServiceTest {
         assertThat(result.getRespCode()).isEqualTo(Constant.SUCCESS);
         verify(reviewRepository).findById(1L);
         verify(reviewRepository).save(any(Review.class));
+        verify(productSummaryService).refresh(List.of(1L));
         assertThat(testReview.getStatus()).isEqualTo(Status.INACTIVE);
     }
 
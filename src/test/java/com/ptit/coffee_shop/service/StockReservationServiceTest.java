@@ -0,0 +1,200 @@
+package com.ptit.coffee_shop.service;
+
+import com.ptit.coffee_shop.common.enums.OrderStatus;
+import com.ptit.coffee_shop.common.enums.PaymentMethod;
+import com.ptit.coffee_shop.common.enums.ReservationStatus;
+import com.ptit.coffee_shop.model.Order;
+import com.ptit.coffee_shop.model.Product;
+import com.ptit.coffee_shop.model.ProductItem;
+import com.ptit.coffee_shop.model.StockReservation;
+import com.ptit.coffee_shop.repository.OrderRepository;
+import com.ptit.coffee_shop.repository.ProductItemRepository;
+import com.ptit.coffee_shop.repository.StockReservationRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class StockReservationServiceTest {
+
+    @Mock private StockReservationRepository stockReservationRepository;
+    @Mock private ProductItemRepository productItemRepository;
+    @Mock private OrderRepository orderRepository;
+    @Mock private ProductSummaryService productSummaryService;
+    @Mock private HotStockService hotStockService;
+    @Mock private OrderOutboxService orderOutboxService;
+
+    @InjectMocks private StockReservationService stockReservationService;
+
+    private Order order;
+
+    @BeforeEach
+    void setUp() {
+        order = new Order();
+        order.setId(7L);
+        order.setStatus(OrderStatus.Processing);
+        order.setPaymentMethod(PaymentMethod.VNPay);
+    }
+
+    private StockReservation reservation(long id, long productItemId, int amount, long expiresAt) {
+        return StockReservation.builder()
+                .id(id)
+                .orderId(order.getId())
+                .productItemId(productItemId)
+                .amount(amount)
+                .expiresAt(new Date(expiresAt))
+                .status(ReservationStatus.HELD)
+                .build();
+    }
+
+    @Test
+    void hold_ShouldPersistAndTrackExpiry() {
+        stockReservationService.hold(order, Map.of(1L, 2, 2L, 1));
+
+        verify(stockReservationRepository).saveAll(argThat(reservations -> {
+            int count = 0;
+            for (StockReservation reservation : reservations) {
+                assertEquals(ReservationStatus.HELD, reservation.getStatus());
+                count++;
+            }
+            return count == 2;
+        }));
+        assertEquals(1, stockReservationService.size());
+        assertTrue(stockReservationService.findExpiredOrderIds(System.currentTimeMillis()).isEmpty());
+        assertEquals(List.of(7L), stockReservationService.findExpiredOrderIds(System.currentTimeMillis() + 60 * 60_000));
+    }
+
+    @Test
+    void release_ShouldRestoreStockCancelOrderAndForgetHold() {
+        stockReservationService.hold(order, Map.of(1L, 2));
+        Product product = new Product();
+        product.setId(3L);
+        ProductItem productItem = new ProductItem();
+        productItem.setProduct(product);
+        when(stockReservationRepository.findByOrderIdAndStatus(7L, ReservationStatus.HELD))
+                .thenReturn(List.of(reservation(11L, 1L, 2, 0)));
+        when(stockReservationRepository.updateStatus(11L, ReservationStatus.HELD, ReservationStatus.RELEASED)).thenReturn(1);
+        when(productItemRepository.findById(1L)).thenReturn(Optional.of(productItem));
+        when(orderRepository.findByIdForUpdate(7L)).thenReturn(Optional.of(order));
+
+        assertTrue(stockReservationService.release(7L));
+
+        verify(productItemRepository).incrementStock(1L, 2);
+        verify(hotStockService).restock(1L, 2);
+        verify(orderRepository).save(order);
+        verify(orderOutboxService).statusChanged(order, OrderStatus.Processing);
+        verify(productSummaryService).refresh(Set.of(3L));
+        assertEquals(OrderStatus.Cancelled, order.getStatus());
+        assertEquals(0, stockReservationService.size());
+    }
+
+    @Test
+    void release_WhenAlreadyHandled_ShouldNotRestoreStockTwice() {
+        when(orderRepository.findByIdForUpdate(7L)).thenReturn(Optional.of(order));
+        when(stockReservationRepository.findByOrderIdAndStatus(7L, ReservationStatus.HELD))
+                .thenReturn(List.of(reservation(11L, 1L, 2, 0)));
+        when(stockReservationRepository.updateStatus(11L, ReservationStatus.HELD, ReservationStatus.RELEASED)).thenReturn(0);
+
+        assertFalse(stockReservationService.release(7L));
+
+        verify(productItemRepository, never()).incrementStock(anyLong(), anyInt());
+        verify(orderRepository, never()).save(any());
+        verifyNoInteractions(productSummaryService, orderOutboxService);
+    }
+
+    @Test
+    void release_WhenOrderNoLongerProcessing_ShouldKeepStock() {
+        stockReservationService.hold(order, Map.of(1L, 2));
+        order.setStatus(OrderStatus.Processed);
+        when(orderRepository.findByIdForUpdate(7L)).thenReturn(Optional.of(order));
+
+        assertFalse(stockReservationService.release(7L));
+
+        verify(stockReservationRepository, never()).updateStatus(anyLong(), any(), any());
+        verify(productItemRepository, never()).incrementStock(anyLong(), anyInt());
+        verifyNoInteractions(hotStockService, productSummaryService, orderOutboxService);
+        assertEquals(OrderStatus.Processed, order.getStatus());
+        assertEquals(0, stockReservationService.size());
+    }
+
+    @Test
+    void releaseCancelled_ThenSweep_ShouldRestoreStockOnce() {
+        stockReservationService.hold(order, Map.of(1L, 2));
+        Product product = new Product();
+        product.setId(3L);
+        ProductItem productItem = new ProductItem();
+        productItem.setProduct(product);
+        when(stockReservationRepository.findByOrderIdAndStatus(7L, ReservationStatus.HELD))
+                .thenReturn(List.of(reservation(11L, 1L, 2, 0)));
+        when(stockReservationRepository.updateStatus(11L, ReservationStatus.HELD, ReservationStatus.RELEASED)).thenReturn(1);
+        when(productItemRepository.findById(1L)).thenReturn(Optional.of(productItem));
+
+        // OrderService.cancelOrder đã đổi trạng thái rồi mới trả hàng giữ
+        order.setStatus(OrderStatus.Cancelled);
+        stockReservationService.releaseCancelled(7L);
+
+        verify(productItemRepository).incrementStock(1L, 2);
+        verify(hotStockService).restock(1L, 2);
+        verify(productSummaryService).refresh(Set.of(3L));
+        verify(stockReservationRepository).updateStatus(11L, ReservationStatus.HELD, ReservationStatus.RELEASED);
+        assertTrue(stockReservationService.findExpiredOrderIds(Long.MAX_VALUE).isEmpty());
+
+        // Sweeper chạy sau đó (ví dụ lượt giữ còn được nạp lại từ trước) không trả kho lần nữa
+        when(orderRepository.findByIdForUpdate(7L)).thenReturn(Optional.of(order));
+        assertFalse(stockReservationService.release(7L));
+
+        verify(productItemRepository, times(1)).incrementStock(anyLong(), anyInt());
+        verify(hotStockService, times(1)).restock(anyLong(), anyInt());
+        verify(orderRepository, never()).save(any());
+        verifyNoInteractions(orderOutboxService);
+    }
+
+    @Test
+    void confirm_ShouldMarkReservationsConfirmedAndStopExpiry() {
+        stockReservationService.hold(order, Map.of(1L, 2));
+        when(orderRepository.findByIdForUpdate(7L)).thenReturn(Optional.of(order));
+        when(stockReservationRepository.findByOrderIdAndStatus(7L, ReservationStatus.HELD))
+                .thenReturn(List.of(reservation(11L, 1L, 2, 0)));
+        when(stockReservationRepository.updateStatus(11L, ReservationStatus.HELD, ReservationStatus.CONFIRMED)).thenReturn(1);
+
+        assertTrue(stockReservationService.confirm(7L));
+
+        assertTrue(stockReservationService.findExpiredOrderIds(Long.MAX_VALUE).isEmpty());
+        verify(productItemRepository, never()).incrementStock(anyLong(), anyInt());
+    }
+
+    @Test
+    void confirm_WhenOrderWasCancelled_ShouldReturnFalse() {
+        order.setStatus(OrderStatus.Cancelled);
+        when(orderRepository.findByIdForUpdate(7L)).thenReturn(Optional.of(order));
+
+        assertFalse(stockReservationService.confirm(7L));
+
+        verify(stockReservationRepository, never()).updateStatus(anyLong(), any(), any());
+    }
+
+    @Test
+    void loadHolds_ShouldRecoverPendingReservationsFromDatabase() {
+        when(stockReservationRepository.findByStatus(ReservationStatus.HELD)).thenReturn(List.of(
+                reservation(11L, 1L, 2, 1000), reservation(12L, 1L, 1, 2000), reservation(13L, 2L, 4, 2000)));
+
+        stockReservationService.loadHolds();
+
+        assertEquals(1, stockReservationService.size());
+        assertTrue(stockReservationService.findExpiredOrderIds(999).isEmpty());
+        assertEquals(List.of(7L), stockReservationService.findExpiredOrderIds(1000));
+    }
+}
@@ -36,6 +36,9 @@ class TransactionServiceTest {
     @Mock
     private MessageBuilder messageBuilder;
 
+    @Mock
+    private StockReservationService stockReservationService;
+
     @InjectMocks
     private TransactionService transactionService;
 
@@ -87,6 +90,7 @@ class TransactionServiceTest {
             // Arrange
             when(orderRepository.findById(testRequest.getOrderId())).thenReturn(Optional.of(testOrder));
             when(transactionRepository.save(any(Transaction.class))).thenReturn(testTransaction);
+            when(stockReservationService.confirm(testOrder.getId())).thenReturn(true);
             when(messageBuilder.buildSuccessMessage(any())).thenReturn(successResponse);
 
             // Act
@@ -98,6 +102,7 @@ class TransactionServiceTest {
             assertEquals(successResponse.getRespDesc(), result.getRespDesc());
             verify(orderRepository, times(1)).findById(testRequest.getOrderId());
             verify(transactionRepository, times(1)).save(any(Transaction.class));
+            verify(stockReservationService, times(1)).confirm(testOrder.getId());
             verify(messageBuilder, times(1)).buildSuccessMessage(any());
         }
 
@@ -135,6 +140,26 @@ class TransactionServiceTest {
             verify(orderRepository, times(1)).findById(testRequest.getOrderId());
             verify(transactionRepository, times(1)).save(any(Transaction.class));
         }
+
+        @Test
+        @DisplayName("TC06 - Ghi nhận hoàn tiền khi đơn đã bị hủy trước lúc thanh toán")
+        void addTransaction_WhenOrderCancelled_ShouldRecordRefund() {
+            // Input: callback thanh toán đến sau khi sweeper đã hủy đơn và trả kho
+            // Expected: Lưu giao dịch pay và refund, ném ra CoffeeShopException với mã lỗi FIELD_EXPIRED
+
+            // Arrange
+            when(orderRepository.findById(testRequest.getOrderId())).thenReturn(Optional.of(testOrder));
+            when(stockReservationService.confirm(testOrder.getId())).thenReturn(false);
+
+            // Act & Assert
+            CoffeeShopException exception = assertThrows(CoffeeShopException.class,
+                    () -> transactionService.addTransaction(testRequest));
+            assertEquals(Constant.FIELD_EXPIRED, exception.getCode());
+            verify(transactionRepository).save(argThat(transaction -> "pay".equals(transaction.getCommand())));
+            verify(transactionRepository).save(argThat(transaction -> "refund".equals(transaction.getCommand())
+                    && "TXN123".equals(transaction.getTransactionNo())));
+            verify(messageBuilder, never()).buildSuccessMessage(any());
+        }
     }
 
     @Nested